@@ -0,0 +1,104 @@
+package com.zerodeplibs.webpush.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+/**
+ * Summarizes the results of {@link VAPIDJWTGeneratorBenchmark}
+ * as a Markdown table with one row per generator and claims.
+ *
+ * <p>
+ * The rows are sorted by the multi-thread throughput in descending order.
+ * The allocation column is the 'gc.alloc.rate.norm' of the latency benchmark.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+class BenchmarkSummary {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    static String format(Collection<RunResult> results) {
+
+        Map<String, Row> rows = new LinkedHashMap<>();
+        int threads = 1;
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String generator = params.getParam("generator");
+            String claims = params.getParam("claims");
+            Row row = rows.computeIfAbsent(generator + "/" + claims,
+                key -> new Row(generator, claims));
+
+            double score = result.getPrimaryResult().getScore();
+            String benchmark = params.getBenchmark();
+            if (benchmark.endsWith(".singleThread")) {
+                row.singleThread = score;
+            } else if (benchmark.endsWith(".multiThread")) {
+                row.multiThread = score;
+                threads = params.getThreads();
+            } else if (benchmark.endsWith(".latency")) {
+                row.latency = score;
+                row.allocation = findAllocation(result);
+            }
+        }
+
+        List<Row> sorted = new ArrayList<>(rows.values());
+        sorted.sort(Comparator.comparingDouble((Row row) -> orZero(row.multiThread)).reversed());
+
+        StringBuilder table = new StringBuilder()
+            .append("| generator | claims | single-thread (ops/s) | multi-thread x")
+            .append(threads).append(" (ops/s) | latency (us/op) | alloc (B/op) |\n")
+            .append("|---|---|---:|---:|---:|---:|\n");
+        for (Row row : sorted) {
+            table.append("| ").append(row.generator)
+                .append(" | ").append(row.claims)
+                .append(" | ").append(formatScore(row.singleThread, "%.0f"))
+                .append(" | ").append(formatScore(row.multiThread, "%.0f"))
+                .append(" | ").append(formatScore(row.latency, "%.1f"))
+                .append(" | ").append(formatScore(row.allocation, "%.0f"))
+                .append(" |\n");
+        }
+        return table.toString();
+    }
+
+    private static double findAllocation(RunResult result) {
+        for (Map.Entry<String, Result> entry : result.getSecondaryResults().entrySet()) {
+            // Older versions of JMH prefix the names of the secondary results with '·'.
+            if (entry.getKey().endsWith(ALLOCATION)) {
+                return entry.getValue().getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static double orZero(double score) {
+        return Double.isNaN(score) ? 0 : score;
+    }
+
+    private static String formatScore(double score, String format) {
+        return Double.isNaN(score) ? "-" : String.format(Locale.ROOT, format, score);
+    }
+
+    private static class Row {
+
+        private final String generator;
+        private final String claims;
+        private double singleThread = Double.NaN;
+        private double multiThread = Double.NaN;
+        private double latency = Double.NaN;
+        private double allocation = Double.NaN;
+
+        Row(String generator, String claims) {
+            this.generator = generator;
+            this.claims = claims;
+        }
+    }
+}
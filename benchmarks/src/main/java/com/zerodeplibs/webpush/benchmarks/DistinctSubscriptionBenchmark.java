@@ -0,0 +1,207 @@
+package com.zerodeplibs.webpush.benchmarks;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.VAPIDKeyPairs;
+import com.zerodeplibs.webpush.httpclient.PreparerBuilder;
+import com.zerodeplibs.webpush.httpclient.StandardHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import com.zerodeplibs.webpush.testsupport.SubscriptionCorpus;
+import com.zerodeplibs.webpush.testsupport.SubscriptionCorpusGenerator;
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the preparation of push requests across many distinct push subscriptions
+ * read from a {@link SubscriptionCorpus}, instead of the same subscription over and over.
+ *
+ * <ul>
+ * <li>{@code read}: reading a subscription from the corpus(the baseline of the others).</li>
+ * <li>{@code keyInfo}: parsing and validating the keys of each subscription.</li>
+ * <li>{@code prepare}: {@link PreparerBuilder#build(VAPIDKeyPair)} and the conversion
+ * to an {@link HttpRequest} with an encrypted message.</li>
+ * </ul>
+ *
+ * <p>
+ * With {@code keyInfoCacheSize} smaller than the number of the subscriptions,
+ * the cache misses on every lookup. So its overhead is measured against no cache(0).
+ * </p>
+ *
+ * <p>
+ * The corpus is read from the path given by the system property 'webpush.corpus'
+ * (by default, 'target/subscriptions-{subscriptions}.bin'). If the file doesn't exist,
+ * it is generated once, which takes a while for millions of subscriptions.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+@State(Scope.Benchmark)
+@Fork(value = 2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DistinctSubscriptionBenchmark {
+
+    @Param({"1000000"})
+    long subscriptions;
+
+    @Param({"0", "100000"})
+    int keyInfoCacheSize;
+
+    private SubscriptionCorpus corpus;
+    private UserAgentMessageEncryptionKeyInfoCache keyInfoCache;
+    private VAPIDKeyPair vapidKeyPair;
+
+    /**
+     * Runs this benchmark with the GC profiler.
+     * The arguments are ignored.
+     *
+     * @param args the arguments.
+     * @throws RunnerException if the benchmark fails.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(DistinctSubscriptionBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+
+    /**
+     * Maps(and generates if necessary) the corpus.
+     *
+     * @throws IOException              if the corpus cannot be read or written.
+     * @throws GeneralSecurityException if the VAPID key pair cannot be generated.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, GeneralSecurityException {
+
+        Path path = Paths.get(System.getProperty("webpush.corpus",
+            "target/subscriptions-" + this.subscriptions + ".bin"));
+        if (!Files.exists(path)) {
+            SubscriptionCorpusGenerator.getBuilder().build().generate(this.subscriptions, path);
+        }
+        this.corpus = SubscriptionCorpus.open(path);
+        if (this.corpus.size() < this.subscriptions) {
+            throw new IllegalStateException("The corpus(" + path + ") has only "
+                + this.corpus.size() + " subscriptions.");
+        }
+
+        if (this.keyInfoCacheSize > 0) {
+            this.keyInfoCache = UserAgentMessageEncryptionKeyInfoCache.of(this.keyInfoCacheSize);
+        }
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        this.vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(VAPIDKeyPairs.of(
+            PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+            PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+        )).build();
+    }
+
+    /**
+     * Walks through the subscriptions from a random position.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private long next;
+
+        /**
+         * Chooses the starting position.
+         *
+         * @param benchmark the benchmark state.
+         */
+        @Setup(Level.Trial)
+        public void setUp(DistinctSubscriptionBenchmark benchmark) {
+            this.next = ThreadLocalRandom.current().nextLong(benchmark.subscriptions);
+        }
+
+        PushSubscription next(DistinctSubscriptionBenchmark benchmark) {
+            long index = this.next;
+            this.next = index + 1 == benchmark.subscriptions ? 0 : index + 1;
+            return benchmark.corpus.get(index).toPushSubscription();
+        }
+    }
+
+    /**
+     * Reads a subscription.
+     *
+     * @param cursor the cursor.
+     * @return the subscription.
+     */
+    @Benchmark
+    public PushSubscription read(Cursor cursor) {
+        return cursor.next(this);
+    }
+
+    /**
+     * Reads a subscription and obtains the key info for the message encryption.
+     *
+     * @param cursor the cursor.
+     * @return the key info.
+     */
+    @Benchmark
+    public UserAgentMessageEncryptionKeyInfo keyInfo(Cursor cursor) {
+        PushSubscription.Keys keys = cursor.next(this).getKeys();
+        return this.keyInfoCache != null
+            ? this.keyInfoCache.get(keys)
+            : UserAgentMessageEncryptionKeyInfo.of(keys.getP256dh(), keys.getAuth());
+    }
+
+    /**
+     * Reads a subscription and prepares a request with an encrypted message.
+     *
+     * @param cursor the cursor.
+     * @return the request.
+     */
+    @Benchmark
+    public HttpRequest prepare(Cursor cursor) {
+        PreparerBuilder<StandardHttpClientRequestPreparer> builder =
+            StandardHttpClientRequestPreparer.getBuilder()
+                .pushSubscription(cursor.next(this))
+                .pushMessage("Hello World. This is a payload for testing.")
+                .ttl(1, TimeUnit.HOURS)
+                .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+                .vapidJWTSubject("mailto:example@example.com");
+        if (this.keyInfoCache != null) {
+            builder.userAgentMessageEncryptionKeyInfoCache(this.keyInfoCache);
+        }
+        return builder.build(this.vapidKeyPair).toRequest();
+    }
+}
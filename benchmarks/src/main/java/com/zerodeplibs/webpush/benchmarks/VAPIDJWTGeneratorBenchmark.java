@@ -0,0 +1,174 @@
+package com.zerodeplibs.webpush.benchmarks;
+
+import com.zerodeplibs.webpush.ext.jwt.auth0.Auth0VAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.ext.jwt.fusionauth.FusionAuthVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.ext.jwt.jjwt.JavaJwtVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.ext.jwt.jose4j.Jose4jVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.ext.jwt.nimbusjose.NimbusJoseVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.ext.jwt.vertx.VertxVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.jwt.DefaultVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.jwt.DeterministicVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTGenerator;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import io.vertx.core.Vertx;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the same benchmarks against each {@link VAPIDJWTGeneratorFactory}
+ * provided by this library and its sub-modules.
+ *
+ * <p>
+ * Each generator is measured with and without additional claims:
+ * </p>
+ *
+ * <ul>
+ * <li>{@code singleThread}: the throughput of one thread.</li>
+ * <li>{@code multiThread}: the throughput of as many threads as the available processors.</li>
+ * <li>{@code latency}: the average time to generate a JWT.</li>
+ * </ul>
+ *
+ * <p>
+ * Use {@link VAPIDJWTGeneratorBenchmarks#main(String[])} to run them
+ * and to obtain the reports.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+@State(Scope.Benchmark)
+@Fork(value = 2)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class VAPIDJWTGeneratorBenchmark {
+
+    @Param({"default", "deterministic", "auth0", "fusionauth", "jjwt", "jose4j", "nimbus-jose",
+        "vertx"})
+    String generator;
+
+    @Param({"none", "additional"})
+    String claims;
+
+    private Vertx vertx;
+    private VAPIDJWTGenerator vapidJWTGenerator;
+    private VAPIDJWTParam param;
+
+    /**
+     * Creates the generator specified by the parameters.
+     *
+     * @throws GeneralSecurityException if the key pair cannot be generated.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        this.vapidJWTGenerator = createFactory().create(
+            (ECPrivateKey) keyPair.getPrivate(), (ECPublicKey) keyPair.getPublic());
+
+        VAPIDJWTParam.Builder builder = VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://fcm.googleapis.com/fcm/send/xxxx")
+            .expiresAfter(15, TimeUnit.MINUTES)
+            .subject("mailto:example@example.com");
+        if ("additional".equals(this.claims)) {
+            builder.additionalClaim("topic", "news-2026-10")
+                .additionalClaim("urgency", "high")
+                .additionalClaim("campaignId", 42);
+        }
+        this.param = builder.build();
+    }
+
+    /**
+     * Closes the Vert.x instance if it has been created.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (this.vertx != null) {
+            this.vertx.close();
+        }
+    }
+
+    private VAPIDJWTGeneratorFactory createFactory() {
+        switch (this.generator) {
+            case "default":
+                return new DefaultVAPIDJWTGeneratorFactory();
+            case "deterministic":
+                return new DeterministicVAPIDJWTGeneratorFactory();
+            case "auth0":
+                return new Auth0VAPIDJWTGeneratorFactory();
+            case "fusionauth":
+                return new FusionAuthVAPIDJWTGeneratorFactory();
+            case "jjwt":
+                return new JavaJwtVAPIDJWTGeneratorFactory();
+            case "jose4j":
+                return new Jose4jVAPIDJWTGeneratorFactory();
+            case "nimbus-jose":
+                return new NimbusJoseVAPIDJWTGeneratorFactory();
+            case "vertx":
+                this.vertx = Vertx.vertx();
+                return new VertxVAPIDJWTGeneratorFactory(() -> this.vertx);
+            default:
+                throw new IllegalArgumentException("Unknown generator: " + this.generator);
+        }
+    }
+
+    /**
+     * Measures the throughput of one thread.
+     *
+     * @return a JWT.
+     */
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String singleThread() {
+        return this.vapidJWTGenerator.generate(this.param);
+    }
+
+    /**
+     * Measures the throughput of as many threads as the available processors.
+     *
+     * @return a JWT.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String multiThread() {
+        return this.vapidJWTGenerator.generate(this.param);
+    }
+
+    /**
+     * Measures the average time to generate a JWT.
+     *
+     * @return a JWT.
+     */
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String latency() {
+        return this.vapidJWTGenerator.generate(this.param);
+    }
+}
@@ -0,0 +1,93 @@
+package com.zerodeplibs.webpush.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of {@link VAPIDJWTGeneratorBenchmark}.
+ *
+ * <p>
+ * Runs the benchmarks with the GC profiler(the bytes allocated per JWT are reported)
+ * and writes the following reports:
+ * </p>
+ *
+ * <ul>
+ * <li>
+ * The machine-readable report in the JMH JSON format.
+ * Its path can be specified by the '-rff' option
+ * (defaults to 'target/vapid-jwt-generator-benchmark.json').
+ * </li>
+ * <li>
+ * The summary table(one row per generator and claims) in Markdown.
+ * It is printed to the standard output and written next to the JSON report
+ * with the '.md' extension.
+ * </li>
+ * </ul>
+ *
+ * <p>
+ * The other JMH command line options(e.g. '-f 1', '-p generator=default,jose4j') can also be used.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public final class VAPIDJWTGeneratorBenchmarks {
+
+    private static final String DEFAULT_RESULT_FILE = "target/vapid-jwt-generator-benchmark.json";
+
+    private VAPIDJWTGeneratorBenchmarks() {
+    }
+
+    /**
+     * Runs the benchmarks and writes the reports.
+     *
+     * @param args the JMH command line options.
+     * @throws CommandLineOptionException if the command line options are invalid.
+     * @throws RunnerException if the benchmarks fail.
+     * @throws IOException if the reports cannot be written.
+     */
+    public static void main(String[] args)
+        throws CommandLineOptionException, RunnerException, IOException {
+
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Path resultFile = Paths.get(commandLineOptions.getResult().orElse(DEFAULT_RESULT_FILE));
+        Path parent = resultFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        Options options = new OptionsBuilder()
+            .parent(commandLineOptions)
+            .include(VAPIDJWTGeneratorBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(resultFile.toString())
+            .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        String summary = BenchmarkSummary.format(results);
+        System.out.println();
+        System.out.println(summary);
+        Files.write(toSummaryFile(resultFile), summary.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Path toSummaryFile(Path resultFile) {
+        String fileName = resultFile.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        return resultFile.resolveSibling(baseName + ".md");
+    }
+}
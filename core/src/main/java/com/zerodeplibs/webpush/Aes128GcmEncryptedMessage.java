@@ -1,5 +1,8 @@
 package com.zerodeplibs.webpush;
 
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
@@ -22,6 +25,17 @@ class Aes128GcmEncryptedMessage implements EncryptedPushMessage {
         return Arrays.copyOf(encryptedMessage, encryptedMessage.length);
     }
 
+    @Override
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(encryptedMessage).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        WebPushPreConditions.checkNotNull(outputStream, "outputStream");
+        outputStream.write(encryptedMessage);
+    }
+
     @Override
     public int length() {
         return this.encryptedMessage.length;
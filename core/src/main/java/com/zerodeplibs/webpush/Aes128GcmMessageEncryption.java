@@ -1,27 +1,41 @@
 package com.zerodeplibs.webpush;
 
+import com.zerodeplibs.webpush.internal.ConcurrentObjectPool;
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.internal.PinnedProviders;
 import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import com.zerodeplibs.webpush.key.PublicKeySources;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
-import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.SecureRandom;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyAgreement;
 import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -29,18 +43,78 @@ import javax.crypto.spec.SecretKeySpec;
  * An implementation class of {@link MessageEncryption}.
  * This class uses the <a href="https://datatracker.ietf.org/doc/html/rfc8188">aes128Gcm</a> algorithm for encryption.
  *
+ * <p>
+ * The JCA objects used for encryption(e.g. {@link Mac} and {@link Cipher}) aren't thread-safe
+ * and obtaining them through the providers is relatively expensive.
+ * So this class keeps them in a {@link ConcurrentObjectPool}
+ * and each invocation of {@link #encrypt(UserAgentMessageEncryptionKeyInfo, PushMessage)}
+ * borrows a set of them exclusively.
+ * </p>
+ *
+ * <p>
+ * With {@link ECDHBackend#BUILT_IN}, the ECDH shared secret for encryption is calculated
+ * by {@link P256} directly from the user agent's public key in uncompressed form.
+ * The bulk encryption calculates the shared secrets(and the ephemeral public keys)
+ * of up to 256 recipients at once so that a single modular inversion is shared among them.
+ * Decryption always uses {@link KeyAgreement}.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
  * @author Tomoki Sato
  */
 class Aes128GcmMessageEncryption implements MessageEncryption {
 
-    private final SecureRandom secureRandom = new SecureRandom();
-    private final Mac mac;
+    private static final int CHUNKS_PER_THREAD = 4;
+    // The maximum number of ECDH operations calculated at once with the built-in backend.
+    private static final int MAX_BATCH_SIZE = 256;
+
+    // The header consists of salt(16) || rs(4) || idlen(1) || keyid(65).
+    private static final int SALT_LENGTH = 16;
+    private static final int AS_PUBLIC_KEY_LENGTH = 65;
+    private static final int HEADER_LENGTH = SALT_LENGTH + 4 + 1 + AS_PUBLIC_KEY_LENGTH;
+    private static final int TAG_LENGTH = 16;
+    private static final int ECDH_SECRET_LENGTH = 32;
+    private static final int HMAC_LENGTH = 32;
+    private static final int CEK_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // A single record ends with the padding delimiter(0x02).
+    private static final byte[] PADDING_DELIMITER = {2};
+
+    private final RandomSource randomSource;
+    private final ConcurrentObjectPool<CryptoContext> contextPool;
+    private final EphemeralKeyPairPool keyPairPool;
+    private final ECDHBackend ecdhBackend;
+    // Becomes false if the Mac implementation doesn't support cloning.
+    private volatile boolean macCloneable = true;
     private final byte[] keyInfoPref = toInfoBytes("WebPush: info");
     private final byte[] cekInfo = toInfoBytes("Content-Encoding: aes128gcm");
     private final byte[] nonceInfo = toInfoBytes("Content-Encoding: nonce");
 
-    Aes128GcmMessageEncryption() throws NoSuchAlgorithmException {
-        this.mac = Mac.getInstance("HmacSHA256");
+    Aes128GcmMessageEncryption(
+        EphemeralKeyPairPool keyPairPool,
+        ECDHBackend ecdhBackend,
+        RandomSource randomSource) throws NoSuchAlgorithmException {
+
+        this.keyPairPool = keyPairPool;
+        this.ecdhBackend = ecdhBackend;
+        this.randomSource = randomSource;
+        // Creates the first context eagerly in order to fail fast
+        // when the required algorithms aren't available.
+        CryptoContext firstContext = CryptoContext.create();
+        this.contextPool = new ConcurrentObjectPool<>(() -> {
+            try {
+                return CryptoContext.create();
+            } catch (NoSuchAlgorithmException e) {
+                throw MessageEncryptionException.withDefaultMessage(e);
+            }
+        });
+        this.contextPool.release(firstContext);
     }
 
     private static byte[] toInfoBytes(String text) {
@@ -60,16 +134,240 @@ class Aes128GcmMessageEncryption implements MessageEncryption {
             "userAgentMessageEncryptionKeyInfo");
         WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
 
+        CryptoContext context = this.contextPool.borrow();
         try {
-            return encryptInternal(userAgentMessageEncryptionKeyInfo, pushMessage);
-        } catch (InvalidAlgorithmParameterException
-            | NoSuchAlgorithmException
-            | InvalidKeyException
-            | IllegalBlockSizeException
-            | NoSuchPaddingException
-            | BadPaddingException e) {
+            return encryptInternal(context, userAgentMessageEncryptionKeyInfo,
+                pushMessage.getMessage());
+        } finally {
+            this.contextPool.release(context);
+        }
+    }
 
-            throw MessageEncryptionException.withDefaultMessage(e);
+    @Override
+    public int encryptInto(
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        PushMessage pushMessage,
+        ByteBuffer dst) {
+
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfo,
+            "userAgentMessageEncryptionKeyInfo");
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        WebPushPreConditions.checkNotNull(dst, "dst");
+
+        byte[] message = pushMessage.getMessage();
+        int length = encryptedLength(message.length);
+        WebPushPreConditions.checkArgument(dst.remaining() >= length,
+            "The destination buffer doesn't have enough space.");
+
+        int start = dst.position();
+        boolean succeeded = false;
+        CryptoContext context = this.contextPool.borrow();
+        try {
+            encryptInternal(context, userAgentMessageEncryptionKeyInfo, message, dst);
+            succeeded = true;
+            return length;
+        } finally {
+            this.contextPool.release(context);
+            if (!succeeded) {
+                // Leaves the buffer as it was.
+                dst.position(start);
+            }
+        }
+    }
+
+    @Override
+    public int encryptedLength(PushMessage pushMessage) {
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        return encryptedLength(pushMessage.getMessage().length);
+    }
+
+    private static int encryptedLength(int messageLength) {
+        return HEADER_LENGTH + messageLength + PADDING_DELIMITER.length + TAG_LENGTH;
+    }
+
+    @Override
+    public List<EncryptedPushMessage> encryptAll(
+        Collection<UserAgentMessageEncryptionKeyInfo> userAgentMessageEncryptionKeyInfos,
+        PushMessage pushMessage,
+        Executor executor) {
+
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfos,
+            "userAgentMessageEncryptionKeyInfos");
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        WebPushPreConditions.checkNotNull(executor, "executor");
+
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos =
+            new ArrayList<>(userAgentMessageEncryptionKeyInfos);
+        EncryptedPushMessage[] results = new EncryptedPushMessage[keyInfos.size()];
+        encryptInParallel(keyInfos, pushMessage, executor,
+            (index, encrypted) -> results[index] = encrypted);
+
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    @Override
+    public void encryptAll(
+        Collection<UserAgentMessageEncryptionKeyInfo> userAgentMessageEncryptionKeyInfos,
+        PushMessage pushMessage,
+        Executor executor,
+        BiConsumer<UserAgentMessageEncryptionKeyInfo, EncryptedPushMessage> callback) {
+
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfos,
+            "userAgentMessageEncryptionKeyInfos");
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        WebPushPreConditions.checkNotNull(executor, "executor");
+        WebPushPreConditions.checkNotNull(callback, "callback");
+
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos =
+            new ArrayList<>(userAgentMessageEncryptionKeyInfos);
+        encryptInParallel(keyInfos, pushMessage, executor,
+            (index, encrypted) -> callback.accept(keyInfos.get(index), encrypted));
+    }
+
+    private void encryptInParallel(
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos,
+        PushMessage pushMessage,
+        Executor executor,
+        IndexedConsumer<EncryptedPushMessage> consumer) {
+
+        keyInfos.forEach(keyInfo ->
+            WebPushPreConditions.checkNotNull(keyInfo, "userAgentMessageEncryptionKeyInfo"));
+
+        int size = keyInfos.size();
+        if (size == 0) {
+            return;
+        }
+
+        // Shared by all the tasks because it is only read.
+        byte[] message = pushMessage.getMessage();
+
+        int parallelism = executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+        // Splits the work into a few more chunks than the parallelism
+        // so that the threads finishing early can pick up the remaining work.
+        int chunkCount = Math.min(size, parallelism * CHUNKS_PER_THREAD);
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        int chunks = (size + chunkSize - 1) / chunkSize;
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger remainingChunks = new AtomicInteger(chunks);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Runnable worker = () -> {
+            for (int chunk = nextChunk.getAndIncrement(); chunk < chunks;
+                 chunk = nextChunk.getAndIncrement()) {
+                int from = chunk * chunkSize;
+                try {
+                    if (failure.get() == null) {
+                        encryptChunk(keyInfos, from, Math.min(size, from + chunkSize), message,
+                            consumer);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (remainingChunks.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                }
+            }
+        };
+
+        // The calling thread takes chunks as well and waits only for the chunks
+        // that other threads have already started. So it never waits for a task queued
+        // in a saturated executor(e.g. when the calling thread is one of its workers).
+        try {
+            for (int i = 1; i < Math.min(parallelism, chunks); i++) {
+                executor.execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            // The calling thread processes the chunks the executor doesn't accept.
+        }
+        worker.run();
+        done.join();
+
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw new CompletionException(cause);
+        }
+    }
+
+    private void encryptChunk(
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos,
+        int from,
+        int to,
+        byte[] message,
+        IndexedConsumer<EncryptedPushMessage> consumer) {
+
+        // Uses the same context for the entire chunk.
+        CryptoContext context = this.contextPool.borrow();
+        try {
+            if (this.ecdhBackend == ECDHBackend.BUILT_IN) {
+                for (int start = from; start < to; start += MAX_BATCH_SIZE) {
+                    encryptBatch(context, keyInfos, start, Math.min(to, start + MAX_BATCH_SIZE),
+                        message, consumer);
+                }
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                consumer.accept(i, encryptInternal(context, keyInfos.get(i), message));
+            }
+        } finally {
+            this.contextPool.release(context);
+        }
+    }
+
+    private void encryptBatch(
+        CryptoContext context,
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos,
+        int from,
+        int to,
+        byte[] message,
+        IndexedConsumer<EncryptedPushMessage> consumer) {
+
+        int count = to - from;
+        EphemeralKeyPair[] asKeyPairs = takeAsKeyPairs(count);
+        byte[][] asScalars = new byte[count][];
+        byte[][] uaPublics = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            asScalars[i] = asKeyPairs[i].getScalar();
+            uaPublics[i] = keyInfos.get(from + i).getUncompressedUaPublic();
+        }
+
+        byte[] ecdhSecrets = new byte[count * ECDH_SECRET_LENGTH];
+        try {
+            P256.ecdh(asScalars, uaPublics, ecdhSecrets);
+        } catch (IllegalArgumentException e) {
+            throw MessageEncryptionException.withDefaultMessage(
+                new InvalidKeyException(e.getMessage(), e));
+        }
+
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(ecdhSecrets, i * ECDH_SECRET_LENGTH,
+                context.ecdhSecret, 0, ECDH_SECRET_LENGTH);
+
+            byte[] encryptedBytes = new byte[encryptedLength(message.length)];
+            try {
+                encryptWithECDHSecret(context, keyInfos.get(from + i),
+                    asKeyPairs[i].getUncompressedPublicKey(), ECDH_SECRET_LENGTH, message,
+                    ByteBuffer.wrap(encryptedBytes));
+            } catch (InvalidAlgorithmParameterException
+                | InvalidKeyException
+                | IllegalBlockSizeException
+                | BadPaddingException
+                | ShortBufferException e) {
+
+                throw MessageEncryptionException.withDefaultMessage(e);
+            }
+            // Outside the try blocks so that the exceptions thrown by the consumer
+            // (e.g. a callback of the caller) are propagated as they are.
+            consumer.accept(from + i, new Aes128GcmEncryptedMessage(encryptedBytes));
         }
     }
 
@@ -78,67 +376,120 @@ class Aes128GcmMessageEncryption implements MessageEncryption {
         Aes128GcmEncryptedMessage encrypted,
         ECPrivateKey uaPrivate) {
 
+        CryptoContext context = this.contextPool.borrow();
         try {
-            return decryptInternal(userAgentMessageEncryptionKeyInfo, encrypted, uaPrivate);
-        } catch (NoSuchAlgorithmException
-            | InvalidKeyException
+            return decryptInternal(context, userAgentMessageEncryptionKeyInfo, encrypted,
+                uaPrivate);
+        } catch (InvalidKeyException
             | InvalidAlgorithmParameterException
-            | NoSuchPaddingException
             | IllegalBlockSizeException
-            | BadPaddingException e) {
+            | BadPaddingException
+            | ShortBufferException e) {
             throw MessageEncryptionException.withDefaultMessage(e);
+        } finally {
+            this.contextPool.release(context);
         }
     }
 
     private EncryptedPushMessage encryptInternal(
-        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo, PushMessage payload)
-        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, InvalidKeyException,
-        IllegalBlockSizeException, NoSuchPaddingException, BadPaddingException {
+        CryptoContext context,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        byte[] message) {
 
-        ECPublicKey uaPublic = userAgentMessageEncryptionKeyInfo.getPublicKey();
+        byte[] encryptedBytes = new byte[encryptedLength(message.length)];
+        encryptInternal(context, userAgentMessageEncryptionKeyInfo, message,
+            ByteBuffer.wrap(encryptedBytes));
 
-        KeyPair asKeyPair = generateAsKeyPair();
-        PrivateKey asPrivate = asKeyPair.getPrivate();
-        PublicKey asPublic = asKeyPair.getPublic();
-        byte[] asPublicUncompressed =
-            PublicKeySources.ofECPublicKey((ECPublicKey) asPublic).extractBytesInUncompressedForm();
+        return new Aes128GcmEncryptedMessage(encryptedBytes);
+    }
 
-        byte[] ecdhSecret = calcECDHSecret(asPrivate, uaPublic);
-        byte[] salt = new byte[16];
-        secureRandom.nextBytes(salt);
+    private void encryptInternal(
+        CryptoContext context,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        byte[] message,
+        ByteBuffer dst) {
 
-        CekAndNonce cekAndNonce = calcCekAndNonce(
-            salt,
-            ecdhSecret,
-            userAgentMessageEncryptionKeyInfo.getAuthSecret(),
-            userAgentMessageEncryptionKeyInfo.getUncompressedUaPublic(),
-            asPublicUncompressed
-        );
-        byte[] cek = cekAndNonce.getCek();
-        byte[] nonce = cekAndNonce.getNone();
+        try {
+            encryptInternalWithCheckedExceptions(
+                context, userAgentMessageEncryptionKeyInfo, message, dst);
+        } catch (InvalidKeyException
+            | InvalidAlgorithmParameterException
+            | IllegalBlockSizeException
+            | BadPaddingException
+            | ShortBufferException e) {
+
+            throw MessageEncryptionException.withDefaultMessage(e);
+        }
+    }
 
-        byte[] encrypted =
-            encryptByAesGcm(nonce, cek,
-                concatByteArrays(payload.getMessage(), new byte[] {2}));
+    private void encryptInternalWithCheckedExceptions(
+        CryptoContext context,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        byte[] message,
+        ByteBuffer dst)
+        throws InvalidAlgorithmParameterException, InvalidKeyException,
+        IllegalBlockSizeException, BadPaddingException, ShortBufferException {
+
+        EphemeralKeyPair asKeyPair = takeAsKeyPair(context);
+        byte[] asPublicUncompressed = asKeyPair.getUncompressedPublicKey();
+
+        int ecdhSecretLength;
+        if (this.ecdhBackend == ECDHBackend.BUILT_IN) {
+            ecdhSecretLength = calcECDHSecretWithBuiltIn(
+                context, asKeyPair, userAgentMessageEncryptionKeyInfo);
+        } else {
+            ecdhSecretLength = calcECDHSecret(context, asKeyPair.getPrivateKey(),
+                userAgentMessageEncryptionKeyInfo.getPublicKey());
+        }
 
-        byte[] header = concatByteArrays(
+        encryptWithECDHSecret(context, userAgentMessageEncryptionKeyInfo, asPublicUncompressed,
+            ecdhSecretLength, message, dst);
+    }
+
+    // Encrypts the message with the ECDH secret stored in the context.
+    private void encryptWithECDHSecret(
+        CryptoContext context,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        byte[] asPublicUncompressed,
+        int ecdhSecretLength,
+        byte[] message,
+        ByteBuffer dst)
+        throws InvalidAlgorithmParameterException, InvalidKeyException,
+        IllegalBlockSizeException, BadPaddingException, ShortBufferException {
+
+        byte[] salt = context.salt;
+        this.randomSource.nextBytes(salt);
+
+        calcCekAndNonce(
+            context,
             salt,
-            toRecordSizeBytes(encrypted.length),
-            new byte[] {(byte) asPublicUncompressed.length},
+            ecdhSecretLength,
+            userAgentMessageEncryptionKeyInfo,
             asPublicUncompressed
         );
 
-        byte[] encryptedBytes = concatByteArrays(header, encrypted);
-
-        return new Aes128GcmEncryptedMessage(encryptedBytes);
+        // salt || rs || idlen || keyid
+        // 'rs' is written byte by byte because it is big-endian regardless of the order of 'dst'.
+        int rs = encryptedLength(message.length) - HEADER_LENGTH;
+        dst.put(salt)
+            .put((byte) (rs >>> 24))
+            .put((byte) (rs >>> 16))
+            .put((byte) (rs >>> 8))
+            .put((byte) rs)
+            .put((byte) asPublicUncompressed.length)
+            .put(asPublicUncompressed);
+
+        // The ciphertext of the record is written directly after the header.
+        encryptByAesGcm(context, message, dst);
     }
 
     private byte[] decryptInternal(
+        CryptoContext context,
         UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
         Aes128GcmEncryptedMessage encrypted,
         ECPrivateKey uaPrivate)
-        throws NoSuchAlgorithmException, InvalidKeyException, InvalidAlgorithmParameterException,
-        NoSuchPaddingException, IllegalBlockSizeException, BadPaddingException {
+        throws InvalidKeyException, InvalidAlgorithmParameterException,
+        IllegalBlockSizeException, BadPaddingException, ShortBufferException {
 
         byte[] salt = encrypted.extractSalt();
 
@@ -148,106 +499,209 @@ class Aes128GcmMessageEncryption implements MessageEncryption {
         ECPublicKey asPublic =
             PublicKeySources.ofUncompressedBytes(uncompressedAsPublicKeyBytes).extract();
 
-        byte[] ecdhSecret = calcECDHSecret(uaPrivate, asPublic);
+        int ecdhSecretLength = calcECDHSecret(context, uaPrivate, asPublic);
 
-        CekAndNonce cekAndNonce = calcCekAndNonce(
+        calcCekAndNonce(
+            context,
             salt,
-            ecdhSecret,
-            userAgentMessageEncryptionKeyInfo.getAuthSecret(),
-            userAgentMessageEncryptionKeyInfo.getUncompressedUaPublic(),
+            ecdhSecretLength,
+            userAgentMessageEncryptionKeyInfo,
             uncompressedAsPublicKeyBytes
         );
 
-        byte[] cek = cekAndNonce.getCek();
-        byte[] nonce = cekAndNonce.getNone();
-
-        byte[] decrypted = decryptByAesGcm(nonce, cek, content);
+        byte[] decrypted = decryptByAesGcm(context, content);
 
         return stripPadding(decrypted);
     }
 
+    private EphemeralKeyPair takeAsKeyPair(CryptoContext context) {
+        if (this.keyPairPool != null) {
+            EphemeralKeyPair pooled = this.keyPairPool.poll();
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        if (this.ecdhBackend == ECDHBackend.BUILT_IN) {
+            return EphemeralKeyPair.generate(this.randomSource);
+        }
+        return EphemeralKeyPair.generate(context.keyPairGenerator);
+    }
 
-    private KeyPair generateAsKeyPair()
-        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
-
-        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
-        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
-
-        return keyPairGenerator.genKeyPair();
+    // Takes the key pairs for the built-in backend.
+    // The key pairs that the pool can't supply are generated at once.
+    private EphemeralKeyPair[] takeAsKeyPairs(int count) {
+        EphemeralKeyPair[] keyPairs = new EphemeralKeyPair[count];
+        int missing = count;
+        if (this.keyPairPool != null) {
+            for (int i = 0; i < count; i++) {
+                keyPairs[i] = this.keyPairPool.poll();
+                if (keyPairs[i] != null) {
+                    missing--;
+                }
+            }
+        }
+        if (missing > 0) {
+            EphemeralKeyPair[] generated = EphemeralKeyPair.generate(this.randomSource, missing);
+            int next = 0;
+            for (int i = 0; i < count; i++) {
+                if (keyPairs[i] == null) {
+                    keyPairs[i] = generated[next++];
+                }
+            }
+        }
+        return keyPairs;
     }
 
-    private byte[] calcECDHSecret(PrivateKey asPrivate, PublicKey uaPublic)
-        throws NoSuchAlgorithmException, InvalidKeyException {
+    private int calcECDHSecret(CryptoContext context, PrivateKey asPrivate, PublicKey uaPublic)
+        throws InvalidKeyException, ShortBufferException {
 
-        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+        KeyAgreement keyAgreement = context.keyAgreement;
         keyAgreement.init(asPrivate);
         keyAgreement.doPhase(uaPublic, true);
 
-        return keyAgreement.generateSecret();
+        return keyAgreement.generateSecret(context.ecdhSecret, 0);
+    }
+
+    private int calcECDHSecretWithBuiltIn(
+        CryptoContext context,
+        EphemeralKeyPair asKeyPair,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo)
+        throws InvalidKeyException {
+
+        try {
+            P256.ecdh(asKeyPair.getScalar(),
+                userAgentMessageEncryptionKeyInfo.getUncompressedUaPublic(),
+                context.ecdhSecret, 0);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidKeyException(e.getMessage(), e);
+        }
+        return ECDH_SECRET_LENGTH;
     }
 
-    private CekAndNonce calcCekAndNonce(
+    /**
+     * Derives the content encryption key and the nonce
+     * into {@link CryptoContext#cek} and {@link CryptoContext#nonce}.
+     * The inputs of each HMAC are fed as separate segments
+     * and all the intermediate values are written into the context's scratch buffers.
+     * The HMAC keyed with the auth secret is cloned from the Mac cached in the key info.
+     */
+    private void calcCekAndNonce(
+        CryptoContext context,
         byte[] salt,
-        byte[] ecdhSecret,
-        byte[] authSecret,
-        byte[] uaPublicUncompressed,
+        int ecdhSecretLength,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
         byte[] asPublicUncompressed
-    ) throws InvalidKeyException {
+    ) throws InvalidKeyException, ShortBufferException {
+
+        Mac mac = context.mac;
+        final byte[] uaPublicUncompressed =
+            userAgentMessageEncryptionKeyInfo.getUncompressedUaPublic();
+
         // ## Use HKDF to combine the ECDH and authentication secrets
 
         // # HKDF-Extract(salt=auth_secret, IKM=ecdh_secret)
         // PRK_key = HMAC-SHA-256(auth_secret, ecdh_secret)
-        byte[] prkKey = hmac(authSecret, ecdhSecret);
+        Mac authSecretMac = initAuthSecretMac(context, userAgentMessageEncryptionKeyInfo);
+        authSecretMac.update(context.ecdhSecret, 0, ecdhSecretLength);
+        authSecretMac.doFinal(context.prkKey, 0);
 
         // # HKDF-Expand(PRK_key, key_info, L_key=32)
         // key_info = "WebPush: info" || 0x00 || ua_public || as_public
-        byte[] keyInfo = concatByteArrays(
-            keyInfoPref,
-            uaPublicUncompressed,
-            asPublicUncompressed
-        );
-        byte[] ikm = hmac(prkKey, concatByteArrays(keyInfo, new byte[] {0x01}));
+        // IKM = HMAC-SHA-256(PRK_key, key_info || 0x01)
+        mac.init(new SecretKeySpec(context.prkKey, HMAC_ALGORITHM));
+        mac.update(keyInfoPref);
+        mac.update(uaPublicUncompressed);
+        mac.update(asPublicUncompressed);
+        mac.update((byte) 0x01);
+        mac.doFinal(context.ikm, 0);
 
         // ## HKDF calculations from RFC 8188
         // # HKDF-Extract(salt, IKM)
         // PRK = HMAC-SHA-256(salt, IKM)
-        byte[] prk = hmac(salt, ikm);
+        mac.init(new SecretKeySpec(salt, HMAC_ALGORITHM));
+        mac.update(context.ikm);
+        mac.doFinal(context.prk, 0);
 
         // # HKDF-Expand(PRK, cek_info, L_cek=16)
         // cek_info = "Content-Encoding: aes128gcm" || 0x00
         // CEK = HMAC-SHA-256(PRK, cek_info || 0x01)[0..15]
-        byte[] cek = hmac(prk, concatByteArrays(cekInfo, new byte[] {0x01}));
-        cek = Arrays.copyOfRange(cek, 0, 16);
+        mac.init(new SecretKeySpec(context.prk, HMAC_ALGORITHM));
+        mac.update(cekInfo);
+        mac.update((byte) 0x01);
+        mac.doFinal(context.cek, 0);
 
         // # HKDF-Expand(PRK, nonce_info, L_nonce=12)
         // nonce_info = "Content-Encoding: nonce" || 0x00
         // NONCE = HMAC-SHA-256(PRK, nonce_info || 0x01)[0..11]
-        byte[] nonce = hmac(prk, concatByteArrays(nonceInfo, new byte[] {0x01}));
-        nonce = Arrays.copyOfRange(nonce, 0, 12);
-
-        return new CekAndNonce(cek, nonce);
+        // (doFinal resets the Mac with the same key.)
+        mac.update(nonceInfo);
+        mac.update((byte) 0x01);
+        mac.doFinal(context.nonce, 0);
     }
 
-    private byte[] hmac(byte[] salt, byte[] message) throws InvalidKeyException {
-
-        SecretKeySpec secretKeySpec =
-            new SecretKeySpec(salt, "HmacSHA256");
+    /**
+     * Gets a Mac keyed with the auth secret.
+     *
+     * <p>
+     * Initializing a Mac with a key hashes the padded key(two SHA-256 compressions).
+     * The key info keeps a Mac initialized with its auth secret as a prototype
+     * and cloning the prototype skips this step.
+     * The prototype is never updated, so it can be cloned by multiple threads.
+     * </p>
+     */
+    private Mac initAuthSecretMac(
+        CryptoContext context,
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo)
+        throws InvalidKeyException {
+
+        Mac prototype = userAgentMessageEncryptionKeyInfo.getAuthSecretMac();
+        if (prototype != null) {
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                // Unreachable because the prototype itself is a clone.
+            }
+        }
 
-        mac.init(secretKeySpec);
-        return mac.doFinal(message);
+        Mac mac = context.mac;
+        mac.init(new SecretKeySpec(
+            userAgentMessageEncryptionKeyInfo.getAuthSecret(), HMAC_ALGORITHM));
+        // Only the cached key infos keep the prototype
+        // because the others are usually thrown away after a single message.
+        if (prototype == null && this.macCloneable
+            && userAgentMessageEncryptionKeyInfo.isCached()) {
+            try {
+                userAgentMessageEncryptionKeyInfo.setAuthSecretMac((Mac) mac.clone());
+            } catch (CloneNotSupportedException e) {
+                this.macCloneable = false;
+            }
+        }
+        return mac;
     }
 
-    private byte[] encryptByAesGcm(byte[] iv, byte[] secretKey, byte[] data)
+    private void encryptByAesGcm(CryptoContext context, byte[] message, ByteBuffer dst)
         throws InvalidAlgorithmParameterException, InvalidKeyException, IllegalBlockSizeException,
-        BadPaddingException, NoSuchPaddingException, NoSuchAlgorithmException {
-        return processByteAesGcm(iv, secretKey, data, Cipher.ENCRYPT_MODE);
+        BadPaddingException, ShortBufferException {
+
+        Cipher cipher = context.cipher;
+        cipher.init(Cipher.ENCRYPT_MODE,
+            new SecretKeySpec(context.cek, 0, CEK_LENGTH, "AES"),
+            new GCMParameterSpec(TAG_LENGTH * 8, context.nonce, 0, NONCE_LENGTH));
+
+        cipher.update(ByteBuffer.wrap(message), dst);
+        cipher.doFinal(ByteBuffer.wrap(PADDING_DELIMITER), dst);
     }
 
-    private byte[] decryptByAesGcm(byte[] iv, byte[] secretKey, byte[] data)
-        throws InvalidAlgorithmParameterException, NoSuchPaddingException,
-        IllegalBlockSizeException, NoSuchAlgorithmException, BadPaddingException,
-        InvalidKeyException {
-        return processByteAesGcm(iv, secretKey, data, Cipher.DECRYPT_MODE);
+    private byte[] decryptByAesGcm(CryptoContext context, byte[] data)
+        throws InvalidAlgorithmParameterException, IllegalBlockSizeException,
+        BadPaddingException, InvalidKeyException {
+
+        Cipher cipher = context.cipher;
+        cipher.init(Cipher.DECRYPT_MODE,
+            new SecretKeySpec(context.cek, 0, CEK_LENGTH, "AES"),
+            new GCMParameterSpec(TAG_LENGTH * 8, context.nonce, 0, NONCE_LENGTH));
+
+        return cipher.doFinal(data);
     }
 
     private byte[] stripPadding(byte[] decryptedBytes) {
@@ -278,55 +732,53 @@ class Aes128GcmMessageEncryption implements MessageEncryption {
     }
 
 
-    private byte[] processByteAesGcm(byte[] iv, byte[] secretKey, byte[] data, int encryptMode)
-        throws NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException,
-        InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey, "AES");
-
-        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-        GCMParameterSpec param = new GCMParameterSpec(128, iv);
-
-        cipher.init(encryptMode, secretKeySpec, param);
-
-        return cipher.doFinal(data);
-    }
-
-    private byte[] toRecordSizeBytes(int size) {
-        ByteBuffer bf = ByteBuffer.allocate(4);
-        bf.putInt(size);
-        return bf.array();
-    }
-
-    private byte[] concatByteArrays(byte[]... byteArrays) {
-        int totalLen = Arrays.stream(byteArrays)
-            .mapToInt(arr -> arr.length)
-            .sum();
-
-        byte[] ret = new byte[totalLen];
-        int currentDestStart = 0;
-        for (byte[] arr : byteArrays) {
-            System.arraycopy(arr, 0, ret, currentDestStart, arr.length);
-            currentDestStart += arr.length;
-        }
-        return ret;
-    }
-
-    private static class CekAndNonce {
-
-        private final byte[] cek;
-        private final byte[] none;
-
-        CekAndNonce(byte[] cek, byte[] none) {
-            this.cek = cek;
-            this.none = none;
+    /**
+     * A set of the JCA objects used for a single encryption(or decryption).
+     * An instance of this class must not be used by multiple threads at the same time.
+     */
+    private static class CryptoContext {
+
+        private final Mac mac;
+        private final Cipher cipher;
+        private final KeyAgreement keyAgreement;
+        private final KeyPairGenerator keyPairGenerator;
+
+        // Scratch buffers reused by every encryption(or decryption) using this context.
+        private final byte[] salt = new byte[SALT_LENGTH];
+        private final byte[] ecdhSecret = new byte[ECDH_SECRET_LENGTH];
+        private final byte[] prkKey = new byte[HMAC_LENGTH];
+        private final byte[] ikm = new byte[HMAC_LENGTH];
+        private final byte[] prk = new byte[HMAC_LENGTH];
+        private final byte[] cek = new byte[HMAC_LENGTH];
+        private final byte[] nonce = new byte[HMAC_LENGTH];
+
+        private CryptoContext(Mac mac, Cipher cipher, KeyAgreement keyAgreement,
+                              KeyPairGenerator keyPairGenerator) {
+            this.mac = mac;
+            this.cipher = cipher;
+            this.keyAgreement = keyAgreement;
+            this.keyPairGenerator = keyPairGenerator;
         }
 
-        byte[] getCek() {
-            return cek;
+        static CryptoContext create() throws NoSuchAlgorithmException {
+            try {
+                KeyPairGenerator keyPairGenerator = PinnedProviders.keyPairGenerator("EC");
+                keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+
+                return new CryptoContext(
+                    PinnedProviders.mac(HMAC_ALGORITHM),
+                    PinnedProviders.cipher("AES/GCM/NoPadding"),
+                    PinnedProviders.keyAgreement("ECDH"),
+                    keyPairGenerator
+                );
+            } catch (NoSuchPaddingException | InvalidAlgorithmParameterException e) {
+                throw MessageEncryptionException.withDefaultMessage(e);
+            }
         }
+    }
 
-        byte[] getNone() {
-            return none;
-        }
+    @FunctionalInterface
+    private interface IndexedConsumer<T> {
+        void accept(int index, T value);
     }
 }
@@ -0,0 +1,84 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+
+/**
+ * A {@link VAPIDKeyPair} that caches credentials for VAPID
+ * and shares them between requests to the same push service.
+ *
+ * <p>
+ * Generating a credential requires an ECDSA signature.
+ * When a large number of push messages are sent at once,
+ * most of them are delivered to a handful of push services(origins).
+ * So the same credential can be reused for many requests
+ * instead of signing a new JWT for each request.
+ * </p>
+ *
+ * <p>
+ * The credentials are cached per origin, subject and additional claims.
+ * The "exp" claim of a cached credential is rounded down to a multiple of
+ * the expiration bucket so that the requests whose expiration time
+ * falls in the same bucket can share the credential.
+ * This means that a cached credential never expires
+ * later than the expiration time specified by {@link VAPIDJWTParam}.
+ * </p>
+ *
+ * <p>
+ * Shortly before the expiration time of the requests moves on to the next bucket,
+ * the credential for the next bucket is generated in the background
+ * (refresh-ahead). Concurrent cache misses for the same key are collapsed
+ * into a single generation.
+ * </p>
+ *
+ * <p>
+ * Usually, an instance of this interface is obtained
+ * through {@link VAPIDKeyPairs#getCachingBuilder(VAPIDKeyPair)}.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(
+ *         VAPIDKeyPairs.of(
+ *             PrivateKeySources.ofPEMFile(new File(privateKeyFilePath).toPath()),
+ *             PublicKeySources.ofPEMFile(new File(publicKeyFilePath).toPath())
+ *         ))
+ *     .expirationBucket(1, TimeUnit.MINUTES)
+ *     .refreshAhead(10, TimeUnit.SECONDS)
+ *     .build();
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances obtained through {@link VAPIDKeyPairs#getCachingBuilder(VAPIDKeyPair)}
+ * are thread-safe only if the underlying {@link VAPIDKeyPair} is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see VAPIDKeyPairs#getCachingBuilder(VAPIDKeyPair)
+ */
+public interface CachingVAPIDKeyPair extends VAPIDKeyPair {
+
+    /**
+     * Gets the number of times a credential has been obtained from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    long getHitCount();
+
+    /**
+     * Gets the number of times a credential has been generated
+     * because it didn't exist in the cache.
+     *
+     * @return the number of cache misses.
+     */
+    long getMissCount();
+
+    /**
+     * Gets the number of times a credential has been generated in the background
+     * before it was requested (refresh-ahead).
+     *
+     * @return the number of refresh-ahead generations.
+     */
+    long getRefreshCount();
+}
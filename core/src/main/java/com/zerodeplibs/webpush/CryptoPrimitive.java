@@ -0,0 +1,61 @@
+package com.zerodeplibs.webpush;
+
+/**
+ * The cryptographic primitives obtained from the JCA providers by this library.
+ *
+ * @author Tomoki Sato
+ * @see CryptoProviders#calibrate()
+ */
+public enum CryptoPrimitive {
+
+    /**
+     * The generation of the P-256 key pairs("KeyPairGenerator.EC").
+     */
+    EC_KEY_PAIR_GENERATION("KeyPairGenerator", "EC"),
+
+    /**
+     * The ECDH key agreement("KeyAgreement.ECDH").
+     */
+    ECDH("KeyAgreement", "ECDH"),
+
+    /**
+     * The ECDSA signature used for VAPID("Signature.SHA256withECDSA").
+     */
+    ECDSA("Signature", "SHA256withECDSA"),
+
+    /**
+     * The AES-GCM cipher("Cipher.AES/GCM/NoPadding").
+     */
+    AES_GCM("Cipher", "AES/GCM/NoPadding"),
+
+    /**
+     * The HMAC with SHA-256("Mac.HmacSHA256").
+     */
+    HMAC_SHA256("Mac", "HmacSHA256");
+
+    private final String serviceType;
+    private final String algorithm;
+
+    CryptoPrimitive(String serviceType, String algorithm) {
+        this.serviceType = serviceType;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Gets the type of the JCA service(e.g. "Mac").
+     *
+     * @return the type of the service.
+     */
+    public String getServiceType() {
+        return this.serviceType;
+    }
+
+    /**
+     * Gets the name of the algorithm(e.g. "HmacSHA256").
+     *
+     * @return the name of the algorithm.
+     */
+    public String getAlgorithm() {
+        return this.algorithm;
+    }
+}
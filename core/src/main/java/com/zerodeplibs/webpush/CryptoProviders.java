@@ -0,0 +1,96 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Static methods used to select the JCA providers used by this library.
+ *
+ * <p>
+ * By default, this library obtains the JCA objects through the default lookups
+ * (e.g. {@link javax.crypto.Mac#getInstance(String)}),
+ * so the most preferred provider supporting an algorithm is used.
+ * Depending on the JDK vendor and the CPU, another installed provider may be faster.
+ * The calibration({@link #calibrate()}) is an opt-in mode that measures
+ * each installed provider and pins the fastest one for each {@link CryptoPrimitive}.
+ * </p>
+ *
+ * <p>
+ * The pinned providers are used by the objects created after the calibration.
+ * So it is recommended to calibrate the providers at startup
+ * before creating {@link MessageEncryption}s, {@link EphemeralKeyPairPool}s
+ * and {@link VAPIDKeyPair}s.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * // At startup
+ * ProviderCalibration calibration = CryptoProviders.calibrate();
+ *
+ * MessageEncryption messageEncryption = MessageEncryptions.of();
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class CryptoProviders {
+
+    private static volatile ProviderCalibration calibration;
+
+    private CryptoProviders() {
+    }
+
+    /**
+     * Measures each installed provider for each {@link CryptoPrimitive}
+     * and pins the fastest one.
+     *
+     * <p>
+     * For each primitive, every provider supporting it runs a short warmup
+     * followed by a few timed rounds.
+     * A provider is selected only if its outputs interoperate with the others
+     * (e.g. the shared secrets match an independent calculation
+     * and the signatures can be verified by the default provider).
+     * The key pairs used for the cross-checks of ECDH and ECDSA are generated by
+     * the provider selected for {@link CryptoPrimitive#EC_KEY_PAIR_GENERATION}.
+     * </p>
+     *
+     * <p>
+     * The decisions are logged through {@link System.Logger}
+     * (the name of the logger is the name of this class)
+     * and can also be obtained through {@link #getCalibration()}.
+     * This method takes up to several seconds depending on the number of the providers.
+     * </p>
+     *
+     * @return the result of the calibration.
+     */
+    public static synchronized ProviderCalibration calibrate() {
+        ProviderCalibrator calibrator = new ProviderCalibrator();
+        ProviderCalibration result = calibrator.calibrate();
+        PinnedProviders.pin(calibrator.getPinnedProviders());
+        calibration = result;
+        return result;
+    }
+
+    /**
+     * Gets the result of the last calibration.
+     *
+     * @return the result of the last calibration or empty if the providers aren't calibrated.
+     */
+    public static Optional<ProviderCalibration> getCalibration() {
+        return Optional.ofNullable(calibration);
+    }
+
+    /**
+     * Unpins the providers so that the default lookups are used again.
+     */
+    public static synchronized void reset() {
+        PinnedProviders.pin(Map.of());
+        calibration = null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.zerodeplibs.webpush;
+
+/**
+ * The default factory class for {@link MessageEncryption}.
+ * The created instances use the "aes128gcm" content encoding
+ * and the algorithms provided by the JCA providers.
+ *
+ * @author Tomoki Sato
+ * @see MessageEncryptions
+ */
+public class DefaultMessageEncryptionFactory implements MessageEncryptionFactory {
+
+    /**
+     * Creates a new {@link DefaultMessageEncryptionFactory}.
+     * {@link MessageEncryptions#of()} uses an instance created by this constructor
+     * when no other {@link MessageEncryptionFactory} is found.
+     */
+    public DefaultMessageEncryptionFactory() {
+    }
+
+    /**
+     * Creates a new {@link MessageEncryption}.
+     * This is equivalent to {@code MessageEncryptions.getBuilder().build()}.
+     *
+     * @return a new {@link MessageEncryption}.
+     * @throws MessageEncryptionException if the required algorithms aren't available.
+     */
+    @Override
+    public MessageEncryption create() {
+        return MessageEncryptions.getBuilder().build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.zerodeplibs.webpush;
+
+/**
+ * The implementations of the ECDH key agreement
+ * used by {@link MessageEncryption} to calculate the shared secret.
+ *
+ * @author Tomoki Sato
+ * @see MessageEncryptions#of(ECDHBackend)
+ */
+public enum ECDHBackend {
+
+    /**
+     * Uses {@link javax.crypto.KeyAgreement} obtained from the JCA providers.
+     * This is the default backend.
+     */
+    JCA,
+
+    /**
+     * Uses the built-in pure-Java implementation of the P-256 curve.
+     *
+     * <p>
+     * This backend takes the user agent's public key in uncompressed form as it is
+     * and doesn't go through the JCA providers. It is implemented with
+     * constant-time arithmetic(the sequence of the operations and the memory access pattern
+     * don't depend on the private key).
+     * The application server's ephemeral private keys are also generated without the JCA providers
+     * unless an {@link EphemeralKeyPairPool} supplies them.
+     * </p>
+     *
+     * <p>
+     * The bulk encryption({@link MessageEncryption#encryptAll(java.util.Collection, PushMessage,
+     * java.util.concurrent.Executor)}) calculates the shared secrets in batches
+     * so that the recipients in each batch share a single modular inversion.
+     * </p>
+     */
+    BUILT_IN
+}
@@ -1,5 +1,11 @@
 package com.zerodeplibs.webpush;
 
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
 /**
  * Implementations of this interface represent an encrypted push message.
  *
@@ -23,6 +29,65 @@ public interface EncryptedPushMessage {
      */
     byte[] toBytes();
 
+    /**
+     * Returns a read-only view of the octet sequence that represents
+     * this encrypted push message.
+     *
+     * <p>
+     * Unlike {@link #toBytes()}, the implementations obtained through {@link MessageEncryptions}
+     * don't copy the underlying octet sequence.
+     * Each invocation returns a new buffer whose position is 0
+     * and whose limit is {@link #length()}.
+     * So the returned buffer can be consumed without affecting other buffers.
+     * </p>
+     *
+     * <p>
+     * The default implementation wraps the result of {@link #toBytes()}.
+     * </p>
+     *
+     * @return a read-only buffer.
+     */
+    default ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(toBytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the octet sequence that represents this encrypted push message
+     * to the given output stream.
+     *
+     * <p>
+     * This method doesn't flush or close the given output stream.
+     * </p>
+     *
+     * @param outputStream an output stream.
+     * @throws IOException if an I/O error occurs.
+     */
+    default void writeTo(OutputStream outputStream) throws IOException {
+        WebPushPreConditions.checkNotNull(outputStream, "outputStream");
+        outputStream.write(toBytes());
+    }
+
+    /**
+     * Writes the octet sequence that represents this encrypted push message
+     * to the given channel.
+     *
+     * <p>
+     * This method returns after all the octets are written.
+     * So the given channel is expected to be in blocking mode.
+     * This method doesn't close the given channel.
+     * </p>
+     *
+     * @param channel a channel.
+     * @throws IOException if an I/O error occurs.
+     */
+    default void writeTo(WritableByteChannel channel) throws IOException {
+        WebPushPreConditions.checkNotNull(channel, "channel");
+        ByteBuffer buffer = asReadOnlyByteBuffer();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     /**
      * Returns the length of this encrypted push message.
      *
@@ -0,0 +1,120 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+
+/**
+ * A single-use application server key pair used for message encryption
+ * together with the public key in uncompressed form.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are immutable.
+ * But an instance must be used for only one push message.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see EphemeralKeyPairPool
+ */
+class EphemeralKeyPair {
+
+    private final PrivateKey privateKey;
+    private final byte[] uncompressedPublicKey;
+    private final byte[] scalar;
+
+    private EphemeralKeyPair(PrivateKey privateKey, byte[] uncompressedPublicKey,
+                             byte[] scalar) {
+        this.privateKey = privateKey;
+        this.uncompressedPublicKey = uncompressedPublicKey;
+        this.scalar = scalar;
+    }
+
+    /**
+     * Generates a new key pair with the given generator.
+     * The generator must be initialized for the P-256 curve.
+     *
+     * @param keyPairGenerator a key pair generator.
+     * @return a new key pair.
+     */
+    static EphemeralKeyPair generate(KeyPairGenerator keyPairGenerator) {
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        byte[] uncompressedPublicKey =
+            PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+                .extractBytesInUncompressedForm();
+        // The scalar is extracted here so that the key pair can also be used
+        // with ECDHBackend#BUILT_IN(e.g. when it comes from a pool).
+        PrivateKey privateKey = keyPair.getPrivate();
+        byte[] scalar = privateKey instanceof ECPrivateKey
+            ? P256.toScalar(((ECPrivateKey) privateKey).getS()) : null;
+        return new EphemeralKeyPair(privateKey, uncompressedPublicKey, scalar);
+    }
+
+    /**
+     * Generates a new key pair with the built-in implementation of the P-256 curve.
+     * The returned key pair has no {@link PrivateKey}
+     * and can be used only with {@link ECDHBackend#BUILT_IN}.
+     *
+     * @param randomSource a source of the private key.
+     * @return a new key pair.
+     */
+    static EphemeralKeyPair generate(RandomSource randomSource) {
+        byte[] scalar = generateScalar(randomSource);
+        return new EphemeralKeyPair(null, P256.publicKey(scalar), scalar);
+    }
+
+    /**
+     * Generates the given number of key pairs with the built-in implementation
+     * of the P-256 curve. The public keys are calculated in a batch.
+     *
+     * @param randomSource a source of the private keys.
+     * @param count        the number of key pairs.
+     * @return new key pairs.
+     * @see #generate(RandomSource)
+     */
+    static EphemeralKeyPair[] generate(RandomSource randomSource, int count) {
+        byte[][] scalars = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            scalars[i] = generateScalar(randomSource);
+        }
+        byte[][] publicKeys = P256.publicKeys(scalars);
+
+        EphemeralKeyPair[] keyPairs = new EphemeralKeyPair[count];
+        for (int i = 0; i < count; i++) {
+            keyPairs[i] = new EphemeralKeyPair(null, publicKeys[i], scalars[i]);
+        }
+        return keyPairs;
+    }
+
+    private static byte[] generateScalar(RandomSource randomSource) {
+        byte[] scalar = new byte[P256.SCALAR_LENGTH];
+        do {
+            randomSource.nextBytes(scalar);
+        } while (!P256.isValidScalar(scalar));
+        return scalar;
+    }
+
+    PrivateKey getPrivateKey() {
+        return this.privateKey;
+    }
+
+    /**
+     * Gets the private key as a 32-byte big-endian integer.
+     * Returns null if the key pair generator has created a private key
+     * that doesn't expose its value.
+     *
+     * @return the private key or null.
+     */
+    byte[] getScalar() {
+        return this.scalar;
+    }
+
+    byte[] getUncompressedPublicKey() {
+        return this.uncompressedPublicKey;
+    }
+}
@@ -0,0 +1,338 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded pool of pre-generated single-use key pairs
+ * used as the application server's ephemeral keys for message encryption.
+ *
+ * <p>
+ * Generating a P-256 key pair is the most expensive step of message encryption.
+ * This pool moves the generation off the encryption path:
+ * background threads keep the pool filled with key pairs
+ * (and their public keys in uncompressed form),
+ * and {@link MessageEncryption} takes one of them for each push message.
+ * When the pool is empty, the {@link MessageEncryption} generates a key pair inline
+ * and the pool counts a starvation.
+ * </p>
+ *
+ * <p>
+ * Each key pair is handed out only once.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * EphemeralKeyPairPool keyPairPool = EphemeralKeyPairPool.getBuilder()
+ *     .capacity(1024)
+ *     .refillThreads(2)
+ *     .lowWaterMark(256)
+ *     .build();
+ *
+ * MessageEncryption messageEncryption = MessageEncryptions.of(keyPairPool);
+ *
+ * // On shutdown
+ * keyPairPool.close();
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see MessageEncryptions#of(EphemeralKeyPairPool)
+ */
+public class EphemeralKeyPairPool implements AutoCloseable {
+
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    private final int capacity;
+    private final int lowWaterMark;
+
+    private final Queue<EphemeralKeyPair> keyPairs = new ConcurrentLinkedQueue<>();
+    // The number of key pairs in the queue plus the number of key pairs being generated.
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final LongAdder generatedCount = new LongAdder();
+    private final LongAdder takenCount = new LongAdder();
+    private final LongAdder starvationCount = new LongAdder();
+
+    private final List<Thread> refillThreads;
+    private volatile boolean closed;
+
+    private EphemeralKeyPairPool(Builder builder) {
+        this.capacity = builder.capacity;
+        this.lowWaterMark = builder.lowWaterMark < 0
+            ? builder.capacity / 2 : builder.lowWaterMark;
+
+        int poolNumber = POOL_SEQUENCE.incrementAndGet();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < builder.refillThreads; i++) {
+            Thread thread = new Thread(this::refill,
+                "ephemeral-key-pair-pool-" + poolNumber + "-refill-" + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+        }
+        this.refillThreads = Collections.unmodifiableList(threads);
+        this.refillThreads.forEach(Thread::start);
+    }
+
+    /**
+     * Gets a new builder for {@link EphemeralKeyPairPool}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Takes a key pair from this pool.
+     * If the pool is empty, this method returns null immediately.
+     *
+     * @return a key pair or null.
+     */
+    EphemeralKeyPair poll() {
+        if (this.closed) {
+            return null;
+        }
+
+        EphemeralKeyPair keyPair = this.keyPairs.poll();
+        if (keyPair == null) {
+            this.starvationCount.increment();
+            signalRefill();
+            return null;
+        }
+
+        this.takenCount.increment();
+        this.depth.decrementAndGet();
+        if (this.reserved.decrementAndGet() <= this.lowWaterMark) {
+            signalRefill();
+        }
+        return keyPair;
+    }
+
+    /**
+     * Gets the maximum number of key pairs held by this pool.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Gets the number of key pairs that currently exist in this pool.
+     *
+     * @return the current depth of this pool.
+     */
+    public int getDepth() {
+        return this.depth.get();
+    }
+
+    /**
+     * Gets the number of key pairs generated by the background threads.
+     *
+     * @return the number of generated key pairs.
+     */
+    public long getGeneratedCount() {
+        return this.generatedCount.sum();
+    }
+
+    /**
+     * Gets the number of key pairs taken from this pool.
+     *
+     * @return the number of taken key pairs.
+     */
+    public long getTakenCount() {
+        return this.takenCount.sum();
+    }
+
+    /**
+     * Gets the number of times a key pair was requested while this pool was empty.
+     * Each time this happens, the key pair is generated inline instead.
+     *
+     * @return the number of starvations.
+     */
+    public long getStarvationCount() {
+        return this.starvationCount.sum();
+    }
+
+    /**
+     * Indicates whether this pool has been closed.
+     *
+     * @return true if this pool has been closed.
+     */
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    /**
+     * Stops the background threads and discards the pooled key pairs.
+     * After this method is called, {@link MessageEncryption}s using this pool
+     * generate key pairs inline.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.refillThreads.forEach(LockSupport::unpark);
+        this.keyPairs.clear();
+        this.depth.set(0);
+    }
+
+    private void signalRefill() {
+        if (this.closed) {
+            return;
+        }
+        for (Thread thread : this.refillThreads) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void refill() {
+        KeyPairGenerator keyPairGenerator = createKeyPairGenerator();
+
+        while (!this.closed) {
+            if (this.reserved.get() > this.lowWaterMark) {
+                // Sleeps until the depth falls to the low-water mark.
+                LockSupport.park(this);
+                continue;
+            }
+
+            // Fills the pool up to its capacity.
+            while (!this.closed && tryReserve()) {
+                try {
+                    EphemeralKeyPair keyPair = EphemeralKeyPair.generate(keyPairGenerator);
+                    this.generatedCount.increment();
+                    this.keyPairs.offer(keyPair);
+                    this.depth.incrementAndGet();
+                } catch (RuntimeException e) {
+                    this.reserved.decrementAndGet();
+                    // Avoids a busy loop in case the failure persists.
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            }
+        }
+        this.keyPairs.clear();
+        this.depth.set(0);
+    }
+
+    private boolean tryReserve() {
+        while (true) {
+            int current = this.reserved.get();
+            if (current >= this.capacity) {
+                return false;
+            }
+            if (this.reserved.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    static KeyPairGenerator createKeyPairGenerator() {
+        try {
+            KeyPairGenerator keyPairGenerator = PinnedProviders.keyPairGenerator("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            return keyPairGenerator;
+        } catch (NoSuchAlgorithmException | InvalidAlgorithmParameterException e) {
+            throw MessageEncryptionException.withDefaultMessage(e);
+        }
+    }
+
+    /**
+     * A builder class for {@link EphemeralKeyPairPool}.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * Instances of this class are <b>NOT</b> thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        private int capacity = 256;
+        private int refillThreads = 1;
+        private int lowWaterMark = -1;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the maximum number of key pairs held by the pool.
+         * The default value is 256.
+         *
+         * @param capacity the capacity.
+         * @return this object.
+         * @throws IllegalArgumentException if the given capacity isn't positive.
+         */
+        public Builder capacity(int capacity) {
+            WebPushPreConditions.checkArgument(capacity > 0, "The capacity must be positive.");
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Specifies the number of the background threads that generate key pairs.
+         * The default value is 1.
+         *
+         * @param refillThreads the number of threads.
+         * @return this object.
+         * @throws IllegalArgumentException if the given number isn't positive.
+         */
+        public Builder refillThreads(int refillThreads) {
+            WebPushPreConditions.checkArgument(refillThreads > 0,
+                "The number of refill threads must be positive.");
+            this.refillThreads = refillThreads;
+            return this;
+        }
+
+        /**
+         * Specifies the depth at which the background threads start refilling the pool.
+         * Once started, the threads fill the pool up to its capacity.
+         * The default value is the half of the capacity.
+         *
+         * @param lowWaterMark the low-water mark.
+         * @return this object.
+         * @throws IllegalArgumentException if the given low-water mark is negative.
+         */
+        public Builder lowWaterMark(int lowWaterMark) {
+            WebPushPreConditions.checkArgument(lowWaterMark >= 0,
+                "The low-water mark must not be negative.");
+            this.lowWaterMark = lowWaterMark;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link EphemeralKeyPairPool} and starts its background threads.
+         *
+         * @return a new {@link EphemeralKeyPairPool}.
+         * @throws IllegalStateException      if the low-water mark isn't less than the capacity.
+         * @throws MessageEncryptionException if the key pair generator isn't available.
+         */
+        public EphemeralKeyPairPool build() {
+            WebPushPreConditions.checkState(this.lowWaterMark < this.capacity,
+                "The low-water mark must be less than the capacity.");
+            // Fails fast if the algorithm isn't available.
+            createKeyPairGenerator();
+            return new EphemeralKeyPairPool(this);
+        }
+    }
+}
@@ -1,5 +1,14 @@
 package com.zerodeplibs.webpush;
 
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+
 /**
  * Implementations of this interface provide the functionality of <a href="https://datatracker.ietf.org/doc/html/rfc8291">Message Encryption for Web Push</a>.
  *
@@ -12,8 +21,8 @@ package com.zerodeplibs.webpush;
  *
  * <p>
  * Depends on implementations.
- * Typically, an implementation of this interface is not thread-safe.
- * See {@link MessageEncryptions}.
+ * The implementations obtained through {@link MessageEncryptions} are thread-safe,
+ * so a single instance can be shared across threads(including virtual threads).
  * </p>
  *
  * @author Tomoki Sato
@@ -33,4 +42,174 @@ public interface MessageEncryption {
         UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
         PushMessage pushMessage);
 
+    /**
+     * Encrypts the given <code>pushMessage</code>
+     * with the given <code>userAgentMessageEncryptionKeyInfo</code>
+     * and writes the octet sequence that represents the encrypted push message
+     * into the given buffer.
+     *
+     * <p>
+     * The octet sequence is written at the current position of the buffer
+     * and the position is advanced by the number of written octets.
+     * The buffer can be either a heap buffer or a direct buffer.
+     * Use {@link #encryptedLength(PushMessage)} in order to determine the required space.
+     * If an exception is thrown, the position of the buffer is left unchanged.
+     * </p>
+     *
+     * <p>
+     * The default implementation copies the result of
+     * {@link #encrypt(UserAgentMessageEncryptionKeyInfo, PushMessage)} into the buffer.
+     * The implementations obtained through {@link MessageEncryptions}
+     * encrypt the message directly into the buffer.
+     * </p>
+     *
+     * @param userAgentMessageEncryptionKeyInfo user agent side keys for encryption.
+     * @param pushMessage                       a push message to be encrypted.
+     * @param dst                               a buffer into which the encrypted message
+     *                                          is written.
+     * @return the number of written octets.
+     * @throws IllegalArgumentException         if the remaining space of the buffer
+     *                                          isn't large enough.
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only.
+     */
+    default int encryptInto(
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        PushMessage pushMessage,
+        ByteBuffer dst) {
+
+        WebPushPreConditions.checkNotNull(dst, "dst");
+
+        EncryptedPushMessage encrypted = encrypt(userAgentMessageEncryptionKeyInfo, pushMessage);
+        WebPushPreConditions.checkArgument(dst.remaining() >= encrypted.length(),
+            "The destination buffer doesn't have enough space.");
+        dst.put(encrypted.asReadOnlyByteBuffer());
+        return encrypted.length();
+    }
+
+    /**
+     * Returns the length of the octet sequence that represents the encrypted push message
+     * obtained by encrypting the given <code>pushMessage</code>.
+     *
+     * <p>
+     * Typically, the returned value is used
+     * in order to allocate a buffer passed to
+     * {@link #encryptInto(UserAgentMessageEncryptionKeyInfo, PushMessage, ByteBuffer)}.
+     * </p>
+     *
+     * <p>
+     * The default implementation returns the length for the "aes128gcm" content coding
+     * with a single record and no padding:
+     * the header(86 octets), the message, the padding delimiter(1 octet)
+     * and the authentication tag(16 octets).
+     * Implementations using another layout should override this method.
+     * </p>
+     *
+     * @param pushMessage a push message.
+     * @return the length of the encrypted push message.
+     */
+    default int encryptedLength(PushMessage pushMessage) {
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        // salt(16) || rs(4) || idlen(1) || keyid(65) || ciphertext || delimiter(1) || tag(16)
+        return 86 + pushMessage.length() + 1 + 16;
+    }
+
+    /**
+     * Encrypts the given <code>pushMessage</code>
+     * with each of the given <code>userAgentMessageEncryptionKeyInfos</code>.
+     * This is equivalent to
+     * {@code encryptAll(userAgentMessageEncryptionKeyInfos, pushMessage,
+     * ForkJoinPool.commonPool())}.
+     *
+     * @param userAgentMessageEncryptionKeyInfos user agent side keys for encryption.
+     * @param pushMessage                        a push message to be encrypted.
+     * @return the encrypted push messages in the same order as the given keys.
+     * @see #encryptAll(Collection, PushMessage, Executor)
+     */
+    default List<EncryptedPushMessage> encryptAll(
+        Collection<UserAgentMessageEncryptionKeyInfo> userAgentMessageEncryptionKeyInfos,
+        PushMessage pushMessage) {
+        return encryptAll(userAgentMessageEncryptionKeyInfos, pushMessage,
+            ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Encrypts the given <code>pushMessage</code>
+     * with each of the given <code>userAgentMessageEncryptionKeyInfos</code>
+     * using the given executor.
+     *
+     * <p>
+     * The default implementation encrypts the message sequentially in the calling thread
+     * (so it is safe for the implementations that aren't thread-safe).
+     * The implementations obtained through {@link MessageEncryptions}
+     * split the work across the given executor. The calling thread encrypts
+     * a part of the messages as well and never waits for the work that the executor
+     * hasn't started. So the executor may be bounded or saturated,
+     * and may even be the one running the calling thread.
+     * </p>
+     *
+     * @param userAgentMessageEncryptionKeyInfos user agent side keys for encryption.
+     * @param pushMessage                        a push message to be encrypted.
+     * @param executor                           an executor used for encryption.
+     * @return the encrypted push messages in the same order as the given keys.
+     */
+    default List<EncryptedPushMessage> encryptAll(
+        Collection<UserAgentMessageEncryptionKeyInfo> userAgentMessageEncryptionKeyInfos,
+        PushMessage pushMessage,
+        Executor executor) {
+
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfos,
+            "userAgentMessageEncryptionKeyInfos");
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        WebPushPreConditions.checkNotNull(executor, "executor");
+
+        List<EncryptedPushMessage> results =
+            new ArrayList<>(userAgentMessageEncryptionKeyInfos.size());
+        for (UserAgentMessageEncryptionKeyInfo keyInfo : userAgentMessageEncryptionKeyInfos) {
+            results.add(encrypt(keyInfo, pushMessage));
+        }
+        return results;
+    }
+
+    /**
+     * Encrypts the given <code>pushMessage</code>
+     * with each of the given <code>userAgentMessageEncryptionKeyInfos</code>
+     * using the given executor, and passes each result to the given callback
+     * as soon as it is encrypted.
+     *
+     * <p>
+     * This method returns after all the messages are passed to the callback.
+     * The callback may be invoked from multiple threads at the same time
+     * and isn't invoked in any particular order.
+     * Streaming the results in this way avoids holding all of them in memory at once.
+     * </p>
+     *
+     * <p>
+     * The default implementation encrypts the message sequentially in the calling thread.
+     * The implementations obtained through {@link MessageEncryptions}
+     * split the work across the given executor in the same way as
+     * {@link #encryptAll(Collection, PushMessage, Executor)}.
+     * </p>
+     *
+     * @param userAgentMessageEncryptionKeyInfos user agent side keys for encryption.
+     * @param pushMessage                        a push message to be encrypted.
+     * @param executor                           an executor used for encryption.
+     * @param callback                           a callback receiving
+     *                                           the keys and the encrypted message.
+     */
+    default void encryptAll(
+        Collection<UserAgentMessageEncryptionKeyInfo> userAgentMessageEncryptionKeyInfos,
+        PushMessage pushMessage,
+        Executor executor,
+        BiConsumer<UserAgentMessageEncryptionKeyInfo, EncryptedPushMessage> callback) {
+
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfos,
+            "userAgentMessageEncryptionKeyInfos");
+        WebPushPreConditions.checkNotNull(pushMessage, "pushMessage");
+        WebPushPreConditions.checkNotNull(executor, "executor");
+        WebPushPreConditions.checkNotNull(callback, "callback");
+
+        for (UserAgentMessageEncryptionKeyInfo keyInfo : userAgentMessageEncryptionKeyInfos) {
+            callback.accept(keyInfo, encrypt(keyInfo, pushMessage));
+        }
+    }
 }
@@ -18,7 +18,14 @@ public class MessageEncryptionException extends RuntimeException {
         super(message, cause);
     }
 
-    static MessageEncryptionException withDefaultMessage(Throwable cause) {
+    /**
+     * Creates a new {@link MessageEncryptionException}
+     * with the default message and the given cause.
+     *
+     * @param cause the underlying cause.
+     * @return a new {@link MessageEncryptionException}.
+     */
+    public static MessageEncryptionException withDefaultMessage(Throwable cause) {
         return new MessageEncryptionException(
             "An exception was thrown during a cryptographic operation. Please check the cause.",
             cause);
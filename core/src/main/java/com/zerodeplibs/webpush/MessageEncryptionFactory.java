@@ -0,0 +1,44 @@
+package com.zerodeplibs.webpush;
+
+/**
+ * Implementations of this interface provide the functionality
+ * for creating {@link MessageEncryption}.
+ *
+ * <p>
+ * Typically, an implementation of this interface is provided automatically.
+ * </p>
+ *
+ * <ul>
+ * <li>
+ * If you don't have a dependency on a sub-module for {@link MessageEncryption},
+ * the default implementation({@link DefaultMessageEncryptionFactory}) is automatically used.
+ * </li>
+ * <li>
+ * If you have a dependency on one of the sub-modules(<a href="https://github.com/st-user/zerodep-web-push-java/tree/main/ext-crypto">zerodep-web-push-java-ext-crypto</a>),
+ * the instance of {@link MessageEncryptionFactory}
+ * can be loaded via {@link java.util.ServiceLoader}.
+ * </li>
+ * </ul>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Depends on implementations.
+ * The default implementation({@link DefaultMessageEncryptionFactory}) and
+ * all of the implementations provided by <a href="https://github.com/st-user/zerodep-web-push-java/tree/main/ext-crypto">zerodep-web-push-java-ext-crypto</a>
+ * are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see MessageEncryptions#of()
+ */
+@FunctionalInterface
+public interface MessageEncryptionFactory {
+
+    /**
+     * Creates a new {@link MessageEncryption}.
+     *
+     * @return a new {@link MessageEncryption}.
+     */
+    MessageEncryption create();
+}
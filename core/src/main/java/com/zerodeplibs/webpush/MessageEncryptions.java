@@ -1,6 +1,10 @@
 package com.zerodeplibs.webpush;
 
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.ServiceLoader;
 
 /**
  * Static factory methods used to create instances of {@link MessageEncryption}.
@@ -9,8 +13,14 @@ import java.security.NoSuchAlgorithmException;
  *
  * <p>
  * Instances of {@link MessageEncryption} obtained
- * through a factory method of this class are <b>NOT</b> thread-safe.
- * But instances of {@link EncryptedPushMessage} obtained through them are thread-safe.
+ * through a factory method of this class are thread-safe.
+ * Instances of {@link EncryptedPushMessage} obtained through them are also thread-safe.
+ * </p>
+ *
+ * <p>
+ * Creating an instance of {@link MessageEncryption} involves the lookups of
+ * the JCA providers. So it is recommended to create an instance once
+ * and share it across threads instead of creating a new instance for each push message.
  * </p>
  *
  * @author Tomoki Sato
@@ -23,13 +33,175 @@ public class MessageEncryptions {
     /**
      * Creates a new {@link MessageEncryption} that uses the "aes128gcm" content encoding.
      *
+     * <p>
+     * The implementation of {@link MessageEncryption} can be provided
+     * by one of the sub-modules
+     * (<a href="https://github.com/st-user/zerodep-web-push-java/tree/main/ext-crypto">zerodep-web-push-java-ext-crypto</a>)
+     * on your classpath.
+     * If such sub-modules don't exist, the default implementation
+     * (created by {@link DefaultMessageEncryptionFactory}) is used.
+     * The default implementation caches the objects obtained from the JCA providers
+     * and reuses them across invocations.
+     * </p>
+     *
+     * <p>
+     * The other factory methods(and {@link #getBuilder()})
+     * always create the default implementation.
+     * </p>
+     *
      * @return a new {@link MessageEncryption}.
+     * @see MessageEncryptionFactory
      */
     public static MessageEncryption of() {
-        try {
-            return new Aes128GcmMessageEncryption();
-        } catch (NoSuchAlgorithmException e) {
-            throw MessageEncryptionException.withDefaultMessage(e);
+        return loadMessageEncryptionFactory().create();
+    }
+
+    /**
+     * Creates a new {@link MessageEncryption} that uses the "aes128gcm" content encoding
+     * and calculates the ECDH shared secrets with the given backend.
+     *
+     * @param ecdhBackend the implementation of the ECDH key agreement.
+     * @return a new {@link MessageEncryption}.
+     * @see ECDHBackend
+     */
+    public static MessageEncryption of(ECDHBackend ecdhBackend) {
+        return getBuilder().ecdhBackend(ecdhBackend).build();
+    }
+
+    /**
+     * Creates a new {@link MessageEncryption} that uses the "aes128gcm" content encoding
+     * and takes the application server's ephemeral key pairs from the given pool.
+     *
+     * <p>
+     * When the pool is empty(or closed), a key pair is generated inline.
+     * </p>
+     *
+     * @param keyPairPool a pool of pre-generated key pairs.
+     * @return a new {@link MessageEncryption}.
+     * @see EphemeralKeyPairPool
+     */
+    public static MessageEncryption of(EphemeralKeyPairPool keyPairPool) {
+        return of(keyPairPool, ECDHBackend.JCA);
+    }
+
+    /**
+     * Creates a new {@link MessageEncryption} that uses the "aes128gcm" content encoding,
+     * takes the application server's ephemeral key pairs from the given pool
+     * and calculates the ECDH shared secrets with the given backend.
+     *
+     * @param keyPairPool a pool of pre-generated key pairs.
+     * @param ecdhBackend the implementation of the ECDH key agreement.
+     * @return a new {@link MessageEncryption}.
+     * @see EphemeralKeyPairPool
+     * @see ECDHBackend
+     */
+    public static MessageEncryption of(EphemeralKeyPairPool keyPairPool,
+                                       ECDHBackend ecdhBackend) {
+        return getBuilder().keyPairPool(keyPairPool).ecdhBackend(ecdhBackend).build();
+    }
+
+    private static MessageEncryptionFactory loadMessageEncryptionFactory() {
+        ServiceLoader<MessageEncryptionFactory> loader =
+            ServiceLoader.load(MessageEncryptionFactory.class,
+                MessageEncryptionFactory.class.getClassLoader());
+        Iterator<MessageEncryptionFactory> factoryIterator = loader.iterator();
+        if (!factoryIterator.hasNext()) {
+            return new DefaultMessageEncryptionFactory();
+        }
+        return factoryIterator.next();
+    }
+
+    /**
+     * Gets a new builder for {@link MessageEncryption}
+     * that uses the "aes128gcm" content encoding.
+     *
+     * <div><b>Example:</b></div>
+     * <pre class="code">
+     * MessageEncryption messageEncryption = MessageEncryptions.getBuilder()
+     *     .ecdhBackend(ECDHBackend.BUILT_IN)
+     *     .randomSource(RandomSources.striped())
+     *     .build();
+     * </pre>
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * A builder for {@link MessageEncryption}.
+     *
+     * @author Tomoki Sato
+     * @see MessageEncryptions#getBuilder()
+     */
+    public static class Builder {
+
+        private EphemeralKeyPairPool keyPairPool;
+        private ECDHBackend ecdhBackend = ECDHBackend.JCA;
+        private RandomSource randomSource;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the pool of the application server's ephemeral key pairs.
+         * By default, a key pair is generated for each push message.
+         *
+         * @param keyPairPool a pool of pre-generated key pairs.
+         * @return this object.
+         * @see EphemeralKeyPairPool
+         */
+        public Builder keyPairPool(EphemeralKeyPairPool keyPairPool) {
+            WebPushPreConditions.checkNotNull(keyPairPool, "keyPairPool");
+            this.keyPairPool = keyPairPool;
+            return this;
+        }
+
+        /**
+         * Specifies the implementation of the ECDH key agreement.
+         * The default value is {@link ECDHBackend#JCA}.
+         *
+         * @param ecdhBackend the implementation of the ECDH key agreement.
+         * @return this object.
+         * @see ECDHBackend
+         */
+        public Builder ecdhBackend(ECDHBackend ecdhBackend) {
+            WebPushPreConditions.checkNotNull(ecdhBackend, "ecdhBackend");
+            this.ecdhBackend = ecdhBackend;
+            return this;
+        }
+
+        /**
+         * Specifies the source of the random bytes used for the salts
+         * (and the ephemeral private keys generated with {@link ECDHBackend#BUILT_IN}).
+         * By default, a single {@link SecureRandom} is shared across threads.
+         *
+         * @param randomSource a source of random bytes.
+         * @return this object.
+         * @see RandomSources
+         */
+        public Builder randomSource(RandomSource randomSource) {
+            WebPushPreConditions.checkNotNull(randomSource, "randomSource");
+            this.randomSource = randomSource;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link MessageEncryption}.
+         *
+         * @return a new {@link MessageEncryption}.
+         * @throws MessageEncryptionException if the required algorithms aren't available.
+         */
+        public MessageEncryption build() {
+            RandomSource randomSource = this.randomSource != null
+                ? this.randomSource : RandomSources.of(new SecureRandom());
+            try {
+                return new Aes128GcmMessageEncryption(
+                    this.keyPairPool, this.ecdhBackend, randomSource);
+            } catch (NoSuchAlgorithmException e) {
+                throw MessageEncryptionException.withDefaultMessage(e);
+            }
         }
     }
 }
@@ -0,0 +1,92 @@
+package com.zerodeplibs.webpush;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The result of the calibration of the JCA providers.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are immutable. So they are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see CryptoProviders#calibrate()
+ */
+public class ProviderCalibration {
+
+    private final Map<CryptoPrimitive, String> selectedProviders;
+    private final Map<CryptoPrimitive, Map<String, Long>> nanosPerOperation;
+    private final Map<CryptoPrimitive, Map<String, String>> rejectedProviders;
+
+    ProviderCalibration(Map<CryptoPrimitive, String> selectedProviders,
+                        Map<CryptoPrimitive, Map<String, Long>> nanosPerOperation,
+                        Map<CryptoPrimitive, Map<String, String>> rejectedProviders) {
+        this.selectedProviders = Collections.unmodifiableMap(new EnumMap<>(selectedProviders));
+        this.nanosPerOperation = unmodifiableCopy(nanosPerOperation);
+        this.rejectedProviders = unmodifiableCopy(rejectedProviders);
+    }
+
+    private static <V> Map<CryptoPrimitive, Map<String, V>> unmodifiableCopy(
+        Map<CryptoPrimitive, Map<String, V>> map) {
+        Map<CryptoPrimitive, Map<String, V>> copy = new EnumMap<>(CryptoPrimitive.class);
+        map.forEach((primitive, values) ->
+            copy.put(primitive, Collections.unmodifiableMap(new LinkedHashMap<>(values))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Gets the name of the provider pinned for the given primitive.
+     *
+     * @param primitive a primitive.
+     * @return the name of the provider
+     *     or empty if no provider passed the calibration for the primitive.
+     */
+    public Optional<String> getSelectedProvider(CryptoPrimitive primitive) {
+        return Optional.ofNullable(this.selectedProviders.get(primitive));
+    }
+
+    /**
+     * Gets the names of the pinned providers.
+     *
+     * @return an unmodifiable map from the primitives to the names of the providers.
+     */
+    public Map<CryptoPrimitive, String> getSelectedProviders() {
+        return this.selectedProviders;
+    }
+
+    /**
+     * Gets the measured time per operation of each provider that passed the cross-check.
+     *
+     * @return an unmodifiable map from the primitives
+     *     to the nanoseconds per operation keyed by the names of the providers.
+     */
+    public Map<CryptoPrimitive, Map<String, Long>> getNanosPerOperation() {
+        return this.nanosPerOperation;
+    }
+
+    /**
+     * Gets the providers that support a primitive but were excluded from the selection
+     * (e.g. their outputs didn't interoperate with the others).
+     *
+     * @return an unmodifiable map from the primitives
+     *     to the reasons keyed by the names of the providers.
+     */
+    public Map<CryptoPrimitive, Map<String, String>> getRejectedProviders() {
+        return this.rejectedProviders;
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderCalibration{"
+            + "selectedProviders=" + selectedProviders
+            + ", nanosPerOperation=" + nanosPerOperation
+            + ", rejectedProviders=" + rejectedProviders
+            + '}';
+    }
+}
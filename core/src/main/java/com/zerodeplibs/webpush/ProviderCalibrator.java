@@ -0,0 +1,333 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Measures the installed providers for each {@link CryptoPrimitive}
+ * and selects the fastest one whose outputs interoperate with the others.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class aren't thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see CryptoProviders#calibrate()
+ */
+class ProviderCalibrator {
+
+    private static final System.Logger LOGGER =
+        System.getLogger(CryptoProviders.class.getName());
+
+    private static final int ROUNDS = 3;
+    private static final int ASYMMETRIC_WARMUP = 20;
+    private static final int ASYMMETRIC_ITERATIONS = 30;
+    private static final int SYMMETRIC_WARMUP = 500;
+    private static final int SYMMETRIC_ITERATIONS = 2000;
+
+    private static final String CURVE_NAME = "secp256r1";
+    private static final int TAG_BITS = 128;
+    private static final int NONCE_LENGTH = 12;
+    private static final byte[] DATA = new byte[256];
+
+    static {
+        for (int i = 0; i < DATA.length; i++) {
+            DATA[i] = (byte) i;
+        }
+    }
+
+    private final Map<String, Provider> pinnedProviders = new HashMap<>();
+    private final Map<CryptoPrimitive, String> selectedProviders =
+        new EnumMap<>(CryptoPrimitive.class);
+    private final Map<CryptoPrimitive, Map<String, Long>> nanosPerOperation =
+        new EnumMap<>(CryptoPrimitive.class);
+    private final Map<CryptoPrimitive, Map<String, String>> rejectedProviders =
+        new EnumMap<>(CryptoPrimitive.class);
+
+    ProviderCalibration calibrate() {
+
+        select(CryptoPrimitive.EC_KEY_PAIR_GENERATION, ASYMMETRIC_WARMUP, ASYMMETRIC_ITERATIONS,
+            provider -> {
+                KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC", provider);
+                keyPairGenerator.initialize(new ECGenParameterSpec(CURVE_NAME));
+                checkKeyPair(keyPairGenerator.generateKeyPair());
+                return keyPairGenerator::generateKeyPair;
+            });
+
+        // The fixtures come from the selected generator
+        // so that the pinned providers are checked in combination.
+        KeyPair asKeyPair;
+        KeyPair uaKeyPair;
+        try {
+            KeyPairGenerator keyPairGenerator = newFixtureGenerator();
+            asKeyPair = keyPairGenerator.generateKeyPair();
+            uaKeyPair = keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw MessageEncryptionException.withDefaultMessage(e);
+        }
+
+        selectECDH(asKeyPair, uaKeyPair);
+        selectECDSA(asKeyPair);
+        selectAesGcm();
+        selectHmac();
+
+        return new ProviderCalibration(
+            this.selectedProviders, this.nanosPerOperation, this.rejectedProviders);
+    }
+
+    Map<String, Provider> getPinnedProviders() {
+        return this.pinnedProviders;
+    }
+
+    private void selectECDH(KeyPair asKeyPair, KeyPair uaKeyPair) {
+
+        byte[] expected = new byte[P256.SCALAR_LENGTH];
+        P256.ecdh(toScalar(asKeyPair), toUncompressed(uaKeyPair), expected, 0);
+
+        select(CryptoPrimitive.ECDH, ASYMMETRIC_WARMUP, ASYMMETRIC_ITERATIONS, provider -> {
+            KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH", provider);
+            byte[] secret = new byte[P256.SCALAR_LENGTH];
+            Operation operation = () -> {
+                keyAgreement.init(asKeyPair.getPrivate());
+                keyAgreement.doPhase(uaKeyPair.getPublic(), true);
+                keyAgreement.generateSecret(secret, 0);
+            };
+            operation.run();
+            check(Arrays.equals(secret, expected), "The shared secret doesn't match.");
+            return operation;
+        });
+    }
+
+    private void selectECDSA(KeyPair asKeyPair) {
+
+        String algorithm = CryptoPrimitive.ECDSA.getAlgorithm();
+        byte[] expected;
+        try {
+            expected = sign(Signature.getInstance(algorithm), asKeyPair);
+        } catch (GeneralSecurityException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                "No provider supports {0}. The default lookup is used.", algorithm);
+            return;
+        }
+
+        select(CryptoPrimitive.ECDSA, ASYMMETRIC_WARMUP, ASYMMETRIC_ITERATIONS, provider -> {
+            Signature signature = Signature.getInstance(algorithm, provider);
+            // Each side must verify the signature created by the other side.
+            check(verify(Signature.getInstance(algorithm), asKeyPair,
+                sign(signature, asKeyPair)), "The signature can't be verified.");
+            check(verify(Signature.getInstance(algorithm, provider), asKeyPair, expected),
+                "The provider can't verify the signature of the default provider.");
+            return () -> sign(signature, asKeyPair);
+        });
+    }
+
+    private void selectAesGcm() {
+
+        String transformation = CryptoPrimitive.AES_GCM.getAlgorithm();
+        SecretKeySpec key = new SecretKeySpec(Arrays.copyOf(DATA, 16), "AES");
+        byte[] expected;
+        try {
+            Cipher cipher = Cipher.getInstance(transformation);
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                new GCMParameterSpec(TAG_BITS, new byte[NONCE_LENGTH]));
+            expected = cipher.doFinal(DATA);
+        } catch (GeneralSecurityException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                "No provider supports {0}. The default lookup is used.", transformation);
+            return;
+        }
+
+        select(CryptoPrimitive.AES_GCM, SYMMETRIC_WARMUP, SYMMETRIC_ITERATIONS, provider -> {
+            Cipher cipher = Cipher.getInstance(transformation, provider);
+            byte[] nonce = new byte[NONCE_LENGTH];
+            byte[] output = new byte[expected.length];
+            long[] counter = {0};
+            // Each encryption uses a new nonce because GCM forbids reusing it with the same key.
+            Operation operation = () -> {
+                ByteBuffer.wrap(nonce).putLong(NONCE_LENGTH - Long.BYTES, counter[0]++);
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+                cipher.doFinal(DATA, 0, DATA.length, output, 0);
+            };
+            operation.run();
+            check(Arrays.equals(output, expected), "The ciphertext doesn't match.");
+            return operation;
+        });
+    }
+
+    private void selectHmac() {
+
+        String algorithm = CryptoPrimitive.HMAC_SHA256.getAlgorithm();
+        SecretKeySpec key = new SecretKeySpec(Arrays.copyOf(DATA, 32), algorithm);
+        byte[] expected;
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(key);
+            expected = mac.doFinal(DATA);
+        } catch (GeneralSecurityException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                "No provider supports {0}. The default lookup is used.", algorithm);
+            return;
+        }
+
+        select(CryptoPrimitive.HMAC_SHA256, SYMMETRIC_WARMUP, SYMMETRIC_ITERATIONS, provider -> {
+            Mac mac = Mac.getInstance(algorithm, provider);
+            byte[] output = new byte[expected.length];
+            Operation operation = () -> {
+                mac.init(key);
+                mac.update(DATA);
+                mac.doFinal(output, 0);
+            };
+            operation.run();
+            check(Arrays.equals(output, expected), "The MAC doesn't match.");
+            return operation;
+        });
+    }
+
+    private void select(CryptoPrimitive primitive, int warmup, int iterations,
+                        OperationFactory factory) {
+
+        Map<String, Long> timings = new LinkedHashMap<>();
+        Map<String, String> rejections = new LinkedHashMap<>();
+        Provider fastest = null;
+        long fastestNanos = Long.MAX_VALUE;
+
+        for (Provider provider : Security.getProviders()) {
+            try {
+                long nanos = measure(factory.create(provider), warmup, iterations);
+                timings.put(provider.getName(), nanos);
+                if (nanos < fastestNanos) {
+                    fastest = provider;
+                    fastestNanos = nanos;
+                }
+            } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+                // Skips the provider if it doesn't support the primitive at all.
+                // Otherwise the provider is broken in this environment
+                // (e.g. SunEC fails to construct its KeyPairGenerator
+                // depending on the order of the providers).
+                if (provider.getService(primitive.getServiceType(), primitive.getAlgorithm())
+                    != null) {
+                    reject(primitive, provider, e, rejections);
+                }
+            } catch (GeneralSecurityException | RuntimeException e) {
+                reject(primitive, provider, e, rejections);
+            }
+        }
+
+        this.nanosPerOperation.put(primitive, timings);
+        this.rejectedProviders.put(primitive, rejections);
+        if (fastest == null) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                "No provider passed the calibration for {0}. The default lookup is used.",
+                primitive);
+            return;
+        }
+        this.pinnedProviders.put(
+            primitive.getServiceType() + "." + primitive.getAlgorithm(), fastest);
+        this.selectedProviders.put(primitive, fastest.getName());
+        LOGGER.log(System.Logger.Level.INFO,
+            "Pinned {0} for {1} ({2} ns/op). Measured(ns/op): {3}",
+            fastest.getName(), primitive, fastestNanos, timings);
+    }
+
+    private static void reject(CryptoPrimitive primitive, Provider provider, Exception e,
+                               Map<String, String> rejections) {
+        rejections.put(provider.getName(), e.toString());
+        LOGGER.log(System.Logger.Level.WARNING,
+            "Excluded {0} for {1}: {2}", provider.getName(), primitive, e);
+    }
+
+    private static long measure(Operation operation, int warmup, int iterations)
+        throws GeneralSecurityException {
+
+        for (int i = 0; i < warmup; i++) {
+            operation.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                operation.run();
+            }
+            best = Math.min(best, (System.nanoTime() - start) / iterations);
+        }
+        return best;
+    }
+
+    private KeyPairGenerator newFixtureGenerator() throws GeneralSecurityException {
+        Provider provider = this.pinnedProviders.get("KeyPairGenerator.EC");
+        KeyPairGenerator keyPairGenerator = provider == null
+            ? KeyPairGenerator.getInstance("EC") : KeyPairGenerator.getInstance("EC", provider);
+        keyPairGenerator.initialize(new ECGenParameterSpec(CURVE_NAME));
+        return keyPairGenerator;
+    }
+
+    private static void checkKeyPair(KeyPair keyPair) throws GeneralSecurityException {
+        check(Arrays.equals(P256.publicKey(toScalar(keyPair)), toUncompressed(keyPair)),
+            "The public key doesn't correspond to the private key.");
+    }
+
+    private static byte[] sign(Signature signature, KeyPair keyPair)
+        throws GeneralSecurityException {
+        signature.initSign(keyPair.getPrivate());
+        signature.update(DATA);
+        return signature.sign();
+    }
+
+    private static boolean verify(Signature signature, KeyPair keyPair, byte[] signed)
+        throws GeneralSecurityException {
+        signature.initVerify(keyPair.getPublic());
+        signature.update(DATA);
+        return signature.verify(signed);
+    }
+
+    private static void check(boolean condition, String message)
+        throws GeneralSecurityException {
+        if (!condition) {
+            throw new GeneralSecurityException(message);
+        }
+    }
+
+    private static byte[] toScalar(KeyPair keyPair) {
+        return P256.toScalar(((ECPrivateKey) keyPair.getPrivate()).getS());
+    }
+
+    private static byte[] toUncompressed(KeyPair keyPair) {
+        return PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            .extractBytesInUncompressedForm();
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run() throws GeneralSecurityException;
+    }
+
+    @FunctionalInterface
+    private interface OperationFactory {
+        // Creates an operation for the given provider after checking its output.
+        Operation create(Provider provider) throws GeneralSecurityException;
+    }
+}
@@ -54,6 +54,29 @@ public class PushMessage {
         return new PushMessage(messageText.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Extracts the octet sequence representing this push message.
+     *
+     * <p>
+     * This method is intended to be used
+     * by the implementations of {@link MessageEncryption} provided by sub-modules.
+     * </p>
+     *
+     * @return a copy of the octet sequence.
+     */
+    public byte[] extractBytes() {
+        return Arrays.copyOf(this.message, this.message.length);
+    }
+
+    /**
+     * Returns the length of the octet sequence representing this push message.
+     *
+     * @return the length of this push message.
+     */
+    public int length() {
+        return this.message.length;
+    }
+
     // Should not change returned byte arrays.
     byte[] getMessage() {
         return this.message;
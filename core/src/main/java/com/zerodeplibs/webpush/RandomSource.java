@@ -0,0 +1,37 @@
+package com.zerodeplibs.webpush;
+
+/**
+ * A source of cryptographically strong random bytes
+ * used by {@link MessageEncryption} to generate salts(and ephemeral private keys).
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Implementations of this interface must be thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see RandomSources
+ * @see MessageEncryptions.Builder#randomSource(RandomSource)
+ */
+public interface RandomSource {
+
+    /**
+     * Fills the given array with random bytes.
+     *
+     * @param bytes the array to be filled.
+     */
+    default void nextBytes(byte[] bytes) {
+        nextBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Fills the specified range of the given array with random bytes.
+     *
+     * @param bytes  the array to be filled.
+     * @param offset the index of the first byte to be filled.
+     * @param length the number of bytes to be filled.
+     * @throws IllegalArgumentException if the specified range is out of the given array.
+     */
+    void nextBytes(byte[] bytes, int offset, int length);
+}
@@ -0,0 +1,90 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+
+/**
+ * Static factory methods used to create instances of {@link RandomSource}.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances obtained through a factory method of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class RandomSources {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private RandomSources() {
+    }
+
+    /**
+     * Creates a new {@link RandomSource} that takes random bytes from the given
+     * {@link SecureRandom}. All the threads share the single instance.
+     * This is the behavior of {@link MessageEncryption} by default.
+     *
+     * @param secureRandom a {@link SecureRandom}.
+     * @return a new {@link RandomSource}.
+     */
+    public static RandomSource of(SecureRandom secureRandom) {
+        WebPushPreConditions.checkNotNull(secureRandom, "secureRandom");
+        return new SecureRandomSource(secureRandom);
+    }
+
+    /**
+     * Creates a new {@link RandomSource} that spreads the requests over
+     * multiple "DRBG" instances of {@link SecureRandom}(or the default instances
+     * if the algorithm isn't available). Each instance refills a 4096-byte buffer at once.
+     *
+     * @return a new {@link RandomSource}.
+     * @see #striped(Supplier, int)
+     */
+    public static RandomSource striped() {
+        return striped(RandomSources::newDrbg, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new {@link RandomSource} that spreads the requests over
+     * multiple instances of {@link SecureRandom}.
+     *
+     * <p>
+     * Each stripe owns an instance of {@link SecureRandom} created with the given factory
+     * and a buffer of the given size. A request is served from the buffer of a stripe,
+     * which is refilled with a single call to {@link SecureRandom#nextBytes(byte[])}
+     * when exhausted. A thread takes a stripe that isn't in use without blocking,
+     * so concurrent threads rarely contend on the same {@link SecureRandom}.
+     * Neither <code>synchronized</code> nor {@link ThreadLocal} is used,
+     * so this source behaves well with virtual threads.
+     * The bytes handed out are cleared from the buffer.
+     * </p>
+     *
+     * <p>
+     * The number of stripes is derived from the number of available processors
+     * and all the stripes are created eagerly.
+     * </p>
+     *
+     * @param secureRandomFactory a factory of {@link SecureRandom} for each stripe.
+     * @param bufferSize          the size of the buffer of each stripe.
+     * @return a new {@link RandomSource}.
+     * @throws IllegalArgumentException if the given buffer size isn't positive.
+     */
+    public static RandomSource striped(Supplier<SecureRandom> secureRandomFactory,
+                                       int bufferSize) {
+        WebPushPreConditions.checkNotNull(secureRandomFactory, "secureRandomFactory");
+        WebPushPreConditions.checkArgument(bufferSize > 0, "The buffer size must be positive.");
+        return new StripedRandomSource(secureRandomFactory, bufferSize);
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
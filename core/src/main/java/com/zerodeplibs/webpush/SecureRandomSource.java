@@ -0,0 +1,43 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.security.SecureRandom;
+
+/**
+ * An implementation of {@link RandomSource} backed by a single {@link SecureRandom}.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+class SecureRandomSource implements RandomSource {
+
+    private final SecureRandom secureRandom;
+
+    SecureRandomSource(SecureRandom secureRandom) {
+        this.secureRandom = secureRandom;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        if (offset == 0 && length == bytes.length) {
+            this.secureRandom.nextBytes(bytes);
+            return;
+        }
+        byte[] random = new byte[length];
+        this.secureRandom.nextBytes(random);
+        System.arraycopy(random, 0, bytes, offset, length);
+    }
+
+    static void checkRange(byte[] bytes, int offset, int length) {
+        WebPushPreConditions.checkNotNull(bytes, "bytes");
+        WebPushPreConditions.checkArgument(
+            offset >= 0 && length >= 0 && offset <= bytes.length - length,
+            "The specified range is out of the array.");
+    }
+}
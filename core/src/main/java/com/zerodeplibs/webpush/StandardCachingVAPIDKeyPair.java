@@ -0,0 +1,217 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A standard implementation of the {@link CachingVAPIDKeyPair}.
+ *
+ * @author Tomoki Sato
+ * @see VAPIDKeyPairs#getCachingBuilder(VAPIDKeyPair)
+ */
+class StandardCachingVAPIDKeyPair implements CachingVAPIDKeyPair {
+
+    private final VAPIDKeyPair delegate;
+    private final long bucketSeconds;
+    private final long refreshAheadSeconds;
+    private final Executor refreshExecutor;
+    private final Clock clock;
+
+    private final ConcurrentMap<CacheKey, CompletableFuture<String>> cache =
+        new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder refreshCount = new LongAdder();
+
+    StandardCachingVAPIDKeyPair(VAPIDKeyPair delegate,
+                                long bucketSeconds,
+                                long refreshAheadSeconds,
+                                Executor refreshExecutor,
+                                Clock clock) {
+        this.delegate = delegate;
+        this.bucketSeconds = bucketSeconds;
+        this.refreshAheadSeconds = refreshAheadSeconds;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    @Override
+    public byte[] extractPublicKeyInUncompressedForm() {
+        return this.delegate.extractPublicKeyInUncompressedForm();
+    }
+
+    @Override
+    public String extractPublicKeyInUncompressedFormAsString() {
+        return this.delegate.extractPublicKeyInUncompressedFormAsString();
+    }
+
+    @Override
+    public String generateAuthorizationHeaderValue(VAPIDJWTParam jwtParam) {
+
+        WebPushPreConditions.checkNotNull(jwtParam, "jwtParam");
+
+        long requestedExp = jwtParam.getExpiresAtInSeconds();
+        long bucketedExp = requestedExp - Math.floorMod(requestedExp, this.bucketSeconds);
+        long now = nowInSeconds();
+
+        if (bucketedExp <= now) {
+            // The rounded credential would already be expired. So it can't be shared.
+            this.missCount.increment();
+            return this.delegate.generateAuthorizationHeaderValue(jwtParam);
+        }
+
+        CacheKey key = new CacheKey(jwtParam, bucketedExp);
+        CompletableFuture<String> credential = this.cache.get(key);
+
+        if (credential == null) {
+            CompletableFuture<String> newCredential = new CompletableFuture<>();
+            credential = this.cache.putIfAbsent(key, newCredential);
+            if (credential == null) {
+                this.missCount.increment();
+                evictExpired(now);
+                generate(key, newCredential);
+                credential = newCredential;
+            } else {
+                this.hitCount.increment();
+            }
+        } else {
+            this.hitCount.increment();
+        }
+
+        if (bucketedExp + this.bucketSeconds - this.refreshAheadSeconds <= requestedExp) {
+            refreshAhead(key.withExp(bucketedExp + this.bucketSeconds));
+        }
+
+        return join(credential);
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    @Override
+    public long getRefreshCount() {
+        return this.refreshCount.sum();
+    }
+
+    private void refreshAhead(CacheKey nextKey) {
+        if (this.cache.containsKey(nextKey)) {
+            return;
+        }
+
+        CompletableFuture<String> nextCredential = new CompletableFuture<>();
+        if (this.cache.putIfAbsent(nextKey, nextCredential) != null) {
+            return;
+        }
+
+        this.refreshCount.increment();
+        try {
+            this.refreshExecutor.execute(() -> generate(nextKey, nextCredential));
+        } catch (RejectedExecutionException e) {
+            // The credential will be generated on demand.
+            this.cache.remove(nextKey, nextCredential);
+            nextCredential.completeExceptionally(e);
+        }
+    }
+
+    private void generate(CacheKey key, CompletableFuture<String> credential) {
+        try {
+            credential.complete(this.delegate.generateAuthorizationHeaderValue(key.toParam()));
+        } catch (RuntimeException e) {
+            // Lets the next request retry.
+            this.cache.remove(key, credential);
+            credential.completeExceptionally(e);
+        }
+    }
+
+    private void evictExpired(long now) {
+        this.cache.keySet().removeIf(key -> key.exp <= now);
+    }
+
+    private long nowInSeconds() {
+        return this.clock.millis() / 1000;
+    }
+
+    private static String join(CompletableFuture<String> credential) {
+        try {
+            return credential.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class CacheKey {
+
+        private final String origin;
+        private final Optional<String> subject;
+        private final Map<String, Object> additionalClaims;
+        private final long exp;
+
+        CacheKey(VAPIDJWTParam jwtParam, long exp) {
+            this(jwtParam.getOrigin(), jwtParam.getSubject(), jwtParam.getAdditionalClaims(), exp);
+        }
+
+        private CacheKey(String origin, Optional<String> subject,
+                         Map<String, Object> additionalClaims, long exp) {
+            this.origin = origin;
+            this.subject = subject;
+            this.additionalClaims = additionalClaims;
+            this.exp = exp;
+        }
+
+        CacheKey withExp(long exp) {
+            return new CacheKey(this.origin, this.subject, this.additionalClaims, exp);
+        }
+
+        VAPIDJWTParam toParam() {
+            VAPIDJWTParam.Builder builder = VAPIDJWTParam.getBuilder()
+                .resourceURLString(this.origin)
+                .expirationTime(Instant.ofEpochSecond(this.exp));
+            this.subject.ifPresent(builder::subject);
+            this.additionalClaims.forEach(builder::additionalClaim);
+            return builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return exp == that.exp
+                && origin.equals(that.origin)
+                && subject.equals(that.subject)
+                && additionalClaims.equals(that.additionalClaims);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(origin, subject, additionalClaims, exp);
+        }
+    }
+}
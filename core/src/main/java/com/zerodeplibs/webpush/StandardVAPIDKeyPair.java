@@ -61,7 +61,7 @@ class StandardVAPIDKeyPair implements VAPIDKeyPair {
 
         WebPushPreConditions.checkNotNull(jwtParam, "jwtParam");
 
-        return String.format("vapid t=%s, k=%s", this.jwtGenerator.generate(jwtParam),
+        return this.jwtGenerator.generateAuthorizationHeaderValue(jwtParam,
             this.uncompressedPublicKeyBase64);
     }
 
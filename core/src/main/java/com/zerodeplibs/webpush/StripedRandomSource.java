@@ -0,0 +1,103 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * An implementation of {@link RandomSource} that spreads the requests
+ * over a fixed number of buffered instances of {@link SecureRandom}.
+ *
+ * <p>
+ * A thread starts scanning the stripes from the position derived from its id
+ * and takes the first stripe that isn't in use(with {@link ReentrantLock#tryLock()},
+ * which never blocks). Only when all the stripes are in use does the thread wait
+ * for the stripe at the start position. Because the stripes are guarded by
+ * {@link ReentrantLock} instead of <code>synchronized</code>,
+ * waiting doesn't pin virtual threads. The number of instances of {@link SecureRandom}
+ * never exceeds the number of stripes.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see RandomSources#striped(Supplier, int)
+ */
+class StripedRandomSource implements RandomSource {
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    StripedRandomSource(Supplier<SecureRandom> secureRandomFactory, int bufferSize) {
+        int count = Integer.highestOneBit(
+            Math.max(Runtime.getRuntime().availableProcessors() * 2 - 1, 1)) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe(secureRandomFactory.get(), bufferSize);
+        }
+        this.mask = count - 1;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes, int offset, int length) {
+        SecureRandomSource.checkRange(bytes, offset, length);
+        Stripe stripe = acquire();
+        try {
+            stripe.nextBytes(bytes, offset, length);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe acquire() {
+        long id = Thread.currentThread().getId();
+        int start = (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16;
+        for (int i = 0; i <= this.mask; i++) {
+            Stripe stripe = this.stripes[(start + i) & this.mask];
+            if (stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        Stripe home = this.stripes[start & this.mask];
+        home.lock.lock();
+        return home;
+    }
+
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom secureRandom;
+        private final byte[] buffer;
+        private int position;
+
+        Stripe(SecureRandom secureRandom, int bufferSize) {
+            WebPushPreConditions.checkState(secureRandom != null,
+                "The factory must not return null.");
+            this.secureRandom = secureRandom;
+            this.buffer = new byte[bufferSize];
+            this.position = bufferSize;
+        }
+
+        void nextBytes(byte[] bytes, int offset, int length) {
+            int filled = 0;
+            while (filled < length) {
+                if (this.position == this.buffer.length) {
+                    this.secureRandom.nextBytes(this.buffer);
+                    this.position = 0;
+                }
+                int count = Math.min(length - filled, this.buffer.length - this.position);
+                System.arraycopy(this.buffer, this.position, bytes, offset + filled, count);
+                // The bytes handed out must not remain in the buffer.
+                Arrays.fill(this.buffer, this.position, this.position + count, (byte) 0);
+                this.position += count;
+                filled += count;
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.security.interfaces.ECPublicKey;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Objects;
+import javax.crypto.Mac;
 
 /**
  * This class represents keys of a user agent used for encrypting push messages.
@@ -31,6 +32,13 @@ public class UserAgentMessageEncryptionKeyInfo {
     private final ECPublicKey uaPublic;
     private final byte[] uncompressedUaPublic;
     private final byte[] authSecret;
+    // True if this object is held by a UserAgentMessageEncryptionKeyInfoCache.
+    // It is set before this object is published through the cache.
+    private boolean cached;
+    // A Mac initialized with the auth secret(set by the message encryption on first use
+    // only if this object is cached, because the others are usually used only once).
+    // It is used only as a prototype to be cloned and never updated.
+    private volatile Mac authSecretMac;
 
     private UserAgentMessageEncryptionKeyInfo(ECPublicKey uaPublic, byte[] uncompressedUaPublic,
                                               byte[] authSecret) {
@@ -126,6 +134,34 @@ public class UserAgentMessageEncryptionKeyInfo {
         return Base64.getUrlDecoder().decode(text);
     }
 
+    /**
+     * Extracts the user agent's public key(p256dh) in uncompressed form.
+     *
+     * <p>
+     * This method is intended to be used
+     * by the implementations of {@link MessageEncryption} provided by sub-modules.
+     * </p>
+     *
+     * @return a copy of the public key in uncompressed form.
+     */
+    public byte[] extractUncompressedUaPublic() {
+        return getUncompressedUaPublic();
+    }
+
+    /**
+     * Extracts the authentication secret(auth).
+     *
+     * <p>
+     * This method is intended to be used
+     * by the implementations of {@link MessageEncryption} provided by sub-modules.
+     * </p>
+     *
+     * @return a copy of the authentication secret.
+     */
+    public byte[] extractAuthSecret() {
+        return getAuthSecret();
+    }
+
     ECPublicKey getPublicKey() {
         return this.uaPublic;
     }
@@ -138,6 +174,22 @@ public class UserAgentMessageEncryptionKeyInfo {
         return Arrays.copyOf(authSecret, authSecret.length);
     }
 
+    boolean isCached() {
+        return this.cached;
+    }
+
+    void markCached() {
+        this.cached = true;
+    }
+
+    Mac getAuthSecretMac() {
+        return this.authSecretMac;
+    }
+
+    void setAuthSecretMac(Mac authSecretMac) {
+        this.authSecretMac = authSecretMac;
+    }
+
 
     /**
      * Compares the given object with this object based on their public keys and secrets.
@@ -0,0 +1,236 @@
+package com.zerodeplibs.webpush;
+
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import com.zerodeplibs.webpush.key.InvalidECPublicKeyException;
+import com.zerodeplibs.webpush.key.MalformedUncompressedBytesException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of validated {@link UserAgentMessageEncryptionKeyInfo}s
+ * keyed by the pair of p256dh and auth.
+ *
+ * <p>
+ * Creating a {@link UserAgentMessageEncryptionKeyInfo} requires decoding the p256dh,
+ * creating a public key from it and validating the public key.
+ * When push messages are sent to the same subscriptions repeatedly,
+ * this cache lets the results be reused. A cache hit costs a single hash lookup.
+ * The cached key infos also keep the HMAC keyed with the auth secret
+ * so that the message encryption doesn't initialize it for every message.
+ * </p>
+ *
+ * <p>
+ * When the number of entries exceeds the maximum size,
+ * the oldest entries are evicted (first-in, first-out).
+ * Invalid keys are never cached.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * UserAgentMessageEncryptionKeyInfoCache cache =
+ *     UserAgentMessageEncryptionKeyInfoCache.of(100_000);
+ *
+ * HttpRequest request = StandardHttpClientRequestPreparer.getBuilder()
+ *     .pushSubscription(subscription)
+ *     .userAgentMessageEncryptionKeyInfoCache(cache)
+ *     .pushMessage(message)
+ *     .build(vapidKeyPair)
+ *     .toRequest();
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see UserAgentMessageEncryptionKeyInfo
+ */
+public class UserAgentMessageEncryptionKeyInfoCache {
+
+    private final int maximumSize;
+    private final ConcurrentMap<CacheKey, UserAgentMessageEncryptionKeyInfo> cache =
+        new ConcurrentHashMap<>();
+    // The insertion order used for eviction.
+    private final Queue<CacheKey> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private UserAgentMessageEncryptionKeyInfoCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Creates a new {@link UserAgentMessageEncryptionKeyInfoCache}
+     * that holds up to the given number of entries.
+     *
+     * @param maximumSize the maximum number of entries.
+     * @return a new {@link UserAgentMessageEncryptionKeyInfoCache}.
+     * @throws IllegalArgumentException if the given size isn't positive.
+     */
+    public static UserAgentMessageEncryptionKeyInfoCache of(int maximumSize) {
+        WebPushPreConditions.checkArgument(maximumSize > 0,
+            "The maximum size must be positive.");
+        return new UserAgentMessageEncryptionKeyInfoCache(maximumSize);
+    }
+
+    /**
+     * Gets the {@link UserAgentMessageEncryptionKeyInfo} for
+     * the given {@link PushSubscription}'s 'keys' field.
+     * If it doesn't exist in this cache, it is created and added to this cache.
+     *
+     * @param subscriptionKeys a PushSubscription's 'keys' field.
+     * @return a {@link UserAgentMessageEncryptionKeyInfo}.
+     * @throws IllegalArgumentException            if the 'keys.p256dh' is invalid
+     *                                             as a base64url string or the 'keys.auth'
+     *                                             is invalid as a base64url string.
+     * @throws MalformedUncompressedBytesException if the given p256dh doesn't start with 0x04
+     *                                             or the length isn't 65 bytes.
+     * @throws InvalidECPublicKeyException         if the public key extracted
+     *                                             from the give p256dh is invalid.
+     * @see UserAgentMessageEncryptionKeyInfo#from(PushSubscription.Keys)
+     */
+    public UserAgentMessageEncryptionKeyInfo get(PushSubscription.Keys subscriptionKeys) {
+        WebPushPreConditions.checkNotNull(subscriptionKeys, "subscriptionKeys");
+        return get(subscriptionKeys.getP256dh(), subscriptionKeys.getAuth());
+    }
+
+    /**
+     * Gets the {@link UserAgentMessageEncryptionKeyInfo} for the given p256dh and auth.
+     * If it doesn't exist in this cache, it is created and added to this cache.
+     *
+     * @param p256dh a p256dh.
+     * @param auth   an auth.
+     * @return a {@link UserAgentMessageEncryptionKeyInfo}.
+     * @throws IllegalArgumentException            if the 'keys.p256dh' is invalid
+     *                                             as a base64url string or the 'keys.auth'
+     *                                             is invalid as a base64url string.
+     * @throws MalformedUncompressedBytesException if the given p256dh doesn't start with 0x04
+     *                                             or the length isn't 65 bytes.
+     * @throws InvalidECPublicKeyException         if the public key extracted
+     *                                             from the give p256dh is invalid.
+     * @see UserAgentMessageEncryptionKeyInfo#of(String, String)
+     */
+    public UserAgentMessageEncryptionKeyInfo get(String p256dh, String auth) {
+        WebPushPreConditions.checkNotNull(p256dh, "p256dh");
+        WebPushPreConditions.checkNotNull(auth, "auth");
+
+        CacheKey key = new CacheKey(p256dh, auth);
+        UserAgentMessageEncryptionKeyInfo keyInfo = this.cache.get(key);
+        if (keyInfo != null) {
+            this.hitCount.increment();
+            return keyInfo;
+        }
+
+        this.missCount.increment();
+        // Throws an exception if the keys are invalid.
+        UserAgentMessageEncryptionKeyInfo created =
+            UserAgentMessageEncryptionKeyInfo.of(p256dh, auth);
+        created.markCached();
+        UserAgentMessageEncryptionKeyInfo existing = this.cache.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        this.insertionOrder.offer(key);
+        if (this.size.incrementAndGet() > this.maximumSize) {
+            evictOldest();
+        }
+        return created;
+    }
+
+    /**
+     * Gets the number of entries in this cache.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return this.cache.size();
+    }
+
+    /**
+     * Gets the number of times a key info has been found in this cache.
+     *
+     * @return the number of cache hits.
+     */
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    /**
+     * Gets the number of times a key info has been created
+     * because it didn't exist in this cache.
+     *
+     * @return the number of cache misses.
+     */
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted from this cache.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    /**
+     * Removes all the entries from this cache.
+     */
+    public void clear() {
+        CacheKey key;
+        while ((key = this.insertionOrder.poll()) != null) {
+            if (this.cache.remove(key) != null) {
+                this.size.decrementAndGet();
+            }
+        }
+    }
+
+    private void evictOldest() {
+        CacheKey oldest = this.insertionOrder.poll();
+        if (oldest != null && this.cache.remove(oldest) != null) {
+            this.size.decrementAndGet();
+            this.evictionCount.increment();
+        }
+    }
+
+    private static class CacheKey {
+
+        private final String p256dh;
+        private final String auth;
+        private final int hash;
+
+        CacheKey(String p256dh, String auth) {
+            this.p256dh = p256dh;
+            this.auth = auth;
+            this.hash = 31 * p256dh.hashCode() + auth.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return p256dh.equals(that.p256dh) && auth.equals(that.auth);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -9,8 +9,12 @@ import com.zerodeplibs.webpush.key.PrivateKeySource;
 import com.zerodeplibs.webpush.key.PublicKeySource;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.time.Clock;
 import java.util.Iterator;
 import java.util.ServiceLoader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 /**
@@ -32,6 +36,10 @@ import java.util.function.BiFunction;
  * If you use {@link #of(PrivateKeySource, PublicKeySource)} with a sub-module provided by <a href="https://github.com/st-user/zerodep-web-push-java/tree/main/ext-jwt">zerodep-web-push-java-ext-jwt</a>,
  * obtained instances are thread-safe.
  * </li>
+ * <li>
+ * Instances obtained through {@link #getCachingBuilder(VAPIDKeyPair)} are
+ * thread-safe only if the given {@link VAPIDKeyPair} is thread-safe.
+ * </li>
  * </ul>
  *
  * @author Tomoki Sato
@@ -89,6 +97,19 @@ public class VAPIDKeyPairs {
             loadVAPIDJWTGeneratorFactory());
     }
 
+    /**
+     * Gets a new {@link CachingBuilder} used to create a {@link CachingVAPIDKeyPair}
+     * that caches the credentials generated by the given <code>vapidKeyPair</code>.
+     *
+     * @param vapidKeyPair the key pair used to generate credentials on cache misses.
+     * @return a new {@link CachingBuilder}.
+     * @see CachingVAPIDKeyPair
+     */
+    public static CachingBuilder getCachingBuilder(VAPIDKeyPair vapidKeyPair) {
+        WebPushPreConditions.checkNotNull(vapidKeyPair, "vapidKeyPair");
+        return new CachingBuilder(vapidKeyPair);
+    }
+
     private static VAPIDJWTGeneratorFactory loadVAPIDJWTGeneratorFactory() {
         ServiceLoader<VAPIDJWTGeneratorFactory> loader =
             ServiceLoader.load(VAPIDJWTGeneratorFactory.class,
@@ -99,4 +120,113 @@ public class VAPIDKeyPairs {
         }
         return factoryIterator.next();
     }
+
+    /**
+     * The builder class for {@link CachingVAPIDKeyPair}.
+     *
+     * <p>
+     * There is a default value for each of the following fields.
+     * If the value isn't specified, the default value below is used.
+     * </p>
+     * <ul>
+     * <li>The expiration bucket: 1 minute</li>
+     * <li>The refresh-ahead window: 10 seconds</li>
+     * <li>The executor for refresh-ahead: {@link ForkJoinPool#commonPool()}</li>
+     * </ul>
+     *
+     * @author Tomoki Sato
+     * @see CachingVAPIDKeyPair
+     */
+    public static class CachingBuilder {
+
+        private final VAPIDKeyPair vapidKeyPair;
+        private long bucketSeconds = TimeUnit.MINUTES.toSeconds(1);
+        private long refreshAheadSeconds = 10;
+        private Executor refreshExecutor = ForkJoinPool.commonPool();
+        private Clock clock = Clock.systemUTC();
+
+        private CachingBuilder(VAPIDKeyPair vapidKeyPair) {
+            this.vapidKeyPair = vapidKeyPair;
+        }
+
+        /**
+         * Specifies the size of the buckets into which the "exp" claims are rounded down.
+         *
+         * <p>
+         * A larger bucket increases the chance that credentials are shared
+         * but makes the credentials expire earlier than the requested expiration time
+         * (at most by the size of the bucket).
+         * </p>
+         *
+         * @param bucket   the size of the buckets.
+         * @param timeUnit the unit of the given <code>bucket</code>.
+         * @return this object.
+         * @throws IllegalArgumentException if the given bucket is less than 1 second.
+         */
+        public CachingBuilder expirationBucket(long bucket, TimeUnit timeUnit) {
+            WebPushPreConditions.checkNotNull(timeUnit, "timeUnit");
+            long seconds = timeUnit.toSeconds(bucket);
+            WebPushPreConditions.checkArgument(seconds > 0,
+                "The expiration bucket must be 1 second or more.");
+            this.bucketSeconds = seconds;
+            return this;
+        }
+
+        /**
+         * Specifies how long before the requested expiration time moves on to the next bucket
+         * the credential for the next bucket is generated in the background.
+         *
+         * <p>
+         * If 0 is specified, refresh-ahead is disabled.
+         * </p>
+         *
+         * @param refreshAhead the refresh-ahead window.
+         * @param timeUnit     the unit of the given <code>refreshAhead</code>.
+         * @return this object.
+         * @throws IllegalArgumentException if the given window is negative.
+         */
+        public CachingBuilder refreshAhead(long refreshAhead, TimeUnit timeUnit) {
+            WebPushPreConditions.checkNotNull(timeUnit, "timeUnit");
+            WebPushPreConditions.checkArgument(refreshAhead >= 0,
+                "The refresh-ahead window must not be negative.");
+            this.refreshAheadSeconds = timeUnit.toSeconds(refreshAhead);
+            return this;
+        }
+
+        /**
+         * Specifies the executor used to generate credentials in the background.
+         *
+         * @param refreshExecutor an executor.
+         * @return this object.
+         */
+        public CachingBuilder refreshExecutor(Executor refreshExecutor) {
+            WebPushPreConditions.checkNotNull(refreshExecutor, "refreshExecutor");
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        // Visible for testing
+        CachingBuilder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Creates a new {@link CachingVAPIDKeyPair}.
+         *
+         * @return a new {@link CachingVAPIDKeyPair}.
+         * @throws IllegalStateException if the refresh-ahead window
+         *                               isn't shorter than the expiration bucket.
+         */
+        public CachingVAPIDKeyPair build() {
+            WebPushPreConditions.checkState(this.refreshAheadSeconds < this.bucketSeconds,
+                "The refresh-ahead window must be shorter than the expiration bucket.");
+            return new StandardCachingVAPIDKeyPair(
+                this.vapidKeyPair,
+                this.bucketSeconds,
+                this.refreshAheadSeconds,
+                this.refreshExecutor,
+                this.clock);
+        }
+    }
 }
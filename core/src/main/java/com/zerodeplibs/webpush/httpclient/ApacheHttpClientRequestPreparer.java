@@ -3,11 +3,13 @@ package com.zerodeplibs.webpush.httpclient;
 import com.zerodeplibs.webpush.header.TTL;
 import com.zerodeplibs.webpush.header.Topic;
 import com.zerodeplibs.webpush.header.Urgency;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
 import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityTemplate;
 
 /**
  * The "Preparer" used to utilize <a href="https://hc.apache.org/httpcomponents-client-5.1.x/">Apache HTTPClient</a>.
@@ -40,6 +42,21 @@ public class ApacheHttpClientRequestPreparer {
         return new ApacheHttpClientRequestPreparer.ApacheHttpClientRequestPreparerBuilder();
     }
 
+    /**
+     * Creates a new {@link ApacheHttpClientRequestPreparer}
+     * with the given {@link PreparerBuilder.RequestPreparationInfo}.
+     *
+     * @param requestPreparationInfo a requestPreparationInfo
+     *                               (e.g. the one prepared by {@link PushRequestTemplate}).
+     * @return a new {@link ApacheHttpClientRequestPreparer}.
+     * @see PushRequestTemplate#prepare(com.zerodeplibs.webpush.PushSubscription)
+     */
+    public static ApacheHttpClientRequestPreparer of(
+        PreparerBuilder.RequestPreparationInfo requestPreparationInfo) {
+        WebPushPreConditions.checkNotNull(requestPreparationInfo, "requestPreparationInfo");
+        return new ApacheHttpClientRequestPreparer(requestPreparationInfo);
+    }
+
     /**
      * Converts this object to an {@link HttpPost}.
      *
@@ -53,9 +70,10 @@ public class ApacheHttpClientRequestPreparer {
         httpPost.addHeader(Urgency.HEADER_NAME, requestPreparationInfo.getUrgency());
 
         requestPreparationInfo.getEncryptedPushMessage().ifPresent(encryptedPushMessage -> {
-            httpPost.setEntity(new ByteArrayEntity(encryptedPushMessage.toBytes(),
+            httpPost.setEntity(new EntityTemplate(encryptedPushMessage.length(),
                 ContentType.create(encryptedPushMessage.mediaType()),
-                encryptedPushMessage.contentEncoding()));
+                encryptedPushMessage.contentEncoding(),
+                encryptedPushMessage::writeTo));
         });
 
         if (!requestPreparationInfo.getEncryptedPushMessage().isPresent()) {
@@ -85,6 +103,7 @@ public class ApacheHttpClientRequestPreparer {
                 .addHeader(Urgency.HEADER_NAME, requestPreparationInfo.getUrgency());
 
         requestPreparationInfo.getEncryptedPushMessage().ifPresent(encryptedPushMessage -> {
+            // SimpleHttpRequest only accepts a byte array(or a string) as its body.
             builder.addHeader("Content-Encoding", encryptedPushMessage.contentEncoding())
                 .setBody(encryptedPushMessage.toBytes(),
                     ContentType.create(encryptedPushMessage.mediaType()));
@@ -7,7 +7,7 @@ import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import java.util.function.BiConsumer;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
-import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.ByteBufferContentProvider;
 
 /**
  * The "Preparer" used to utilize <a href="https://www.eclipse.org/jetty/documentation/jetty-11/programming-guide/index.html#pg-client">Eclipse Jetty Client Libraries</a>.
@@ -40,6 +40,21 @@ public class JettyHttpClientRequestPreparer {
         return new JettyHttpClientRequestPreparer.JettyHttpClientRequestPreparerBuilder();
     }
 
+    /**
+     * Creates a new {@link JettyHttpClientRequestPreparer}
+     * with the given {@link PreparerBuilder.RequestPreparationInfo}.
+     *
+     * @param requestPreparationInfo a requestPreparationInfo
+     *                               (e.g. the one prepared by {@link PushRequestTemplate}).
+     * @return a new {@link JettyHttpClientRequestPreparer}.
+     * @see PushRequestTemplate#prepare(com.zerodeplibs.webpush.PushSubscription)
+     */
+    public static JettyHttpClientRequestPreparer of(
+        PreparerBuilder.RequestPreparationInfo requestPreparationInfo) {
+        WebPushPreConditions.checkNotNull(requestPreparationInfo, "requestPreparationInfo");
+        return new JettyHttpClientRequestPreparer(requestPreparationInfo);
+    }
+
     /**
      * Converts this object to a {@link Request}.
      *
@@ -64,8 +79,8 @@ public class JettyHttpClientRequestPreparer {
 
         requestPreparationInfo.getEncryptedPushMessage().ifPresent(encryptedPushMessage -> {
             setHeader.accept("Content-Encoding", encryptedPushMessage.contentEncoding());
-            request.content(new BytesContentProvider(encryptedPushMessage.mediaType(),
-                encryptedPushMessage.toBytes()), encryptedPushMessage.mediaType());
+            request.content(new ByteBufferContentProvider(encryptedPushMessage.mediaType(),
+                encryptedPushMessage.asReadOnlyByteBuffer()), encryptedPushMessage.mediaType());
         });
 
         requestPreparationInfo.getTopic().ifPresent(topic -> {
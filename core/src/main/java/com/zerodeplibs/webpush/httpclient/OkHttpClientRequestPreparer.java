@@ -3,6 +3,7 @@ package com.zerodeplibs.webpush.httpclient;
 import com.zerodeplibs.webpush.header.TTL;
 import com.zerodeplibs.webpush.header.Topic;
 import com.zerodeplibs.webpush.header.Urgency;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 
@@ -37,6 +38,21 @@ public class OkHttpClientRequestPreparer {
         return new OkHttpRequestPreparerBuilder();
     }
 
+    /**
+     * Creates a new {@link OkHttpClientRequestPreparer}
+     * with the given {@link PreparerBuilder.RequestPreparationInfo}.
+     *
+     * @param requestPreparationInfo a requestPreparationInfo
+     *                               (e.g. the one prepared by {@link PushRequestTemplate}).
+     * @return a new {@link OkHttpClientRequestPreparer}.
+     * @see PushRequestTemplate#prepare(com.zerodeplibs.webpush.PushSubscription)
+     */
+    public static OkHttpClientRequestPreparer of(
+        PreparerBuilder.RequestPreparationInfo requestPreparationInfo) {
+        WebPushPreConditions.checkNotNull(requestPreparationInfo, "requestPreparationInfo");
+        return new OkHttpClientRequestPreparer(requestPreparationInfo);
+    }
+
     /**
      * Converts this object to a {@link Request.Builder}.
      *
@@ -52,6 +68,8 @@ public class OkHttpClientRequestPreparer {
             .addHeader(Urgency.HEADER_NAME, requestPreparationInfo.getUrgency());
 
         requestPreparationInfo.getEncryptedPushMessage().ifPresent(encryptedPushMessage -> {
+            // A custom RequestBody would need Okio's types,
+            // which aren't readable from this module. So a byte array is used here.
             builder.addHeader("Content-Type", encryptedPushMessage.mediaType())
                 .addHeader("Content-Encoding", encryptedPushMessage.contentEncoding())
                 .post(RequestBody.create(encryptedPushMessage.toBytes()));
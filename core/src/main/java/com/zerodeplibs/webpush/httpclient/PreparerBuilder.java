@@ -6,6 +6,7 @@ import com.zerodeplibs.webpush.MessageEncryptions;
 import com.zerodeplibs.webpush.PushMessage;
 import com.zerodeplibs.webpush.PushSubscription;
 import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
 import com.zerodeplibs.webpush.VAPIDKeyPair;
 import com.zerodeplibs.webpush.header.TTL;
 import com.zerodeplibs.webpush.header.Topic;
@@ -53,6 +54,7 @@ public abstract class PreparerBuilder<T> {
     private Long ttl;
     private String urgency;
     private String topic;
+    private UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache;
 
     /**
      * Creates a new {@link PreparerBuilder}.
@@ -69,7 +71,12 @@ public abstract class PreparerBuilder<T> {
      *                              fields(other than expirationTime) is null.
      */
     public PreparerBuilder<T> pushSubscription(PushSubscription pushSubscription) {
+        checkPushSubscription(pushSubscription);
+        this.pushSubscription = pushSubscription;
+        return this;
+    }
 
+    static void checkPushSubscription(PushSubscription pushSubscription) {
         WebPushPreConditions.checkNotNull(pushSubscription, "pushSubscription");
         WebPushPreConditions.checkNotNull(pushSubscription.getEndpoint(),
             "pushSubscription.endpoint");
@@ -79,9 +86,6 @@ public abstract class PreparerBuilder<T> {
             "pushSubscription.keys.p256dh");
         WebPushPreConditions.checkNotNull(pushSubscription.getKeys().getAuth(),
             "pushSubscription.keys.auth");
-
-        this.pushSubscription = pushSubscription;
-        return this;
     }
 
     /**
@@ -256,6 +260,22 @@ public abstract class PreparerBuilder<T> {
         return this;
     }
 
+    /**
+     * Specifies a {@link UserAgentMessageEncryptionKeyInfoCache}.
+     * If it is specified, the push subscription's keys are looked up in the cache
+     * instead of being decoded and validated every time.
+     *
+     * @param userAgentMessageEncryptionKeyInfoCache a cache.
+     * @return this object.
+     */
+    public PreparerBuilder<T> userAgentMessageEncryptionKeyInfoCache(
+        UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache) {
+        WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfoCache,
+            "userAgentMessageEncryptionKeyInfoCache");
+        this.userAgentMessageEncryptionKeyInfoCache = userAgentMessageEncryptionKeyInfoCache;
+        return this;
+    }
+
     /**
      * Creates a new "Preparer"
      * by constructing a {@link RequestPreparationInfo}
@@ -279,6 +299,12 @@ public abstract class PreparerBuilder<T> {
      * <li>The Urgency header filed: "normal"</li>
      * </ul>
      *
+     * <p>
+     * If the given <code>vapidKeyPair</code> is
+     * a {@link com.zerodeplibs.webpush.CachingVAPIDKeyPair},
+     * a cached credential for VAPID is reused instead of signing a new JWT.
+     * </p>
+     *
      * @param vapidKeyPair a key pair used to sign the JWT for VAPID.
      * @return a new "Preparer".
      * @throws IllegalArgumentException            if the 'keys.p256dh' of the push subscription
@@ -310,11 +336,8 @@ public abstract class PreparerBuilder<T> {
 
         EncryptedPushMessage encryptedPushMessage = null;
         if (pushMessage != null) {
-            MessageEncryption messageEncryption = MessageEncryptions.of();
-            encryptedPushMessage = messageEncryption.encrypt(
-                UserAgentMessageEncryptionKeyInfo.from(this.pushSubscription.getKeys()),
-                this.pushMessage
-            );
+            encryptedPushMessage = encrypt(this.pushSubscription.getKeys(), this.pushMessage,
+                this.userAgentMessageEncryptionKeyInfoCache);
         }
 
         RequestPreparationInfo requestPreparationInfo = new RequestPreparationInfo(
@@ -329,6 +352,19 @@ public abstract class PreparerBuilder<T> {
         return buildInternal(requestPreparationInfo);
     }
 
+    static EncryptedPushMessage encrypt(
+        PushSubscription.Keys subscriptionKeys,
+        PushMessage pushMessage,
+        UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache) {
+
+        MessageEncryption messageEncryption = SharedMessageEncryption.INSTANCE;
+        UserAgentMessageEncryptionKeyInfo keyInfo =
+            userAgentMessageEncryptionKeyInfoCache != null
+                ? userAgentMessageEncryptionKeyInfoCache.get(subscriptionKeys)
+                : UserAgentMessageEncryptionKeyInfo.from(subscriptionKeys);
+        return messageEncryption.encrypt(keyInfo, pushMessage);
+    }
+
     private void setDefault() {
         if (this.ttl == null) {
             this.ttl = TimeUnit.DAYS.toSeconds(1);
@@ -505,4 +541,12 @@ public abstract class PreparerBuilder<T> {
             return sb.toString();
         }
     }
+
+    /**
+     * Holds the {@link MessageEncryption} shared by all the builders and templates.
+     * The instance is created lazily when a push message is encrypted for the first time.
+     */
+    private static class SharedMessageEncryption {
+        private static final MessageEncryption INSTANCE = MessageEncryptions.of();
+    }
 }
@@ -0,0 +1,457 @@
+package com.zerodeplibs.webpush.httpclient;
+
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import com.zerodeplibs.webpush.PushMessage;
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.header.TTL;
+import com.zerodeplibs.webpush.header.Topic;
+import com.zerodeplibs.webpush.header.Urgency;
+import com.zerodeplibs.webpush.internal.VAPIDJWTClaims;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import com.zerodeplibs.webpush.jwt.MalformedURLRuntimeException;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import com.zerodeplibs.webpush.key.InvalidECPublicKeyException;
+import com.zerodeplibs.webpush.key.MalformedUncompressedBytesException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reusable template of requests for the delivery of a push message.
+ *
+ * <p>
+ * Unlike {@link PreparerBuilder}, which is single-use,
+ * a template is built once and then used to prepare the requests
+ * for any number of push subscriptions.
+ * Everything that doesn't depend on a push subscription
+ * (the push message, the values of the header fields and the claims for VAPID)
+ * is validated and computed when the template is built.
+ * So {@link #prepare(PushSubscription)} only performs the work for each recipient,
+ * that is, signing the JWT for VAPID and encrypting the push message.
+ * </p>
+ *
+ * <p>
+ * The parameters for VAPID only depend on the origin of the endpoint and the expiration time.
+ * So they are cached per origin(there are usually only a handful of push services).
+ * A relative expiration time({@link Builder#vapidJWTExpiresAfter(int, TimeUnit)})
+ * is truncated to seconds, which is the precision of the "exp" claim,
+ * so that the requests to the same origin within the same second share the parameters.
+ * </p>
+ *
+ * <p>
+ * Each "Preparer" can be created from the returned {@link PreparerBuilder.RequestPreparationInfo}
+ * (e.g. {@link StandardHttpClientRequestPreparer#of(PreparerBuilder.RequestPreparationInfo)}).
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * PushRequestTemplate template = PushRequestTemplate.getBuilder()
+ *     .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+ *     .vapidJWTSubject("mailto:example@example.com")
+ *     .pushMessage(message)
+ *     .ttl(1, TimeUnit.HOURS)
+ *     .urgencyLow()
+ *     .build(vapidKeyPair);
+ *
+ * for (PushSubscription subscription : subscriptions) {
+ *     HttpRequest request = StandardHttpClientRequestPreparer
+ *         .of(template.prepare(subscription))
+ *         .toRequest();
+ *     ....
+ * }
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see PreparerBuilder
+ */
+public class PushRequestTemplate {
+
+    private static final Duration DEFAULT_VAPID_JWT_EXPIRES_AFTER = Duration.ofMinutes(3);
+    // Bounds the cache in case the endpoints point to many different origins.
+    private static final int MAX_CACHED_ORIGINS = 256;
+
+    private final VAPIDKeyPair vapidKeyPair;
+    private final Duration vapidJWTExpiresAfter;
+    private final Instant vapidJWTExpirationTime;
+    private final String vapidJWTSubject;
+    private final Map<String, Object> vapidJWTAdditionalClaims;
+    private final PushMessage pushMessage;
+    private final Long ttl;
+    private final String urgency;
+    private final String topic;
+    private final UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache;
+    // The parameters for VAPID keyed by the scheme and the authority of the endpoints.
+    private final ConcurrentMap<String, VAPIDJWTParam> vapidJWTParams =
+        new ConcurrentHashMap<>();
+
+    private PushRequestTemplate(Builder builder, VAPIDKeyPair vapidKeyPair) {
+        this.vapidKeyPair = vapidKeyPair;
+        this.vapidJWTExpiresAfter = builder.vapidJWTExpirationTime == null
+            && builder.vapidJWTExpiresAfter == null
+            ? DEFAULT_VAPID_JWT_EXPIRES_AFTER : builder.vapidJWTExpiresAfter;
+        this.vapidJWTExpirationTime = builder.vapidJWTExpirationTime;
+        this.vapidJWTSubject = builder.vapidJWTSubject;
+        this.vapidJWTAdditionalClaims =
+            Collections.unmodifiableMap(new LinkedHashMap<>(builder.vapidJWTAdditionalClaims));
+        this.pushMessage = builder.pushMessage;
+        this.ttl = builder.ttl == null ? TimeUnit.DAYS.toSeconds(1) : builder.ttl;
+        this.urgency = builder.urgency == null ? Urgency.normal() : builder.urgency;
+        this.topic = builder.topic;
+        this.userAgentMessageEncryptionKeyInfoCache =
+            builder.userAgentMessageEncryptionKeyInfoCache;
+    }
+
+    /**
+     * Gets a new builder for {@link PushRequestTemplate}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Prepares a request for the given push subscription.
+     *
+     * @param pushSubscription a push subscription.
+     * @return a new {@link PreparerBuilder.RequestPreparationInfo}.
+     * @throws NullPointerException                if one of the push subscription's
+     *                                             fields(other than expirationTime) is null.
+     * @throws IllegalArgumentException            if the 'keys.p256dh' of the push subscription
+     *                                             is invalid as a base64url string
+     *                                             or the 'keys.auth'
+     *                                             is invalid as a base64url string.
+     * @throws InvalidECPublicKeyException         if the public key extracted
+     *                                             from the 'keys.p256dh' of the push subscription
+     *                                             is invalid.
+     * @throws MalformedUncompressedBytesException if the 'keys.p256dh' of the push subscription
+     *                                             doesn't start with 0x04
+     *                                             or the length isn't 65 bytes.
+     * @throws MalformedURLRuntimeException        if the endpoint url of the push subscription
+     *                                             is malformed.
+     */
+    public PreparerBuilder.RequestPreparationInfo prepare(PushSubscription pushSubscription) {
+
+        PreparerBuilder.checkPushSubscription(pushSubscription);
+
+        String credential =
+            this.vapidKeyPair.generateAuthorizationHeaderValue(getVAPIDJWTParam(
+                pushSubscription.getEndpoint()));
+
+        EncryptedPushMessage encryptedPushMessage = null;
+        if (this.pushMessage != null) {
+            encryptedPushMessage = PreparerBuilder.encrypt(pushSubscription.getKeys(),
+                this.pushMessage, this.userAgentMessageEncryptionKeyInfoCache);
+        }
+
+        return new PreparerBuilder.RequestPreparationInfo(
+            pushSubscription.getEndpoint(),
+            credential,
+            encryptedPushMessage,
+            this.ttl,
+            this.urgency,
+            this.topic);
+    }
+
+    private VAPIDJWTParam getVAPIDJWTParam(String endpoint) {
+        // Never later than the requested expiration time.
+        Instant expirationTime = this.vapidJWTExpirationTime != null
+            ? this.vapidJWTExpirationTime
+            : Instant.ofEpochSecond(
+                Instant.now().plus(this.vapidJWTExpiresAfter).getEpochSecond());
+
+        String originKey = originKey(endpoint);
+        VAPIDJWTParam param = this.vapidJWTParams.get(originKey);
+        if (param != null && param.getExpirationTime().equals(expirationTime)) {
+            return param;
+        }
+
+        // Parses the endpoint only when the cached parameter can't be used.
+        param = createVAPIDJWTParam(endpoint, expirationTime);
+        if (this.vapidJWTParams.size() >= MAX_CACHED_ORIGINS) {
+            this.vapidJWTParams.clear();
+        }
+        this.vapidJWTParams.put(originKey, param);
+        return param;
+    }
+
+    /*
+     * Returns the part of the endpoint up to the beginning of its path.
+     * The endpoints sharing it have the same origin.
+     */
+    private static String originKey(String endpoint) {
+        int schemeEnd = endpoint.indexOf("://");
+        if (schemeEnd < 0) {
+            return endpoint;
+        }
+        int pathStart = endpoint.indexOf('/', schemeEnd + 3);
+        return pathStart < 0 ? endpoint : endpoint.substring(0, pathStart);
+    }
+
+    private VAPIDJWTParam createVAPIDJWTParam(String endpoint, Instant expirationTime) {
+        VAPIDJWTParam.Builder builder = VAPIDJWTParam.getBuilder()
+            .resourceURLString(endpoint)
+            .expirationTime(expirationTime);
+        if (this.vapidJWTSubject != null) {
+            builder.subject(this.vapidJWTSubject);
+        }
+        this.vapidJWTAdditionalClaims.forEach(builder::additionalClaim);
+        return builder.build();
+    }
+
+    /**
+     * A builder class for {@link PushRequestTemplate}.
+     *
+     * <p>
+     * The methods of this class correspond to the ones of {@link PreparerBuilder}
+     * other than {@link PreparerBuilder#pushSubscription(PushSubscription)}.
+     * </p>
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * Instances of this class are <b>NOT</b> thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        private static final String MSG_EXPIRES_AT_NO_MORE_THAN_ONCE = "The methods for specifying "
+            + "expiration time(vapidJWTExpiresAfter/vapidJWTExpirationTime) "
+            + "cannot be called more than once.";
+
+        private Duration vapidJWTExpiresAfter;
+        private Instant vapidJWTExpirationTime;
+        private String vapidJWTSubject;
+        private final Map<String, Object> vapidJWTAdditionalClaims = new LinkedHashMap<>();
+        private PushMessage pushMessage;
+        private Long ttl;
+        private String urgency;
+        private String topic;
+        private UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the time after which a JWT for VAPID expires.
+         * The expiration time is calculated each time a request is prepared
+         * and truncated to seconds.
+         * The default value is 3 minutes.
+         *
+         * @param expiresAfter the time after which a JWT for VAPID expires.
+         * @param timeUnit     the unit of the given <code>expiresAfter</code>.
+         * @return this object.
+         * @throws IllegalStateException if the methods for specifying expiration time
+         *                               are called more than once.
+         */
+        public Builder vapidJWTExpiresAfter(int expiresAfter, TimeUnit timeUnit) {
+            WebPushPreConditions.checkNotNull(timeUnit, "timeUnit");
+            checkExpirationNotSpecified();
+            this.vapidJWTExpiresAfter = Duration.of(expiresAfter, timeUnit.toChronoUnit());
+            return this;
+        }
+
+        /**
+         * Specifies the time at which a JWT for VAPID expires.
+         *
+         * @param expirationTime the time at which a JWT for VAPID expires.
+         * @return this object.
+         * @throws IllegalStateException if the methods for specifying expiration time
+         *                               are called more than once.
+         */
+        public Builder vapidJWTExpirationTime(Instant expirationTime) {
+            WebPushPreConditions.checkNotNull(expirationTime, "expirationTime");
+            checkExpirationNotSpecified();
+            this.vapidJWTExpirationTime = expirationTime;
+            return this;
+        }
+
+        /**
+         * Specifies a subject.
+         *
+         * @param subject a subject.
+         * @return this object.
+         * @see VAPIDJWTParam.Builder#subject(String)
+         */
+        public Builder vapidJWTSubject(String subject) {
+            WebPushPreConditions.checkNotNull(subject, "subject");
+            this.vapidJWTSubject = subject;
+            return this;
+        }
+
+        /**
+         * Specifies an additional claim.
+         *
+         * @param name  the name of an additional claim.
+         * @param value the value of an additional claim.
+         * @return this object.
+         * @throws IllegalArgumentException if one of the "reserved" names is given.
+         * @see VAPIDJWTParam.Builder#additionalClaim(String, Object)
+         */
+        public Builder vapidJWTAdditionalClaim(String name, String value) {
+            VAPIDJWTClaims.checkAdditionalClaim(name, value);
+            this.vapidJWTAdditionalClaims.put(name, value);
+            return this;
+        }
+
+        /**
+         * Specifies a push message.
+         *
+         * @param messageBytes the octet sequence representing a push message.
+         * @return this object.
+         * @throws IllegalArgumentException if the given octet sequence is null or empty.
+         * @see PushMessage#of(byte[])
+         */
+        public Builder pushMessage(byte[] messageBytes) {
+            this.pushMessage = PushMessage.of(messageBytes);
+            return this;
+        }
+
+        /**
+         * Specifies a push message.
+         * The given text is encoded by using UTF-8.
+         *
+         * @param messageText the text representing a push message.
+         * @return this object.
+         * @throws IllegalArgumentException if the given text is null or empty.
+         * @see PushMessage#ofUTF8(String)
+         */
+        public Builder pushMessage(String messageText) {
+            this.pushMessage = PushMessage.ofUTF8(messageText);
+            return this;
+        }
+
+        /**
+         * Specifies a value for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.2">TTL</a> header field
+         * with a <code>timeUnit</code>.
+         * The default value is 24 hours.
+         *
+         * @param ttl      a time duration for the TTL header field
+         *                 in the given <code>timeUnit</code>.
+         * @param timeUnit the unit of the <code>ttl</code> argument.
+         * @return this object.
+         * @throws IllegalArgumentException if the <code>ttl</code> is negative.
+         * @see TTL
+         */
+        public Builder ttl(long ttl, TimeUnit timeUnit) {
+            WebPushPreConditions.checkNotNull(timeUnit, "timeUnit");
+            this.ttl = TTL.seconds(timeUnit.toSeconds(ttl));
+            return this;
+        }
+
+        /**
+         * Specifies a value for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.3">Urgency</a> header field.
+         * The default value is "normal".
+         *
+         * @param urgencyOption an urgency value for the Urgency header field.
+         * @return this object.
+         * @see Urgency
+         */
+        public Builder urgency(Urgency.UrgencyOption urgencyOption) {
+            WebPushPreConditions.checkNotNull(urgencyOption, "urgencyOption");
+            this.urgency = urgencyOption.getValue();
+            return this;
+        }
+
+        /**
+         * Specifies the "high" urgency for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.3">Urgency</a> header field.
+         *
+         * @return this object.
+         * @see Urgency
+         */
+        public Builder urgencyHigh() {
+            return this.urgency(Urgency.UrgencyOption.HIGH);
+        }
+
+        /**
+         * Specifies the "normal" urgency for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.3">Urgency</a> header field.
+         *
+         * @return this object.
+         * @see Urgency
+         */
+        public Builder urgencyNormal() {
+            return this.urgency(Urgency.UrgencyOption.NORMAL);
+        }
+
+        /**
+         * Specifies the "low" urgency for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.3">Urgency</a> header field.
+         *
+         * @return this object.
+         * @see Urgency
+         */
+        public Builder urgencyLow() {
+            return this.urgency(Urgency.UrgencyOption.LOW);
+        }
+
+        /**
+         * Specifies the "very-low" urgency for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.3">Urgency</a> header field.
+         *
+         * @return this object.
+         * @see Urgency
+         */
+        public Builder urgencyVeryLow() {
+            return this.urgency(Urgency.UrgencyOption.VERY_LOW);
+        }
+
+        /**
+         * Specifies a value for the <a href="https://datatracker.ietf.org/doc/html/rfc8030#section-5.4">Topic</a> header field.
+         *
+         * @param topic a topic.
+         * @return this object
+         * @throws IllegalArgumentException if the given topic doesn't meet the constraints.
+         * @see Topic
+         */
+        public Builder topic(String topic) {
+            this.topic = Topic.ensure(topic);
+            return this;
+        }
+
+        /**
+         * Specifies a {@link UserAgentMessageEncryptionKeyInfoCache}.
+         *
+         * @param userAgentMessageEncryptionKeyInfoCache a cache.
+         * @return this object.
+         * @see PreparerBuilder#userAgentMessageEncryptionKeyInfoCache(
+         *     UserAgentMessageEncryptionKeyInfoCache)
+         */
+        public Builder userAgentMessageEncryptionKeyInfoCache(
+            UserAgentMessageEncryptionKeyInfoCache userAgentMessageEncryptionKeyInfoCache) {
+            WebPushPreConditions.checkNotNull(userAgentMessageEncryptionKeyInfoCache,
+                "userAgentMessageEncryptionKeyInfoCache");
+            this.userAgentMessageEncryptionKeyInfoCache = userAgentMessageEncryptionKeyInfoCache;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link PushRequestTemplate}.
+         *
+         * @param vapidKeyPair a key pair used to sign the JWTs for VAPID.
+         * @return a new {@link PushRequestTemplate}.
+         */
+        public PushRequestTemplate build(VAPIDKeyPair vapidKeyPair) {
+            WebPushPreConditions.checkNotNull(vapidKeyPair, "vapidKeyPair");
+            return new PushRequestTemplate(this, vapidKeyPair);
+        }
+
+        private void checkExpirationNotSpecified() {
+            WebPushPreConditions.checkState(
+                this.vapidJWTExpiresAfter == null && this.vapidJWTExpirationTime == null,
+                MSG_EXPIRES_AT_NO_MORE_THAN_ONCE);
+        }
+    }
+}
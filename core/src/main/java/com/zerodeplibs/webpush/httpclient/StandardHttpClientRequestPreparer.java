@@ -1,10 +1,15 @@
 package com.zerodeplibs.webpush.httpclient;
 
+import com.zerodeplibs.webpush.EncryptedPushMessage;
 import com.zerodeplibs.webpush.header.TTL;
 import com.zerodeplibs.webpush.header.Topic;
 import com.zerodeplibs.webpush.header.Urgency;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import java.net.URI;
 import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The "Preparer" used to utilize {@link java.net.http.HttpClient}.
@@ -55,6 +60,21 @@ public class StandardHttpClientRequestPreparer {
         return new StandardHttpClientRequestPreparer.StandardHttpRequestPreparerBuilder();
     }
 
+    /**
+     * Creates a new {@link StandardHttpClientRequestPreparer}
+     * with the given {@link PreparerBuilder.RequestPreparationInfo}.
+     *
+     * @param requestPreparationInfo a requestPreparationInfo
+     *                               (e.g. the one prepared by {@link PushRequestTemplate}).
+     * @return a new {@link StandardHttpClientRequestPreparer}.
+     * @see PushRequestTemplate#prepare(com.zerodeplibs.webpush.PushSubscription)
+     */
+    public static StandardHttpClientRequestPreparer of(
+        PreparerBuilder.RequestPreparationInfo requestPreparationInfo) {
+        WebPushPreConditions.checkNotNull(requestPreparationInfo, "requestPreparationInfo");
+        return new StandardHttpClientRequestPreparer(requestPreparationInfo);
+    }
+
     /**
      * Converts this object to a {@link HttpRequest.Builder}.
      *
@@ -71,7 +91,7 @@ public class StandardHttpClientRequestPreparer {
         requestPreparationInfo.getEncryptedPushMessage().ifPresent(encryptedPushMessage -> {
             builder.header("Content-Type", encryptedPushMessage.mediaType())
                 .header("Content-Encoding", encryptedPushMessage.contentEncoding())
-                .POST(HttpRequest.BodyPublishers.ofByteArray(encryptedPushMessage.toBytes()));
+                .POST(new EncryptedPushMessageBodyPublisher(encryptedPushMessage));
         });
 
         if (!requestPreparationInfo.getEncryptedPushMessage().isPresent()) {
@@ -94,6 +114,51 @@ public class StandardHttpClientRequestPreparer {
         return toRequestBuilder().build();
     }
 
+    /**
+     * Publishes the read-only view of an encrypted push message without copying it.
+     * Each subscriber receives its own view, so the request can be sent more than once.
+     */
+    private static class EncryptedPushMessageBodyPublisher implements HttpRequest.BodyPublisher {
+
+        private final EncryptedPushMessage encryptedPushMessage;
+
+        EncryptedPushMessageBodyPublisher(EncryptedPushMessage encryptedPushMessage) {
+            this.encryptedPushMessage = encryptedPushMessage;
+        }
+
+        @Override
+        public long contentLength() {
+            return this.encryptedPushMessage.length();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            ByteBuffer body = this.encryptedPushMessage.asReadOnlyByteBuffer();
+            AtomicBoolean done = new AtomicBoolean();
+
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (!done.compareAndSet(false, true)) {
+                        return;
+                    }
+                    if (n <= 0) {
+                        subscriber.onError(new IllegalArgumentException(
+                            "The number of requested items must be positive."));
+                        return;
+                    }
+                    subscriber.onNext(body);
+                    subscriber.onComplete();
+                }
+
+                @Override
+                public void cancel() {
+                    done.set(true);
+                }
+            });
+        }
+    }
+
     private static class StandardHttpRequestPreparerBuilder
         extends PreparerBuilder<StandardHttpClientRequestPreparer> {
 
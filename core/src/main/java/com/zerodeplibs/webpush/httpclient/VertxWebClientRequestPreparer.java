@@ -90,6 +90,8 @@ public class VertxWebClientRequestPreparer {
         requestConsumer.accept(request);
 
         if (encryptedPushMessage.isPresent()) {
+            // Vert.x has no non-deprecated way to wrap a ByteBuffer
+            // without depending on Netty. So a byte array is used here.
             request.sendBuffer(Buffer.buffer(encryptedPushMessage.get().toBytes()), handler);
         } else {
             request.sendBuffer(Buffer.buffer(), handler);
@@ -135,6 +137,21 @@ public class VertxWebClientRequestPreparer {
         return new VertxWebClientRequestPreparer.VertxWebClientRequestPreparerBuilder();
     }
 
+    /**
+     * Creates a new {@link VertxWebClientRequestPreparer}
+     * with the given {@link PreparerBuilder.RequestPreparationInfo}.
+     *
+     * @param requestPreparationInfo a requestPreparationInfo
+     *                               (e.g. the one prepared by {@link PushRequestTemplate}).
+     * @return a new {@link VertxWebClientRequestPreparer}.
+     * @see PushRequestTemplate#prepare(com.zerodeplibs.webpush.PushSubscription)
+     */
+    public static VertxWebClientRequestPreparer of(
+        PreparerBuilder.RequestPreparationInfo requestPreparationInfo) {
+        WebPushPreConditions.checkNotNull(requestPreparationInfo, "requestPreparationInfo");
+        return new VertxWebClientRequestPreparer(requestPreparationInfo);
+    }
+
     private static class VertxWebClientRequestPreparerBuilder
         extends PreparerBuilder<VertxWebClientRequestPreparer> {
 
@@ -0,0 +1,373 @@
+package com.zerodeplibs.webpush.httpclient;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A component that sends a push message to many push subscriptions
+ * with {@link HttpClient#sendAsync(HttpRequest, HttpResponse.BodyHandler)}.
+ *
+ * <p>
+ * For each push subscription, the message is encrypted, the JWT for VAPID is signed
+ * (through {@link StandardHttpClientRequestPreparer}) and the request is sent.
+ * These steps are pipelined: while some requests are waiting for their responses,
+ * the requests for the following push subscriptions are prepared and sent.
+ * So the throughput isn't gated by the round-trip latency,
+ * and a single {@link HttpClient} can multiplex many requests over HTTP/2 connections
+ * to each push service.
+ * </p>
+ *
+ * <p>
+ * The number of in-flight requests is bounded.
+ * When it reaches the limit, {@link #dispatch(Iterable, Consumer, Consumer)}
+ * stops pulling push subscriptions from the source until one of the requests completes.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * WebPushDispatcher dispatcher = WebPushDispatcher.getBuilder()
+ *     .httpClient(HttpClient.newHttpClient())
+ *     .vapidKeyPair(vapidKeyPair)
+ *     .maxInFlightRequests(256)
+ *     .build();
+ *
+ * dispatcher.dispatch(
+ *     subscriptions,
+ *     builder -&gt; builder.pushMessage(message).ttl(1, TimeUnit.HOURS),
+ *     outcome -&gt; {
+ *         if (outcome.getResponse().map(r -&gt; r.statusCode() == 410).orElse(false)) {
+ *             removeSubscription(outcome.getPushSubscription());
+ *         }
+ *     }
+ * );
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * Multiple threads can call {@link #dispatch(Iterable, Consumer, Consumer)} concurrently,
+ * in which case the limit of in-flight requests is shared among them.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see StandardHttpClientRequestPreparer
+ */
+public class WebPushDispatcher {
+
+    private final HttpClient httpClient;
+    private final VAPIDKeyPair vapidKeyPair;
+    private final Executor preparationExecutor;
+    private final int maxInFlightRequests;
+    private final Semaphore inFlightPermits;
+
+    private WebPushDispatcher(Builder builder) {
+        this.httpClient = builder.httpClient;
+        this.vapidKeyPair = builder.vapidKeyPair;
+        this.preparationExecutor = builder.preparationExecutor;
+        this.maxInFlightRequests = builder.maxInFlightRequests;
+        this.inFlightPermits = new Semaphore(builder.maxInFlightRequests);
+    }
+
+    /**
+     * Gets a new builder for {@link WebPushDispatcher}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Sends a push message to each of the given push subscriptions.
+     *
+     * <p>
+     * For each push subscription, a new {@link PreparerBuilder} is created
+     * and the given <code>template</code> is applied to it.
+     * The template specifies everything other than the push subscription
+     * (e.g. the push message and the TTL).
+     * </p>
+     *
+     * <p>
+     * The outcome of each push subscription is reported to the given <code>callback</code>
+     * exactly once. The callback is called from the threads of the {@link HttpClient}
+     * or the preparation executor, so it must be thread-safe.
+     * </p>
+     *
+     * <p>
+     * This method blocks the calling thread while the number of in-flight requests
+     * is at the limit, and returns after the outcomes of all the push subscriptions
+     * have been reported.
+     * </p>
+     *
+     * @param pushSubscriptions push subscriptions.
+     * @param template          a function that specifies the properties of each request.
+     * @param callback          a callback that receives the outcome of each push subscription.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public void dispatch(
+        Iterable<PushSubscription> pushSubscriptions,
+        Consumer<PreparerBuilder<StandardHttpClientRequestPreparer>> template,
+        Consumer<Outcome> callback) throws InterruptedException {
+
+        WebPushPreConditions.checkNotNull(pushSubscriptions, "pushSubscriptions");
+        WebPushPreConditions.checkNotNull(template, "template");
+        WebPushPreConditions.checkNotNull(callback, "callback");
+
+        Semaphore outstanding = new Semaphore(0);
+        int submitted = 0;
+        try {
+            Iterator<PushSubscription> iterator = pushSubscriptions.iterator();
+            while (iterator.hasNext()) {
+                PushSubscription pushSubscription = iterator.next();
+                // Applies backpressure to the source.
+                this.inFlightPermits.acquire();
+                CompletableFuture<Outcome> future;
+                try {
+                    future = send(pushSubscription, template, callback);
+                } catch (RuntimeException e) {
+                    // e.g. the preparation executor rejects the task.
+                    this.inFlightPermits.release();
+                    throw e;
+                }
+                submitted++;
+                future.whenComplete((outcome, e) -> {
+                    this.inFlightPermits.release();
+                    outstanding.release();
+                });
+            }
+        } finally {
+            // Waits for the outcomes of all the submitted requests
+            // even if pulling from the source fails.
+            outstanding.acquireUninterruptibly(submitted);
+        }
+    }
+
+    /**
+     * Sends a push message to each of the given push subscriptions.
+     *
+     * @param pushSubscriptions push subscriptions.
+     * @param template          a function that specifies the properties of each request.
+     * @param callback          a callback that receives the outcome of each push subscription.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @see #dispatch(Iterable, Consumer, Consumer)
+     */
+    public void dispatch(
+        Stream<PushSubscription> pushSubscriptions,
+        Consumer<PreparerBuilder<StandardHttpClientRequestPreparer>> template,
+        Consumer<Outcome> callback) throws InterruptedException {
+
+        WebPushPreConditions.checkNotNull(pushSubscriptions, "pushSubscriptions");
+        dispatch(pushSubscriptions::iterator, template, callback);
+    }
+
+    /**
+     * Gets the maximum number of in-flight requests.
+     *
+     * @return the maximum number of in-flight requests.
+     */
+    public int getMaxInFlightRequests() {
+        return this.maxInFlightRequests;
+    }
+
+    private CompletableFuture<Outcome> send(
+        PushSubscription pushSubscription,
+        Consumer<PreparerBuilder<StandardHttpClientRequestPreparer>> template,
+        Consumer<Outcome> callback) {
+
+        return CompletableFuture
+            .supplyAsync(() -> prepare(pushSubscription, template), this.preparationExecutor)
+            .thenCompose(request ->
+                this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()))
+            .handle((response, e) -> {
+                Outcome outcome = new Outcome(pushSubscription, response, unwrap(e));
+                callback.accept(outcome);
+                return outcome;
+            });
+    }
+
+    private HttpRequest prepare(
+        PushSubscription pushSubscription,
+        Consumer<PreparerBuilder<StandardHttpClientRequestPreparer>> template) {
+
+        PreparerBuilder<StandardHttpClientRequestPreparer> builder =
+            StandardHttpClientRequestPreparer.getBuilder();
+        template.accept(builder);
+        return builder
+            .pushSubscription(pushSubscription)
+            .build(this.vapidKeyPair)
+            .toRequest();
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+
+    /**
+     * The outcome of sending a push message to a push subscription.
+     * Either a response or a failure is present.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * Instances of this class are immutable. So they can be accessed safely from multiple threads.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Outcome {
+
+        private final PushSubscription pushSubscription;
+        private final HttpResponse<String> response;
+        private final Throwable failure;
+
+        private Outcome(PushSubscription pushSubscription, HttpResponse<String> response,
+                        Throwable failure) {
+            this.pushSubscription = pushSubscription;
+            this.response = response;
+            this.failure = failure;
+        }
+
+        /**
+         * Gets the push subscription.
+         *
+         * @return the push subscription.
+         */
+        public PushSubscription getPushSubscription() {
+            return this.pushSubscription;
+        }
+
+        /**
+         * Gets the response from the push service.
+         *
+         * @return the response or an empty optional if the request failed.
+         */
+        public Optional<HttpResponse<String>> getResponse() {
+            return Optional.ofNullable(this.response);
+        }
+
+        /**
+         * Gets the exception thrown while preparing or sending the request.
+         *
+         * @return the exception or an empty optional if the response was received.
+         */
+        public Optional<Throwable> getFailure() {
+            return Optional.ofNullable(this.failure);
+        }
+
+        /**
+         * Indicates whether the push service accepted the push message.
+         *
+         * @return true if the response was received and its status code is 2xx.
+         */
+        public boolean isSuccess() {
+            return this.response != null
+                && this.response.statusCode() >= 200
+                && this.response.statusCode() < 300;
+        }
+    }
+
+    /**
+     * A builder class for {@link WebPushDispatcher}.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * Instances of this class are <b>NOT</b> thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        private HttpClient httpClient;
+        private VAPIDKeyPair vapidKeyPair;
+        private Executor preparationExecutor = ForkJoinPool.commonPool();
+        private int maxInFlightRequests = 256;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the {@link HttpClient} used to send requests.
+         *
+         * @param httpClient an http client.
+         * @return this object.
+         */
+        public Builder httpClient(HttpClient httpClient) {
+            WebPushPreConditions.checkNotNull(httpClient, "httpClient");
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * Specifies the key pair used to sign the JWTs for VAPID.
+         *
+         * @param vapidKeyPair a key pair.
+         * @return this object.
+         */
+        public Builder vapidKeyPair(VAPIDKeyPair vapidKeyPair) {
+            WebPushPreConditions.checkNotNull(vapidKeyPair, "vapidKeyPair");
+            this.vapidKeyPair = vapidKeyPair;
+            return this;
+        }
+
+        /**
+         * Specifies the executor that encrypts the push messages and signs the JWTs.
+         * The default value is {@link ForkJoinPool#commonPool()}.
+         *
+         * @param preparationExecutor an executor.
+         * @return this object.
+         */
+        public Builder preparationExecutor(Executor preparationExecutor) {
+            WebPushPreConditions.checkNotNull(preparationExecutor, "preparationExecutor");
+            this.preparationExecutor = preparationExecutor;
+            return this;
+        }
+
+        /**
+         * Specifies the maximum number of in-flight requests.
+         * The default value is 256.
+         *
+         * @param maxInFlightRequests the maximum number of in-flight requests.
+         * @return this object.
+         * @throws IllegalArgumentException if the given number isn't positive.
+         */
+        public Builder maxInFlightRequests(int maxInFlightRequests) {
+            WebPushPreConditions.checkArgument(maxInFlightRequests > 0,
+                "The maximum number of in-flight requests must be positive.");
+            this.maxInFlightRequests = maxInFlightRequests;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link WebPushDispatcher}.
+         *
+         * @return a new {@link WebPushDispatcher}.
+         * @throws IllegalStateException if the http client or the key pair isn't specified.
+         */
+        public WebPushDispatcher build() {
+            WebPushPreConditions.checkState(this.httpClient != null,
+                "The http client isn't specified.");
+            WebPushPreConditions.checkState(this.vapidKeyPair != null,
+                "The VAPID key pair isn't specified.");
+            return new WebPushDispatcher(this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.zerodeplibs.webpush.internal;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, lock-free pool of reusable objects
+ * that are expensive to create but not thread-safe(e.g. {@link javax.crypto.Mac}).
+ *
+ * <p>
+ * Objects are kept in a fixed number of slots.
+ * A thread starts scanning the slots from the position derived from its id,
+ * so threads running on different cores usually touch different slots.
+ * Because this class uses neither locks nor {@link ThreadLocal},
+ * it behaves well with virtual threads (no pinning and no per-thread instances).
+ * </p>
+ *
+ * <p>
+ * If no pooled object is available, a new one is created with the given factory.
+ * If all the slots are occupied when an object is released, the object is discarded.
+ * </p>
+ *
+ * <div><b>WARNING:</b></div>
+ *
+ * <p>
+ * This class is intended to be used internally in this library.
+ * Therefore, don't use this class from outside this library.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @param <T> the type of pooled objects.
+ * @author Tomoki Sato
+ */
+public class ConcurrentObjectPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final Supplier<T> factory;
+
+    /**
+     * Creates a new {@link ConcurrentObjectPool}
+     * whose capacity is derived from the number of available processors.
+     *
+     * @param factory the factory used to create a new object when the pool is empty.
+     */
+    public ConcurrentObjectPool(Supplier<T> factory) {
+        this(Runtime.getRuntime().availableProcessors() * 2, factory);
+    }
+
+    /**
+     * Creates a new {@link ConcurrentObjectPool}.
+     * The actual capacity is the smallest power of two
+     * that is greater than or equal to the given capacity.
+     *
+     * @param capacity the maximum number of pooled objects.
+     * @param factory  the factory used to create a new object when the pool is empty.
+     */
+    public ConcurrentObjectPool(int capacity, Supplier<T> factory) {
+        WebPushPreConditions.checkArgument(capacity > 0, "The capacity must be positive.");
+        WebPushPreConditions.checkNotNull(factory, "factory");
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.factory = factory;
+    }
+
+    /**
+     * Takes an object from this pool.
+     * If there is no pooled object, a new object is created.
+     *
+     * @return an object that is exclusively used by the caller
+     *     until it is passed to {@link #release(Object)}.
+     */
+    public T borrow() {
+        int start = startIndex();
+        for (int i = 0; i <= this.mask; i++) {
+            int index = (start + i) & this.mask;
+            if (this.slots.get(index) != null) {
+                T pooled = this.slots.getAndSet(index, null);
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+        }
+        return this.factory.get();
+    }
+
+    /**
+     * Returns the given object to this pool.
+     *
+     * @param object an object obtained through {@link #borrow()}.
+     */
+    public void release(T object) {
+        int start = startIndex();
+        for (int i = 0; i <= this.mask; i++) {
+            int index = (start + i) & this.mask;
+            if (this.slots.get(index) == null && this.slots.compareAndSet(index, null, object)) {
+                return;
+            }
+        }
+    }
+
+    private int startIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 32)) * 0x9E3779B9 >>> 16;
+    }
+}
@@ -0,0 +1,1157 @@
+package com.zerodeplibs.webpush.internal;
+
+import java.math.BigInteger;
+
+/**
+ * A pure-Java implementation of the scalar multiplication on the P-256(secp256r1) curve.
+ * This class is used as the built-in ECDH backend of message encryption.
+ *
+ * <p>
+ * The field elements are represented by four 64-bit limbs in the Montgomery form
+ * and multiplied by the CIOS Montgomery multiplication.
+ * The points are represented in the homogeneous projective coordinates
+ * and added with the complete formulas for prime order curves
+ * (Renes, Costello and Batina, 2016. Algorithm 4 and 6),
+ * which have no exceptional cases.
+ * The scalar multiplication uses a fixed 4-bit window
+ * and looks up the precomputed table by scanning all the entries.
+ * So the sequence of the operations and the memory access pattern
+ * don't depend on the secret scalar.
+ * </p>
+ *
+ * <p>
+ * The multiplication of the base point({@link #publicKey(byte[])}) uses
+ * the table of <code>j * 16^i * G</code> for every 4-bit window <code>i</code>
+ * instead of a per-call table. So it needs no doublings, only 64 additions.
+ * The table (about 100KB) is built lazily, once per class loader,
+ * when a public key is calculated for the first time.
+ * </p>
+ *
+ * <p>
+ * Converting a result to the affine coordinates needs a modular inversion,
+ * which is as expensive as a few dozen point additions.
+ * The batch variants({@link #ecdh(byte[][], byte[][], byte[])}
+ * and {@link #publicKeys(byte[][])}) convert all the results
+ * with a single inversion by Montgomery's simultaneous inversion.
+ * </p>
+ *
+ * <p>
+ * The ECDSA signing({@link #sign(byte[], byte[], byte[], byte[], int)}) also uses
+ * the table of the base point. The arithmetic modulo the order n is done
+ * in the Montgomery form as well, and the nonce is inverted by Fermat's little theorem,
+ * so it doesn't depend on the secret values either.
+ * </p>
+ *
+ * <p>
+ * Neither {@link BigInteger} nor the JCA objects are used in the arithmetic.
+ * {@link #toScalar(BigInteger)} is only a bridge from the keys of the JCA.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public final class P256 {
+
+    /**
+     * The length of a scalar and a coordinate in bytes.
+     */
+    public static final int SCALAR_LENGTH = 32;
+
+    /**
+     * The length of a point in uncompressed form in bytes.
+     */
+    public static final int UNCOMPRESSED_POINT_LENGTH = 65;
+
+    // p = 2^256 - 2^224 + 2^192 + 2^96 - 1 (little-endian limbs).
+    private static final long P0 = 0xFFFFFFFFFFFFFFFFL;
+    private static final long P1 = 0x00000000FFFFFFFFL;
+    private static final long P2 = 0x0000000000000000L;
+    private static final long P3 = 0xFFFFFFFF00000001L;
+
+    // R^2 mod p where R = 2^256.
+    private static final long[] R2 = {
+        0x0000000000000003L, 0xFFFFFFFBFFFFFFFFL, 0xFFFFFFFFFFFFFFFEL, 0x00000004FFFFFFFDL
+    };
+
+    // The exponent p - 2 used for the inversion (big-endian bytes).
+    private static final byte[] P_MINUS_2 = hexToBytes(
+        "ffffffff00000001000000000000000000000000fffffffffffffffffffffffd");
+
+    // The order of the base point (big-endian bytes).
+    private static final byte[] N = hexToBytes(
+        "ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551");
+
+    // n (little-endian limbs).
+    private static final long N0 = 0xF3B9CAC2FC632551L;
+    private static final long N1 = 0xBCE6FAADA7179E84L;
+    private static final long N2 = 0xFFFFFFFFFFFFFFFFL;
+    private static final long N3 = 0xFFFFFFFF00000000L;
+    // -n^-1 mod 2^64.
+    private static final long N_PRIME = montgomeryConstant(N0);
+    // The exponent n - 2 used for the inversion modulo n (big-endian bytes).
+    private static final byte[] N_MINUS_2 = hexToBytes(
+        "ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc63254f");
+    // R^2 mod n where R = 2^256.
+    private static final long[] RN2 = montgomerySquareOfR();
+    private static final long[] ONE_N = toMontgomeryN(new long[] {1, 0, 0, 0});
+
+    private static final long[] ONE = toMontgomery(new long[] {1, 0, 0, 0});
+    private static final long[] B = toMontgomery(bytesToLimbs(hexToBytes(
+        "5ac635d8aa3a93e7b3ebbd55769886bc651d06b0cc53b0f63bce3c3e27d2604b"), 0));
+    private static final long[] THREE = toMontgomery(new long[] {3, 0, 0, 0});
+
+    private static final byte[] BASE_POINT = hexToBytes(
+        "04"
+            + "6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296"
+            + "4fe342e2fe1a7f9b8ee7eb4a7c0f9e162bce33576b315ececbb6406837bf51f5");
+
+    private static final int WINDOW_BITS = 4;
+    private static final int TABLE_SIZE = 1 << WINDOW_BITS;
+    private static final int BASE_WINDOWS = SCALAR_LENGTH * 2;
+    // The size of a point in the base table: X, Y and Z of four limbs each.
+    private static final int POINT_LIMBS = 12;
+
+    private P256() {
+    }
+
+    /**
+     * Calculates the ECDH shared secret, that is,
+     * the x-coordinate of the product of the given scalar and the given point.
+     *
+     * @param scalar         a private key as a 32-byte big-endian integer.
+     * @param point          a public key in uncompressed form(65 bytes).
+     * @param sharedSecret   the array into which the 32-byte shared secret is written.
+     * @param sharedSecretOffset the offset in the array at which the secret is written.
+     * @throws IllegalArgumentException if the given point isn't a valid point on the curve
+     *                                  or the given scalar is out of range.
+     */
+    public static void ecdh(byte[] scalar, byte[] point, byte[] sharedSecret,
+                            int sharedSecretOffset) {
+        checkScalar(scalar);
+        Point q = decodePoint(point);
+        Point r = multiply(scalar, q);
+
+        long[] x = new long[4];
+        long[] y = new long[4];
+        toAffine(r, x, y);
+        limbsToBytes(fromMontgomery(x), sharedSecret, sharedSecretOffset);
+    }
+
+    /**
+     * Calculates the ECDH shared secrets for the given pairs of the scalars and the points.
+     * The i-th secret is calculated from <code>scalars[i]</code> and <code>points[i]</code>
+     * and written into <code>sharedSecrets</code> at the offset <code>i * 32</code>.
+     *
+     * @param scalars       private keys as 32-byte big-endian integers.
+     * @param points        public keys in uncompressed form(65 bytes).
+     * @param sharedSecrets the array into which the shared secrets are written successively.
+     * @throws IllegalArgumentException if any of the points isn't a valid point on the curve,
+     *                                  any of the scalars is out of range
+     *                                  or the lengths of the arrays don't match.
+     */
+    public static void ecdh(byte[][] scalars, byte[][] points, byte[] sharedSecrets) {
+        WebPushPreConditions.checkArgument(scalars.length == points.length
+                && sharedSecrets.length >= scalars.length * SCALAR_LENGTH,
+            "The lengths of the arrays don't match.");
+
+        int count = scalars.length;
+        Point[] results = new Point[count];
+        for (int i = 0; i < count; i++) {
+            checkScalar(scalars[i]);
+            results[i] = multiply(scalars[i], decodePoint(points[i]));
+        }
+
+        long[][] xs = new long[count][4];
+        toAffine(results, xs, null);
+        for (int i = 0; i < count; i++) {
+            limbsToBytes(fromMontgomery(xs[i]), sharedSecrets, i * SCALAR_LENGTH);
+        }
+    }
+
+    /**
+     * Calculates the public key for the given private key in uncompressed form.
+     *
+     * @param scalar a private key as a 32-byte big-endian integer.
+     * @return the public key in uncompressed form(65 bytes).
+     * @throws IllegalArgumentException if the given scalar is out of range.
+     */
+    public static byte[] publicKey(byte[] scalar) {
+        checkScalar(scalar);
+        Point r = multiplyBase(scalar);
+        return encodePoint(r);
+    }
+
+    /**
+     * Calculates the public keys for the given private keys in uncompressed form.
+     *
+     * @param scalars private keys as 32-byte big-endian integers.
+     * @return the public keys in uncompressed form(65 bytes) in the same order.
+     * @throws IllegalArgumentException if any of the scalars is out of range.
+     */
+    public static byte[][] publicKeys(byte[][] scalars) {
+        int count = scalars.length;
+        Point[] results = new Point[count];
+        for (int i = 0; i < count; i++) {
+            checkScalar(scalars[i]);
+            results[i] = multiplyBase(scalars[i]);
+        }
+
+        long[][] xs = new long[count][4];
+        long[][] ys = new long[count][4];
+        toAffine(results, xs, ys);
+        byte[][] encoded = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = encodeAffine(xs[i], ys[i]);
+        }
+        return encoded;
+    }
+
+    /**
+     * Indicates whether the given 32-byte big-endian integer
+     * is a valid private key, that is, in the range [1, n - 1].
+     *
+     * @param scalar a 32-byte big-endian integer.
+     * @return true if the given integer is a valid private key.
+     */
+    public static boolean isValidScalar(byte[] scalar) {
+        if (scalar == null || scalar.length != SCALAR_LENGTH) {
+            return false;
+        }
+        // Constant-time comparison: scalar < n and scalar != 0.
+        int borrow = 0;
+        int nonZero = 0;
+        for (int i = SCALAR_LENGTH - 1; i >= 0; i--) {
+            int diff = (scalar[i] & 0xFF) - (N[i] & 0xFF) - borrow;
+            borrow = (diff >>> 31) & 1;
+            nonZero |= scalar[i];
+        }
+        return borrow == 1 && nonZero != 0;
+    }
+
+    /**
+     * Converts the given non-negative integer(e.g. the private value of an
+     * {@link java.security.interfaces.ECPrivateKey}) into a 32-byte big-endian integer.
+     *
+     * <p>
+     * The last 32 bytes of the two's-complement representation are copied
+     * by visiting every byte of the result and masking the source index,
+     * so the copy doesn't branch on the length of the representation.
+     * Only the representation itself is created by {@link BigInteger}.
+     * The higher bytes of an integer that doesn't fit in 32 bytes are discarded,
+     * so the result should be checked with {@link #isValidScalar(byte[])}.
+     * </p>
+     *
+     * @param value a non-negative integer.
+     * @return a new 32-byte big-endian integer.
+     */
+    public static byte[] toScalar(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] scalar = new byte[SCALAR_LENGTH];
+        int offset = bytes.length - SCALAR_LENGTH;
+        for (int i = 0; i < SCALAR_LENGTH; i++) {
+            int index = offset + i;
+            // 0 if the index is negative(i.e. a leading zero of the result), -1 otherwise.
+            int mask = ~(index >> 31);
+            scalar[i] = (byte) (bytes[index & mask] & mask);
+        }
+        return scalar;
+    }
+
+    /**
+     * Reduces the given 32-byte big-endian integer modulo n.
+     *
+     * @param value   a 32-byte big-endian integer(e.g. a hash value).
+     * @param reduced the array into which the 32-byte result is written.
+     *                It may be the same array as the given value.
+     */
+    public static void reduce(byte[] value, byte[] reduced) {
+        // The value is less than 2n, so it needs at most one subtraction.
+        long[] limbs = bytesToLimbs(value, 0);
+        reduceOnceN(limbs, limbs[0], limbs[1], limbs[2], limbs[3], 0);
+        limbsToBytes(limbs, reduced, 0);
+    }
+
+    /**
+     * Creates an ECDSA signature of the given digest with the given nonce.
+     *
+     * <p>
+     * The signature is written as the concatenation of r and s(32 bytes each),
+     * which is the format used by JWS.
+     * In the extremely unlikely case where r or s is 0, nothing is written
+     * and false is returned. The caller must retry with another nonce.
+     * </p>
+     *
+     * @param privateKey      a private key as a 32-byte big-endian integer.
+     * @param nonce           a per-message secret in the range [1, n - 1]
+     *                        as a 32-byte big-endian integer.
+     *                        It must never be reused with another digest.
+     * @param digest          the 32-byte hash value of the message(e.g. SHA-256).
+     * @param signature       the array into which the 64-byte signature is written.
+     * @param signatureOffset the offset in the array at which the signature is written.
+     * @return true if the signature is written.
+     * @throws IllegalArgumentException if the given private key or nonce is out of range.
+     */
+    public static boolean sign(byte[] privateKey, byte[] nonce, byte[] digest,
+                               byte[] signature, int signatureOffset) {
+        checkScalar(privateKey);
+        checkScalar(nonce);
+        WebPushPreConditions.checkArgument(digest.length == SCALAR_LENGTH,
+            "The length of the digest must be 32.");
+
+        Point kg = multiplyBase(nonce);
+        long[] x = new long[4];
+        long[] inverse = new long[4];
+        invert(inverse, kg.pz);
+        mul(x, kg.px, inverse);
+
+        // r = x mod n. x is less than p, which is less than 2n.
+        long[] r = fromMontgomery(x);
+        reduceOnceN(r, r[0], r[1], r[2], r[3], 0);
+        long[] e = bytesToLimbs(digest, 0);
+        reduceOnceN(e, e[0], e[1], e[2], e[3], 0);
+
+        // s = k^-1 * (e + r * d) mod n
+        long[] s = toMontgomeryN(bytesToLimbs(privateKey, 0));
+        mulN(s, s, toMontgomeryN(r));
+        addN(s, s, toMontgomeryN(e));
+        long[] k = toMontgomeryN(bytesToLimbs(nonce, 0));
+        invertN(k, k);
+        mulN(s, s, k);
+        mulN(s, s, new long[] {1, 0, 0, 0});
+
+        if (isZero(r) || isZero(s)) {
+            return false;
+        }
+        limbsToBytes(r, signature, signatureOffset);
+        limbsToBytes(s, signature, signatureOffset + SCALAR_LENGTH);
+        return true;
+    }
+
+    private static void checkScalar(byte[] scalar) {
+        WebPushPreConditions.checkArgument(isValidScalar(scalar),
+            "The scalar must be in the range [1, n - 1].");
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Points
+
+    private static final class Point {
+        final long[] px = new long[4];
+        final long[] py = new long[4];
+        final long[] pz = new long[4];
+
+        void set(Point o) {
+            System.arraycopy(o.px, 0, px, 0, 4);
+            System.arraycopy(o.py, 0, py, 0, 4);
+            System.arraycopy(o.pz, 0, pz, 0, 4);
+        }
+
+        void setInfinity() {
+            for (int i = 0; i < 4; i++) {
+                px[i] = 0;
+                py[i] = ONE[i];
+                pz[i] = 0;
+            }
+        }
+    }
+
+    // Temporaries used by the point operations.
+    private static final class Scratch {
+        final long[] t0 = new long[4];
+        final long[] t1 = new long[4];
+        final long[] t2 = new long[4];
+        final long[] t3 = new long[4];
+        final long[] t4 = new long[4];
+        final long[] x3 = new long[4];
+        final long[] y3 = new long[4];
+        final long[] z3 = new long[4];
+    }
+
+    private static Point multiply(byte[] scalar, Point p) {
+        final Scratch s = new Scratch();
+
+        Point[] table = new Point[TABLE_SIZE];
+        table[0] = new Point();
+        table[0].setInfinity();
+        table[1] = new Point();
+        table[1].set(p);
+        for (int i = 2; i < TABLE_SIZE; i++) {
+            table[i] = new Point();
+            if ((i & 1) == 0) {
+                pointDouble(table[i], table[i / 2], s);
+            } else {
+                pointAdd(table[i], table[i - 1], p, s);
+            }
+        }
+
+        Point r = new Point();
+        r.setInfinity();
+        Point selected = new Point();
+        for (int i = 0; i < SCALAR_LENGTH * 2; i++) {
+            for (int j = 0; j < WINDOW_BITS; j++) {
+                pointDouble(r, r, s);
+            }
+            int b = scalar[i >>> 1] & 0xFF;
+            int window = (i & 1) == 0 ? b >>> 4 : b & 0x0F;
+            select(selected, table, window);
+            pointAdd(r, r, selected, s);
+        }
+        return r;
+    }
+
+    // Holds the table of the multiples of the base point: for each window i(0 is the least
+    // significant), the entries j * 16^i * G(0 <= j < 16) are stored successively.
+    // The holder class defers building the table until it is needed.
+    private static final class BaseTable {
+
+        static final long[] TABLE = build();
+
+        private static long[] build() {
+            long[] table = new long[BASE_WINDOWS * TABLE_SIZE * POINT_LIMBS];
+            Scratch s = new Scratch();
+            Point base = decodePoint(BASE_POINT);
+            Point acc = new Point();
+            int offset = 0;
+            for (int i = 0; i < BASE_WINDOWS; i++) {
+                acc.setInfinity();
+                for (int j = 0; j < TABLE_SIZE; j++) {
+                    System.arraycopy(acc.px, 0, table, offset, 4);
+                    System.arraycopy(acc.py, 0, table, offset + 4, 4);
+                    System.arraycopy(acc.pz, 0, table, offset + 8, 4);
+                    offset += POINT_LIMBS;
+                    pointAdd(acc, acc, base, s);
+                }
+                // acc is now 16 * base.
+                base.set(acc);
+            }
+            return table;
+        }
+    }
+
+    private static Point multiplyBase(byte[] scalar) {
+        final long[] table = BaseTable.TABLE;
+        final Scratch s = new Scratch();
+
+        Point r = new Point();
+        r.setInfinity();
+        Point selected = new Point();
+        for (int i = 0; i < BASE_WINDOWS; i++) {
+            int b = scalar[SCALAR_LENGTH - 1 - (i >>> 1)] & 0xFF;
+            int window = (i & 1) == 0 ? b & 0x0F : b >>> 4;
+            select(selected, table, i * TABLE_SIZE * POINT_LIMBS, window);
+            pointAdd(r, r, selected, s);
+        }
+        return r;
+    }
+
+    // Copies the entry at the index in the base table into r
+    // without branching on or indexing by the index.
+    private static void select(Point r, long[] table, int offset, int index) {
+        for (int k = 0; k < 4; k++) {
+            r.px[k] = 0;
+            r.py[k] = 0;
+            r.pz[k] = 0;
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            long mask = -(((long) (i ^ index) - 1) >>> 63);
+            int entry = offset + i * POINT_LIMBS;
+            for (int k = 0; k < 4; k++) {
+                r.px[k] |= table[entry + k] & mask;
+                r.py[k] |= table[entry + 4 + k] & mask;
+                r.pz[k] |= table[entry + 8 + k] & mask;
+            }
+        }
+    }
+
+    // Copies table[index] into r without branching on or indexing by the index.
+    private static void select(Point r, Point[] table, int index) {
+        for (int k = 0; k < 4; k++) {
+            r.px[k] = 0;
+            r.py[k] = 0;
+            r.pz[k] = 0;
+        }
+        for (int i = 0; i < table.length; i++) {
+            long mask = -(((long) (i ^ index) - 1) >>> 63);
+            Point t = table[i];
+            for (int k = 0; k < 4; k++) {
+                r.px[k] |= t.px[k] & mask;
+                r.py[k] |= t.py[k] & mask;
+                r.pz[k] |= t.pz[k] & mask;
+            }
+        }
+    }
+
+    // r = p + q (Algorithm 4). r may be the same object as p or q.
+    private static void pointAdd(Point r, Point p, Point q, Scratch s) {
+        final long[] t0 = s.t0;
+        final long[] t1 = s.t1;
+        final long[] t2 = s.t2;
+        final long[] t3 = s.t3;
+        final long[] t4 = s.t4;
+        final long[] x3 = s.x3;
+        final long[] y3 = s.y3;
+        final long[] z3 = s.z3;
+
+        mul(t0, p.px, q.px);
+        mul(t1, p.py, q.py);
+        mul(t2, p.pz, q.pz);
+        add(t3, p.px, p.py);
+        add(t4, q.px, q.py);
+        mul(t3, t3, t4);
+        add(t4, t0, t1);
+        sub(t3, t3, t4);
+        add(t4, p.py, p.pz);
+        add(x3, q.py, q.pz);
+        mul(t4, t4, x3);
+        add(x3, t1, t2);
+        sub(t4, t4, x3);
+        add(x3, p.px, p.pz);
+        add(y3, q.px, q.pz);
+        mul(x3, x3, y3);
+        add(y3, t0, t2);
+        sub(y3, x3, y3);
+        mul(z3, B, t2);
+        sub(x3, y3, z3);
+        add(z3, x3, x3);
+        add(x3, x3, z3);
+        sub(z3, t1, x3);
+        add(x3, t1, x3);
+        mul(y3, B, y3);
+        add(t1, t2, t2);
+        add(t2, t1, t2);
+        sub(y3, y3, t2);
+        sub(y3, y3, t0);
+        add(t1, y3, y3);
+        add(y3, t1, y3);
+        add(t1, t0, t0);
+        add(t0, t1, t0);
+        sub(t0, t0, t2);
+        mul(t1, t4, y3);
+        mul(t2, t0, y3);
+        mul(y3, x3, z3);
+        add(y3, y3, t2);
+        mul(x3, t3, x3);
+        sub(x3, x3, t1);
+        mul(z3, t4, z3);
+        mul(t1, t3, t0);
+        add(z3, z3, t1);
+
+        System.arraycopy(x3, 0, r.px, 0, 4);
+        System.arraycopy(y3, 0, r.py, 0, 4);
+        System.arraycopy(z3, 0, r.pz, 0, 4);
+    }
+
+    // r = 2p (Algorithm 6). r may be the same object as p.
+    private static void pointDouble(Point r, Point p, Scratch s) {
+        final long[] t0 = s.t0;
+        final long[] t1 = s.t1;
+        final long[] t2 = s.t2;
+        final long[] t3 = s.t3;
+        final long[] x3 = s.x3;
+        final long[] y3 = s.y3;
+        final long[] z3 = s.z3;
+
+        mul(t0, p.px, p.px);
+        mul(t1, p.py, p.py);
+        mul(t2, p.pz, p.pz);
+        mul(t3, p.px, p.py);
+        add(t3, t3, t3);
+        mul(z3, p.px, p.pz);
+        add(z3, z3, z3);
+        mul(y3, B, t2);
+        sub(y3, y3, z3);
+        add(x3, y3, y3);
+        add(y3, x3, y3);
+        sub(x3, t1, y3);
+        add(y3, t1, y3);
+        mul(y3, x3, y3);
+        mul(x3, x3, t3);
+        add(t3, t2, t2);
+        add(t2, t2, t3);
+        mul(z3, B, z3);
+        sub(z3, z3, t2);
+        sub(z3, z3, t0);
+        add(t3, z3, z3);
+        add(z3, z3, t3);
+        add(t3, t0, t0);
+        add(t0, t3, t0);
+        sub(t0, t0, t2);
+        mul(t0, t0, z3);
+        add(y3, y3, t0);
+        mul(t0, p.py, p.pz);
+        add(t0, t0, t0);
+        mul(z3, t0, z3);
+        sub(x3, x3, z3);
+        mul(z3, t0, t1);
+        add(z3, z3, z3);
+        add(z3, z3, z3);
+
+        System.arraycopy(x3, 0, r.px, 0, 4);
+        System.arraycopy(y3, 0, r.py, 0, 4);
+        System.arraycopy(z3, 0, r.pz, 0, 4);
+    }
+
+    private static void toAffine(Point p, long[] x, long[] y) {
+        WebPushPreConditions.checkArgument(!isZero(p.pz),
+            "The result of the scalar multiplication is the point at infinity.");
+        long[] inverse = new long[4];
+        invert(inverse, p.pz);
+        mul(x, p.px, inverse);
+        mul(y, p.py, inverse);
+    }
+
+    // Converts all the points to the affine coordinates with a single inversion.
+    // ys may be null if only the x-coordinates are needed.
+    private static void toAffine(Point[] points, long[][] xs, long[][] ys) {
+        int count = points.length;
+        if (count == 0) {
+            return;
+        }
+
+        // products[i] = z[0] * z[1] * ... * z[i]
+        long[][] products = new long[count][4];
+        System.arraycopy(points[0].pz, 0, products[0], 0, 4);
+        for (int i = 1; i < count; i++) {
+            mul(products[i], products[i - 1], points[i].pz);
+        }
+        WebPushPreConditions.checkArgument(!isZero(products[count - 1]),
+            "The result of the scalar multiplication is the point at infinity.");
+
+        // inverse = (z[0] * ... * z[i])^-1 at the beginning of each iteration.
+        long[] inverse = new long[4];
+        invert(inverse, products[count - 1]);
+        long[] pointInverse = new long[4];
+        for (int i = count - 1; i >= 0; i--) {
+            if (i > 0) {
+                mul(pointInverse, inverse, products[i - 1]);
+                mul(inverse, inverse, points[i].pz);
+            } else {
+                System.arraycopy(inverse, 0, pointInverse, 0, 4);
+            }
+            mul(xs[i], points[i].px, pointInverse);
+            if (ys != null) {
+                mul(ys[i], points[i].py, pointInverse);
+            }
+        }
+    }
+
+    private static Point decodePoint(byte[] encoded) {
+        WebPushPreConditions.checkArgument(
+            encoded != null && encoded.length == UNCOMPRESSED_POINT_LENGTH && encoded[0] == 0x04,
+            "The point must be in uncompressed form.");
+
+        long[] x = bytesToLimbs(encoded, 1);
+        long[] y = bytesToLimbs(encoded, 1 + SCALAR_LENGTH);
+        WebPushPreConditions.checkArgument(isLessThanP(x) && isLessThanP(y),
+            "The coordinates must be less than p.");
+
+        Point point = new Point();
+        mul(point.px, x, R2);
+        mul(point.py, y, R2);
+        System.arraycopy(ONE, 0, point.pz, 0, 4);
+
+        // y^2 = x^3 - 3x + b
+        long[] lhs = new long[4];
+        long[] rhs = new long[4];
+        final long[] t = new long[4];
+        mul(lhs, point.py, point.py);
+        mul(rhs, point.px, point.px);
+        mul(rhs, rhs, point.px);
+        mul(t, THREE, point.px);
+        sub(rhs, rhs, t);
+        add(rhs, rhs, B);
+        WebPushPreConditions.checkArgument(equals(lhs, rhs),
+            "The point isn't on the curve.");
+        return point;
+    }
+
+    private static byte[] encodePoint(Point p) {
+        long[] x = new long[4];
+        long[] y = new long[4];
+        toAffine(p, x, y);
+        return encodeAffine(x, y);
+    }
+
+    private static byte[] encodeAffine(long[] x, long[] y) {
+        byte[] encoded = new byte[UNCOMPRESSED_POINT_LENGTH];
+        encoded[0] = 0x04;
+        limbsToBytes(fromMontgomery(x), encoded, 1);
+        limbsToBytes(fromMontgomery(y), encoded, 1 + SCALAR_LENGTH);
+        return encoded;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Field elements (modulo p, in the Montgomery form unless otherwise noted)
+
+    // r = a * b * R^-1 mod p. a and b must be less than p. r may be the same array as a or b.
+    static void mul(long[] r, long[] a, long[] b) {
+        final long a0 = a[0];
+        final long a1 = a[1];
+        final long a2 = a[2];
+        final long a3 = a[3];
+
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        long t4 = 0;
+
+        for (int i = 0; i < 4; i++) {
+            final long bi = b[i];
+            // t += a * b[i]
+            long lo = a0 * bi;
+            long hi = mulHigh(a0, bi);
+            long sum = t0 + lo;
+            hi += carry(t0, lo, sum);
+            t0 = sum;
+            long c = hi;
+
+            lo = a1 * bi;
+            hi = mulHigh(a1, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t1 + lo;
+            hi += carry(t1, lo, sum);
+            t1 = sum;
+            c = hi;
+
+            lo = a2 * bi;
+            hi = mulHigh(a2, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t2 + lo;
+            hi += carry(t2, lo, sum);
+            t2 = sum;
+            c = hi;
+
+            lo = a3 * bi;
+            hi = mulHigh(a3, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t3 + lo;
+            hi += carry(t3, lo, sum);
+            t3 = sum;
+            c = hi;
+
+            sum = t4 + c;
+            final long t5 = carry(t4, c, sum);
+            t4 = sum;
+
+            // t = (t + m * p) / 2^64 where m = t0 * (-p^-1 mod 2^64) = t0.
+            final long m = t0;
+
+            // m * P0 + t0 = m * 2^64 - m + m = m * 2^64.
+            c = m;
+
+            lo = m * P1;
+            hi = mulHigh(m, P1);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t1 + lo;
+            hi += carry(t1, lo, sum);
+            t0 = sum;
+            c = hi;
+
+            // P2 is 0.
+            sum = t2 + c;
+            t1 = sum;
+            c = carry(t2, c, sum);
+
+            lo = m * P3;
+            hi = mulHigh(m, P3);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t3 + lo;
+            hi += carry(t3, lo, sum);
+            t2 = sum;
+            c = hi;
+
+            sum = t4 + c;
+            t3 = sum;
+            t4 = t5 + carry(t4, c, sum);
+        }
+
+        reduceOnce(r, t0, t1, t2, t3, t4);
+    }
+
+    // r = a + b mod p.
+    static void add(long[] r, long[] a, long[] b) {
+        long s0 = a[0] + b[0];
+        long c = carry(a[0], b[0], s0);
+        long s1 = a[1] + b[1];
+        long c1 = carry(a[1], b[1], s1);
+        long s1c = s1 + c;
+        c = c1 | carry(s1, c, s1c);
+        long s2 = a[2] + b[2];
+        long c2 = carry(a[2], b[2], s2);
+        long s2c = s2 + c;
+        c = c2 | carry(s2, c, s2c);
+        long s3 = a[3] + b[3];
+        long c3 = carry(a[3], b[3], s3);
+        long s3c = s3 + c;
+        c = c3 | carry(s3, c, s3c);
+
+        reduceOnce(r, s0, s1c, s2c, s3c, c);
+    }
+
+    // r = a - b mod p.
+    static void sub(long[] r, long[] a, long[] b) {
+        long d0 = a[0] - b[0];
+        long bw = borrow(a[0], b[0], d0);
+        long d1 = a[1] - b[1];
+        long bw1 = borrow(a[1], b[1], d1);
+        long d1b = d1 - bw;
+        bw = bw1 | borrow(d1, bw, d1b);
+        long d2 = a[2] - b[2];
+        long bw2 = borrow(a[2], b[2], d2);
+        long d2b = d2 - bw;
+        bw = bw2 | borrow(d2, bw, d2b);
+        long d3 = a[3] - b[3];
+        long bw3 = borrow(a[3], b[3], d3);
+        long d3b = d3 - bw;
+        bw = bw3 | borrow(d3, bw, d3b);
+
+        // Adds p back if the subtraction borrowed.
+        long mask = -bw;
+        long s0 = d0 + (P0 & mask);
+        long c = carry(d0, P0 & mask, s0);
+        long s1 = d1b + (P1 & mask);
+        long c1 = carry(d1b, P1 & mask, s1);
+        long s1c = s1 + c;
+        c = c1 | carry(s1, c, s1c);
+        long s2 = d2b + (P2 & mask);
+        long c2 = carry(d2b, P2 & mask, s2);
+        long s2c = s2 + c;
+        c = c2 | carry(s2, c, s2c);
+        final long s3 = d3b + (P3 & mask) + c;
+
+        r[0] = s0;
+        r[1] = s1c;
+        r[2] = s2c;
+        r[3] = s3;
+    }
+
+    // r = (t4 * 2^256 + t) mod p, given that the value is less than 2p.
+    private static void reduceOnce(long[] r, long t0, long t1, long t2, long t3, long t4) {
+        long d0 = t0 - P0;
+        long bw = borrow(t0, P0, d0);
+        long d1 = t1 - P1;
+        long bw1 = borrow(t1, P1, d1);
+        long d1b = d1 - bw;
+        bw = bw1 | borrow(d1, bw, d1b);
+        long d2 = t2 - P2;
+        long bw2 = borrow(t2, P2, d2);
+        long d2b = d2 - bw;
+        bw = bw2 | borrow(d2, bw, d2b);
+        long d3 = t3 - P3;
+        long bw3 = borrow(t3, P3, d3);
+        long d3b = d3 - bw;
+        bw = bw3 | borrow(d3, bw, d3b);
+
+        // Keeps t only if t < p, that is, t4 is 0 and the subtraction borrowed.
+        long keep = -(bw & ~t4 & 1);
+        r[0] = (t0 & keep) | (d0 & ~keep);
+        r[1] = (t1 & keep) | (d1b & ~keep);
+        r[2] = (t2 & keep) | (d2b & ~keep);
+        r[3] = (t3 & keep) | (d3b & ~keep);
+    }
+
+    // r = a^-1 mod p by Fermat's little theorem. The exponent is public.
+    private static void invert(long[] r, long[] a) {
+        long[] result = ONE.clone();
+        for (byte e : P_MINUS_2) {
+            for (int bit = 7; bit >= 0; bit--) {
+                mul(result, result, result);
+                if (((e >>> bit) & 1) == 1) {
+                    mul(result, result, a);
+                }
+            }
+        }
+        System.arraycopy(result, 0, r, 0, 4);
+    }
+
+    private static long[] toMontgomery(long[] a) {
+        long[] r = new long[4];
+        mul(r, a, R2);
+        return r;
+    }
+
+    private static long[] fromMontgomery(long[] a) {
+        long[] r = new long[4];
+        mul(r, a, new long[] {1, 0, 0, 0});
+        return r;
+    }
+
+    private static boolean isZero(long[] a) {
+        return (a[0] | a[1] | a[2] | a[3]) == 0;
+    }
+
+    private static boolean equals(long[] a, long[] b) {
+        return ((a[0] ^ b[0]) | (a[1] ^ b[1]) | (a[2] ^ b[2]) | (a[3] ^ b[3])) == 0;
+    }
+
+    private static boolean isLessThanP(long[] a) {
+        long d0 = a[0] - P0;
+        long bw = borrow(a[0], P0, d0);
+        long d1 = a[1] - P1;
+        long d1b = d1 - bw;
+        bw = borrow(a[1], P1, d1) | borrow(d1, bw, d1b);
+        long d2 = a[2] - P2;
+        long d2b = d2 - bw;
+        bw = borrow(a[2], P2, d2) | borrow(d2, bw, d2b);
+        long d3 = a[3] - P3;
+        long d3b = d3 - bw;
+        bw = borrow(a[3], P3, d3) | borrow(d3, bw, d3b);
+        return bw == 1;
+    }
+
+    // The high 64 bits of the unsigned 128-bit product.
+    private static long mulHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    // The carry of the unsigned addition s = a + b.
+    private static long carry(long a, long b, long s) {
+        return ((a & b) | ((a | b) & ~s)) >>> 63;
+    }
+
+    // The borrow of the unsigned subtraction d = a - b.
+    private static long borrow(long a, long b, long d) {
+        return ((~a & b) | ((~a | b) & d)) >>> 63;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Scalars (modulo n, in the Montgomery form unless otherwise noted)
+
+    // r = a * b * R^-1 mod n. a and b must be less than n. r may be the same array as a or b.
+    private static void mulN(long[] r, long[] a, long[] b) {
+        final long a0 = a[0];
+        final long a1 = a[1];
+        final long a2 = a[2];
+        final long a3 = a[3];
+
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        long t4 = 0;
+
+        for (int i = 0; i < 4; i++) {
+            final long bi = b[i];
+            // t += a * b[i]
+            long lo = a0 * bi;
+            long hi = mulHigh(a0, bi);
+            long sum = t0 + lo;
+            hi += carry(t0, lo, sum);
+            t0 = sum;
+            long c = hi;
+
+            lo = a1 * bi;
+            hi = mulHigh(a1, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t1 + lo;
+            hi += carry(t1, lo, sum);
+            t1 = sum;
+            c = hi;
+
+            lo = a2 * bi;
+            hi = mulHigh(a2, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t2 + lo;
+            hi += carry(t2, lo, sum);
+            t2 = sum;
+            c = hi;
+
+            lo = a3 * bi;
+            hi = mulHigh(a3, bi);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t3 + lo;
+            hi += carry(t3, lo, sum);
+            t3 = sum;
+            c = hi;
+
+            sum = t4 + c;
+            final long t5 = carry(t4, c, sum);
+            t4 = sum;
+
+            // t = (t + m * n) / 2^64 where m = t0 * (-n^-1 mod 2^64).
+            final long m = t0 * N_PRIME;
+
+            // The low 64 bits of m * N0 + t0 are 0.
+            lo = m * N0;
+            hi = mulHigh(m, N0);
+            sum = t0 + lo;
+            hi += carry(t0, lo, sum);
+            c = hi;
+
+            lo = m * N1;
+            hi = mulHigh(m, N1);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t1 + lo;
+            hi += carry(t1, lo, sum);
+            t0 = sum;
+            c = hi;
+
+            lo = m * N2;
+            hi = mulHigh(m, N2);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t2 + lo;
+            hi += carry(t2, lo, sum);
+            t1 = sum;
+            c = hi;
+
+            lo = m * N3;
+            hi = mulHigh(m, N3);
+            sum = lo + c;
+            hi += carry(lo, c, sum);
+            lo = sum;
+            sum = t3 + lo;
+            hi += carry(t3, lo, sum);
+            t2 = sum;
+            c = hi;
+
+            sum = t4 + c;
+            t3 = sum;
+            t4 = t5 + carry(t4, c, sum);
+        }
+
+        reduceOnceN(r, t0, t1, t2, t3, t4);
+    }
+
+    // r = a + b mod n.
+    private static void addN(long[] r, long[] a, long[] b) {
+        long s0 = a[0] + b[0];
+        long c = carry(a[0], b[0], s0);
+        long s1 = a[1] + b[1];
+        long c1 = carry(a[1], b[1], s1);
+        long s1c = s1 + c;
+        c = c1 | carry(s1, c, s1c);
+        long s2 = a[2] + b[2];
+        long c2 = carry(a[2], b[2], s2);
+        long s2c = s2 + c;
+        c = c2 | carry(s2, c, s2c);
+        long s3 = a[3] + b[3];
+        long c3 = carry(a[3], b[3], s3);
+        long s3c = s3 + c;
+        c = c3 | carry(s3, c, s3c);
+
+        reduceOnceN(r, s0, s1c, s2c, s3c, c);
+    }
+
+    // r = (t4 * 2^256 + t) mod n, given that the value is less than 2n.
+    private static void reduceOnceN(long[] r, long t0, long t1, long t2, long t3, long t4) {
+        long d0 = t0 - N0;
+        long bw = borrow(t0, N0, d0);
+        long d1 = t1 - N1;
+        long bw1 = borrow(t1, N1, d1);
+        long d1b = d1 - bw;
+        bw = bw1 | borrow(d1, bw, d1b);
+        long d2 = t2 - N2;
+        long bw2 = borrow(t2, N2, d2);
+        long d2b = d2 - bw;
+        bw = bw2 | borrow(d2, bw, d2b);
+        long d3 = t3 - N3;
+        long bw3 = borrow(t3, N3, d3);
+        long d3b = d3 - bw;
+        bw = bw3 | borrow(d3, bw, d3b);
+
+        long keep = -(bw & ~t4 & 1);
+        r[0] = (t0 & keep) | (d0 & ~keep);
+        r[1] = (t1 & keep) | (d1b & ~keep);
+        r[2] = (t2 & keep) | (d2b & ~keep);
+        r[3] = (t3 & keep) | (d3b & ~keep);
+    }
+
+    // r = a^-1 mod n by Fermat's little theorem. The exponent is public.
+    private static void invertN(long[] r, long[] a) {
+        long[] result = ONE_N.clone();
+        for (byte e : N_MINUS_2) {
+            for (int bit = 7; bit >= 0; bit--) {
+                mulN(result, result, result);
+                if (((e >>> bit) & 1) == 1) {
+                    mulN(result, result, a);
+                }
+            }
+        }
+        System.arraycopy(result, 0, r, 0, 4);
+    }
+
+    private static long[] toMontgomeryN(long[] a) {
+        long[] r = new long[4];
+        mulN(r, a, RN2);
+        return r;
+    }
+
+    // Calculates -n0^-1 mod 2^64 by Newton's method(each step doubles the correct bits).
+    private static long montgomeryConstant(long n0) {
+        long inverse = n0;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - n0 * inverse;
+        }
+        return -inverse;
+    }
+
+    // Calculates 2^512 mod n by doubling 1 modulo n.
+    private static long[] montgomerySquareOfR() {
+        long[] r = {1, 0, 0, 0};
+        for (int i = 0; i < 512; i++) {
+            addN(r, r, r);
+        }
+        return r;
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Encoding
+
+    private static long[] bytesToLimbs(byte[] bytes, int offset) {
+        long[] limbs = new long[4];
+        for (int i = 0; i < 4; i++) {
+            long limb = 0;
+            int start = offset + (3 - i) * 8;
+            for (int j = 0; j < 8; j++) {
+                limb = (limb << 8) | (bytes[start + j] & 0xFF);
+            }
+            limbs[i] = limb;
+        }
+        return limbs;
+    }
+
+    private static void limbsToBytes(long[] limbs, byte[] bytes, int offset) {
+        for (int i = 0; i < 4; i++) {
+            long limb = limbs[i];
+            int start = offset + (3 - i) * 8;
+            for (int j = 7; j >= 0; j--) {
+                bytes[start + j] = (byte) limb;
+                limb >>>= 8;
+            }
+        }
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
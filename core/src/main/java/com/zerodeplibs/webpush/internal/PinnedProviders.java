@@ -0,0 +1,135 @@
+package com.zerodeplibs.webpush.internal;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Signature;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+
+/**
+ * Obtains the JCA objects used in this library
+ * from the providers pinned for their algorithms.
+ *
+ * <p>
+ * The providers are pinned by the calibration
+ * ({@link com.zerodeplibs.webpush.CryptoProviders#calibrate()}).
+ * If no provider is pinned for an algorithm,
+ * the object is obtained through the default lookup(e.g. {@link Mac#getInstance(String)}).
+ * </p>
+ *
+ * <div><b>WARNING:</b></div>
+ *
+ * <p>
+ * This class is intended to be used internally in this library.
+ * Therefore, don't use this class from outside this library.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class PinnedProviders {
+
+    // Keys are in the form of "<service type>.<algorithm>"(e.g. "Mac.HmacSHA256").
+    private static volatile Map<String, Provider> providers = Map.of();
+
+    private PinnedProviders() {
+    }
+
+    /**
+     * Replaces the pinned providers with the given ones.
+     *
+     * @param newProviders the providers keyed by "&lt;service type&gt;.&lt;algorithm&gt;".
+     */
+    public static void pin(Map<String, Provider> newProviders) {
+        WebPushPreConditions.checkNotNull(newProviders, "newProviders");
+        providers = Map.copyOf(newProviders);
+    }
+
+    /**
+     * Gets the provider pinned for the given algorithm.
+     *
+     * @param serviceType the type of the service(e.g. "Mac").
+     * @param algorithm   the name of the algorithm(e.g. "HmacSHA256").
+     * @return the pinned provider or null.
+     */
+    public static Provider get(String serviceType, String algorithm) {
+        return providers.get(serviceType + "." + algorithm);
+    }
+
+    /**
+     * Gets a new {@link Mac} for the given algorithm.
+     *
+     * @param algorithm the name of the algorithm.
+     * @return a new {@link Mac}.
+     * @throws NoSuchAlgorithmException if the algorithm isn't available.
+     */
+    public static Mac mac(String algorithm) throws NoSuchAlgorithmException {
+        Provider provider = get("Mac", algorithm);
+        return provider == null ? Mac.getInstance(algorithm) : Mac.getInstance(algorithm, provider);
+    }
+
+    /**
+     * Gets a new {@link Cipher} for the given transformation.
+     *
+     * @param transformation the name of the transformation.
+     * @return a new {@link Cipher}.
+     * @throws NoSuchAlgorithmException if the transformation isn't available.
+     * @throws NoSuchPaddingException   if the padding scheme isn't available.
+     */
+    public static Cipher cipher(String transformation)
+        throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Provider provider = get("Cipher", transformation);
+        return provider == null
+            ? Cipher.getInstance(transformation) : Cipher.getInstance(transformation, provider);
+    }
+
+    /**
+     * Gets a new {@link KeyAgreement} for the given algorithm.
+     *
+     * @param algorithm the name of the algorithm.
+     * @return a new {@link KeyAgreement}.
+     * @throws NoSuchAlgorithmException if the algorithm isn't available.
+     */
+    public static KeyAgreement keyAgreement(String algorithm) throws NoSuchAlgorithmException {
+        Provider provider = get("KeyAgreement", algorithm);
+        return provider == null
+            ? KeyAgreement.getInstance(algorithm) : KeyAgreement.getInstance(algorithm, provider);
+    }
+
+    /**
+     * Gets a new {@link KeyPairGenerator} for the given algorithm.
+     *
+     * @param algorithm the name of the algorithm.
+     * @return a new {@link KeyPairGenerator}.
+     * @throws NoSuchAlgorithmException if the algorithm isn't available.
+     */
+    public static KeyPairGenerator keyPairGenerator(String algorithm)
+        throws NoSuchAlgorithmException {
+        Provider provider = get("KeyPairGenerator", algorithm);
+        return provider == null
+            ? KeyPairGenerator.getInstance(algorithm)
+            : KeyPairGenerator.getInstance(algorithm, provider);
+    }
+
+    /**
+     * Gets a new {@link Signature} for the given algorithm.
+     *
+     * @param algorithm the name of the algorithm.
+     * @return a new {@link Signature}.
+     * @throws NoSuchAlgorithmException if the algorithm isn't available.
+     */
+    public static Signature signature(String algorithm) throws NoSuchAlgorithmException {
+        Provider provider = get("Signature", algorithm);
+        return provider == null
+            ? Signature.getInstance(algorithm) : Signature.getInstance(algorithm, provider);
+    }
+}
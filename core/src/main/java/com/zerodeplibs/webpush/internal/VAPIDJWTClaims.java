@@ -0,0 +1,45 @@
+package com.zerodeplibs.webpush.internal;
+
+import java.util.Map;
+
+/**
+ * The utility class for checking the claims of JWTs for VAPID.
+ *
+ * <div><b>WARNING:</b></div>
+ *
+ * <p>
+ * This class is intended to be used internally in this library.
+ * Therefore, don't use this class from outside this library.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public final class VAPIDJWTClaims {
+
+    private static final Map<String, String> RESERVED_NAMES_WITH_MESSAGE =
+        Map.of("aud", "The \"aud\" claim should be specified via "
+                + "#resourceURL or #resourceURLString.", "exp",
+            "The \"exp\" claim should be specified via "
+                + "#expirationTime or #expiresAfter.", "sub",
+            "The \"sub\" claim should be specified via #subject.");
+
+    private VAPIDJWTClaims() {
+    }
+
+    /**
+     * Checks whether the given name and value can be used for an additional claim.
+     *
+     * @param name  the name of an additional claim.
+     * @param value the value of an additional claim.
+     * @throws NullPointerException     if the given name or value is null.
+     * @throws IllegalArgumentException if one of the "reserved" names(aud, exp and sub)
+     *                                  is given.
+     */
+    public static void checkAdditionalClaim(String name, Object value) {
+        WebPushPreConditions.checkNotNull(name, "name");
+        WebPushPreConditions.checkNotNull(value, "value");
+
+        String errorMessage = RESERVED_NAMES_WITH_MESSAGE.get(name);
+        WebPushPreConditions.checkArgument(errorMessage == null, errorMessage);
+    }
+}
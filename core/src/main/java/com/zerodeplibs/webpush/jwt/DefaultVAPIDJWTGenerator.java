@@ -1,23 +1,52 @@
 package com.zerodeplibs.webpush.jwt;
 
+import com.zerodeplibs.webpush.internal.ConcurrentObjectPool;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.interfaces.ECPrivateKey;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Date;
 
 /**
  * An implementation of {@link VAPIDJWTGenerator}.
  *
+ * <p>
+ * The JWT is written byte by byte into a reusable buffer
+ * that already contains the encoded header(it never changes),
+ * and then signed in place.
+ * The buffers and the {@link ECDSASigner} holding the private key
+ * are kept in a {@link ConcurrentObjectPool} so that they are reused across calls.
+ * </p>
+ *
  * @author Tomoki Sato
  * @see com.zerodeplibs.webpush.VAPIDKeyPairs
  * @see DefaultVAPIDJWTGeneratorFactory
  */
 class DefaultVAPIDJWTGenerator implements VAPIDJWTGenerator {
 
-    private final ECPrivateKey privateKey;
+    private static final byte[] SCHEME = toAsciiBytes("vapid t=");
+    private static final byte[] ENCODED_HEADER =
+        JwtUtil.encode(toAsciiBytes("{\"typ\":\"JWT\",\"alg\":\"ES256\"}"));
+    private static final byte[] KEY_PARAMETER = toAsciiBytes(", k=");
+    private static final int PAYLOAD_OFFSET = SCHEME.length + ENCODED_HEADER.length + 1;
+    private static final int ENCODED_SIGNATURE_LENGTH = JwtUtil.base64UrlLength(64);
+
+    private final ConcurrentObjectPool<SigningContext> contextPool;
 
     DefaultVAPIDJWTGenerator(ECPrivateKey privateKey) {
-        this.privateKey = privateKey;
+        this(() -> new JcaECDSASigner(privateKey));
+    }
+
+    DefaultVAPIDJWTGenerator(ECDSASigner.Factory signerFactory) {
+        this.contextPool = new ConcurrentObjectPool<>(() -> {
+            try {
+                return new SigningContext(signerFactory.create());
+            } catch (GeneralSecurityException e) {
+                throw VAPIDJWTCreationException.withDefaultMessage(e);
+            }
+        });
     }
 
     /**
@@ -36,78 +65,225 @@ class DefaultVAPIDJWTGenerator implements VAPIDJWTGenerator {
      */
     @Override
     public String generate(VAPIDJWTParam param) {
+        return sign(param, null);
+    }
 
+    /**
+     * Generates the value of the Authorization header in one pass.
+     *
+     * @param param     parameters used to build the JWT.
+     * @param publicKey the public key in uncompressed form encoded with base64url.
+     * @return a credential like 'vapid t=eyJ0e....., k=BA1H....'.
+     * @throws IllegalArgumentException if the value of an additional claim
+     *                                  is not an instance of a supported type.
+     */
+    @Override
+    public String generateAuthorizationHeaderValue(VAPIDJWTParam param, String publicKey) {
+        return sign(param, publicKey);
+    }
 
-        /* Starts building the payload. */
-        StringBuilder payloadBuilder = new StringBuilder();
-        payloadBuilder.append('{');
+    private String sign(VAPIDJWTParam param, String publicKey) {
 
-        appendStringJsonProp("aud", param.getOrigin(), payloadBuilder);
+        SigningContext context = this.contextPool.borrow();
+        boolean succeeded = false;
+        try {
+            String ret = context.sign(param, publicKey);
+            succeeded = true;
+            return ret;
+        } catch (GeneralSecurityException e) {
+            throw VAPIDJWTCreationException.withDefaultMessage(e);
+        } finally {
+            // A context that failed may be left in an unknown state.
+            if (succeeded) {
+                this.contextPool.release(context);
+            }
+        }
+    }
 
-        payloadBuilder.append(',');
-        appendJsonProp("exp", String.valueOf(param.getExpiresAtInSeconds()), payloadBuilder);
+    private static byte[] toAsciiBytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
 
-        param.getSubject().ifPresent(sub -> {
-            payloadBuilder.append(',');
-            appendStringJsonProp("sub", sub, payloadBuilder);
-        });
+    /**
+     * The objects used to generate a JWT.
+     * They aren't thread-safe, so each of them is used by one thread at a time.
+     */
+    private static class SigningContext {
 
-        param.forEachAdditionalClaim((name, claim) -> {
-            payloadBuilder.append(',');
-            appendJsonProp(name, convValue(claim), payloadBuilder);
-        });
+        private final ECDSASigner signer;
 
-        payloadBuilder.append('}');
-        /* Ends building the payload. */
+        private byte[] payload = new byte[256];
+        private int payloadLength;
+        // Always starts with "vapid t=<the encoded header>."
+        private byte[] output = new byte[512];
 
-        String header = "{\"typ\":\"JWT\",\"alg\":\"ES256\"}";
-        String payload = payloadBuilder.toString();
+        SigningContext(ECDSASigner signer) {
+            this.signer = signer;
 
-        return JwtUtil.withSign(header, payload, this.privateKey);
-    }
+            System.arraycopy(SCHEME, 0, this.output, 0, SCHEME.length);
+            System.arraycopy(ENCODED_HEADER, 0, this.output, SCHEME.length,
+                ENCODED_HEADER.length);
+            this.output[PAYLOAD_OFFSET - 1] = '.';
+        }
 
-    private void appendStringJsonProp(String name, String value, StringBuilder builder) {
-        appendStringJsonToken(name, builder);
-        builder.append(':');
-        appendStringJsonToken(value, builder);
-    }
+        String sign(VAPIDJWTParam param, String publicKey) throws GeneralSecurityException {
 
-    private void appendJsonProp(String name, String value, StringBuilder builder) {
-        appendStringJsonToken(name, builder);
-        builder.append(':');
-        builder.append(value);
-    }
+            writePayload(param);
 
-    private void appendStringJsonToken(String value, StringBuilder builder) {
-        builder.append("\"");
-        builder.append(value);
-        builder.append("\"");
-    }
+            int keyLength = publicKey == null ? 0 : KEY_PARAMETER.length + publicKey.length();
+            int capacity = PAYLOAD_OFFSET + JwtUtil.base64UrlLength(this.payloadLength) + 1
+                + ENCODED_SIGNATURE_LENGTH + keyLength;
+            if (this.output.length < capacity) {
+                this.output = Arrays.copyOf(this.output,
+                    Math.max(capacity, this.output.length * 2));
+            }
+
+            int position = JwtUtil.encodeBase64Url(
+                this.payload, 0, this.payloadLength, this.output, PAYLOAD_OFFSET);
+
+            // The signing input is "<the encoded header>.<the encoded payload>".
+            byte[] rs = this.signer.sign(this.output, SCHEME.length, position - SCHEME.length);
+
+            this.output[position++] = '.';
+            position = JwtUtil.encodeBase64Url(rs, 0, rs.length, this.output, position);
+
+            if (publicKey == null) {
+                return new String(this.output, SCHEME.length, position - SCHEME.length,
+                    StandardCharsets.ISO_8859_1);
+            }
 
-    private String convValue(Object o) {
-        if (o == null) {
-            return "null";
+            System.arraycopy(KEY_PARAMETER, 0, this.output, position, KEY_PARAMETER.length);
+            position += KEY_PARAMETER.length;
+            for (int i = 0; i < publicKey.length(); i++) {
+                this.output[position++] = (byte) publicKey.charAt(i);
+            }
+            return new String(this.output, 0, position, StandardCharsets.ISO_8859_1);
         }
-        if (o instanceof String) {
-            return "\"" + o + "\"";
+
+        private void writePayload(VAPIDJWTParam param) {
+
+            this.payloadLength = 0;
+            writeByte('{');
+
+            writeName("aud");
+            writeQuoted(param.getOrigin());
+
+            writeByte(',');
+            writeName("exp");
+            writeLong(param.getExpiresAtInSeconds());
+
+            param.getSubject().ifPresent(sub -> {
+                writeByte(',');
+                writeName("sub");
+                writeQuoted(sub);
+            });
+
+            param.forEachAdditionalClaim((name, claim) -> {
+                writeByte(',');
+                writeName(name);
+                writeValue(claim);
+            });
+
+            writeByte('}');
         }
-        if (o instanceof Boolean || o instanceof Integer || o instanceof Long) {
-            return o.toString();
+
+        private void writeValue(Object o) {
+            if (o == null) {
+                writeString("null");
+                return;
+            }
+            if (o instanceof String) {
+                writeQuoted((String) o);
+                return;
+            }
+            if (o instanceof Boolean) {
+                writeString(o.toString());
+                return;
+            }
+            if (o instanceof Integer || o instanceof Long) {
+                writeLong(((Number) o).longValue());
+                return;
+            }
+            if (o instanceof Double) {
+                writeString(BigDecimal.valueOf((Double) o).stripTrailingZeros().toPlainString());
+                return;
+            }
+            if (o instanceof Date) {
+                writeLong(((Date) o).getTime() / 1000);
+                return;
+            }
+            if (o instanceof Instant) {
+                writeLong(((Instant) o).toEpochMilli() / 1000);
+                return;
+            }
+
+            throw new IllegalArgumentException(
+                "The value of an additional claim must be an instance of "
+                    + "String, Boolean, Integer, Long, Double, Date or Instant.");
         }
-        if (o instanceof Double) {
-            return BigDecimal.valueOf((Double) o).stripTrailingZeros().toPlainString();
+
+        private void writeName(String name) {
+            writeQuoted(name);
+            writeByte(':');
         }
-        if (o instanceof Date) {
-            Date d = (Date) o;
-            return String.valueOf(d.getTime() / 1000);
+
+        private void writeQuoted(String value) {
+            writeByte('"');
+            writeString(value);
+            writeByte('"');
         }
-        if (o instanceof Instant) {
-            Instant instant = (Instant) o;
-            return String.valueOf(instant.toEpochMilli() / 1000);
+
+        private void writeString(String value) {
+            int start = this.payloadLength;
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    // Falls back to the encoder for non-ASCII strings.
+                    this.payloadLength = start;
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    ensureCapacity(bytes.length);
+                    System.arraycopy(bytes, 0, this.payload, start, bytes.length);
+                    this.payloadLength += bytes.length;
+                    return;
+                }
+                this.payload[this.payloadLength++] = (byte) c;
+            }
         }
 
-        throw new IllegalArgumentException(
-            "The value of an additional claim must be an instance of "
-                + "String, Boolean, Integer, Long, Double, Date or Instant.");
+        private void writeLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                writeString(Long.toString(value));
+                return;
+            }
+            ensureCapacity(20);
+            long rest = value;
+            if (rest < 0) {
+                this.payload[this.payloadLength++] = '-';
+                rest = -rest;
+            }
+            int digits = 1;
+            for (long v = rest / 10; v > 0; v /= 10) {
+                digits++;
+            }
+            for (int i = this.payloadLength + digits - 1; i >= this.payloadLength; i--) {
+                this.payload[i] = (byte) ('0' + rest % 10);
+                rest /= 10;
+            }
+            this.payloadLength += digits;
+        }
+
+        private void writeByte(char c) {
+            ensureCapacity(1);
+            this.payload[this.payloadLength++] = (byte) c;
+        }
+
+        private void ensureCapacity(int additional) {
+            int required = this.payloadLength + additional;
+            if (this.payload.length < required) {
+                this.payload = Arrays.copyOf(this.payload,
+                    Math.max(required, this.payload.length * 2));
+            }
+        }
     }
 }
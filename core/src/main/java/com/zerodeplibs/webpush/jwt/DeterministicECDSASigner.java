@@ -0,0 +1,112 @@
+package com.zerodeplibs.webpush.jwt;
+
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * An implementation of {@link ECDSASigner} using the built-in P-256 implementation
+ * ({@link P256#sign(byte[], byte[], byte[], byte[], int)}).
+ *
+ * <p>
+ * The nonces are derived from the private key and the hash of the message
+ * as specified in <a href="https://datatracker.ietf.org/doc/html/rfc6979#section-3.2">RFC 6979</a>
+ * (HMAC-SHA256), so no random number is drawn per signature
+ * and the same message always results in the same signature.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+class DeterministicECDSASigner implements ECDSASigner {
+
+    private static final int LENGTH = P256.SCALAR_LENGTH;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final byte[] privateKey;
+    private final MessageDigest sha256;
+    private final Mac hmac;
+
+    private final byte[] digest = new byte[LENGTH];
+    private final byte[] hmacValue = new byte[LENGTH];
+    private final byte[] hmacKey = new byte[LENGTH];
+
+    DeterministicECDSASigner(byte[] privateKey) throws NoSuchAlgorithmException {
+        this.privateKey = privateKey;
+        this.sha256 = MessageDigest.getInstance("SHA-256");
+        this.hmac = PinnedProviders.mac(HMAC_ALGORITHM);
+    }
+
+    @Override
+    public byte[] sign(byte[] data, int offset, int length) throws GeneralSecurityException {
+
+        this.sha256.update(data, offset, length);
+        this.sha256.digest(this.digest, 0, LENGTH);
+
+        byte[] signature = new byte[LENGTH * 2];
+        byte[] nonce = new byte[LENGTH];
+        try {
+            initNonceGenerator();
+            boolean retry = false;
+            while (true) {
+                // RFC 6979 Section 3.2 step h.
+                // Since qlen equals hlen(256 bits), a single HMAC output is a candidate.
+                if (retry) {
+                    // K = HMAC_K(V || 0x00), V = HMAC_K(V)
+                    this.hmac.update(this.hmacValue);
+                    this.hmac.update((byte) 0x00);
+                    this.hmac.doFinal(this.hmacKey, 0);
+                    initHmac();
+                    updateV();
+                }
+                retry = true;
+                updateV();
+                System.arraycopy(this.hmacValue, 0, nonce, 0, LENGTH);
+                if (P256.isValidScalar(nonce)
+                    && P256.sign(this.privateKey, nonce, this.digest, signature, 0)) {
+                    return signature;
+                }
+            }
+        } finally {
+            Arrays.fill(nonce, (byte) 0);
+            Arrays.fill(this.hmacValue, (byte) 0);
+            Arrays.fill(this.hmacKey, (byte) 0);
+        }
+    }
+
+    // RFC 6979 Section 3.2 steps b to f.
+    private void initNonceGenerator() throws GeneralSecurityException {
+
+        // bits2octets(h1) = int2octets(h1 mod q)
+        byte[] reducedDigest = new byte[LENGTH];
+        P256.reduce(this.digest, reducedDigest);
+
+        Arrays.fill(this.hmacValue, (byte) 0x01);
+        Arrays.fill(this.hmacKey, (byte) 0x00);
+        for (byte separator = 0x00; separator <= 0x01; separator++) {
+            // K = HMAC_K(V || separator || int2octets(x) || bits2octets(h1))
+            initHmac();
+            this.hmac.update(this.hmacValue);
+            this.hmac.update(separator);
+            this.hmac.update(this.privateKey);
+            this.hmac.update(reducedDigest);
+            this.hmac.doFinal(this.hmacKey, 0);
+            // V = HMAC_K(V)
+            initHmac();
+            updateV();
+        }
+    }
+
+    private void initHmac() throws GeneralSecurityException {
+        this.hmac.init(new SecretKeySpec(this.hmacKey, HMAC_ALGORITHM));
+    }
+
+    private void updateV() throws GeneralSecurityException {
+        this.hmac.update(this.hmacValue);
+        this.hmac.doFinal(this.hmacValue, 0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.zerodeplibs.webpush.jwt;
+
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.internal.WebPushPreConditions;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A factory class for {@link VAPIDJWTGenerator} whose signing engine
+ * is the built-in pure-Java implementation of the P-256 curve.
+ *
+ * <p>
+ * The generators created by this factory produce the same JWTs as
+ * the ones created by {@link DefaultVAPIDJWTGeneratorFactory},
+ * but sign them without the JCA {@link java.security.Signature}:
+ * </p>
+ *
+ * <ul>
+ * <li>
+ * The product of the nonce and the base point is calculated
+ * with the precomputed table of the multiples of the base point.
+ * </li>
+ * <li>
+ * The nonces are derived deterministically from the private key and the message
+ * (<a href="https://datatracker.ietf.org/doc/html/rfc6979">RFC 6979</a>),
+ * so no random number is drawn per signature.
+ * As a result, signing the same JWT twice results in the same signature.
+ * </li>
+ * <li>
+ * The arithmetic is constant-time(the sequence of the operations
+ * and the memory access pattern don't depend on the private key or the nonce).
+ * </li>
+ * </ul>
+ *
+ * <p>
+ * If you want to specify an <a href="https://datatracker.ietf.org/doc/html/rfc8292#section-2.2">additional claim</a>,
+ * its value must be an instance of {@link String}, {@link Boolean},
+ * {@link Integer}, {@link Long}, {@link Double}, {@link Date} or {@link Instant}.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * VAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.of(
+ *     PrivateKeySources.ofPEMFile(new File(pathToYourPrivateKeyFile).toPath()),
+ *     PublicKeySources.ofPEMFile(new File(pathToYourPublicKeyFile).toPath()),
+ *     new DeterministicVAPIDJWTGeneratorFactory()::create
+ * );
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class and the generators created by this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see com.zerodeplibs.webpush.VAPIDKeyPairs
+ */
+public class DeterministicVAPIDJWTGeneratorFactory implements VAPIDJWTGeneratorFactory {
+
+    /**
+     * Creates a new {@link DeterministicVAPIDJWTGeneratorFactory}.
+     * The factory has no state, so a single instance can be shared.
+     */
+    public DeterministicVAPIDJWTGeneratorFactory() {
+    }
+
+    /**
+     * Creates a new {@link VAPIDJWTGenerator} with the given private key and public key.
+     *
+     * @param privateKey a private key on the P-256 curve.
+     * @param publicKey  the public key corresponding to the private key.
+     * @return a new {@link VAPIDJWTGenerator}.
+     * @throws IllegalArgumentException if the given keys aren't a key pair
+     *                                  on the P-256 curve.
+     */
+    @Override
+    public VAPIDJWTGenerator create(ECPrivateKey privateKey, ECPublicKey publicKey) {
+        WebPushPreConditions.checkNotNull(privateKey, "privateKey");
+        WebPushPreConditions.checkNotNull(publicKey, "publicKey");
+
+        byte[] scalar = P256.toScalar(privateKey.getS());
+        WebPushPreConditions.checkArgument(P256.isValidScalar(scalar)
+                && Arrays.equals(P256.publicKey(scalar),
+                PublicKeySources.ofECPublicKey(publicKey).extractBytesInUncompressedForm()),
+            "The private key and the public key must be a key pair on the P-256 curve.");
+
+        return new DefaultVAPIDJWTGenerator(() -> new DeterministicECDSASigner(scalar));
+    }
+}
@@ -0,0 +1,45 @@
+package com.zerodeplibs.webpush.jwt;
+
+import java.security.GeneralSecurityException;
+
+/**
+ * Creates ES256 signatures in the format used by JWS
+ * (the concatenation of r and s, 32 bytes each).
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Implementations don't have to be thread-safe.
+ * {@link DefaultVAPIDJWTGenerator} uses each instance from one thread at a time.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+interface ECDSASigner {
+
+    /**
+     * Signs the given range of the data.
+     *
+     * @param data   the data.
+     * @param offset the offset in the data at which the message starts.
+     * @param length the length of the message.
+     * @return the 64-byte signature.
+     * @throws GeneralSecurityException if the signature can't be created.
+     */
+    byte[] sign(byte[] data, int offset, int length) throws GeneralSecurityException;
+
+    /**
+     * Creates a new {@link ECDSASigner}.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Creates a new {@link ECDSASigner}.
+         *
+         * @return a new {@link ECDSASigner}.
+         * @throws GeneralSecurityException if the signer can't be created.
+         */
+        ECDSASigner create() throws GeneralSecurityException;
+    }
+}
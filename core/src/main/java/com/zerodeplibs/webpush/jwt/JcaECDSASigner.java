@@ -0,0 +1,53 @@
+package com.zerodeplibs.webpush.jwt;
+
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+
+/**
+ * An implementation of {@link ECDSASigner} using {@link Signature}.
+ *
+ * <p>
+ * The {@link Signature} is initialized with the private key once and reused
+ * (it returns to the initialized state after each signature).
+ * SHA256withECDSAinP1363Format is preferred
+ * because it outputs r and s as they are instead of DER.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+class JcaECDSASigner implements ECDSASigner {
+
+    private static final String ALGORITHM = "SHA256withECDSA";
+    private static final String P1363_ALGORITHM = "SHA256withECDSAinP1363Format";
+
+    private final Signature signature;
+    private final boolean derEncoded;
+
+    JcaECDSASigner(ECPrivateKey privateKey) throws GeneralSecurityException {
+        this.signature = newSignature();
+        this.signature.initSign(privateKey);
+        this.derEncoded = !P1363_ALGORITHM.equals(this.signature.getAlgorithm());
+    }
+
+    @Override
+    public byte[] sign(byte[] data, int offset, int length) throws GeneralSecurityException {
+        this.signature.update(data, offset, length);
+        byte[] signed = this.signature.sign();
+        return this.derEncoded ? JwtUtil.toJws(signed) : signed;
+    }
+
+    private static Signature newSignature() throws NoSuchAlgorithmException {
+        Provider pinned = PinnedProviders.get("Signature", ALGORITHM);
+        try {
+            return pinned == null
+                ? Signature.getInstance(P1363_ALGORITHM)
+                : Signature.getInstance(P1363_ALGORITHM, pinned);
+        } catch (NoSuchAlgorithmException e) {
+            return PinnedProviders.signature(ALGORITHM);
+        }
+    }
+}
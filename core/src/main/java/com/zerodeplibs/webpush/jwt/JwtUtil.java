@@ -1,11 +1,6 @@
 package com.zerodeplibs.webpush.jwt;
 
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.security.Signature;
-import java.security.SignatureException;
-import java.security.interfaces.ECPrivateKey;
 import java.util.Base64;
 
 /**
@@ -18,39 +13,45 @@ class JwtUtil {
     private static final int S_LENGTH = 32;
     private static final int MAX_PADDING_LENGTH = 1;
 
-    static String withSign(String header, String payload, ECPrivateKey privateKey) {
+    private static final byte[] BASE64URL_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
 
-        byte[] headerBase64Bytes = encodeString(header);
-        byte[] payloadBase64Bytes = encodeString(payload);
-
-        byte[] message = new byte[headerBase64Bytes.length + payloadBase64Bytes.length + 1];
-
-        System.arraycopy(headerBase64Bytes, 0, message, 0, headerBase64Bytes.length);
-        message[headerBase64Bytes.length] = (byte) '.';
-        System.arraycopy(payloadBase64Bytes, 0, message, headerBase64Bytes.length + 1,
-            payloadBase64Bytes.length);
-
-        try {
-            byte[] signature = signWith(message, privateKey);
-            return String.format("%s.%s.%s", asString(headerBase64Bytes),
-                asString(payloadBase64Bytes), asString(signature));
-        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
-            throw VAPIDJWTCreationException.withDefaultMessage(e);
-        }
-    }
-
-    private static String asString(byte[] data) {
-        return new String(data, StandardCharsets.UTF_8);
+    static int base64UrlLength(int length) {
+        return (length * 4 + 2) / 3;
     }
 
-    private static byte[] signWith(byte[] data, ECPrivateKey privateKey)
-        throws NoSuchAlgorithmException, InvalidKeyException, SignatureException {
-
-        Signature sig = Signature.getInstance("SHA256withECDSA");
-        sig.initSign(privateKey);
-        sig.update(data);
-
-        return encode(toJws(sig.sign()));
+    /*
+     * Encodes the given bytes with base64url without padding
+     * and writes them into dst starting at dstOffset.
+     * Returns the position in dst after the last written byte.
+     */
+    static int encodeBase64Url(byte[] src, int srcOffset, int length, byte[] dst,
+                               int dstOffset) {
+
+        int end = srcOffset + length;
+        int tripletEnd = srcOffset + length / 3 * 3;
+        int dp = dstOffset;
+        int sp = srcOffset;
+        while (sp < tripletEnd) {
+            int bits = (src[sp++] & 0xff) << 16 | (src[sp++] & 0xff) << 8 | (src[sp++] & 0xff);
+            dst[dp++] = BASE64URL_ALPHABET[bits >>> 18];
+            dst[dp++] = BASE64URL_ALPHABET[(bits >>> 12) & 0x3f];
+            dst[dp++] = BASE64URL_ALPHABET[(bits >>> 6) & 0x3f];
+            dst[dp++] = BASE64URL_ALPHABET[bits & 0x3f];
+        }
+        if (sp < end) {
+            int b0 = src[sp++] & 0xff;
+            dst[dp++] = BASE64URL_ALPHABET[b0 >>> 2];
+            if (sp == end) {
+                dst[dp++] = BASE64URL_ALPHABET[(b0 << 4) & 0x3f];
+            } else {
+                int b1 = src[sp] & 0xff;
+                dst[dp++] = BASE64URL_ALPHABET[(b0 << 4) & 0x3f | (b1 >>> 4)];
+                dst[dp++] = BASE64URL_ALPHABET[(b1 << 2) & 0x3f];
+            }
+        }
+        return dp;
     }
 
     //Visible for testing
@@ -104,11 +105,7 @@ class JwtUtil {
         return rs;
     }
 
-    private static byte[] encodeString(String data) {
-        return encode(data.getBytes(StandardCharsets.UTF_8));
-    }
-
-    private static byte[] encode(byte[] data) {
+    static byte[] encode(byte[] data) {
         return Base64.getUrlEncoder().withoutPadding().encode(data);
     }
 }
@@ -67,4 +67,24 @@ public interface VAPIDJWTGenerator {
      * @return a JWT.
      */
     String generate(VAPIDJWTParam param);
+
+    /**
+     * Generates the value of the Authorization header
+     * (<a href="https://datatracker.ietf.org/doc/html/rfc8292#section-3">vapid</a> scheme)
+     * containing a JWT generated with the given param.
+     *
+     * <p>
+     * The default implementation concatenates the result of {@link #generate(VAPIDJWTParam)}
+     * and the given public key. Implementations can override this method
+     * in order to build the value without the intermediate strings.
+     * </p>
+     *
+     * @param param     parameters used to build the JWT.
+     * @param publicKey the public key in uncompressed form encoded with base64url.
+     * @return a credential like 'vapid t=eyJ0e....., k=BA1H....'.
+     * @see com.zerodeplibs.webpush.VAPIDKeyPair#generateAuthorizationHeaderValue(VAPIDJWTParam)
+     */
+    default String generateAuthorizationHeaderValue(VAPIDJWTParam param, String publicKey) {
+        return "vapid t=" + generate(param) + ", k=" + publicKey;
+    }
 }
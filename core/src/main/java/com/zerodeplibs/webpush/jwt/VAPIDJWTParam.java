@@ -1,5 +1,6 @@
 package com.zerodeplibs.webpush.jwt;
 
+import com.zerodeplibs.webpush.internal.VAPIDJWTClaims;
 import com.zerodeplibs.webpush.internal.WebPushPreConditions;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -131,13 +132,6 @@ public class VAPIDJWTParam {
      */
     public static class Builder {
 
-        private static final Map<String, String> RESERVED_NAMES_WITH_MESSAGE =
-            Map.of("aud", "The \"aud\" claim should be specified via "
-                    + "#resourceURL or #resourceURLString.", "exp",
-                "The \"exp\" claim should be specified via "
-                    + "#expirationTime or #expiresAfter.", "sub",
-                "The \"sub\" claim should be specified via #subject.");
-
         private URL _resourceURL;
         private Instant _expirationTime;
         private String _subject;
@@ -290,11 +284,7 @@ public class VAPIDJWTParam {
          * @throws IllegalArgumentException if one of the "reserved" names is given.
          */
         public Builder additionalClaim(String name, Object value) {
-            WebPushPreConditions.checkNotNull(name, "name");
-            WebPushPreConditions.checkNotNull(value, "value");
-
-            String errorMessage = RESERVED_NAMES_WITH_MESSAGE.get(name);
-            WebPushPreConditions.checkArgument(errorMessage == null, errorMessage);
+            VAPIDJWTClaims.checkAdditionalClaim(name, value);
 
             additionalClaims.put(name, value);
             return this;
@@ -17,7 +17,10 @@ import java.util.function.Consumer;
 class BytesPublicKeySource implements PublicKeySource {
 
     private ECPublicKey publicKey;
+    // Exactly one of the two representations is available
+    // depending on the form this object was created from.
     private final byte[] x509Bytes;
+    private final byte[] uncompressedBytes;
     private final Consumer<ECPublicKey> publicKeyPostProcessor;
 
     private static final String MSG_INVALID_UNCOMPRESSED_BYTES =
@@ -31,21 +34,25 @@ class BytesPublicKeySource implements PublicKeySource {
         if (uncompressedBytes[0] != 0x04 || uncompressedBytes.length != 65) {
             throw new MalformedUncompressedBytesException(MSG_INVALID_UNCOMPRESSED_BYTES);
         }
-        return new BytesPublicKeySource(
-            ECPublicKeyUtil.uncompressedBytesToX509Bytes(uncompressedBytes),
+        // The key is created from the coordinates, so the DER encoding is never built.
+        return new BytesPublicKeySource(null,
+            Arrays.copyOf(uncompressedBytes, uncompressedBytes.length),
             publicKeyPostProcessor);
     }
 
     static BytesPublicKeySource ofX509(byte[] x509Bytes,
                                        Consumer<ECPublicKey> publicKeyPostProcessor) {
-        return new BytesPublicKeySource(x509Bytes, publicKeyPostProcessor);
+        WebPushPreConditions.checkNotNull(x509Bytes, "x509Bytes");
+        return new BytesPublicKeySource(Arrays.copyOf(x509Bytes, x509Bytes.length), null,
+            publicKeyPostProcessor);
     }
 
-    private BytesPublicKeySource(byte[] x509Bytes, Consumer<ECPublicKey> publicKeyPostProcessor) {
-        WebPushPreConditions.checkNotNull(x509Bytes, "x509Bytes");
+    private BytesPublicKeySource(byte[] x509Bytes, byte[] uncompressedBytes,
+                                 Consumer<ECPublicKey> publicKeyPostProcessor) {
         WebPushPreConditions.checkNotNull(publicKeyPostProcessor, "publicKeyPostProcessor");
 
-        this.x509Bytes = Arrays.copyOf(x509Bytes, x509Bytes.length);
+        this.x509Bytes = x509Bytes;
+        this.uncompressedBytes = uncompressedBytes;
         this.publicKeyPostProcessor = publicKeyPostProcessor;
     }
 
@@ -54,9 +61,16 @@ class BytesPublicKeySource implements PublicKeySource {
             return;
         }
         try {
-            KeyFactory keyFactory = KeyFactory.getInstance("EC");
-            ECPublicKey ecPublicKey =
-                (ECPublicKey) keyFactory.generatePublic(new X509EncodedKeySpec(this.x509Bytes));
+            ECPublicKey ecPublicKey;
+            if (this.uncompressedBytes != null) {
+                // Avoids parsing the DER encoded key.
+                ecPublicKey =
+                    ECPublicKeyUtil.uncompressedBytesToECPublicKey(this.uncompressedBytes);
+            } else {
+                KeyFactory keyFactory = KeyFactory.getInstance("EC");
+                ecPublicKey = (ECPublicKey) keyFactory.generatePublic(
+                    new X509EncodedKeySpec(this.x509Bytes));
+            }
             this.publicKeyPostProcessor.accept(ecPublicKey);
             this.publicKey = ecPublicKey;
         } catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
@@ -73,6 +87,9 @@ class BytesPublicKeySource implements PublicKeySource {
     @Override
     public byte[] extractBytesInUncompressedForm() {
         this.extractECPublicKey();
+        if (this.uncompressedBytes != null) {
+            return Arrays.copyOf(this.uncompressedBytes, this.uncompressedBytes.length);
+        }
         return ECPublicKeyUtil.encodedBytesToUncompressedBytes(this.x509Bytes);
     }
 }
@@ -1,11 +1,18 @@
 package com.zerodeplibs.webpush.key;
 
 import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.ECField;
 import java.security.spec.ECFieldFp;
+import java.security.spec.ECGenParameterSpec;
 import java.security.spec.ECParameterSpec;
 import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.InvalidParameterSpecException;
 import java.util.Base64;
 
 /**
@@ -22,11 +29,19 @@ class ECPublicKeyUtil {
         Base64.getDecoder().decode("MFkwEwYHKoZIzj0CAQYIKoZIzj0DAQcDQgA");
 
 
-    static byte[] uncompressedBytesToX509Bytes(byte[] uncompressedBytes) {
-        byte[] encoded = new byte[P256_HEAD.length + uncompressedBytes.length];
-        System.arraycopy(P256_HEAD, 0, encoded, 0, P256_HEAD.length);
-        System.arraycopy(uncompressedBytes, 0, encoded, P256_HEAD.length, uncompressedBytes.length);
-        return encoded;
+    /**
+     * Creates a public key from the affine coordinates contained in the given octet sequence.
+     * This is faster than parsing the X.509 representation of the same key.
+     * The given octet sequence must be 65 bytes and start with 0x04.
+     */
+    static ECPublicKey uncompressedBytesToECPublicKey(byte[] uncompressedBytes)
+        throws NoSuchAlgorithmException, InvalidKeySpecException {
+
+        BigInteger x = new BigInteger(1, uncompressedBytes, 1, 32);
+        BigInteger y = new BigInteger(1, uncompressedBytes, 33, 32);
+
+        return (ECPublicKey) KeyFactory.getInstance("EC").generatePublic(
+            new ECPublicKeySpec(new ECPoint(x, y), P256ParameterSpecHolder.get()));
     }
 
     static byte[] encodedBytesToUncompressedBytes(byte[] encoded) {
@@ -75,4 +90,29 @@ class ECPublicKeyUtil {
         }
 
     }
+
+    /**
+     * Holds the domain parameters of the P-256 curve. They are loaded on first use.
+     */
+    private static class P256ParameterSpecHolder {
+
+        private static final ECParameterSpec P256 = load();
+
+        static ECParameterSpec get() throws NoSuchAlgorithmException {
+            if (P256 == null) {
+                throw new NoSuchAlgorithmException("The secp256r1 curve isn't supported.");
+            }
+            return P256;
+        }
+
+        private static ECParameterSpec load() {
+            try {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec("secp256r1"));
+                return parameters.getParameterSpec(ECParameterSpec.class);
+            } catch (NoSuchAlgorithmException | InvalidParameterSpecException e) {
+                return null;
+            }
+        }
+    }
 }
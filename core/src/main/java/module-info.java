@@ -13,5 +13,6 @@ module com.zerodeplibs.webpush {
     requires static io.vertx.core;
     requires static io.vertx.web.client;
 
+    uses com.zerodeplibs.webpush.MessageEncryptionFactory;
     uses com.zerodeplibs.webpush.jwt.VAPIDJWTGeneratorFactory;
 }
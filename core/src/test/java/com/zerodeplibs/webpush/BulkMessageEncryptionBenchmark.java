@@ -0,0 +1,109 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateAuthSecretString;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhString;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how the bulk encryption scales with the parallelism of the executor.
+ * The parallelism values larger than the number of cores are expected to plateau.
+ */
+public class BulkMessageEncryptionBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(BulkMessageEncryptionBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlanForBulkEncryption {
+
+        @Param({"1", "2", "4", "8", "16", "32"})
+        int parallelism;
+
+        @Param({"1024"})
+        int recipients;
+
+        List<UserAgentMessageEncryptionKeyInfo> uaKeyInfos;
+        PushMessage pushMessage;
+        MessageEncryption messageEncryption;
+        ForkJoinPool executor;
+
+        @Setup(Level.Trial)
+        public void setUp() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+            this.uaKeyInfos = new ArrayList<>(this.recipients);
+            for (int i = 0; i < this.recipients; i++) {
+                KeyPair uaKeyPair = generateKeyPair();
+                this.uaKeyInfos.add(UserAgentMessageEncryptionKeyInfo.of(
+                    generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+                    generateAuthSecretString()
+                ));
+            }
+            this.pushMessage = PushMessage.ofUTF8("Hello World. This is a payload for testing.");
+            this.messageEncryption = MessageEncryptions.of();
+            this.executor = new ForkJoinPool(this.parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.Throughput)
+    public void encryptAll(Blackhole h, PlanForBulkEncryption plan) {
+        h.consume(plan.messageEncryption.encryptAll(
+            plan.uaKeyInfos, plan.pushMessage, plan.executor
+        ));
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.Throughput)
+    public void encryptAllWithCallback(Blackhole h, PlanForBulkEncryption plan) {
+        plan.messageEncryption.encryptAll(
+            plan.uaKeyInfos, plan.pushMessage, plan.executor,
+            (keyInfo, encrypted) -> h.consume(encrypted)
+        );
+    }
+}
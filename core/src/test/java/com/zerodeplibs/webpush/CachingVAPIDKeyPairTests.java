@@ -0,0 +1,282 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertStateCheck;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class CachingVAPIDKeyPairTests {
+
+    private static final long NOW = 1_700_000_040L;
+
+    @Test
+    public void shouldShareCredentialsWithinTheSameExpirationBucket() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .expirationBucket(60, TimeUnit.SECONDS)
+            .refreshAhead(0, TimeUnit.SECONDS)
+            .clock(fixedClock(NOW))
+            .build();
+
+        // NOW + 600 is a multiple of 60.
+        String first = vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 601));
+        String second = vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 659));
+
+        assertThat(second, sameInstance(first));
+        assertThat(first, equalTo("https://example.com:" + (NOW + 600) + ":sub:{}"));
+        assertThat(delegate.count.get(), equalTo(1));
+        assertThat(vapidKeyPair.getHitCount(), equalTo(1L));
+        assertThat(vapidKeyPair.getMissCount(), equalTo(1L));
+
+        String nextBucket = vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 660));
+        assertThat(nextBucket, equalTo("https://example.com:" + (NOW + 660) + ":sub:{}"));
+        assertThat(delegate.count.get(), equalTo(2));
+        assertThat(vapidKeyPair.getMissCount(), equalTo(2L));
+    }
+
+    @Test
+    public void shouldDistinguishOriginsSubjectsAndAdditionalClaims() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .clock(fixedClock(NOW))
+            .build();
+
+        Instant exp = Instant.ofEpochSecond(NOW + 600);
+        vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 600));
+        vapidKeyPair.generateAuthorizationHeaderValue(VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://another.example.com/push/1")
+            .expirationTime(exp)
+            .subject("sub")
+            .build());
+        vapidKeyPair.generateAuthorizationHeaderValue(VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com/push/1")
+            .expirationTime(exp)
+            .subject("another-sub")
+            .build());
+        String withClaim = vapidKeyPair.generateAuthorizationHeaderValue(
+            VAPIDJWTParam.getBuilder()
+                .resourceURLString("https://example.com/push/1")
+                .expirationTime(exp)
+                .subject("sub")
+                .additionalClaim("claim", "value")
+                .build());
+
+        assertThat(withClaim, equalTo("https://example.com:" + (NOW + 600) + ":sub:{claim=value}"));
+        assertThat(delegate.count.get(), equalTo(4));
+        assertThat(vapidKeyPair.getHitCount(), equalTo(0L));
+    }
+
+    @Test
+    public void shouldNotCacheCredentialsThatWouldAlreadyBeExpired() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .expirationBucket(1, TimeUnit.HOURS)
+            .clock(fixedClock(NOW))
+            .build();
+
+        String credential = vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 30));
+        vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 30));
+
+        assertThat(credential, equalTo("https://example.com:" + (NOW + 30) + ":sub:{}"));
+        assertThat(delegate.count.get(), equalTo(2));
+        assertThat(vapidKeyPair.getMissCount(), equalTo(2L));
+    }
+
+    @Test
+    public void shouldRefreshTheNextBucketAhead() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+        List<Runnable> tasks = new ArrayList<>();
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .expirationBucket(60, TimeUnit.SECONDS)
+            .refreshAhead(10, TimeUnit.SECONDS)
+            .refreshExecutor(tasks::add)
+            .clock(fixedClock(NOW))
+            .build();
+
+        vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 640));
+        assertThat(tasks.size(), equalTo(0));
+
+        vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 650));
+        vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 655));
+        assertThat(tasks.size(), equalTo(1));
+        assertThat(vapidKeyPair.getRefreshCount(), equalTo(1L));
+
+        tasks.get(0).run();
+        assertThat(delegate.count.get(), equalTo(2));
+
+        String next = vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 665));
+        assertThat(next, equalTo("https://example.com:" + (NOW + 660) + ":sub:{}"));
+        assertThat(delegate.count.get(), equalTo(2));
+        assertThat(vapidKeyPair.getMissCount(), equalTo(1L));
+        assertThat(vapidKeyPair.getHitCount(), equalTo(3L));
+    }
+
+    @Test
+    public void shouldGenerateCredentialOnlyOnceForConcurrentMisses() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair() {
+            @Override
+            public String generateAuthorizationHeaderValue(VAPIDJWTParam jwtParam) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.generateAuthorizationHeaderValue(jwtParam);
+            }
+        };
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .clock(fixedClock(NOW))
+            .build();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executorService.submit(
+                () -> vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 600))));
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executorService.submit(
+                    () -> vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 600))));
+            }
+            while (vapidKeyPair.getHitCount() < 3) {
+                Thread.yield();
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(), equalTo(results.get(0).get()));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(delegate.count.get(), equalTo(1));
+        assertThat(vapidKeyPair.getMissCount(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldRetryAfterFailure() {
+
+        AtomicInteger failures = new AtomicInteger(1);
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair() {
+            @Override
+            public String generateAuthorizationHeaderValue(VAPIDJWTParam jwtParam) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("failure for testing");
+                }
+                return super.generateAuthorizationHeaderValue(jwtParam);
+            }
+        };
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate)
+            .clock(fixedClock(NOW))
+            .build();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 600)));
+        assertThat(e.getMessage(), equalTo("failure for testing"));
+
+        assertThat(vapidKeyPair.generateAuthorizationHeaderValue(param(NOW + 600)),
+            not(equalTo(null)));
+        assertThat(delegate.count.get(), equalTo(1));
+    }
+
+    @Test
+    public void shouldDelegateExtractionOfPublicKey() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+        CachingVAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(delegate).build();
+
+        assertThat(vapidKeyPair.extractPublicKeyInUncompressedForm(),
+            equalTo(new byte[] {4, 1, 2}));
+        assertThat(vapidKeyPair.extractPublicKeyInUncompressedFormAsString(),
+            equalTo("BAEC"));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        CountingVAPIDKeyPair delegate = new CountingVAPIDKeyPair();
+
+        assertNullCheck(() -> VAPIDKeyPairs.getCachingBuilder(null), "vapidKeyPair");
+        assertNullCheck(() -> VAPIDKeyPairs.getCachingBuilder(delegate)
+            .expirationBucket(1, null), "timeUnit");
+        assertNullCheck(() -> VAPIDKeyPairs.getCachingBuilder(delegate)
+            .refreshExecutor(null), "refreshExecutor");
+        assertNullCheck(() -> VAPIDKeyPairs.getCachingBuilder(delegate).build()
+            .generateAuthorizationHeaderValue(null), "jwtParam");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> VAPIDKeyPairs.getCachingBuilder(delegate)
+                .expirationBucket(999, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalArgumentException.class,
+            () -> VAPIDKeyPairs.getCachingBuilder(delegate)
+                .refreshAhead(-1, TimeUnit.SECONDS));
+        assertStateCheck(() -> VAPIDKeyPairs.getCachingBuilder(delegate)
+                .expirationBucket(10, TimeUnit.SECONDS)
+                .refreshAhead(10, TimeUnit.SECONDS)
+                .build(),
+            "The refresh-ahead window must be shorter than the expiration bucket.");
+    }
+
+    private static VAPIDJWTParam param(long exp) {
+        return VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com/push/" + exp)
+            .expirationTime(Instant.ofEpochSecond(exp))
+            .subject("sub")
+            .build();
+    }
+
+    private static Clock fixedClock(long epochSecond) {
+        return Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+
+    private static class CountingVAPIDKeyPair implements VAPIDKeyPair {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public byte[] extractPublicKeyInUncompressedForm() {
+            return new byte[] {4, 1, 2};
+        }
+
+        @Override
+        public String extractPublicKeyInUncompressedFormAsString() {
+            return "BAEC";
+        }
+
+        @Override
+        public String generateAuthorizationHeaderValue(VAPIDJWTParam jwtParam) {
+            count.incrementAndGet();
+            return String.join(":",
+                jwtParam.getOrigin(),
+                String.valueOf(jwtParam.getExpiresAtInSeconds()),
+                jwtParam.getSubject().orElse(""),
+                jwtParam.getAdditionalClaims().toString());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateAuthSecretString;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class CryptoProvidersTests {
+
+    @BeforeAll
+    public static void beforeAll() {
+        JCAProviderInitializer.initialize();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        CryptoProviders.reset();
+    }
+
+    @Test
+    public void shouldPinTheSelectedProviderForEachPrimitive() {
+
+        assertThat(CryptoProviders.getCalibration().isPresent(), equalTo(false));
+
+        ProviderCalibration calibration = CryptoProviders.calibrate();
+
+        assertThat(CryptoProviders.getCalibration().get(), equalTo(calibration));
+        for (CryptoPrimitive primitive : CryptoPrimitive.values()) {
+            String selected = calibration.getSelectedProvider(primitive).get();
+            assertThat(calibration.getNanosPerOperation().get(primitive).containsKey(selected),
+                equalTo(true));
+            assertThat(calibration.getRejectedProviders().get(primitive).containsKey(selected),
+                equalTo(false));
+            assertThat(PinnedProviders.get(primitive.getServiceType(), primitive.getAlgorithm())
+                .getName(), equalTo(selected));
+        }
+
+        CryptoProviders.reset();
+        assertThat(CryptoProviders.getCalibration().isPresent(), equalTo(false));
+        for (CryptoPrimitive primitive : CryptoPrimitive.values()) {
+            assertThat(PinnedProviders.get(primitive.getServiceType(), primitive.getAlgorithm()),
+                equalTo(null));
+        }
+    }
+
+    @Test
+    public void shouldEncryptMessagesWithThePinnedProviders() throws Exception {
+
+        CryptoProviders.calibrate();
+
+        KeyPair uaKeyPair = generateKeyPair();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+            generateAuthSecretString());
+        String payload = "Hello World. This is a payload for testing.";
+
+        for (ECDHBackend backend : ECDHBackend.values()) {
+            MessageEncryption messageEncryption = MessageEncryptions.of(backend);
+            EncryptedPushMessage encrypted =
+                messageEncryption.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+
+            byte[] decrypted = ((Aes128GcmMessageEncryption) messageEncryption).decrypt(
+                keyInfo,
+                (Aes128GcmEncryptedMessage) encrypted,
+                (ECPrivateKey) uaKeyPair.getPrivate()
+            );
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload));
+        }
+    }
+
+    @Test
+    public void shouldSignJWTsWithThePinnedProviders() throws Exception {
+
+        CryptoProviders.calibrate();
+
+        KeyPair keyPair = generateKeyPair();
+        VAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.of(
+            PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+            PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+        );
+        VAPIDJWTParam param = VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com")
+            .expiresAfter(60, TimeUnit.SECONDS)
+            .subject("mailto:test@example.com")
+            .build();
+
+        String headerValue = vapidKeyPair.generateAuthorizationHeaderValue(param);
+        String jwt = headerValue.substring("vapid t=".length(), headerValue.indexOf(','));
+        String[] parts = jwt.split("\\.");
+        byte[] jws = Base64.getUrlDecoder().decode(parts[2]);
+
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        verifier.initVerify(keyPair.getPublic());
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        assertThat(verifier.verify(jws), equalTo(true));
+    }
+}
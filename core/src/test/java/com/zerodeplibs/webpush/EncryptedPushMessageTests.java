@@ -1,8 +1,16 @@
 package com.zerodeplibs.webpush;
 
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import org.junit.jupiter.api.Test;
 
 public class EncryptedPushMessageTests {
@@ -37,4 +45,70 @@ public class EncryptedPushMessageTests {
                 + "}"
         ));
     }
+
+    @Test
+    public void shouldProvideReadOnlyViewsOfTheEncryptedMessage() {
+
+        Aes128GcmEncryptedMessage message =
+            new Aes128GcmEncryptedMessage(new byte[] {1, 2, 3});
+
+        ByteBuffer first = message.asReadOnlyByteBuffer();
+        ByteBuffer second = message.asReadOnlyByteBuffer();
+
+        assertThat(first.isReadOnly(), equalTo(true));
+        assertThat(first.remaining(), equalTo(3));
+        assertThrows(ReadOnlyBufferException.class, () -> first.put(0, (byte) 9));
+
+        first.get();
+        assertThat(second.position(), equalTo(0));
+        assertThat(second.get(0), equalTo((byte) 1));
+    }
+
+    @Test
+    public void shouldWriteTheEncryptedMessageToStreamsAndChannels() throws Exception {
+
+        EncryptedPushMessage message =
+            new Aes128GcmEncryptedMessage(new byte[] {1, 2, 3});
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        message.writeTo(outputStream);
+        assertThat(outputStream.toByteArray(), equalTo(new byte[] {1, 2, 3}));
+
+        ByteArrayOutputStream channelOutput = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(channelOutput);
+        message.writeTo(channel);
+        assertThat(channelOutput.toByteArray(), equalTo(new byte[] {1, 2, 3}));
+
+        assertNullCheck(() -> message.writeTo((OutputStream) null), "outputStream");
+        assertNullCheck(() -> message.writeTo((WritableByteChannel) null), "channel");
+    }
+
+    @Test
+    public void defaultMethodsShouldBeBasedOnTheOctetSequence() throws Exception {
+
+        EncryptedPushMessage message = new EncryptedPushMessage() {
+            @Override
+            public byte[] toBytes() {
+                return new byte[] {4, 5};
+            }
+
+            @Override
+            public int length() {
+                return 2;
+            }
+
+            @Override
+            public String contentEncoding() {
+                return "aes128gcm";
+            }
+        };
+
+        assertThat(message.asReadOnlyByteBuffer().isReadOnly(), equalTo(true));
+        assertThat(message.asReadOnlyByteBuffer().get(1), equalTo((byte) 5));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        message.writeTo(outputStream);
+        message.writeTo(Channels.newChannel(outputStream));
+        assertThat(outputStream.toByteArray(), equalTo(new byte[] {4, 5, 4, 5}));
+    }
 }
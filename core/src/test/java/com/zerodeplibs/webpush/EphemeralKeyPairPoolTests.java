@@ -0,0 +1,169 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateAuthSecretString;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhString;
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertStateCheck;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.internal.P256;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class EphemeralKeyPairPoolTests {
+
+    @BeforeAll
+    public static void beforeAll() {
+        JCAProviderInitializer.initialize();
+    }
+
+    @Test
+    public void shouldFillThePoolInTheBackground() throws Exception {
+
+        try (EphemeralKeyPairPool pool = EphemeralKeyPairPool.getBuilder()
+            .capacity(8)
+            .refillThreads(2)
+            .lowWaterMark(2)
+            .build()) {
+
+            waitUntil(() -> pool.getDepth() == 8);
+            assertThat(pool.getCapacity(), equalTo(8));
+            assertThat(pool.getGeneratedCount(), equalTo(8L));
+
+            Set<String> publicKeys = new HashSet<>();
+            for (int i = 0; i < 5; i++) {
+                EphemeralKeyPair keyPair = pool.poll();
+                assertThat(keyPair, not(nullValue()));
+                assertThat(keyPair.getUncompressedPublicKey().length, equalTo(65));
+                // The scalar is extracted when the key pair is generated.
+                assertThat(Arrays.equals(P256.publicKey(keyPair.getScalar()),
+                    keyPair.getUncompressedPublicKey()), equalTo(true));
+                publicKeys.add(new String(keyPair.getUncompressedPublicKey(),
+                    StandardCharsets.ISO_8859_1));
+            }
+            assertThat(publicKeys.size(), equalTo(5));
+            assertThat(pool.getTakenCount(), equalTo(5L));
+
+            // The depth hasn't reached the low-water mark yet.
+            Thread.sleep(100);
+            assertThat(pool.getDepth(), equalTo(3));
+
+            pool.poll();
+            waitUntil(() -> pool.getDepth() == 8);
+            assertThat(pool.getGeneratedCount(), equalTo(14L));
+        }
+    }
+
+    @Test
+    public void shouldCountStarvations() throws Exception {
+
+        try (EphemeralKeyPairPool pool = EphemeralKeyPairPool.getBuilder()
+            .capacity(1)
+            .build()) {
+
+            waitUntil(() -> pool.getDepth() == 1);
+
+            int taken = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (pool.poll() != null) {
+                    taken++;
+                }
+            }
+
+            assertThat(pool.getTakenCount(), equalTo((long) taken));
+            assertThat(pool.getStarvationCount(), equalTo(1000L - taken));
+            assertThat(pool.getStarvationCount() > 0, equalTo(true));
+        }
+    }
+
+    @Test
+    public void shouldEncryptMessagesWithPooledKeyPairs() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        ECPublicKey uaPublic = (ECPublicKey) uaKeyPair.getPublic();
+        ECPrivateKey uaPrivate = (ECPrivateKey) uaKeyPair.getPrivate();
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeys =
+            UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString(uaPublic),
+                generateAuthSecretString()
+            );
+
+        try (EphemeralKeyPairPool pool = EphemeralKeyPairPool.getBuilder()
+            .capacity(4)
+            .build()) {
+
+            waitUntil(() -> pool.getDepth() == 4);
+            MessageEncryption messageEncryption = MessageEncryptions.of(pool);
+
+            String payload = "Hello World. This is a payload for testing.";
+            EncryptedPushMessage encrypted = messageEncryption.encrypt(
+                userAgentMessageEncryptionKeys,
+                PushMessage.ofUTF8(payload)
+            );
+            byte[] decrypted = ((Aes128GcmMessageEncryption) messageEncryption).decrypt(
+                userAgentMessageEncryptionKeys,
+                (Aes128GcmEncryptedMessage) encrypted,
+                uaPrivate
+            );
+
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload));
+            assertThat(pool.getTakenCount(), equalTo(1L));
+
+            // Falls back to inline generation.
+            pool.close();
+            assertThat(pool.isClosed(), equalTo(true));
+            assertThat(pool.getDepth(), equalTo(0));
+            EncryptedPushMessage afterClose = messageEncryption.encrypt(
+                userAgentMessageEncryptionKeys,
+                PushMessage.ofUTF8(payload)
+            );
+            assertThat(new String(((Aes128GcmMessageEncryption) messageEncryption).decrypt(
+                userAgentMessageEncryptionKeys,
+                (Aes128GcmEncryptedMessage) afterClose,
+                uaPrivate
+            ), StandardCharsets.UTF_8), equalTo(payload));
+            assertThat(pool.getTakenCount(), equalTo(1L));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        assertNullCheck(() -> MessageEncryptions.of((EphemeralKeyPairPool) null), "keyPairPool");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> EphemeralKeyPairPool.getBuilder().capacity(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> EphemeralKeyPairPool.getBuilder().refillThreads(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> EphemeralKeyPairPool.getBuilder().lowWaterMark(-1));
+        assertStateCheck(() -> EphemeralKeyPairPool.getBuilder()
+                .capacity(4)
+                .lowWaterMark(4)
+                .build(),
+            "The low-water mark must be less than the capacity.");
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out.");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhSt
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
 import java.security.interfaces.ECPublicKey;
 import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -19,8 +20,11 @@ import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -32,6 +36,8 @@ public class MessageEncryptionBenchmark {
 
         Options options = new OptionsBuilder()
             .include(MessageEncryptionBenchmark.class.getSimpleName())
+            // Reports the allocations per message(gc.alloc.rate.norm).
+            .addProfiler(GCProfiler.class)
             .build();
 
         new Runner(options).run();
@@ -43,6 +49,7 @@ public class MessageEncryptionBenchmark {
         UserAgentMessageEncryptionKeyInfo uaKeyInfo;
         PushMessage pushMessage;
         MessageEncryption messageEncryption;
+        MessageEncryption builtInECDHMessageEncryption;
 
         @Setup(Level.Trial)
         public void setUp() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
@@ -56,6 +63,51 @@ public class MessageEncryptionBenchmark {
             this.uaKeyInfo = UserAgentMessageEncryptionKeyInfo.of(p256dh, auth);
             this.pushMessage = PushMessage.ofUTF8(payload);
             this.messageEncryption = MessageEncryptions.of();
+            this.builtInECDHMessageEncryption = MessageEncryptions.of(ECDHBackend.BUILT_IN);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PlanForEncryptionIntoBuffer {
+
+        ByteBuffer dst;
+
+        @Setup(Level.Trial)
+        public void setUp(PlanForEncryptionOnly plan) {
+            this.dst = ByteBuffer.allocateDirect(
+                plan.messageEncryption.encryptedLength(plan.pushMessage));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlanForEncryptionWithKeyPairPool {
+
+        UserAgentMessageEncryptionKeyInfo uaKeyInfo;
+        PushMessage pushMessage;
+        EphemeralKeyPairPool keyPairPool;
+        MessageEncryption messageEncryption;
+
+        @Setup(Level.Trial)
+        public void setUp() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+            KeyPair uaKeyPair = generateKeyPair();
+            ECPublicKey uaPublic = (ECPublicKey) uaKeyPair.getPublic();
+            String p256dh = generateP256dhString(uaPublic);
+            String auth = generateAuthSecretString();
+            String payload = "Hello World. This is a payload for testing.";
+
+            this.uaKeyInfo = UserAgentMessageEncryptionKeyInfo.of(p256dh, auth);
+            this.pushMessage = PushMessage.ofUTF8(payload);
+            this.keyPairPool = EphemeralKeyPairPool.getBuilder()
+                .capacity(4096)
+                .refillThreads(2)
+                .build();
+            this.messageEncryption = MessageEncryptions.of(this.keyPairPool);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.keyPairPool.close();
         }
     }
 
@@ -90,6 +142,44 @@ public class MessageEncryptionBenchmark {
         ));
     }
 
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void onlyEncryptionWithBuiltInECDH(Blackhole h, PlanForEncryptionOnly plan) {
+        h.consume(plan.builtInECDHMessageEncryption.encrypt(
+            plan.uaKeyInfo, plan.pushMessage
+        ));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void onlyEncryptionIntoDirectBuffer(Blackhole h, PlanForEncryptionOnly plan,
+                                               PlanForEncryptionIntoBuffer buffer) {
+        buffer.dst.clear();
+        h.consume(plan.messageEncryption.encryptInto(
+            plan.uaKeyInfo, plan.pushMessage, buffer.dst
+        ));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void onlyEncryptionWithKeyPairPool(Blackhole h, PlanForEncryptionWithKeyPairPool plan) {
+        h.consume(plan.messageEncryption.encrypt(
+            plan.uaKeyInfo, plan.pushMessage
+        ));
+    }
+
     @Benchmark
     @Fork(value = 2)
     @Warmup(iterations = 2)
@@ -109,4 +199,48 @@ public class MessageEncryptionBenchmark {
 
         h.consume(encrypted);
     }
+
+    /*
+     * The following benchmarks share a single MessageEncryption across threads.
+     * Compare the throughput of them in order to see how it scales with the number of cores.
+     */
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void sharedEncryptionWith1Thread(Blackhole h, PlanForEncryptionOnly plan) {
+        h.consume(plan.messageEncryption.encrypt(
+            plan.uaKeyInfo, plan.pushMessage
+        ));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void sharedEncryptionWith4Threads(Blackhole h, PlanForEncryptionOnly plan) {
+        h.consume(plan.messageEncryption.encrypt(
+            plan.uaKeyInfo, plan.pushMessage
+        ));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(Threads.MAX)
+    public void sharedEncryptionWithMaxThreads(Blackhole h, PlanForEncryptionOnly plan) {
+        h.consume(plan.messageEncryption.encrypt(
+            plan.uaKeyInfo, plan.pushMessage
+        ));
+    }
 }
@@ -6,13 +6,36 @@ import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhSt
 import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -52,6 +75,471 @@ public class MessageEncryptionTests {
         assertThat(new String(decypted, StandardCharsets.UTF_8), equalTo(payload));
     }
 
+    @Test
+    public void shouldUseTheDefaultImplementationWithoutSubModules() {
+
+        assertThat(MessageEncryptions.of() instanceof Aes128GcmMessageEncryption, equalTo(true));
+        assertThat(new DefaultMessageEncryptionFactory().create()
+            instanceof Aes128GcmMessageEncryption, equalTo(true));
+    }
+
+    @Test
+    public void shouldDeriveTheSameKeysAsTheStraightforwardDerivation() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        ECPublicKey uaPublic = (ECPublicKey) uaKeyPair.getPublic();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            generateP256dhString(uaPublic),
+            generateAuthSecretString()
+        );
+        String payload = "Hello World. This is a payload for testing.";
+
+        MessageEncryption messageEncryption = MessageEncryptions.of();
+        for (int i = 0; i < 3; i++) {
+            Aes128GcmEncryptedMessage encrypted = (Aes128GcmEncryptedMessage)
+                messageEncryption.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+
+            byte[] decrypted = decryptStraightforwardly(
+                keyInfo, encrypted, (ECPrivateKey) uaKeyPair.getPrivate());
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload + "\u0002"));
+        }
+    }
+
+    @Test
+    public void shouldReuseTheMacKeyedWithTheAuthSecret() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        String p256dh = generateP256dhString((ECPublicKey) uaKeyPair.getPublic());
+        String auth = generateAuthSecretString();
+        String payload = "Hello World. This is a payload for testing.";
+        MessageEncryption messageEncryption = MessageEncryptions.of();
+
+        // A key info that isn't cached is usually used only once. So it doesn't keep a Mac.
+        UserAgentMessageEncryptionKeyInfo notCached =
+            UserAgentMessageEncryptionKeyInfo.of(p256dh, auth);
+        messageEncryption.encrypt(notCached, PushMessage.ofUTF8(payload));
+        assertThat(notCached.getAuthSecretMac() == null, equalTo(true));
+
+        UserAgentMessageEncryptionKeyInfo keyInfo =
+            UserAgentMessageEncryptionKeyInfoCache.of(10).get(p256dh, auth);
+        assertThat(keyInfo.getAuthSecretMac() == null, equalTo(true));
+
+        messageEncryption.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+        Mac prototype = keyInfo.getAuthSecretMac();
+        // Falls back to initializing a Mac each time if the provider doesn't support cloning.
+        assertThat(prototype == null, equalTo(!isMacCloneable()));
+
+        // The cached Mac is shared by the other instances and is never replaced.
+        for (MessageEncryption other : List.of(messageEncryption, MessageEncryptions.of(),
+            MessageEncryptions.of(ECDHBackend.BUILT_IN))) {
+            Aes128GcmEncryptedMessage encrypted = (Aes128GcmEncryptedMessage)
+                other.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+
+            byte[] decrypted = decryptStraightforwardly(
+                keyInfo, encrypted, (ECPrivateKey) uaKeyPair.getPrivate());
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload + "\u0002"));
+            assertThat(keyInfo.getAuthSecretMac() == prototype, equalTo(true));
+        }
+    }
+
+    @Test
+    public void shouldEncryptMessageWithBuiltInECDHBackend() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+            generateAuthSecretString()
+        );
+        String payload = "Hello World. This is a payload for testing.";
+
+        try (EphemeralKeyPairPool pool = EphemeralKeyPairPool.getBuilder()
+            .capacity(2)
+            .refillThreads(1)
+            .build()) {
+
+            List<MessageEncryption> messageEncryptions = List.of(
+                MessageEncryptions.of(ECDHBackend.BUILT_IN),
+                // Takes the key pairs generated through the JCA providers.
+                MessageEncryptions.of(pool, ECDHBackend.BUILT_IN)
+            );
+            for (MessageEncryption messageEncryption : messageEncryptions) {
+                for (int i = 0; i < 3; i++) {
+                    Aes128GcmEncryptedMessage encrypted = (Aes128GcmEncryptedMessage)
+                        messageEncryption.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+
+                    byte[] decrypted = decryptStraightforwardly(
+                        keyInfo, encrypted, (ECPrivateKey) uaKeyPair.getPrivate());
+                    assertThat(new String(decrypted, StandardCharsets.UTF_8),
+                        equalTo(payload + "\u0002"));
+                }
+            }
+        }
+
+        assertNullCheck(() -> MessageEncryptions.of((ECDHBackend) null), "ecdhBackend");
+    }
+
+    @Test
+    public void shouldTakeSaltsFromTheGivenRandomSource() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+            generateAuthSecretString()
+        );
+        String payload = "Hello World. This is a payload for testing.";
+
+        List<byte[]> handedOut = Collections.synchronizedList(new ArrayList<>());
+        RandomSource striped = RandomSources.striped();
+        RandomSource recording = (bytes, offset, length) -> {
+            striped.nextBytes(bytes, offset, length);
+            handedOut.add(Arrays.copyOfRange(bytes, offset, offset + length));
+        };
+
+        for (ECDHBackend ecdhBackend : ECDHBackend.values()) {
+            handedOut.clear();
+            MessageEncryption messageEncryption = MessageEncryptions.getBuilder()
+                .ecdhBackend(ecdhBackend)
+                .randomSource(recording)
+                .build();
+
+            Aes128GcmEncryptedMessage encrypted = (Aes128GcmEncryptedMessage)
+                messageEncryption.encrypt(keyInfo, PushMessage.ofUTF8(payload));
+
+            assertThat(handedOut.get(handedOut.size() - 1), equalTo(encrypted.extractSalt()));
+            byte[] decrypted = decryptStraightforwardly(
+                keyInfo, encrypted, (ECPrivateKey) uaKeyPair.getPrivate());
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload + "\u0002"));
+        }
+
+        assertNullCheck(() -> MessageEncryptions.getBuilder().randomSource(null), "randomSource");
+    }
+
+    @Test
+    public void shouldBeSharedAcrossThreads() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        ECPublicKey uaPublic = (ECPublicKey) uaKeyPair.getPublic();
+        ECPrivateKey uaPrivate = (ECPrivateKey) uaKeyPair.getPrivate();
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeys =
+            UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString(uaPublic),
+                generateAuthSecretString()
+            );
+        MessageEncryption messageEncryption = MessageEncryptions.of();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String payload = "Payload " + i;
+                results.add(executorService.submit(() -> {
+                    EncryptedPushMessage encrypted = messageEncryption.encrypt(
+                        userAgentMessageEncryptionKeys,
+                        PushMessage.ofUTF8(payload)
+                    );
+                    byte[] decrypted = ((Aes128GcmMessageEncryption) messageEncryption).decrypt(
+                        userAgentMessageEncryptionKeys,
+                        (Aes128GcmEncryptedMessage) encrypted,
+                        uaPrivate
+                    );
+                    return new String(decrypted, StandardCharsets.UTF_8).equals(payload);
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), equalTo(true));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldEncryptMessageForAllTheGivenKeysInInputOrder() throws Exception {
+
+        List<KeyPair> uaKeyPairs = new ArrayList<>();
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            KeyPair uaKeyPair = generateKeyPair();
+            uaKeyPairs.add(uaKeyPair);
+            keyInfos.add(UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+                generateAuthSecretString()
+            ));
+        }
+        String payload = "Hello World. This is a payload for testing.";
+        MessageEncryption messageEncryption = MessageEncryptions.of();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<EncryptedPushMessage> results = messageEncryption.encryptAll(
+                keyInfos, PushMessage.ofUTF8(payload), executorService);
+
+            assertThat(results.size(), equalTo(keyInfos.size()));
+            for (int i = 0; i < keyInfos.size(); i++) {
+                byte[] decrypted = ((Aes128GcmMessageEncryption) messageEncryption).decrypt(
+                    keyInfos.get(i),
+                    (Aes128GcmEncryptedMessage) results.get(i),
+                    (ECPrivateKey) uaKeyPairs.get(i).getPrivate()
+                );
+                assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        // The calling thread is the only worker of the executor.
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(singleThread.submit(() -> messageEncryption.encryptAll(
+                keyInfos, PushMessage.ofUTF8(payload), singleThread).size())
+                .get(30, TimeUnit.SECONDS), equalTo(keyInfos.size()));
+        } finally {
+            singleThread.shutdown();
+        }
+
+        // The calling thread is one of the workers sharing the chunks.
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            assertThat(forkJoinPool.submit(() -> messageEncryption.encryptAll(
+                keyInfos, PushMessage.ofUTF8(payload), forkJoinPool).size())
+                .get(30, TimeUnit.SECONDS), equalTo(keyInfos.size()));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        // The executor never runs the tasks.
+        assertThat(messageEncryption.encryptAll(keyInfos, PushMessage.ofUTF8(payload),
+            task -> { }).size(), equalTo(keyInfos.size()));
+
+        assertThat(messageEncryption.encryptAll(keyInfos.subList(0, 3), PushMessage.ofUTF8("a"))
+            .size(), equalTo(3));
+        assertThat(messageEncryption.encryptAll(Collections.emptyList(), PushMessage.ofUTF8("a"))
+            .size(), equalTo(0));
+    }
+
+    @Test
+    public void shouldEncryptMessageForAllTheGivenKeysInBatchesWithBuiltInECDHBackend()
+        throws Exception {
+
+        List<KeyPair> uaKeyPairs = new ArrayList<>();
+        List<UserAgentMessageEncryptionKeyInfo> distinctKeyInfos = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            KeyPair uaKeyPair = generateKeyPair();
+            uaKeyPairs.add(uaKeyPair);
+            distinctKeyInfos.add(UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+                generateAuthSecretString()
+            ));
+        }
+        // A single thread takes chunks of 258 keys, which don't fit into a single batch.
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos = new ArrayList<>();
+        for (int i = 0; i < 1030; i++) {
+            keyInfos.add(distinctKeyInfos.get(i % distinctKeyInfos.size()));
+        }
+        String payload = "Hello World. This is a payload for testing.";
+
+        ForkJoinPool executor = new ForkJoinPool(1);
+        try (EphemeralKeyPairPool pool = EphemeralKeyPairPool.getBuilder()
+            .capacity(16)
+            .refillThreads(1)
+            .build()) {
+
+            // Some of the key pairs are taken from the pool and the others are generated.
+            Aes128GcmMessageEncryption messageEncryption = (Aes128GcmMessageEncryption)
+                MessageEncryptions.of(pool, ECDHBackend.BUILT_IN);
+            List<EncryptedPushMessage> results = messageEncryption.encryptAll(
+                keyInfos, PushMessage.ofUTF8(payload), executor);
+
+            assertThat(results.size(), equalTo(keyInfos.size()));
+            Set<String> asPublicKeys = new HashSet<>();
+            for (int i = 0; i < keyInfos.size(); i++) {
+                Aes128GcmEncryptedMessage encrypted = (Aes128GcmEncryptedMessage) results.get(i);
+                byte[] decrypted = messageEncryption.decrypt(
+                    keyInfos.get(i),
+                    encrypted,
+                    (ECPrivateKey) uaKeyPairs.get(i % uaKeyPairs.size()).getPrivate()
+                );
+                assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload));
+                asPublicKeys.add(Base64.getEncoder()
+                    .encodeToString(encrypted.extractUncompressedAsPublicKeyBytes()));
+            }
+            assertThat(asPublicKeys.size(), equalTo(keyInfos.size()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldStreamEncryptedMessagesToTheCallback() throws Exception {
+
+        Map<UserAgentMessageEncryptionKeyInfo, KeyPair> uaKeyPairs = new ConcurrentHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            KeyPair uaKeyPair = generateKeyPair();
+            uaKeyPairs.put(UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+                generateAuthSecretString()
+            ), uaKeyPair);
+        }
+        String payload = "Hello World. This is a payload for testing.";
+        Aes128GcmMessageEncryption messageEncryption =
+            (Aes128GcmMessageEncryption) MessageEncryptions.of();
+
+        Map<UserAgentMessageEncryptionKeyInfo, String> results = new ConcurrentHashMap<>();
+        messageEncryption.encryptAll(uaKeyPairs.keySet(), PushMessage.ofUTF8(payload),
+            Runnable::run,
+            (keyInfo, encrypted) -> results.put(keyInfo, new String(messageEncryption.decrypt(
+                keyInfo,
+                (Aes128GcmEncryptedMessage) encrypted,
+                (ECPrivateKey) uaKeyPairs.get(keyInfo).getPrivate()
+            ), StandardCharsets.UTF_8)));
+
+        assertThat(results.keySet(), equalTo(uaKeyPairs.keySet()));
+        results.values().forEach(decrypted -> assertThat(decrypted, equalTo(payload)));
+
+        // An exception thrown by any of the threads is rethrown to the calling thread.
+        IllegalStateException exception = new IllegalStateException("callback");
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            assertThat(assertThrows(IllegalStateException.class,
+                () -> messageEncryption.encryptAll(uaKeyPairs.keySet(),
+                    PushMessage.ofUTF8(payload), executor, (keyInfo, encrypted) -> {
+                        throw exception;
+                    })), equalTo(exception));
+        } finally {
+            executor.shutdown();
+        }
+
+        // Both the backends propagate the exceptions thrown by the callback as they are.
+        IllegalArgumentException callbackException = new IllegalArgumentException("callback");
+        for (MessageEncryption encryption : Arrays.asList(
+            MessageEncryptions.of(ECDHBackend.JCA), MessageEncryptions.of(ECDHBackend.BUILT_IN))) {
+
+            assertThat(assertThrows(IllegalArgumentException.class,
+                () -> encryption.encryptAll(uaKeyPairs.keySet(), PushMessage.ofUTF8(payload),
+                    Runnable::run, (keyInfo, encrypted) -> {
+                        throw callbackException;
+                    })), equalTo(callbackException));
+        }
+    }
+
+    @Test
+    public void defaultBulkEncryptionShouldEncryptSequentially() throws Exception {
+
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos = Arrays.asList(
+            createUserAgentMessageEncryptionKeyInfo(),
+            createUserAgentMessageEncryptionKeyInfo()
+        );
+        EncryptedPushMessage first = new Aes128GcmEncryptedMessage(new byte[] {1});
+        EncryptedPushMessage second = new Aes128GcmEncryptedMessage(new byte[] {2});
+        MessageEncryption messageEncryption = (keyInfo, pushMessage) ->
+            keyInfo == keyInfos.get(0) ? first : second;
+
+        assertThat(messageEncryption.encryptAll(keyInfos, PushMessage.ofUTF8("a")),
+            equalTo(Arrays.asList(first, second)));
+
+        List<EncryptedPushMessage> streamed = new ArrayList<>();
+        messageEncryption.encryptAll(keyInfos, PushMessage.ofUTF8("a"), Runnable::run,
+            (keyInfo, encrypted) -> streamed.add(encrypted));
+        assertThat(streamed, equalTo(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void shouldEncryptMessageIntoTheGivenBuffer() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        ECPrivateKey uaPrivate = (ECPrivateKey) uaKeyPair.getPrivate();
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeys =
+            UserAgentMessageEncryptionKeyInfo.of(
+                generateP256dhString((ECPublicKey) uaKeyPair.getPublic()),
+                generateAuthSecretString()
+            );
+        String payload = "Hello World. This is a payload for testing.";
+        PushMessage pushMessage = PushMessage.ofUTF8(payload);
+        Aes128GcmMessageEncryption messageEncryption =
+            (Aes128GcmMessageEncryption) MessageEncryptions.of();
+
+        int length = messageEncryption.encryptedLength(pushMessage);
+        assertThat(length, equalTo(
+            messageEncryption.encrypt(userAgentMessageEncryptionKeys, pushMessage).length()));
+
+        for (ByteBuffer dst : Arrays.asList(
+            ByteBuffer.allocate(length + 10),
+            ByteBuffer.allocateDirect(length + 10),
+            ByteBuffer.allocate(length + 10).order(ByteOrder.LITTLE_ENDIAN),
+            ByteBuffer.allocateDirect(length + 10).order(ByteOrder.LITTLE_ENDIAN))) {
+
+            ByteOrder order = dst.order();
+            dst.position(3);
+            int written = messageEncryption.encryptInto(
+                userAgentMessageEncryptionKeys, pushMessage, dst);
+
+            assertThat(written, equalTo(length));
+            assertThat(dst.position(), equalTo(3 + length));
+            assertThat(dst.order(), equalTo(order));
+
+            byte[] encrypted = new byte[length];
+            dst.position(3);
+            dst.get(encrypted);
+            Aes128GcmEncryptedMessage encryptedMessage = new Aes128GcmEncryptedMessage(encrypted);
+            // 'rs' is big-endian regardless of the byte order of the buffer.
+            assertThat(encryptedMessage.extractRecordSize(), equalTo(length - 86));
+            byte[] decrypted = messageEncryption.decrypt(
+                userAgentMessageEncryptionKeys,
+                encryptedMessage,
+                uaPrivate
+            );
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload));
+        }
+
+        ByteBuffer tooSmall = ByteBuffer.allocate(length - 1);
+        assertThrows(IllegalArgumentException.class, () -> messageEncryption.encryptInto(
+            userAgentMessageEncryptionKeys, pushMessage, tooSmall));
+        assertThat(tooSmall.position(), equalTo(0));
+    }
+
+    @Test
+    public void defaultBufferEncryptionShouldCopyTheEncryptedMessage() throws Exception {
+
+        UserAgentMessageEncryptionKeyInfo keyInfo = createUserAgentMessageEncryptionKeyInfo();
+        MessageEncryption messageEncryption = (k, pushMessage) ->
+            new Aes128GcmEncryptedMessage(new byte[] {1, 2, 3});
+
+        ByteBuffer dst = ByteBuffer.allocate(4);
+        assertThat(messageEncryption.encryptInto(keyInfo, PushMessage.ofUTF8("a"), dst),
+            equalTo(3));
+        assertThat(dst.position(), equalTo(3));
+        assertThat(dst.array(), equalTo(new byte[] {1, 2, 3, 0}));
+
+        assertThrows(IllegalArgumentException.class, () -> messageEncryption.encryptInto(
+            keyInfo, PushMessage.ofUTF8("a"), ByteBuffer.allocate(2)));
+        assertThat(messageEncryption.encryptedLength(PushMessage.ofUTF8("a")), equalTo(
+            MessageEncryptions.of().encryptedLength(PushMessage.ofUTF8("a"))));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenNullReferencesArePassedToBulkEncryption()
+        throws Exception {
+
+        MessageEncryption messageEncryption = MessageEncryptions.of();
+        List<UserAgentMessageEncryptionKeyInfo> keyInfos =
+            Collections.singletonList(createUserAgentMessageEncryptionKeyInfo());
+        PushMessage pushMessage = PushMessage.ofUTF8("a");
+
+        assertNullCheck(() -> messageEncryption.encryptAll(null, pushMessage),
+            "userAgentMessageEncryptionKeyInfos");
+        assertNullCheck(() -> messageEncryption.encryptAll(keyInfos, null),
+            "pushMessage");
+        assertNullCheck(() -> messageEncryption.encryptAll(keyInfos, pushMessage, null),
+            "executor");
+        assertNullCheck(
+            () -> messageEncryption.encryptAll(keyInfos, pushMessage, Runnable::run, null),
+            "callback");
+        assertNullCheck(() -> messageEncryption.encryptAll(
+                Collections.singletonList(null), pushMessage),
+            "userAgentMessageEncryptionKeyInfo");
+    }
+
     @Test
     public void shouldThrowExceptionWhenNullReferencesArePassed() {
 
@@ -63,6 +551,68 @@ public class MessageEncryptionTests {
         assertNullCheck(
             () -> messageEncryption.encrypt(createUserAgentMessageEncryptionKeyInfo(), null),
             "pushMessage");
+
+        assertNullCheck(
+            () -> messageEncryption.encryptInto(
+                createUserAgentMessageEncryptionKeyInfo(), PushMessage.ofUTF8("a"), null),
+            "dst");
+
+        assertNullCheck(() -> messageEncryption.encryptedLength(null), "pushMessage");
+    }
+
+    // Decrypts the message following RFC 8291 step by step without reusing any buffer.
+    private static boolean isMacCloneable() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(new byte[16], "HmacSHA256"));
+        try {
+            mac.clone();
+            return true;
+        } catch (CloneNotSupportedException e) {
+            return false;
+        }
+    }
+
+    private static byte[] decryptStraightforwardly(
+        UserAgentMessageEncryptionKeyInfo keyInfo,
+        Aes128GcmEncryptedMessage encrypted,
+        ECPrivateKey uaPrivate) throws Exception {
+
+        byte[] asPublic = encrypted.extractUncompressedAsPublicKeyBytes();
+
+        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+        keyAgreement.init(uaPrivate);
+        keyAgreement.doPhase(PublicKeySources.ofUncompressedBytes(asPublic).extract(), true);
+        byte[] ecdhSecret = keyAgreement.generateSecret();
+
+        byte[] prkKey = hmac(keyInfo.getAuthSecret(), ecdhSecret);
+        byte[] ikm = hmac(prkKey, concat(
+            "WebPush: info\u0000".getBytes(StandardCharsets.US_ASCII),
+            keyInfo.getUncompressedUaPublic(),
+            asPublic,
+            new byte[] {1}));
+        byte[] prk = hmac(encrypted.extractSalt(), ikm);
+        byte[] cek = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: aes128gcm\u0000\u0001".getBytes(StandardCharsets.US_ASCII))), 16);
+        byte[] nonce = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: nonce\u0000\u0001".getBytes(StandardCharsets.US_ASCII))), 12);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(cek, "AES"),
+            new GCMParameterSpec(128, nonce));
+        return cipher.doFinal(encrypted.extractContent());
+    }
+
+    private static byte[] hmac(byte[] key, byte[] message) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(message);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteBuffer buffer = ByteBuffer.allocate(
+            Arrays.stream(arrays).mapToInt(a -> a.length).sum());
+        Arrays.stream(arrays).forEach(buffer::put);
+        return buffer.array();
     }
 
     private UserAgentMessageEncryptionKeyInfo createUserAgentMessageEncryptionKeyInfo()
@@ -0,0 +1,291 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateAuthSecretString;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhString;
+
+import com.zerodeplibs.webpush.httpclient.RequestPreparerBenchmark;
+import com.zerodeplibs.webpush.internal.P256;
+import com.zerodeplibs.webpush.internal.PinnedProviders;
+import com.zerodeplibs.webpush.jwt.DefaultVAPIDJWTGeneratorFactory;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTGenerator;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Measures each stage of preparing a push request separately.
+ * The cryptographic stages mirror Aes128GcmMessageEncryption
+ * with the same (pinned) JCA objects, which are reused per thread.
+ * The last stage(PreparerBuilder#build + toRequest) is measured by RequestPreparerBenchmark.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 2)
+@Measurement(iterations = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PushPreparationStageBenchmark {
+
+    private static final int[] THREADS = {1, 4, 16};
+
+    /*
+     * Runs the whole suite(including RequestPreparerBenchmark) at 1, 4 and 16 threads.
+     */
+    public static void main(String[] args) throws RunnerException {
+
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                .include(PushPreparationStageBenchmark.class.getSimpleName())
+                .include(RequestPreparerBenchmark.class.getSimpleName())
+                .threads(threads)
+                // Reports the allocations per operation(gc.alloc.rate.norm).
+                .addProfiler(GCProfiler.class)
+                .build();
+
+            new Runner(options).run();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Plan {
+
+        String p256dh;
+        String auth;
+        UserAgentMessageEncryptionKeyInfo uaKeyInfo;
+        byte[] uaPublicUncompressed;
+        EphemeralKeyPair asKeyPair;
+        EphemeralKeyPair builtInAsKeyPair;
+        RandomSource randomSource;
+        VAPIDJWTGenerator jwtGenerator;
+        VAPIDJWTParam jwtParam;
+
+        @Setup(Level.Trial)
+        public void setUp() throws GeneralSecurityException {
+
+            KeyPair uaKeyPair = generateKeyPair();
+            this.p256dh = generateP256dhString((ECPublicKey) uaKeyPair.getPublic());
+            this.auth = generateAuthSecretString();
+            this.uaKeyInfo = UserAgentMessageEncryptionKeyInfo.of(this.p256dh, this.auth);
+            this.uaPublicUncompressed = this.uaKeyInfo.getUncompressedUaPublic();
+
+            KeyPairGenerator keyPairGenerator = PinnedProviders.keyPairGenerator("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            this.asKeyPair = EphemeralKeyPair.generate(keyPairGenerator);
+            this.randomSource = RandomSources.of(new SecureRandom());
+            this.builtInAsKeyPair = EphemeralKeyPair.generate(this.randomSource);
+
+            KeyPair vapidKeyPair = generateKeyPair();
+            this.jwtGenerator = new DefaultVAPIDJWTGeneratorFactory().create(
+                (ECPrivateKey) vapidKeyPair.getPrivate(), (ECPublicKey) vapidKeyPair.getPublic());
+            this.jwtParam = VAPIDJWTParam.getBuilder()
+                .resourceURLString("https://fcm.googleapis.com/fcm/send/xxxx")
+                .expiresAfter(15, TimeUnit.MINUTES)
+                .subject("mailto:example@example.com")
+                .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadPlan {
+
+        KeyPairGenerator keyPairGenerator;
+        KeyAgreement keyAgreement;
+        Mac mac;
+        Mac authSecretMac;
+        byte[] salt = new byte[16];
+        byte[] ecdhSecret = new byte[32];
+        byte[] prkKey = new byte[32];
+        byte[] ikm = new byte[32];
+        byte[] prk = new byte[32];
+        byte[] cek = new byte[32];
+        byte[] nonce = new byte[32];
+
+        @Setup(Level.Trial)
+        public void setUp(Plan plan) throws GeneralSecurityException {
+
+            this.keyPairGenerator = PinnedProviders.keyPairGenerator("EC");
+            this.keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            this.keyAgreement = PinnedProviders.keyAgreement("ECDH");
+            this.mac = PinnedProviders.mac("HmacSHA256");
+            this.authSecretMac = PinnedProviders.mac("HmacSHA256");
+            this.authSecretMac.init(
+                new SecretKeySpec(plan.uaKeyInfo.getAuthSecret(), "HmacSHA256"));
+
+            new SecureRandom().nextBytes(this.salt);
+            new SecureRandom().nextBytes(this.ecdhSecret);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class AesGcmPlan {
+
+        @Param({"16", "256", "1024", "4096"})
+        int payloadSize;
+
+        Cipher cipher;
+        SecretKeySpec cek;
+        byte[] nonce = new byte[12];
+        ByteBuffer payload;
+        ByteBuffer dst;
+
+        @Setup(Level.Trial)
+        public void setUp() throws GeneralSecurityException {
+
+            byte[] key = new byte[16];
+            new SecureRandom().nextBytes(key);
+            this.cipher = PinnedProviders.cipher("AES/GCM/NoPadding");
+            this.cek = new SecretKeySpec(key, "AES");
+
+            byte[] bytes = new byte[this.payloadSize];
+            new SecureRandom().nextBytes(bytes);
+            this.payload = ByteBuffer.wrap(bytes);
+            // The payload, the padding delimiter and the tag.
+            this.dst = ByteBuffer.allocate(this.payloadSize + 1 + 16);
+        }
+
+        // A key and a nonce must not be reused for encryption.
+        void nextNonce() {
+            for (int i = this.nonce.length - 1; i >= 0; i--) {
+                if (++this.nonce[i] != 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public EphemeralKeyPair ephemeralKeyGeneration(ThreadPlan threadPlan) {
+        return EphemeralKeyPair.generate(threadPlan.keyPairGenerator);
+    }
+
+    @Benchmark
+    public EphemeralKeyPair ephemeralKeyGenerationBuiltIn(Plan plan) {
+        return EphemeralKeyPair.generate(plan.randomSource);
+    }
+
+    @Benchmark
+    public byte[] ecdh(Plan plan, ThreadPlan threadPlan) throws GeneralSecurityException {
+        KeyAgreement keyAgreement = threadPlan.keyAgreement;
+        keyAgreement.init(plan.asKeyPair.getPrivateKey());
+        keyAgreement.doPhase(plan.uaKeyInfo.getPublicKey(), true);
+        keyAgreement.generateSecret(threadPlan.ecdhSecret, 0);
+        return threadPlan.ecdhSecret;
+    }
+
+    @Benchmark
+    public byte[] ecdhBuiltIn(Plan plan, ThreadPlan threadPlan) {
+        P256.ecdh(plan.builtInAsKeyPair.getScalar(), plan.uaPublicUncompressed,
+            threadPlan.ecdhSecret, 0);
+        return threadPlan.ecdhSecret;
+    }
+
+    /*
+     * The five HMAC-SHA-256 calculations deriving the content encryption key and the nonce
+     * (Aes128GcmMessageEncryption#calcCekAndNonce).
+     */
+    @Benchmark
+    public byte[] hkdf(Plan plan, ThreadPlan threadPlan) throws GeneralSecurityException {
+
+        Mac authSecretMac;
+        try {
+            authSecretMac = (Mac) threadPlan.authSecretMac.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        authSecretMac.update(threadPlan.ecdhSecret);
+        authSecretMac.doFinal(threadPlan.prkKey, 0);
+
+        Mac mac = threadPlan.mac;
+        mac.init(new SecretKeySpec(threadPlan.prkKey, "HmacSHA256"));
+        mac.update("WebPush: info\0".getBytes(StandardCharsets.US_ASCII));
+        mac.update(plan.uaPublicUncompressed);
+        mac.update(plan.asKeyPair.getUncompressedPublicKey());
+        mac.update((byte) 0x01);
+        mac.doFinal(threadPlan.ikm, 0);
+
+        mac.init(new SecretKeySpec(threadPlan.salt, "HmacSHA256"));
+        mac.update(threadPlan.ikm);
+        mac.doFinal(threadPlan.prk, 0);
+
+        mac.init(new SecretKeySpec(threadPlan.prk, "HmacSHA256"));
+        mac.update("Content-Encoding: aes128gcm\0".getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) 0x01);
+        mac.doFinal(threadPlan.cek, 0);
+
+        mac.update("Content-Encoding: nonce\0".getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) 0x01);
+        mac.doFinal(threadPlan.nonce, 0);
+
+        return threadPlan.nonce;
+    }
+
+    @Benchmark
+    public ByteBuffer aesGcm(AesGcmPlan aesGcmPlan) throws GeneralSecurityException {
+
+        aesGcmPlan.nextNonce();
+        Cipher cipher = aesGcmPlan.cipher;
+        cipher.init(Cipher.ENCRYPT_MODE, aesGcmPlan.cek,
+            new GCMParameterSpec(128, aesGcmPlan.nonce));
+
+        ByteBuffer dst = aesGcmPlan.dst;
+        dst.clear();
+        cipher.update(aesGcmPlan.payload.duplicate(), dst);
+        cipher.doFinal(ByteBuffer.wrap(new byte[] {2}), dst);
+        return dst;
+    }
+
+    /*
+     * Decodes the base64url strings and validates the public key(p256dh).
+     */
+    @Benchmark
+    public UserAgentMessageEncryptionKeyInfo userAgentKeyInfo(Plan plan) {
+        return UserAgentMessageEncryptionKeyInfo.of(plan.p256dh, plan.auth);
+    }
+
+    /*
+     * Mainly parses the endpoint URL.
+     */
+    @Benchmark
+    public VAPIDJWTParam vapidJWTParam() {
+        return VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://fcm.googleapis.com/fcm/send/xxxx")
+            .expiresAfter(15, TimeUnit.MINUTES)
+            .subject("mailto:example@example.com")
+            .build();
+    }
+
+    @Benchmark
+    public String jwtSigning(Plan plan) {
+        return plan.jwtGenerator.generate(plan.jwtParam);
+    }
+}
@@ -0,0 +1,78 @@
+package com.zerodeplibs.webpush;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Contrasts a single shared {@link SecureRandom}(the default) with the striped source
+ * when many threads take 16-byte salts concurrently.
+ */
+public class RandomSourceBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(RandomSourceBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlanForRandomSource {
+
+        RandomSource shared;
+        RandomSource striped;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.shared = RandomSources.of(new SecureRandom());
+            this.striped = RandomSources.striped();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Salt {
+        byte[] bytes = new byte[16];
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Threads(64)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.AverageTime)
+    public byte[] sharedSecureRandom(PlanForRandomSource plan, Salt salt) {
+        plan.shared.nextBytes(salt.bytes);
+        return salt.bytes;
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Threads(64)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.AverageTime)
+    public byte[] striped(PlanForRandomSource plan, Salt salt) {
+        plan.striped.nextBytes(salt.bytes);
+        return salt.bytes;
+    }
+}
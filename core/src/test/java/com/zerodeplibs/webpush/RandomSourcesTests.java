@@ -0,0 +1,125 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class RandomSourcesTests {
+
+    @Test
+    public void shouldServeRequestsFromTheBufferOfEachStripe() {
+
+        List<SequentialSecureRandom> created = new ArrayList<>();
+        RandomSource randomSource = RandomSources.striped(() -> {
+            SequentialSecureRandom secureRandom = new SequentialSecureRandom();
+            created.add(secureRandom);
+            return secureRandom;
+        }, 8);
+
+        byte[] bytes = new byte[24];
+        randomSource.nextBytes(bytes, 2, 5);
+        randomSource.nextBytes(bytes, 7, 6);
+        randomSource.nextBytes(bytes, 13, 11);
+
+        byte[] expected = new byte[24];
+        for (int i = 2; i < 24; i++) {
+            expected[i] = (byte) (i - 2);
+        }
+        assertThat(bytes, equalTo(expected));
+        // Used by a single thread, one of the stripes serves all the requests.
+        assertThat(created.stream().filter(r -> r.refillCount.get() > 0).count(), equalTo(1L));
+        assertThat(created.stream().mapToInt(r -> r.refillCount.get()).sum(), equalTo(3));
+    }
+
+    @Test
+    public void shouldHandOutDifferentBytesAcrossThreads() throws Exception {
+
+        RandomSource randomSource = RandomSources.striped();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(() -> {
+                    List<String> salts = new ArrayList<>();
+                    for (int j = 0; j < 1000; j++) {
+                        byte[] salt = new byte[16];
+                        randomSource.nextBytes(salt);
+                        salts.add(Arrays.toString(salt));
+                    }
+                    return salts;
+                }));
+            }
+
+            Set<String> uniqueSalts = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                uniqueSalts.addAll(future.get());
+            }
+            assertThat(uniqueSalts.size(), equalTo(8000));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFillTheSpecifiedRangeWithTheGivenSecureRandom() {
+
+        RandomSource randomSource = RandomSources.of(new SequentialSecureRandom());
+
+        byte[] bytes = new byte[6];
+        randomSource.nextBytes(bytes, 1, 4);
+        assertThat(bytes, equalTo(new byte[] {0, 0, 1, 2, 3, 0}));
+        randomSource.nextBytes(bytes);
+        assertThat(bytes, equalTo(new byte[] {4, 5, 6, 7, 8, 9}));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenIllegalArgumentsArePassed() {
+
+        assertNullCheck(() -> RandomSources.of(null), "secureRandom");
+        assertNullCheck(() -> RandomSources.striped(null, 16), "secureRandomFactory");
+        assertThrows(IllegalArgumentException.class,
+            () -> RandomSources.striped(SecureRandom::new, 0));
+        assertThrows(IllegalStateException.class,
+            () -> RandomSources.striped(() -> null, 16));
+
+        for (RandomSource randomSource : List.of(
+            RandomSources.of(new SecureRandom()), RandomSources.striped())) {
+
+            assertNullCheck(() -> randomSource.nextBytes(null, 0, 0), "bytes");
+            assertThrows(IllegalArgumentException.class,
+                () -> randomSource.nextBytes(new byte[4], -1, 2));
+            assertThrows(IllegalArgumentException.class,
+                () -> randomSource.nextBytes(new byte[4], 3, 2));
+            assertThrows(IllegalArgumentException.class,
+                () -> randomSource.nextBytes(new byte[4], 0, -1));
+        }
+    }
+
+    // Returns 0, 1, 2, ... so that the order of the bytes handed out can be checked.
+    private static class SequentialSecureRandom extends SecureRandom {
+
+        private final AtomicInteger refillCount = new AtomicInteger();
+        private int next;
+
+        @Override
+        public synchronized void nextBytes(byte[] bytes) {
+            this.refillCount.incrementAndGet();
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) this.next++;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateAuthSecretString;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateP256dhString;
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.key.MalformedUncompressedBytesException;
+import java.security.interfaces.ECPublicKey;
+import java.util.Base64;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class UserAgentMessageEncryptionKeyInfoCacheTests {
+
+    @BeforeAll
+    public static void beforeAll() {
+        JCAProviderInitializer.initialize();
+    }
+
+    @Test
+    public void shouldReturnCachedKeyInfo() throws Exception {
+
+        String p256dh = generateP256dhString((ECPublicKey) generateKeyPair().getPublic());
+        String auth = generateAuthSecretString();
+
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(4);
+
+        UserAgentMessageEncryptionKeyInfo first = cache.get(p256dh, auth);
+        UserAgentMessageEncryptionKeyInfo second = cache.get(new String(p256dh), new String(auth));
+
+        assertThat(first, equalTo(UserAgentMessageEncryptionKeyInfo.of(p256dh, auth)));
+        assertThat(second, sameInstance(first));
+        assertThat(cache.size(), equalTo(1));
+        assertThat(cache.getMissCount(), equalTo(1L));
+        assertThat(cache.getHitCount(), equalTo(1L));
+
+        // The same p256dh with a different auth is a different entry.
+        UserAgentMessageEncryptionKeyInfo third = cache.get(p256dh, generateAuthSecretString());
+        assertThat(third.equals(first), equalTo(false));
+        assertThat(cache.size(), equalTo(2));
+
+        cache.clear();
+        assertThat(cache.size(), equalTo(0));
+        cache.get(p256dh, auth);
+        assertThat(cache.getMissCount(), equalTo(3L));
+    }
+
+    @Test
+    public void shouldEvictOldestEntriesWhenTheMaximumSizeIsExceeded() throws Exception {
+
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(2);
+
+        String[] p256dhs = new String[3];
+        String auth = generateAuthSecretString();
+        for (int i = 0; i < p256dhs.length; i++) {
+            p256dhs[i] = generateP256dhString((ECPublicKey) generateKeyPair().getPublic());
+            cache.get(p256dhs[i], auth);
+        }
+
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.getEvictionCount(), equalTo(1L));
+
+        cache.get(p256dhs[2], auth);
+        assertThat(cache.getHitCount(), equalTo(1L));
+        cache.get(p256dhs[0], auth);
+        assertThat(cache.getMissCount(), equalTo(4L));
+        assertThat(cache.size(), equalTo(2));
+    }
+
+    @Test
+    public void shouldNotCacheInvalidKeys() {
+
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(2);
+        String malformed = Base64.getUrlEncoder().withoutPadding().encodeToString(new byte[65]);
+
+        assertThrows(MalformedUncompressedBytesException.class,
+            () -> cache.get(malformed, generateAuthSecretString()));
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        assertThrows(IllegalArgumentException.class,
+            () -> UserAgentMessageEncryptionKeyInfoCache.of(0));
+
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(1);
+        assertNullCheck(() -> cache.get(null), "subscriptionKeys");
+        assertNullCheck(() -> cache.get(null, ""), "p256dh");
+        assertNullCheck(() -> cache.get("", null), "auth");
+    }
+}
@@ -8,6 +8,7 @@ import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 
+import com.zerodeplibs.webpush.key.PublicKeySources;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.KeyPair;
@@ -31,6 +32,27 @@ public class UserAgentMessageEncryptionKeyInfoTests {
         assertNullCheck(() -> UserAgentMessageEncryptionKeyInfo.of(new byte[] {0}, null), "auth");
     }
 
+    @Test
+    public void shouldExtractCopiesOfTheKeys()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+        byte[] p256dh = PublicKeySources.ofECPublicKey((ECPublicKey) generateKeyPair().getPublic())
+            .extractBytesInUncompressedForm();
+        byte[] auth = Base64.getUrlDecoder().decode(generateAuthSecretString());
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            p256dh, auth);
+
+        byte[] extractedUaPublic = keyInfo.extractUncompressedUaPublic();
+        byte[] extractedAuthSecret = keyInfo.extractAuthSecret();
+        assertThat(extractedUaPublic, equalTo(p256dh));
+        assertThat(extractedAuthSecret, equalTo(auth));
+
+        extractedUaPublic[1] ^= 1;
+        extractedAuthSecret[0] ^= 1;
+        assertThat(keyInfo.extractUncompressedUaPublic(), equalTo(p256dh));
+        assertThat(keyInfo.extractAuthSecret(), equalTo(auth));
+    }
+
     @Test
     public void twoObjectsShouldBeComparedWithEachOtherBasedOnTheirProperties()
         throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
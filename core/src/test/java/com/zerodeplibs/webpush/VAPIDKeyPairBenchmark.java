@@ -0,0 +1,96 @@
+package com.zerodeplibs.webpush;
+
+import static com.zerodeplibs.webpush.MessageEncryptionTestUtil.generateKeyPair;
+
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class VAPIDKeyPairBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(VAPIDKeyPairBenchmark.class.getSimpleName())
+            // Reports the allocations per header(gc.alloc.rate.norm).
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Plan {
+
+        VAPIDKeyPair vapidKeyPair;
+        VAPIDJWTParam param;
+        VAPIDJWTParam paramWithAdditionalClaims;
+
+        @Setup(Level.Trial)
+        public void setUp() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+            KeyPair keyPair = generateKeyPair();
+            this.vapidKeyPair = VAPIDKeyPairs.of(
+                PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+                PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            );
+            this.param = VAPIDJWTParam.getBuilder()
+                .resourceURLString("https://fcm.googleapis.com/fcm/send/xxxx")
+                .expiresAfter(15, TimeUnit.MINUTES)
+                .subject("mailto:example@example.com")
+                .build();
+            this.paramWithAdditionalClaims = VAPIDJWTParam.getBuilder()
+                .resourceURLString("https://fcm.googleapis.com/fcm/send/xxxx")
+                .expiresAfter(15, TimeUnit.MINUTES)
+                .subject("mailto:example@example.com")
+                .additionalClaim("string", "value")
+                .additionalClaim("long", 1234567890123L)
+                .additionalClaim("boolean", true)
+                .build();
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void authorizationHeader(Blackhole h, Plan plan) {
+        h.consume(plan.vapidKeyPair.generateAuthorizationHeaderValue(plan.param));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void authorizationHeaderWithAdditionalClaims(Blackhole h, Plan plan) {
+        h.consume(plan.vapidKeyPair.generateAuthorizationHeaderValue(
+            plan.paramWithAdditionalClaims));
+    }
+}
@@ -10,6 +10,8 @@ import static org.hamcrest.text.IsEqualIgnoringCase.equalToIgnoringCase;
 
 import com.zerodeplibs.webpush.PushSubscription;
 import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -20,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.ProtocolException;
 import org.junit.jupiter.api.Test;
 
@@ -173,4 +176,26 @@ public class ApacheHttpClientRequestPreparerTests {
         assertThat(request.getBody().getBodyBytes().length, equalTo(0));
     }
 
+    @Test
+    public void httpPostEntityShouldBeRepeatable()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, IOException {
+
+        PushSubscription pushSubscription = createPushSubscription("https://example.com/test");
+
+        HttpEntity entity = ApacheHttpClientRequestPreparer.getBuilder()
+            .pushSubscription(pushSubscription)
+            .pushMessage("Hello World")
+            .build(new PreparerTestUtil.TestingVAPIDKeyPair(null))
+            .toHttpPost()
+            .getEntity();
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        entity.writeTo(first);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        entity.writeTo(second);
+
+        assertThat(entity.isRepeatable(), is(true));
+        assertThat((long) first.size(), equalTo(entity.getContentLength()));
+        assertThat(second.toByteArray(), equalTo(first.toByteArray()));
+    }
 }
@@ -0,0 +1,162 @@
+package com.zerodeplibs.webpush.httpclient;
+
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static com.zerodeplibs.webpush.httpclient.PreparerTestUtil.createPushSubscription;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Request;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.junit.jupiter.api.Test;
+
+public class PushRequestTemplateTests {
+
+    @Test
+    public void shouldPrepareRequestsForEachSubscription() throws Exception {
+
+        Instant expirationTime = Instant.now().plusSeconds(60);
+        RecordingVAPIDKeyPair vapidKeyPair = new RecordingVAPIDKeyPair();
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(8);
+
+        PushRequestTemplate template = PushRequestTemplate.getBuilder()
+            .vapidJWTExpirationTime(expirationTime)
+            .vapidJWTSubject("mailto:example@example.com")
+            .vapidJWTAdditionalClaim("claimName", "claimValue")
+            .pushMessage("Hello World")
+            .ttl(1, TimeUnit.HOURS)
+            .urgencyHigh()
+            .topic("MyTopic")
+            .userAgentMessageEncryptionKeyInfoCache(cache)
+            .build(vapidKeyPair);
+
+        PushSubscription first = createPushSubscription("https://example.com/first");
+        PushSubscription second = createPushSubscription("https://example.net:8443/second");
+
+        PreparerBuilder.RequestPreparationInfo firstInfo = template.prepare(first);
+        PreparerBuilder.RequestPreparationInfo secondInfo = template.prepare(second);
+
+        assertThat(firstInfo.getEndpointUrl(), equalTo("https://example.com/first"));
+        assertThat(secondInfo.getEndpointUrl(), equalTo("https://example.net:8443/second"));
+        for (PreparerBuilder.RequestPreparationInfo info : List.of(firstInfo, secondInfo)) {
+            assertThat(info.getVapidHeader(), equalTo("vapid for test"));
+            assertThat(info.getTtlString(), equalTo("3600"));
+            assertThat(info.getUrgency(), equalTo("high"));
+            assertThat(info.getTopic(), equalTo(Optional.of("MyTopic")));
+            assertThat(info.getEncryptedPushMessage().get().length(), equalTo(114));
+        }
+
+        assertThat(vapidKeyPair.params.size(), equalTo(2));
+        assertThat(vapidKeyPair.params.get(0), equalTo(VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com/first")
+            .expirationTime(expirationTime)
+            .subject("mailto:example@example.com")
+            .additionalClaim("claimName", "claimValue")
+            .build()));
+        assertThat(vapidKeyPair.params.get(1).getOrigin(), equalTo("https://example.net:8443"));
+        assertThat(cache.size(), equalTo(2));
+
+        HttpRequest standard = StandardHttpClientRequestPreparer.of(firstInfo).toRequest();
+        assertThat(standard.headers().firstValue("Topic").get(), equalTo("MyTopic"));
+        Request okHttp = OkHttpClientRequestPreparer.of(firstInfo).toRequest();
+        assertThat(okHttp.header("TTL"), equalTo("3600"));
+        HttpPost apache = ApacheHttpClientRequestPreparer.of(firstInfo).toHttpPost();
+        assertThat(apache.getFirstHeader("Urgency").getValue(), equalTo("high"));
+        JettyHttpClientRequestPreparer.of(firstInfo);
+        VertxWebClientRequestPreparer.of(firstInfo);
+    }
+
+    @Test
+    public void shouldUseDefaultValues() throws Exception {
+
+        RecordingVAPIDKeyPair vapidKeyPair = new RecordingVAPIDKeyPair();
+        PushRequestTemplate template = PushRequestTemplate.getBuilder().build(vapidKeyPair);
+
+        Instant before = Instant.now();
+        PreparerBuilder.RequestPreparationInfo info =
+            template.prepare(createPushSubscription("https://example.com/test"));
+
+        assertThat(info.getTtlString(), equalTo(String.valueOf(24 * 60 * 60)));
+        assertThat(info.getUrgency(), equalTo("normal"));
+        assertThat(info.getTopic().isPresent(), equalTo(false));
+        assertThat(info.getEncryptedPushMessage().isPresent(), equalTo(false));
+
+        // The relative expiration time is calculated for each request
+        // and truncated to seconds.
+        Instant expirationTime = vapidKeyPair.params.get(0).getExpirationTime();
+        assertThat(expirationTime.getNano(), equalTo(0));
+        assertThat(expirationTime.getEpochSecond() >= before.getEpochSecond() + 180,
+            equalTo(true));
+        assertThat(vapidKeyPair.params.get(0).getSubject().isPresent(), equalTo(false));
+    }
+
+    @Test
+    public void shouldReuseVAPIDJWTParamsForTheSameOrigin() throws Exception {
+
+        RecordingVAPIDKeyPair vapidKeyPair = new RecordingVAPIDKeyPair();
+        PushRequestTemplate template = PushRequestTemplate.getBuilder()
+            .vapidJWTExpirationTime(Instant.now().plusSeconds(60))
+            .vapidJWTSubject("mailto:example@example.com")
+            .build(vapidKeyPair);
+
+        template.prepare(createPushSubscription("https://example.com/first"));
+        template.prepare(createPushSubscription("https://example.com/second"));
+        template.prepare(createPushSubscription("https://example.net/third"));
+
+        assertThat(vapidKeyPair.params.size(), equalTo(3));
+        assertThat(vapidKeyPair.params.get(0) == vapidKeyPair.params.get(1), equalTo(true));
+        assertThat(vapidKeyPair.params.get(2).getOrigin(), equalTo("https://example.net"));
+        assertThat(vapidKeyPair.params.get(0).getOrigin(), equalTo("https://example.com"));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        assertNullCheck(() -> PushRequestTemplate.getBuilder().build(null), "vapidKeyPair");
+        assertNullCheck(() -> PushRequestTemplate.getBuilder()
+            .build(new RecordingVAPIDKeyPair())
+            .prepare(null), "pushSubscription");
+        assertNullCheck(() -> StandardHttpClientRequestPreparer.of(null),
+            "requestPreparationInfo");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> PushRequestTemplate.getBuilder().vapidJWTAdditionalClaim("aud", "a"));
+        assertThrows(IllegalArgumentException.class,
+            () -> PushRequestTemplate.getBuilder().topic("Invalid Topic"));
+        assertThrows(IllegalStateException.class,
+            () -> PushRequestTemplate.getBuilder()
+                .vapidJWTExpiresAfter(1, TimeUnit.MINUTES)
+                .vapidJWTExpirationTime(Instant.now()));
+    }
+
+    private static class RecordingVAPIDKeyPair implements VAPIDKeyPair {
+
+        private final List<VAPIDJWTParam> params = new ArrayList<>();
+
+        @Override
+        public byte[] extractPublicKeyInUncompressedForm() {
+            throw new UnsupportedOperationException("Not supported on testing.");
+        }
+
+        @Override
+        public String extractPublicKeyInUncompressedFormAsString() {
+            throw new UnsupportedOperationException("Not supported on testing.");
+        }
+
+        @Override
+        public String generateAuthorizationHeaderValue(VAPIDJWTParam jwtParam) {
+            this.params.add(jwtParam);
+            return "vapid for test";
+        }
+    }
+}
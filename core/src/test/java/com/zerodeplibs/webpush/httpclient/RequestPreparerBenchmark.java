@@ -0,0 +1,185 @@
+package com.zerodeplibs.webpush.httpclient;
+
+import static com.zerodeplibs.webpush.httpclient.PreparerTestUtil.createPushSubscription;
+
+import com.zerodeplibs.webpush.MessageEncryptionTestUtil;
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.VAPIDKeyPairs;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.impl.WebClientBase;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Measures PreparerBuilder#build and the conversion to the request object
+ * for each of the HTTP client preparers.
+ * The VAPID credential and the key info of the subscription are cached.
+ * Without a message, the cost of the preparer itself is measured.
+ * With a message, the encryption(see PushPreparationStageBenchmark for its stages) is included.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 2)
+@Measurement(iterations = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestPreparerBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(RequestPreparerBenchmark.class.getSimpleName())
+            // Reports the allocations per request(gc.alloc.rate.norm).
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Plan {
+
+        @Param({"standard", "okhttp", "apache", "jetty", "vertx"})
+        String preparer;
+
+        @Param({"none", "encrypted"})
+        String message;
+
+        PushSubscription pushSubscription;
+        VAPIDKeyPair vapidKeyPair;
+        UserAgentMessageEncryptionKeyInfoCache keyInfoCache;
+        org.eclipse.jetty.client.HttpClient jettyClient;
+        Vertx vertx;
+        NonSendingWebClient webClient;
+
+        @Setup(Level.Trial)
+        public void setUp() throws GeneralSecurityException {
+
+            this.pushSubscription =
+                createPushSubscription("https://fcm.googleapis.com/fcm/send/xxxx");
+
+            KeyPair keyPair = MessageEncryptionTestUtil.generateKeyPair();
+            this.vapidKeyPair = VAPIDKeyPairs.getCachingBuilder(VAPIDKeyPairs.of(
+                PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+                PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            )).build();
+            this.keyInfoCache = UserAgentMessageEncryptionKeyInfoCache.of(16);
+
+            this.jettyClient = new org.eclipse.jetty.client.HttpClient();
+            this.vertx = Vertx.vertx();
+            this.webClient = new NonSendingWebClient(this.vertx.createHttpClient());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.vertx.close();
+        }
+
+        <T> PreparerBuilder<T> newBuilder(PreparerBuilder<T> builder) {
+            builder.pushSubscription(this.pushSubscription)
+                .userAgentMessageEncryptionKeyInfoCache(this.keyInfoCache)
+                .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+                .vapidJWTSubject("mailto:example@example.com")
+                .ttl(1, TimeUnit.HOURS)
+                .urgencyHigh();
+            if ("encrypted".equals(this.message)) {
+                builder.pushMessage("Hello World. This is a payload for testing.");
+            }
+            return builder;
+        }
+    }
+
+    @Benchmark
+    public Object buildAndConvert(Plan plan) {
+
+        switch (plan.preparer) {
+            case "standard":
+                return plan.newBuilder(StandardHttpClientRequestPreparer.getBuilder())
+                    .build(plan.vapidKeyPair)
+                    .toRequest();
+            case "okhttp":
+                return plan.newBuilder(OkHttpClientRequestPreparer.getBuilder())
+                    .build(plan.vapidKeyPair)
+                    .toRequest();
+            case "apache":
+                return plan.newBuilder(ApacheHttpClientRequestPreparer.getBuilder())
+                    .build(plan.vapidKeyPair)
+                    .toHttpPost();
+            case "jetty":
+                return plan.newBuilder(JettyHttpClientRequestPreparer.getBuilder())
+                    .build(plan.vapidKeyPair)
+                    .toRequest(plan.jettyClient);
+            case "vertx":
+                return plan.newBuilder(VertxWebClientRequestPreparer.getBuilder())
+                    .build(plan.vapidKeyPair)
+                    .sendBuffer(plan.webClient, request -> {
+                    });
+            default:
+                throw new IllegalArgumentException("Unknown preparer: " + plan.preparer);
+        }
+    }
+
+    /*
+     * Creates the real request objects but completes 'sendBuffer' without sending them.
+     */
+    private static class NonSendingWebClient extends WebClientBase {
+
+        NonSendingWebClient(HttpClient client) {
+            super(client, new WebClientOptions());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public HttpRequest<Buffer> postAbs(String absoluteURI) {
+
+            HttpRequest<Buffer> request = super.postAbs(absoluteURI);
+            Object[] proxy = new Object[1];
+            proxy[0] = Proxy.newProxyInstance(HttpRequest.class.getClassLoader(),
+                new Class<?>[] {HttpRequest.class}, (p, method, args) -> {
+                    if (method.getName().equals("sendBuffer") && args.length == 2) {
+                        ((Handler<Object>) args[1]).handle(Future.succeededFuture());
+                        return null;
+                    }
+                    try {
+                        Object result = method.invoke(request, args);
+                        return result == request ? proxy[0] : result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+            return (HttpRequest<Buffer>) proxy[0];
+        }
+    }
+}
@@ -8,13 +8,17 @@ import static org.hamcrest.number.OrderingComparison.greaterThan;
 import static org.hamcrest.text.IsEqualIgnoringCase.equalToIgnoringCase;
 
 import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
 import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 
@@ -92,4 +96,77 @@ public class StandardHttpClientRequestPreparerTests {
         assertThat(request.bodyPublisher().get().contentLength(), equalTo(0L));
     }
 
+    @Test
+    public void bodyPublisherShouldPublishTheEncryptedMessageForEachSubscriber()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+        PushSubscription pushSubscription = createPushSubscription("https://example.com/test");
+
+        HttpRequest request = StandardHttpClientRequestPreparer.getBuilder()
+            .pushSubscription(pushSubscription)
+            .pushMessage("Hello World")
+            .build(new PreparerTestUtil.TestingVAPIDKeyPair(null))
+            .toRequest();
+
+        HttpRequest.BodyPublisher bodyPublisher = request.bodyPublisher().get();
+        byte[] first = readBody(bodyPublisher);
+        byte[] second = readBody(bodyPublisher);
+
+        assertThat((long) first.length, equalTo(bodyPublisher.contentLength()));
+        assertThat(second, equalTo(first));
+    }
+
+    @Test
+    public void buildWithUserAgentMessageEncryptionKeyInfoCache()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+        PushSubscription pushSubscription = createPushSubscription("https://example.com/test");
+        UserAgentMessageEncryptionKeyInfoCache cache = UserAgentMessageEncryptionKeyInfoCache.of(8);
+
+        for (int i = 0; i < 3; i++) {
+            HttpRequest request = StandardHttpClientRequestPreparer.getBuilder()
+                .pushSubscription(pushSubscription)
+                .userAgentMessageEncryptionKeyInfoCache(cache)
+                .pushMessage("Hello World")
+                .build(new PreparerTestUtil.TestingVAPIDKeyPair(null))
+                .toRequest();
+            assertThat(request.bodyPublisher().get().contentLength(), greaterThan(0L));
+        }
+
+        assertThat(cache.size(), equalTo(1));
+        assertThat(cache.getMissCount(), equalTo(1L));
+        assertThat(cache.getHitCount(), equalTo(2L));
+    }
+
+    private static byte[] readBody(HttpRequest.BodyPublisher bodyPublisher) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean[] completed = new boolean[1];
+
+        bodyPublisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                body.write(bytes, 0, bytes.length);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                throw new AssertionError(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed[0] = true;
+            }
+        });
+
+        assertThat(completed[0], is(true));
+        return body.toByteArray();
+    }
 }
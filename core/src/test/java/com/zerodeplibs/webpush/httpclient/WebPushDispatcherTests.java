@@ -0,0 +1,138 @@
+package com.zerodeplibs.webpush.httpclient;
+
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static com.zerodeplibs.webpush.httpclient.PreparerTestUtil.createPushSubscription;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.key.MalformedUncompressedBytesException;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class WebPushDispatcherTests {
+
+    private Vertx vertx;
+    private HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        this.vertx = Vertx.vertx();
+        this.server = this.vertx.createHttpServer()
+            .requestHandler(request -> request.body(body -> {
+                int current = this.inFlight.incrementAndGet();
+                this.maxInFlight.accumulateAndGet(current, Math::max);
+
+                int status = request.path().endsWith("/gone") ? 410 : 201;
+                int length = body.result().length();
+                // Holds the response for a while to keep the requests in flight.
+                this.vertx.setTimer(20, id -> {
+                    this.inFlight.decrementAndGet();
+                    request.response()
+                        .setStatusCode(status)
+                        .end(request.getHeader("Content-Encoding") + ":" + length);
+                });
+            }))
+            .listen(0)
+            .toCompletionStage()
+            .toCompletableFuture()
+            .get(10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        this.vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldSendMessageToAllSubscriptionsWithBoundedConcurrency() throws Exception {
+
+        String baseUrl = "http://localhost:" + this.server.actualPort() + "/push/";
+        List<PushSubscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            subscriptions.add(createPushSubscription(baseUrl + i));
+        }
+        subscriptions.add(createPushSubscription(baseUrl + "gone"));
+        PushSubscription invalid = createPushSubscription(baseUrl + "invalid");
+        invalid.getKeys().setP256dh("AAAA");
+        subscriptions.add(invalid);
+
+        WebPushDispatcher dispatcher = WebPushDispatcher.getBuilder()
+            .httpClient(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+            .vapidKeyPair(new PreparerTestUtil.TestingVAPIDKeyPair(null))
+            .maxInFlightRequests(4)
+            .build();
+
+        Map<String, WebPushDispatcher.Outcome> outcomes = new ConcurrentHashMap<>();
+        dispatcher.dispatch(
+            subscriptions.stream(),
+            builder -> builder.pushMessage("Hello World").ttl(1, TimeUnit.HOURS),
+            outcome -> outcomes.put(outcome.getPushSubscription().getEndpoint(), outcome)
+        );
+
+        assertThat(outcomes.size(), equalTo(22));
+        assertThat(this.maxInFlight.get(), lessThanOrEqualTo(4));
+        assertThat(this.maxInFlight.get(), greaterThan(1));
+
+        List<WebPushDispatcher.Outcome> succeeded = outcomes.values().stream()
+            .filter(WebPushDispatcher.Outcome::isSuccess)
+            .collect(Collectors.toList());
+        assertThat(succeeded.size(), equalTo(20));
+        succeeded.forEach(outcome ->
+            assertThat(outcome.getResponse().get().body(), equalTo("aes128gcm:114")));
+
+        WebPushDispatcher.Outcome gone = outcomes.get(baseUrl + "gone");
+        assertThat(gone.isSuccess(), equalTo(false));
+        assertThat(gone.getResponse().get().statusCode(), equalTo(410));
+
+        WebPushDispatcher.Outcome failed = outcomes.get(baseUrl + "invalid");
+        assertThat(failed.isSuccess(), equalTo(false));
+        assertThat(failed.getResponse().isPresent(), equalTo(false));
+        assertThat(failed.getFailure().get() instanceof MalformedUncompressedBytesException,
+            equalTo(true));
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        assertNullCheck(() -> WebPushDispatcher.getBuilder().httpClient(null), "httpClient");
+        assertNullCheck(() -> WebPushDispatcher.getBuilder().vapidKeyPair(null), "vapidKeyPair");
+        assertNullCheck(() -> WebPushDispatcher.getBuilder().preparationExecutor(null),
+            "preparationExecutor");
+        assertThrows(IllegalArgumentException.class,
+            () -> WebPushDispatcher.getBuilder().maxInFlightRequests(0));
+        assertThrows(IllegalStateException.class,
+            () -> WebPushDispatcher.getBuilder().build());
+
+        WebPushDispatcher dispatcher = WebPushDispatcher.getBuilder()
+            .httpClient(HttpClient.newHttpClient())
+            .vapidKeyPair(new PreparerTestUtil.TestingVAPIDKeyPair(null))
+            .build();
+        List<PushSubscription> subscriptions = new ArrayList<>();
+
+        assertNullCheck(() -> dispatcher.dispatch((Iterable<PushSubscription>) null,
+            builder -> {
+            }, outcome -> {
+            }), "pushSubscriptions");
+        assertNullCheck(() -> dispatcher.dispatch(subscriptions, null, outcome -> {
+        }), "template");
+        assertNullCheck(() -> dispatcher.dispatch(subscriptions, builder -> {
+        }, null), "callback");
+    }
+}
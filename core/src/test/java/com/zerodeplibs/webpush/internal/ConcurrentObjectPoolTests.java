@@ -0,0 +1,98 @@
+package com.zerodeplibs.webpush.internal;
+
+import static com.zerodeplibs.webpush.TestAssertionUtil.assertNullCheck;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentObjectPoolTests {
+
+    @Test
+    public void shouldReuseReleasedObjects() {
+
+        AtomicInteger created = new AtomicInteger();
+        ConcurrentObjectPool<Object> pool =
+            new ConcurrentObjectPool<>(4, () -> {
+                created.incrementAndGet();
+                return new Object();
+            });
+
+        Object first = pool.borrow();
+        Object second = pool.borrow();
+        assertThat(second, not(sameInstance(first)));
+        assertThat(created.get(), equalTo(2));
+
+        pool.release(first);
+        assertThat(pool.borrow(), sameInstance(first));
+        assertThat(created.get(), equalTo(2));
+    }
+
+    @Test
+    public void shouldDiscardObjectsWhenThePoolIsFull() {
+
+        AtomicInteger created = new AtomicInteger();
+        ConcurrentObjectPool<Object> pool =
+            new ConcurrentObjectPool<>(1, () -> {
+                created.incrementAndGet();
+                return new Object();
+            });
+
+        Object first = pool.borrow();
+        Object second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.borrow(), sameInstance(first));
+        assertThat(pool.borrow(), not(sameInstance(second)));
+        assertThat(created.get(), equalTo(3));
+    }
+
+    @Test
+    public void shouldNotLendTheSameObjectToMultipleThreadsAtTheSameTime() throws Exception {
+
+        ConcurrentObjectPool<AtomicBoolean> pool = new ConcurrentObjectPool<>(AtomicBoolean::new);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executorService.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        AtomicBoolean inUse = pool.borrow();
+                        if (!inUse.compareAndSet(false, true)) {
+                            return false;
+                        }
+                        inUse.set(false);
+                        pool.release(inUse);
+                    }
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(), equalTo(true));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenInvalidParametersArePassed() {
+
+        assertNullCheck(() -> new ConcurrentObjectPool<>(1, null), "factory");
+        assertThrows(IllegalArgumentException.class,
+            () -> new ConcurrentObjectPool<>(0, Object::new));
+    }
+}
@@ -0,0 +1,148 @@
+package com.zerodeplibs.webpush.internal;
+
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class P256Benchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(P256Benchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Thread)
+    public static class Plan {
+
+        KeyPairGenerator keyPairGenerator;
+        byte[] scalar;
+        byte[] uncompressedPoint;
+        byte[] sharedSecret = new byte[P256.SCALAR_LENGTH];
+
+        @Setup(Level.Trial)
+        public void setUp() throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+
+            this.keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            this.keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+
+            KeyPair keyPair = this.keyPairGenerator.generateKeyPair();
+            byte[] s = ((ECPrivateKey) keyPair.getPrivate()).getS().toByteArray();
+            this.scalar = new byte[P256.SCALAR_LENGTH];
+            int length = Math.min(s.length, P256.SCALAR_LENGTH);
+            System.arraycopy(s, s.length - length, this.scalar, P256.SCALAR_LENGTH - length,
+                length);
+            this.uncompressedPoint = PublicKeySources
+                .ofECPublicKey((ECPublicKey) this.keyPairGenerator.generateKeyPair().getPublic())
+                .extractBytesInUncompressedForm();
+        }
+    }
+
+    /**
+     * Compares the cost per recipient with the number of recipients sharing an inversion.
+     * Divide the score by the batch size.
+     */
+    @State(Scope.Thread)
+    public static class PlanForBatch {
+
+        @Param({"1", "16", "256", "4096"})
+        int batchSize;
+
+        byte[][] scalars;
+        byte[][] uncompressedPoints;
+        byte[] sharedSecrets;
+
+        @Setup(Level.Trial)
+        public void setUp(Plan plan) {
+            this.scalars = new byte[this.batchSize][];
+            this.uncompressedPoints = new byte[this.batchSize][];
+            for (int i = 0; i < this.batchSize; i++) {
+                this.scalars[i] = plan.scalar;
+                this.uncompressedPoints[i] = plan.uncompressedPoint;
+            }
+            this.sharedSecrets = new byte[this.batchSize * P256.SCALAR_LENGTH];
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void generateKeyPairWithJCA(Blackhole h, Plan plan) {
+        KeyPair keyPair = plan.keyPairGenerator.generateKeyPair();
+        h.consume(PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            .extractBytesInUncompressedForm());
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void publicKeyWithBaseTable(Blackhole h, Plan plan) {
+        h.consume(P256.publicKey(plan.scalar));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void ecdh(Blackhole h, Plan plan) {
+        P256.ecdh(plan.scalar, plan.uncompressedPoint, plan.sharedSecret, 0);
+        h.consume(plan.sharedSecret);
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void publicKeysInBatch(Blackhole h, PlanForBatch plan) {
+        h.consume(P256.publicKeys(plan.scalars));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.AverageTime)
+    public void ecdhInBatch(Blackhole h, PlanForBatch plan) {
+        P256.ecdh(plan.scalars, plan.uncompressedPoints, plan.sharedSecrets);
+        h.consume(plan.sharedSecrets);
+    }
+}
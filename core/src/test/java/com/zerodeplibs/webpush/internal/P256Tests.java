@@ -0,0 +1,246 @@
+package com.zerodeplibs.webpush.internal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.KeyAgreement;
+import org.junit.jupiter.api.Test;
+
+public class P256Tests {
+
+    private static final BigInteger N = new BigInteger(
+        "ffffffff00000000ffffffffffffffffbce6faada7179e84f3b9cac2fc632551", 16);
+
+    @Test
+    public void shouldCalculateTheSameSecretAsKeyAgreement() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+
+        for (int i = 0; i < 50; i++) {
+            KeyPair as = keyPairGenerator.generateKeyPair();
+            KeyPair ua = keyPairGenerator.generateKeyPair();
+
+            keyAgreement.init(as.getPrivate());
+            keyAgreement.doPhase(ua.getPublic(), true);
+            byte[] expected = keyAgreement.generateSecret();
+
+            byte[] actual = new byte[P256.SCALAR_LENGTH + 2];
+            P256.ecdh(toScalar((ECPrivateKey) as.getPrivate()), toUncompressed(ua), actual, 1);
+
+            assertThat(Arrays.copyOfRange(actual, 1, 1 + P256.SCALAR_LENGTH),
+                equalTo(expected));
+            assertThat(P256.publicKey(toScalar((ECPrivateKey) as.getPrivate())),
+                equalTo(toUncompressed(as)));
+        }
+    }
+
+    @Test
+    public void shouldHandleEdgeScalars() {
+
+        byte[] g = P256.publicKey(toScalar(BigInteger.ONE));
+        assertThat(new BigInteger(1, Arrays.copyOfRange(g, 1, 33)), equalTo(new BigInteger(
+            "6b17d1f2e12c4247f8bce6e563a440f277037d812deb33a0f4a13945d898c296", 16)));
+
+        // (n - 1)G = -G has the same x-coordinate as G.
+        byte[] secret = new byte[P256.SCALAR_LENGTH];
+        P256.ecdh(toScalar(N.subtract(BigInteger.ONE)), g, secret, 0);
+        assertThat(secret, equalTo(Arrays.copyOfRange(g, 1, 33)));
+
+        // 3 * (2G) = 2 * (3G)
+        byte[] fromTwoG = new byte[P256.SCALAR_LENGTH];
+        P256.ecdh(toScalar(BigInteger.valueOf(3)), P256.publicKey(toScalar(BigInteger.TWO)),
+            fromTwoG, 0);
+        byte[] fromThreeG = new byte[P256.SCALAR_LENGTH];
+        P256.ecdh(toScalar(BigInteger.TWO), P256.publicKey(toScalar(BigInteger.valueOf(3))),
+            fromThreeG, 0);
+        assertThat(fromTwoG, equalTo(fromThreeG));
+    }
+
+    @Test
+    public void shouldCalculatePublicKeysWithTheBaseTable() throws Exception {
+
+        byte[] g = P256.publicKey(toScalar(BigInteger.ONE));
+        SecureRandom secureRandom = new SecureRandom();
+        List<BigInteger> scalars = new ArrayList<>(List.of(
+            BigInteger.TWO,
+            BigInteger.valueOf(15),
+            BigInteger.valueOf(16),
+            BigInteger.ONE.shiftLeft(252),
+            N.subtract(BigInteger.TWO)
+        ));
+        for (int i = 0; i < 20; i++) {
+            scalars.add(new BigInteger(256, secureRandom).mod(N.subtract(BigInteger.ONE))
+                .add(BigInteger.ONE));
+        }
+
+        for (BigInteger scalar : scalars) {
+            // Compares the fixed-base multiplication with the variable-base one.
+            byte[] expected = new byte[P256.SCALAR_LENGTH];
+            P256.ecdh(toScalar(scalar), g, expected, 0);
+            byte[] publicKey = P256.publicKey(toScalar(scalar));
+            assertThat(Arrays.copyOfRange(publicKey, 1, 33), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void shouldCalculateTheSameResultsInBatches() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        int count = 17;
+        byte[][] scalars = new byte[count][];
+        byte[][] points = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            scalars[i] = toScalar((ECPrivateKey) keyPairGenerator.generateKeyPair().getPrivate());
+            points[i] = toUncompressed(keyPairGenerator.generateKeyPair());
+        }
+
+        byte[] sharedSecrets = new byte[count * P256.SCALAR_LENGTH];
+        P256.ecdh(scalars, points, sharedSecrets);
+        byte[][] publicKeys = P256.publicKeys(scalars);
+
+        for (int i = 0; i < count; i++) {
+            byte[] expected = new byte[P256.SCALAR_LENGTH];
+            P256.ecdh(scalars[i], points[i], expected, 0);
+            assertThat(Arrays.copyOfRange(sharedSecrets,
+                i * P256.SCALAR_LENGTH, (i + 1) * P256.SCALAR_LENGTH), equalTo(expected));
+            assertThat(publicKeys[i], equalTo(P256.publicKey(scalars[i])));
+        }
+
+        P256.ecdh(new byte[0][], new byte[0][], new byte[0]);
+        assertThat(P256.publicKeys(new byte[0][]).length, equalTo(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> P256.ecdh(scalars, points, new byte[P256.SCALAR_LENGTH]));
+        byte[][] invalidPoints = points.clone();
+        invalidPoints[count - 1] = points[0].clone();
+        invalidPoints[count - 1][64] ^= 1;
+        assertThrows(IllegalArgumentException.class,
+            () -> P256.ecdh(scalars, invalidPoints, sharedSecrets));
+    }
+
+    @Test
+    public void shouldCreateSignaturesVerifiableByTheJCA() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        SecureRandom secureRandom = new SecureRandom();
+
+        for (int i = 0; i < 20; i++) {
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            byte[] message = new byte[i * 7];
+            secureRandom.nextBytes(message);
+            byte[] nonce = toScalar(
+                new BigInteger(256, secureRandom).mod(N.subtract(BigInteger.ONE))
+                    .add(BigInteger.ONE));
+
+            byte[] signature = new byte[P256.SCALAR_LENGTH * 2 + 1];
+            assertThat(P256.sign(toScalar((ECPrivateKey) keyPair.getPrivate()), nonce,
+                sha256.digest(message), signature, 1), equalTo(true));
+
+            verifier.initVerify(keyPair.getPublic());
+            verifier.update(message);
+            assertThat(verifier.verify(Arrays.copyOfRange(signature, 1, signature.length)),
+                equalTo(true));
+        }
+
+        byte[] reduced = new byte[P256.SCALAR_LENGTH];
+        P256.reduce(toScalar(N.add(BigInteger.TWO)), reduced);
+        assertThat(reduced, equalTo(toScalar(BigInteger.TWO)));
+        P256.reduce(toScalar(N.subtract(BigInteger.ONE)), reduced);
+        assertThat(reduced, equalTo(toScalar(N.subtract(BigInteger.ONE))));
+    }
+
+    @Test
+    public void shouldConvertIntegersIntoFixedLengthScalars() {
+
+        // Representations shorter than, equal to and longer than(a leading zero) 32 bytes.
+        for (BigInteger value : Arrays.asList(
+            BigInteger.ZERO,
+            BigInteger.ONE,
+            BigInteger.ONE.shiftLeft(247),
+            BigInteger.ONE.shiftLeft(254),
+            BigInteger.ONE.shiftLeft(255),
+            N.subtract(BigInteger.ONE))) {
+
+            byte[] scalar = P256.toScalar(value);
+            assertThat(scalar.length, equalTo(P256.SCALAR_LENGTH));
+            assertThat(new BigInteger(1, scalar), equalTo(value));
+        }
+
+        // The higher bytes are discarded.
+        assertThat(P256.toScalar(BigInteger.ONE.shiftLeft(256).add(BigInteger.TWO)),
+            equalTo(toScalar(BigInteger.TWO)));
+    }
+
+    @Test
+    public void shouldRejectInvalidInputs() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        byte[] scalar = toScalar((ECPrivateKey) keyPair.getPrivate());
+        byte[] point = toUncompressed(keyPair);
+        byte[] out = new byte[P256.SCALAR_LENGTH];
+
+        byte[] notOnCurve = point.clone();
+        notOnCurve[64] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> P256.ecdh(scalar, notOnCurve, out, 0));
+
+        byte[] compressed = point.clone();
+        compressed[0] = 0x02;
+        assertThrows(IllegalArgumentException.class, () -> P256.ecdh(scalar, compressed, out, 0));
+
+        byte[] tooLarge = point.clone();
+        Arrays.fill(tooLarge, 1, 33, (byte) 0xFF);
+        assertThrows(IllegalArgumentException.class, () -> P256.ecdh(scalar, tooLarge, out, 0));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> P256.ecdh(scalar, Arrays.copyOf(point, 64), out, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> P256.ecdh(new byte[P256.SCALAR_LENGTH], point, out, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> P256.ecdh(toScalar(N), point, out, 0));
+
+        assertThat(P256.isValidScalar(toScalar(N.subtract(BigInteger.ONE))), equalTo(true));
+        assertThat(P256.isValidScalar(toScalar(N)), equalTo(false));
+        assertThat(P256.isValidScalar(new byte[P256.SCALAR_LENGTH]), equalTo(false));
+        assertThat(P256.isValidScalar(new byte[31]), equalTo(false));
+    }
+
+    private static byte[] toUncompressed(KeyPair keyPair) {
+        return PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            .extractBytesInUncompressedForm();
+    }
+
+    private static byte[] toScalar(ECPrivateKey privateKey) {
+        return toScalar(privateKey.getS());
+    }
+
+    private static byte[] toScalar(BigInteger s) {
+        byte[] bytes = s.toByteArray();
+        byte[] scalar = new byte[P256.SCALAR_LENGTH];
+        int length = Math.min(bytes.length, P256.SCALAR_LENGTH);
+        System.arraycopy(bytes, bytes.length - length, scalar, P256.SCALAR_LENGTH - length,
+            length);
+        return scalar;
+    }
+}
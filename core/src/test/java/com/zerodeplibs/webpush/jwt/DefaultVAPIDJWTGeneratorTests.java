@@ -79,6 +79,36 @@ public class DefaultVAPIDJWTGeneratorTests {
         assertThat(actualException.getMessage(), equalTo(expectedMessage));
     }
 
+    @Test
+    public void generateAuthorizationHeaderValue()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, JoseException {
+
+        KeyPair keyPair = generateKeyPair();
+        DefaultVAPIDJWTGenerator generator =
+            new DefaultVAPIDJWTGenerator((ECPrivateKey) keyPair.getPrivate());
+
+        // Repeats in order to check that the reused buffers don't leak the previous contents.
+        for (String claim : new String[] {"a much longer claim than the others ".repeat(20),
+            "short", "non-ASCII \u3042\u3044\u3046", "short"}) {
+
+            VAPIDJWTParam param = createTestParamWith("claim", claim);
+            String headerValue = generator.generateAuthorizationHeaderValue(param, "BAxyz");
+
+            assertThat(headerValue.startsWith("vapid t="), equalTo(true));
+            assertThat(headerValue.endsWith(", k=BAxyz"), equalTo(true));
+            String jwt = headerValue.substring("vapid t=".length(),
+                headerValue.length() - ", k=BAxyz".length());
+
+            String payload = new String(splitAndDecode(1, jwt), StandardCharsets.UTF_8);
+            assertThat(payload, equalTo(String.format(
+                "{\"aud\":\"https://example.com\",\"exp\":%d,"
+                    + "\"sub\":\"mailto:test@example.com\",\"claim\":\"%s\"}",
+                param.getExpiresAtInSeconds(), claim)));
+            verifySign(jwt, keyPair.getPublic());
+            verifySign(generator.generate(param), keyPair.getPublic());
+        }
+    }
+
     private VAPIDJWTParam createTestParamWith(String name, Object claim) {
         return VAPIDJWTParam.getBuilder()
             .resourceURLString("https://example.com")
@@ -0,0 +1,120 @@
+package com.zerodeplibs.webpush.jwt;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.VAPIDKeyPairs;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.jose4j.jwa.AlgorithmConstraints;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.junit.jupiter.api.Test;
+
+public class DeterministicVAPIDJWTGeneratorFactoryTests {
+
+    @Test
+    public void shouldSignWithTheNoncesSpecifiedInRFC6979() throws Exception {
+
+        // RFC 6979 A.2.5. ECDSA, 256 Bits (Prime Field) with SHA-256
+        byte[] privateKey = toBytes(
+            "C9AFA9D845BA75166B5C215767B1D6934E50C3DB36E89B127B8A622B120F6721");
+        DeterministicECDSASigner signer = new DeterministicECDSASigner(privateKey);
+
+        byte[] sample = "sample".getBytes(StandardCharsets.US_ASCII);
+        assertThat(signer.sign(sample, 0, sample.length), equalTo(toBytes(
+            "EFD48B2AACB6A8FD1140DD9CD45E81D69D2C877B56AAF991C34D0EA84EAF3716"
+                + "F7CB1C942D657C41D436C7A1B6E29F65F3E900DBB9AFF4064DC4AB2F843ACDA8")));
+
+        byte[] test = "xxtestxx".getBytes(StandardCharsets.US_ASCII);
+        assertThat(signer.sign(test, 2, 4), equalTo(toBytes(
+            "F1ABB023518351CD71D881567B1EA663ED3EFCF6C5132B354F28D3B0B7D38367"
+                + "019F4113742A2B14BD25926B49C649155F267E60D3814B4C0CC84250E46F0083")));
+    }
+
+    @Test
+    public void shouldGenerateJWTsVerifiableByOtherImplementations() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+
+        for (int i = 0; i < 20; i++) {
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            VAPIDKeyPair vapidKeyPair = VAPIDKeyPairs.of(
+                PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+                PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic()),
+                new DeterministicVAPIDJWTGeneratorFactory()::create
+            );
+            VAPIDJWTParam param = VAPIDJWTParam.getBuilder()
+                .resourceURLString("https://example.com")
+                .expiresAfter(60, TimeUnit.SECONDS)
+                .subject("mailto:test@example.com")
+                .additionalClaim("index", i)
+                .build();
+
+            String headerValue = vapidKeyPair.generateAuthorizationHeaderValue(param);
+            String jwt = headerValue.substring("vapid t=".length(), headerValue.indexOf(','));
+
+            verifyWithJose4j(jwt, keyPair.getPublic());
+            verifyWithJCA(jwt, keyPair.getPublic());
+            // The nonces are deterministic.
+            assertThat(vapidKeyPair.generateAuthorizationHeaderValue(param),
+                equalTo(headerValue));
+        }
+    }
+
+    @Test
+    public void shouldRejectKeysThatAreNotAKeyPair() throws Exception {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        KeyPair anotherKeyPair = keyPairGenerator.generateKeyPair();
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> new DeterministicVAPIDJWTGeneratorFactory().create(
+                (ECPrivateKey) keyPair.getPrivate(),
+                (ECPublicKey) anotherKeyPair.getPublic()));
+        assertThat(exception.getMessage(),
+            equalTo("The private key and the public key must be a key pair on the P-256 curve."));
+    }
+
+    private void verifyWithJose4j(String jwt, PublicKey publicKey) throws Exception {
+        JsonWebSignature verifier = new JsonWebSignature();
+        verifier.setAlgorithmConstraints(new AlgorithmConstraints(
+            AlgorithmConstraints.ConstraintType.WHITELIST,
+            AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256));
+        verifier.setCompactSerialization(jwt);
+        verifier.setKey(publicKey);
+        assertThat(verifier.verifySignature(), equalTo(true));
+    }
+
+    private void verifyWithJCA(String jwt, PublicKey publicKey) throws Exception {
+        String[] parts = jwt.split("\\.");
+        Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+        verifier.initVerify(publicKey);
+        verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+        assertThat(verifier.verify(Base64.getUrlDecoder().decode(parts[2])), equalTo(true));
+    }
+
+    private static byte[] toBytes(String hex) {
+        byte[] bytes = new BigInteger(hex, 16).toByteArray();
+        byte[] ret = new byte[hex.length() / 2];
+        int length = Math.min(bytes.length, ret.length);
+        System.arraycopy(bytes, bytes.length - length, ret, ret.length - length, length);
+        return ret;
+    }
+}
@@ -0,0 +1,106 @@
+package com.zerodeplibs.webpush.jwt;
+
+import com.zerodeplibs.webpush.internal.P256;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class ECDSASignerBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(ECDSASignerBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Thread)
+    public static class Plan {
+
+        ECPrivateKey privateKey;
+        byte[] signingInput;
+        ECDSASigner jcaSigner;
+        ECDSASigner deterministicSigner;
+
+        @Setup(Level.Trial)
+        public void setUp() throws GeneralSecurityException {
+
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair keyPair = keyPairGenerator.generateKeyPair();
+            this.privateKey = (ECPrivateKey) keyPair.getPrivate();
+
+            // About the size of "<header>.<payload>" of a typical VAPID JWT.
+            this.signingInput = ("eyJ0eXAiOiJKV1QiLCJhbGciOiJFUzI1NiJ9."
+                + "eyJhdWQiOiJodHRwczovL2ZjbS5nb29nbGVhcGlzLmNvbSIsImV4cCI6MTcwMDAwMDAwMCwic3Vi"
+                + "IjoibWFpbHRvOmV4YW1wbGVAZXhhbXBsZS5jb20ifQ").getBytes(StandardCharsets.US_ASCII);
+
+            this.jcaSigner = new JcaECDSASigner(this.privateKey);
+            this.deterministicSigner =
+                new DeterministicECDSASigner(P256.toScalar(this.privateKey.getS()));
+        }
+    }
+
+    /*
+     * What the generator did before the signers were introduced:
+     * obtains a Signature per call and converts the DER signature.
+     */
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    public void signatureObtainedPerCall(Blackhole h, Plan plan)
+        throws GeneralSecurityException {
+
+        Signature signature = Signature.getInstance("SHA256withECDSA");
+        signature.initSign(plan.privateKey);
+        signature.update(plan.signingInput);
+        h.consume(JwtUtil.toJws(signature.sign()));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    public void jcaSigner(Blackhole h, Plan plan) throws GeneralSecurityException {
+        h.consume(plan.jcaSigner.sign(plan.signingInput, 0, plan.signingInput.length));
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Measurement(iterations = 2)
+    @BenchmarkMode(Mode.Throughput)
+    public void deterministicSigner(Blackhole h, Plan plan) throws GeneralSecurityException {
+        h.consume(plan.deterministicSigner.sign(plan.signingInput, 0,
+            plan.signingInput.length));
+    }
+}
@@ -56,6 +56,25 @@ public class JwtUtilTests {
             equalTo(extractBytes(sigVsLength31, sigVsLength31.length - 31, 31)));
     }
 
+    @Test
+    public void encodeBase64UrlShouldEncodeLikeTheStandardEncoder() {
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] src = new byte[70];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = (byte) (i * 37 + 200);
+        }
+
+        for (int length = 0; length <= 66; length++) {
+            byte[] dst = new byte[JwtUtil.base64UrlLength(length) + 3];
+            int end = JwtUtil.encodeBase64Url(src, 2, length, dst, 1);
+
+            byte[] expected = encoder.encode(extractBytes(src, 2, length));
+            assertThat(end, equalTo(1 + expected.length));
+            assertThat(extractBytes(dst, 1, expected.length), equalTo(expected));
+        }
+    }
+
     private byte[] extractBytes(byte[] data, int start, int length) {
         return Arrays.copyOfRange(data, start, start + length);
     }
@@ -0,0 +1,184 @@
+package com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import com.zerodeplibs.webpush.MessageEncryption;
+import com.zerodeplibs.webpush.MessageEncryptionException;
+import com.zerodeplibs.webpush.PushMessage;
+import com.zerodeplibs.webpush.RandomSource;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.agreement.ECDHBasicAgreement;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.GCMModeCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.ECDomainParameters;
+import org.bouncycastle.crypto.params.ECPrivateKeyParameters;
+import org.bouncycastle.crypto.params.ECPublicKeyParameters;
+import org.bouncycastle.crypto.params.HKDFParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.util.BigIntegers;
+
+/**
+ * An implementation class of {@link MessageEncryption}
+ * utilizing the lightweight API of <a href="https://www.bouncycastle.org/">Bouncy Castle</a>.
+ * This class uses the <a href="https://datatracker.ietf.org/doc/html/rfc8188">aes128Gcm</a> algorithm for encryption.
+ *
+ * <p>
+ * The lightweight API works directly on the byte arrays and the big integers,
+ * so neither the lookups of the JCA providers
+ * nor the conversions into the JCA key objects are involved.
+ * The objects of the lightweight API are cheap to create,
+ * so they are created for each invocation instead of being pooled.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see BouncyCastleMessageEncryptionFactory
+ */
+class BouncyCastleAes128GcmMessageEncryption implements MessageEncryption {
+
+    // The header consists of salt(16) || rs(4) || idlen(1) || keyid(65).
+    private static final int SALT_LENGTH = 16;
+    private static final int AS_PUBLIC_KEY_LENGTH = 65;
+    private static final int HEADER_LENGTH = SALT_LENGTH + 4 + 1 + AS_PUBLIC_KEY_LENGTH;
+    private static final int TAG_LENGTH = 16;
+    private static final int SCALAR_LENGTH = 32;
+    private static final int IKM_LENGTH = 32;
+    private static final int CEK_LENGTH = 16;
+    private static final int NONCE_LENGTH = 12;
+    // A single record ends with the padding delimiter(0x02).
+    private static final byte[] PADDING_DELIMITER = {2};
+
+    private static final ECDomainParameters DOMAIN;
+
+    static {
+        X9ECParameters curve = CustomNamedCurves.getByName("secp256r1");
+        DOMAIN = new ECDomainParameters(
+            curve.getCurve(), curve.getG(), curve.getN(), curve.getH(), curve.getSeed());
+    }
+
+    private final RandomSource randomSource;
+    private final byte[] keyInfoPref = toInfoBytes("WebPush: info");
+    private final byte[] cekInfo = toInfoBytes("Content-Encoding: aes128gcm");
+    private final byte[] nonceInfo = toInfoBytes("Content-Encoding: nonce");
+
+    BouncyCastleAes128GcmMessageEncryption(RandomSource randomSource) {
+        this.randomSource = randomSource;
+    }
+
+    private static byte[] toInfoBytes(String text) {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] ret = new byte[textBytes.length + 1];
+        System.arraycopy(textBytes, 0, ret, 0, textBytes.length);
+        return ret;
+    }
+
+    @Override
+    public EncryptedPushMessage encrypt(
+        UserAgentMessageEncryptionKeyInfo userAgentMessageEncryptionKeyInfo,
+        PushMessage pushMessage) {
+
+        Objects.requireNonNull(userAgentMessageEncryptionKeyInfo,
+            "userAgentMessageEncryptionKeyInfo should not be null.");
+        Objects.requireNonNull(pushMessage, "pushMessage should not be null.");
+
+        byte[] uaPublicUncompressed =
+            userAgentMessageEncryptionKeyInfo.extractUncompressedUaPublic();
+        byte[] message = pushMessage.extractBytes();
+
+        // ## The application server's ephemeral key pair
+        BigInteger asPrivate = generatePrivateKey();
+        byte[] asPublicUncompressed = new FixedPointCombMultiplier()
+            .multiply(DOMAIN.getG(), asPrivate)
+            .getEncoded(false);
+
+        // ## ECDH
+        // The point is validated when the parameters are created.
+        ECPoint uaPoint = DOMAIN.getCurve().decodePoint(uaPublicUncompressed);
+        ECDHBasicAgreement agreement = new ECDHBasicAgreement();
+        agreement.init(new ECPrivateKeyParameters(asPrivate, DOMAIN));
+        byte[] ecdhSecret = BigIntegers.asUnsignedByteArray(agreement.getFieldSize(),
+            agreement.calculateAgreement(new ECPublicKeyParameters(uaPoint, DOMAIN)));
+
+        // ## Use HKDF to combine the ECDH and authentication secrets
+        // key_info = "WebPush: info" || 0x00 || ua_public || as_public
+        byte[] keyInfo = ByteBuffer
+            .allocate(keyInfoPref.length + uaPublicUncompressed.length
+                + asPublicUncompressed.length)
+            .put(keyInfoPref)
+            .put(uaPublicUncompressed)
+            .put(asPublicUncompressed)
+            .array();
+        byte[] ikm = hkdf(userAgentMessageEncryptionKeyInfo.extractAuthSecret(), ecdhSecret,
+            keyInfo, IKM_LENGTH);
+
+        // ## Derive the Content Encryption Key and the nonce
+        byte[] salt = new byte[SALT_LENGTH];
+        this.randomSource.nextBytes(salt);
+        byte[] cek = hkdf(salt, ikm, cekInfo, CEK_LENGTH);
+        byte[] nonce = hkdf(salt, ikm, nonceInfo, NONCE_LENGTH);
+
+        // salt || rs || idlen || keyid || ciphertext
+        int contentLength = message.length + PADDING_DELIMITER.length + TAG_LENGTH;
+        byte[] encrypted = new byte[HEADER_LENGTH + contentLength];
+        ByteBuffer.wrap(encrypted)
+            .put(salt)
+            .putInt(contentLength)
+            .put((byte) asPublicUncompressed.length)
+            .put(asPublicUncompressed);
+
+        GCMModeCipher cipher = GCMBlockCipher.newInstance(AESEngine.newInstance());
+        cipher.init(true, new AEADParameters(new KeyParameter(cek), TAG_LENGTH * 8, nonce));
+        int offset = HEADER_LENGTH;
+        offset += cipher.processBytes(message, 0, message.length, encrypted, offset);
+        offset += cipher.processBytes(PADDING_DELIMITER, 0, PADDING_DELIMITER.length,
+            encrypted, offset);
+        try {
+            cipher.doFinal(encrypted, offset);
+        } catch (InvalidCipherTextException e) {
+            throw MessageEncryptionException.withDefaultMessage(e);
+        }
+
+        return new BouncyCastleEncryptedPushMessage(encrypted);
+    }
+
+    @Override
+    public int encryptedLength(PushMessage pushMessage) {
+        Objects.requireNonNull(pushMessage, "pushMessage should not be null.");
+        return HEADER_LENGTH + pushMessage.length() + PADDING_DELIMITER.length + TAG_LENGTH;
+    }
+
+    private BigInteger generatePrivateKey() {
+        byte[] scalar = new byte[SCALAR_LENGTH];
+        BigInteger privateKey;
+        do {
+            this.randomSource.nextBytes(scalar);
+            privateKey = new BigInteger(1, scalar);
+        } while (privateKey.signum() == 0 || privateKey.compareTo(DOMAIN.getN()) >= 0);
+        return privateKey;
+    }
+
+    private static byte[] hkdf(byte[] salt, byte[] ikm, byte[] info, int length) {
+        HKDFBytesGenerator generator = new HKDFBytesGenerator(new SHA256Digest());
+        generator.init(new HKDFParameters(ikm, salt, info));
+        byte[] okm = new byte[length];
+        generator.generateBytes(okm, 0, length);
+        return okm;
+    }
+}
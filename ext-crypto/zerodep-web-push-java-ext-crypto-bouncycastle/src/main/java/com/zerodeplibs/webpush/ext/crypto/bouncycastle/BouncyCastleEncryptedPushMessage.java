@@ -0,0 +1,40 @@
+package com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An implementation class of {@link EncryptedPushMessage}.
+ *
+ * @author Tomoki Sato
+ * @see BouncyCastleAes128GcmMessageEncryption
+ */
+class BouncyCastleEncryptedPushMessage implements EncryptedPushMessage {
+
+    private final byte[] encryptedMessage;
+
+    BouncyCastleEncryptedPushMessage(byte[] encryptedMessage) {
+        this.encryptedMessage = encryptedMessage;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return Arrays.copyOf(this.encryptedMessage, this.encryptedMessage.length);
+    }
+
+    @Override
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(this.encryptedMessage).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int length() {
+        return this.encryptedMessage.length;
+    }
+
+    @Override
+    public String contentEncoding() {
+        return "aes128gcm";
+    }
+}
@@ -0,0 +1,44 @@
+package com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+
+import com.zerodeplibs.webpush.MessageEncryption;
+import com.zerodeplibs.webpush.MessageEncryptionFactory;
+import com.zerodeplibs.webpush.RandomSource;
+import com.zerodeplibs.webpush.RandomSources;
+import java.security.SecureRandom;
+import java.util.Objects;
+
+/**
+ * The factory class for {@link MessageEncryption}.
+ * {@link MessageEncryption}s generated by this class utilize the lightweight API of
+ * <a href="https://www.bouncycastle.org/">Bouncy Castle</a>.
+ *
+ * @author Tomoki Sato
+ */
+public class BouncyCastleMessageEncryptionFactory implements MessageEncryptionFactory {
+
+    private final RandomSource randomSource;
+
+    /**
+     * Creates a new {@link BouncyCastleMessageEncryptionFactory}.
+     * The created instances take random bytes from a single {@link SecureRandom}.
+     */
+    public BouncyCastleMessageEncryptionFactory() {
+        this(RandomSources.of(new SecureRandom()));
+    }
+
+    /**
+     * Creates a new {@link BouncyCastleMessageEncryptionFactory}.
+     * The created instances take random bytes from the given source.
+     *
+     * @param randomSource a source of random bytes.
+     */
+    public BouncyCastleMessageEncryptionFactory(RandomSource randomSource) {
+        this.randomSource =
+            Objects.requireNonNull(randomSource, "randomSource should not be null.");
+    }
+
+    @Override
+    public MessageEncryption create() {
+        return new BouncyCastleAes128GcmMessageEncryption(this.randomSource);
+    }
+}
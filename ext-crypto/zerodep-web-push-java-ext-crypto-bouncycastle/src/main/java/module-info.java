@@ -0,0 +1,9 @@
+import com.zerodeplibs.webpush.MessageEncryptionFactory;
+import com.zerodeplibs.webpush.ext.crypto.bouncycastle.BouncyCastleMessageEncryptionFactory;
+
+module com.zerodeplibs.webpush.ext.crypto.bouncycastle {
+    requires com.zerodeplibs.webpush;
+    requires org.bouncycastle.provider;
+    exports com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+    provides MessageEncryptionFactory with BouncyCastleMessageEncryptionFactory;
+}
@@ -0,0 +1,166 @@
+package com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.ECDHBackend;
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import com.zerodeplibs.webpush.MessageEncryption;
+import com.zerodeplibs.webpush.MessageEncryptions;
+import com.zerodeplibs.webpush.PushMessage;
+import com.zerodeplibs.webpush.RandomSource;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+public class BouncyCastleMessageEncryptionTests {
+
+    @Test
+    public void shouldBeLoadedViaServiceLoader() {
+        assertThat(MessageEncryptions.of() instanceof BouncyCastleAes128GcmMessageEncryption,
+            equalTo(true));
+    }
+
+    @Test
+    public void shouldEncryptMessageUsingTheGivenSubscriptionKeys() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            PublicKeySources.ofECPublicKey((ECPublicKey) uaKeyPair.getPublic())
+                .extractBytesInUncompressedForm(),
+            generateAuthSecret());
+
+        MessageEncryption messageEncryption = new BouncyCastleMessageEncryptionFactory().create();
+        for (int i = 0; i < 3; i++) {
+            String payload = "Hello World. This is a payload for testing." + i;
+            PushMessage pushMessage = PushMessage.ofUTF8(payload);
+            EncryptedPushMessage encrypted = messageEncryption.encrypt(keyInfo, pushMessage);
+
+            assertThat(encrypted.length(), equalTo(messageEncryption.encryptedLength(pushMessage)));
+            assertThat(encrypted.contentEncoding(), equalTo("aes128gcm"));
+            byte[] decrypted = decryptStraightforwardly(
+                keyInfo, encrypted.toBytes(), (ECPrivateKey) uaKeyPair.getPrivate());
+            assertThat(new String(decrypted, StandardCharsets.UTF_8), equalTo(payload + "\u0002"));
+        }
+    }
+
+    @Test
+    public void shouldProduceTheSameOutputAsTheBuiltInBackend() throws Exception {
+
+        KeyPair uaKeyPair = generateKeyPair();
+        UserAgentMessageEncryptionKeyInfo keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+            PublicKeySources.ofECPublicKey((ECPublicKey) uaKeyPair.getPublic())
+                .extractBytesInUncompressedForm(),
+            generateAuthSecret());
+        PushMessage pushMessage = PushMessage.ofUTF8("Hello World.");
+
+        // Both implementations take the private key first and the salt next.
+        MessageEncryption bouncyCastle =
+            new BouncyCastleMessageEncryptionFactory(seededRandomSource(7)).create();
+        MessageEncryption builtIn = MessageEncryptions.getBuilder()
+            .ecdhBackend(ECDHBackend.BUILT_IN)
+            .randomSource(seededRandomSource(7))
+            .build();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(bouncyCastle.encrypt(keyInfo, pushMessage).toBytes(),
+                equalTo(builtIn.encrypt(keyInfo, pushMessage).toBytes()));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionWhenNullReferencesArePassed() {
+
+        MessageEncryption messageEncryption = new BouncyCastleMessageEncryptionFactory().create();
+        assertThrows(NullPointerException.class,
+            () -> messageEncryption.encrypt(null, PushMessage.ofUTF8("a")));
+        assertThrows(NullPointerException.class,
+            () -> new BouncyCastleMessageEncryptionFactory(null));
+    }
+
+    private static RandomSource seededRandomSource(long seed) {
+        Random random = new Random(seed);
+        return (bytes, offset, length) -> {
+            byte[] randomBytes = new byte[length];
+            random.nextBytes(randomBytes);
+            System.arraycopy(randomBytes, 0, bytes, offset, length);
+        };
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private static byte[] generateAuthSecret() {
+        byte[] authSecret = new byte[16];
+        new SecureRandom().nextBytes(authSecret);
+        return authSecret;
+    }
+
+    private static byte[] decryptStraightforwardly(
+        UserAgentMessageEncryptionKeyInfo keyInfo,
+        byte[] encrypted,
+        ECPrivateKey uaPrivate) throws Exception {
+
+        byte[] salt = Arrays.copyOfRange(encrypted, 0, 16);
+        int keyLength = encrypted[20];
+        byte[] asPublic = Arrays.copyOfRange(encrypted, 21, 21 + keyLength);
+        byte[] content = Arrays.copyOfRange(encrypted, 21 + keyLength, encrypted.length);
+        assertThat(ByteBuffer.wrap(encrypted, 16, 4).getInt(), equalTo(content.length));
+
+        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+        keyAgreement.init(uaPrivate);
+        keyAgreement.doPhase(PublicKeySources.ofUncompressedBytes(asPublic).extract(), true);
+        byte[] ecdhSecret = keyAgreement.generateSecret();
+
+        byte[] prkKey = hmac(keyInfo.extractAuthSecret(), ecdhSecret);
+        byte[] ikm = hmac(prkKey, concat(
+            "WebPush: info\u0000".getBytes(StandardCharsets.US_ASCII),
+            keyInfo.extractUncompressedUaPublic(),
+            asPublic,
+            new byte[] {1}));
+        byte[] prk = hmac(salt, ikm);
+        byte[] cek = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: aes128gcm\u0000\u0001".getBytes(StandardCharsets.US_ASCII))), 16);
+        byte[] nonce = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: nonce\u0000\u0001".getBytes(StandardCharsets.US_ASCII))), 12);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(cek, "AES"),
+            new GCMParameterSpec(128, nonce));
+        return cipher.doFinal(content);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = Arrays.stream(arrays).mapToInt(a -> a.length).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] array : arrays) {
+            buffer.put(array);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,92 @@
+package com.zerodeplibs.webpush.ext.crypto.bouncycastle;
+
+import com.zerodeplibs.webpush.ECDHBackend;
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import com.zerodeplibs.webpush.MessageEncryption;
+import com.zerodeplibs.webpush.MessageEncryptions;
+import com.zerodeplibs.webpush.PushMessage;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the message encryption backends on the running JVM
+ * so that the faster one can be chosen.
+ */
+public class MessageEncryptionBackendBenchmark {
+
+    public static void main(String[] args) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(MessageEncryptionBackendBenchmark.class.getSimpleName())
+            .build();
+
+        new Runner(options).run();
+    }
+
+    @State(Scope.Benchmark)
+    public static class PlanForBackend {
+
+        @Param({"JCA", "BUILT_IN", "BOUNCY_CASTLE"})
+        String backend;
+
+        UserAgentMessageEncryptionKeyInfo keyInfo;
+        PushMessage pushMessage;
+        MessageEncryption messageEncryption;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            byte[] authSecret = new byte[16];
+            new SecureRandom().nextBytes(authSecret);
+            this.keyInfo = UserAgentMessageEncryptionKeyInfo.of(
+                PublicKeySources.ofECPublicKey(
+                    (ECPublicKey) keyPairGenerator.generateKeyPair().getPublic()
+                ).extractBytesInUncompressedForm(),
+                authSecret);
+            this.pushMessage = PushMessage.ofUTF8("Hello World. This is a payload for testing.");
+
+            switch (this.backend) {
+                case "BOUNCY_CASTLE":
+                    this.messageEncryption = new BouncyCastleMessageEncryptionFactory().create();
+                    break;
+                default:
+                    this.messageEncryption = MessageEncryptions.getBuilder()
+                        .ecdhBackend(ECDHBackend.valueOf(this.backend))
+                        .build();
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1)
+    @Warmup(iterations = 2)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Measurement(iterations = 3)
+    @BenchmarkMode(Mode.AverageTime)
+    public EncryptedPushMessage encrypt(PlanForBackend plan) {
+        return plan.messageEncryption.encrypt(plan.keyInfo, plan.pushMessage);
+    }
+}
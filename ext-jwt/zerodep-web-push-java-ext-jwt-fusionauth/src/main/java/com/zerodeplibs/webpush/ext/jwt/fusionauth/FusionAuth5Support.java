@@ -0,0 +1,26 @@
+package com.zerodeplibs.webpush.ext.jwt.fusionauth;
+
+import io.fusionauth.jwt.ec.ECSigner;
+import java.security.interfaces.ECPrivateKey;
+
+/**
+ * Isolates the reference to {@code ECSigner#newSHA256Signer(PrivateKey)},
+ * which was added in FusionAuth JWT 5.0.0.
+ *
+ * <p>
+ * The reference is resolved only when this class is loaded.
+ * {@link FusionAuthVAPIDJWTGenerator} loads this class only if the method is present.
+ * So the generator can still be loaded with FusionAuth JWT older than 5.0.0.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+final class FusionAuth5Support {
+
+    private FusionAuth5Support() {
+    }
+
+    static ECSigner newSigner(ECPrivateKey privateKey) {
+        return ECSigner.newSHA256Signer(privateKey);
+    }
+}
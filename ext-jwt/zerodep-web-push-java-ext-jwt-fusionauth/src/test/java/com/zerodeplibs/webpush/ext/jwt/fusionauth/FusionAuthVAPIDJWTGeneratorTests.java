@@ -5,6 +5,7 @@ import static org.hamcrest.core.IsEqual.equalTo;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
+import io.fusionauth.jwt.domain.JWT;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
@@ -14,7 +15,12 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.interfaces.ECPrivateKey;
 import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jws.AlgorithmIdentifiers;
@@ -47,6 +53,47 @@ public class FusionAuthVAPIDJWTGeneratorTests {
         assertPayload(jwt);
     }
 
+    @Test
+    public void shouldGenerateJWTsConcurrentlyWithTheSameSigner() throws Exception {
+
+        KeyPair keyPair = generateKeyPair();
+
+        FusionAuthVAPIDJWTGenerator generator =
+            new FusionAuthVAPIDJWTGenerator((ECPrivateKey) keyPair.getPrivate());
+
+        VAPIDJWTParam param = VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com")
+            .expiresAfter(60, TimeUnit.SECONDS)
+            .build();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(executor.submit(() -> generator.generate(param)));
+            }
+            for (Future<String> future : futures) {
+                verifySign(future.get(), keyPair.getPublic());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void signerCreatedFromPemShouldSignLikeTheOtherOne()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, JoseException {
+
+        KeyPair keyPair = generateKeyPair();
+        ECPrivateKey privateKey = (ECPrivateKey) keyPair.getPrivate();
+        JWT jwt = new JWT().setAudience("https://example.com");
+
+        verifySign(JWT.getEncoder().encode(jwt,
+            FusionAuthVAPIDJWTGenerator.createSigner(privateKey)), keyPair.getPublic());
+        verifySign(JWT.getEncoder().encode(jwt,
+            FusionAuthVAPIDJWTGenerator.createSignerFromPem(privateKey)), keyPair.getPublic());
+    }
+
     private void assertHeader(String jwt) throws IOException {
         byte[] decoded = splitAndDecode(0, jwt);
         TestingJWTHeader actual =
@@ -8,16 +8,36 @@ import io.vertx.ext.auth.JWTOptions;
 import io.vertx.ext.auth.PubSecKeyOptions;
 import io.vertx.ext.auth.jwt.JWTAuth;
 import io.vertx.ext.auth.jwt.JWTAuthOptions;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.security.interfaces.ECPrivateKey;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.function.Supplier;
 
 /**
  * An implementation of {@link VAPIDJWTGenerator}
  * utilizing <a href="https://vertx.io/docs/vertx-auth-jwt/java/">JWT Auth - Vert.x</a>.
  *
+ * <p>
+ * Creating a {@link JWTAuth} parses the private key and builds the signer.
+ * So a {@link JWTAuth} is created once for each {@link Vertx}
+ * returned by the strategy and reused.
+ * The {@link Vertx}s are referenced weakly so that they can be garbage collected
+ * after they are closed.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe when the given strategy is thread-safe.
+ * A {@link JWTAuth} can be shared
+ * by the event-loop threads and the worker threads
+ * (it serializes the access to its signer internally).
+ * </p>
+ *
  * @author Tomoki Sato
  * @see VertxVAPIDJWTGeneratorFactory
  */
@@ -42,6 +62,9 @@ class VertxVAPIDJWTGenerator implements VAPIDJWTGenerator {
 
     private final Supplier<Vertx> vertxObtainStrategy;
     private final String privateKey;
+    private final Map<Vertx, JWTAuth> providers = new WeakHashMap<>();
+    // The most recently used provider. Typically, the strategy always returns the same Vertx.
+    private volatile CachedProvider lastProvider;
 
     VertxVAPIDJWTGenerator(Supplier<Vertx> vertxObtainStrategy, ECPrivateKey privateKey) {
         if (vertxObtainStrategy == null) {
@@ -60,12 +83,7 @@ class VertxVAPIDJWTGenerator implements VAPIDJWTGenerator {
     @Override
     public String generate(VAPIDJWTParam param) {
 
-        JWTAuth provider = JWTAuth.create(
-            this.vertxObtainStrategy.get(), new JWTAuthOptions()
-                .addPubSecKey(
-                    createOptions()
-                )
-        );
+        JWTAuth provider = obtainProvider();
 
         int expiresInSeconds =
             (int) (param.getExpiresAtInSeconds() - System.currentTimeMillis() / 1000);
@@ -84,6 +102,28 @@ class VertxVAPIDJWTGenerator implements VAPIDJWTGenerator {
         return provider.generateToken(payload, jwtOptions);
     }
 
+    // Visible for testing.
+    JWTAuth obtainProvider() {
+
+        Vertx vertx = this.vertxObtainStrategy.get();
+        CachedProvider cached = this.lastProvider;
+        if (cached != null && vertx != null && cached.vertx.get() == vertx) {
+            return cached.provider;
+        }
+
+        JWTAuth provider;
+        synchronized (this.providers) {
+            provider = this.providers.computeIfAbsent(vertx, v -> JWTAuth.create(
+                v, new JWTAuthOptions()
+                    .addPubSecKey(
+                        createOptions()
+                    )
+            ));
+        }
+        this.lastProvider = new CachedProvider(vertx, provider);
+        return provider;
+    }
+
     @SuppressWarnings("deprecation")
     private PubSecKeyOptions createOptions() {
         if (IS_SET_BUFFER_PRESENT) {
@@ -95,4 +135,15 @@ class VertxVAPIDJWTGenerator implements VAPIDJWTGenerator {
             .setSecretKey(this.privateKey);
     }
 
+    private static class CachedProvider {
+
+        private final WeakReference<Vertx> vertx;
+        private final JWTAuth provider;
+
+        CachedProvider(Vertx vertx, JWTAuth provider) {
+            this.vertx = new WeakReference<>(vertx);
+            this.provider = provider;
+        }
+    }
+
 }
@@ -32,6 +32,8 @@ public class VertxVAPIDJWTGeneratorFactory
      * <p>
      * this instance is passed to the JWT authentication provider
      * and used to generate the JWT.
+     * The provider is created once for each Vertx instance and reused
+     * (the Vertx instances are referenced weakly).
      * </p>
      *
      * @param vertxObtainStrategy a strategy used to obtain a Vertx instance.
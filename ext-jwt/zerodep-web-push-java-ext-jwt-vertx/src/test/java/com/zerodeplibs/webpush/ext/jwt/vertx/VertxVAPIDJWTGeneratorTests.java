@@ -9,6 +9,7 @@ import com.zerodeplibs.webpush.jwt.VAPIDJWTParam;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.jwt.JWTAuth;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
@@ -19,8 +20,15 @@ import java.security.PublicKey;
 import java.security.interfaces.ECPrivateKey;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
@@ -55,6 +63,53 @@ public class VertxVAPIDJWTGeneratorTests {
         assertPayload(jwt);
     }
 
+    @Test
+    public void shouldReuseTheProviderForEachVertx()
+        throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, JoseException,
+        InterruptedException {
+
+        Vertx vertx = Vertx.vertx();
+        Vertx anotherVertx = Vertx.vertx();
+        KeyPair keyPair = generateKeyPair();
+        AtomicReference<Vertx> current = new AtomicReference<>(vertx);
+
+        VertxVAPIDJWTGenerator generator =
+            new VertxVAPIDJWTGenerator(current::get, (ECPrivateKey) keyPair.getPrivate());
+
+        JWTAuth provider = generator.obtainProvider();
+        assertThat(generator.obtainProvider() == provider, equalTo(true));
+
+        current.set(anotherVertx);
+        JWTAuth anotherProvider = generator.obtainProvider();
+        assertThat(anotherProvider == provider, equalTo(false));
+        assertThat(generator.obtainProvider() == anotherProvider, equalTo(true));
+
+        current.set(vertx);
+        assertThat(generator.obtainProvider() == provider, equalTo(true));
+
+        VAPIDJWTParam param = VAPIDJWTParam.getBuilder()
+            .resourceURLString("https://example.com")
+            .expiresAfter(60, TimeUnit.SECONDS)
+            .build();
+
+        // Shares the provider between threads.
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(executorService.submit(() -> generator.generate(param)));
+        }
+        for (Future<String> future : futures) {
+            try {
+                verifySign(future.get(), keyPair.getPublic());
+            } catch (ExecutionException e) {
+                throw new AssertionError(e);
+            }
+        }
+        executorService.shutdown();
+
+        vertx.close();
+        anotherVertx.close();
+    }
 
     private void assertHeader(String jwt) throws IOException {
         byte[] decoded = splitAndDecode(0, jwt);
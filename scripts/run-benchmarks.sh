@@ -0,0 +1,17 @@
+#!/bin/sh
+
+##
+#
+# Runs the VAPID JWT generator benchmarks in the 'benchmarks' module.
+# The arguments are passed to JMH(e.g. -f 1 -wi 1 -i 2 -p generator=default,jose4j).
+#
+##
+
+./mvnw install -pl benchmarks -am -DskipTests || exit 1
+
+CLASSPATH_FILE=benchmarks/target/classpath.txt
+./mvnw -q dependency:build-classpath -pl benchmarks -Dmdep.outputFile=target/classpath.txt || exit 1
+
+java -cp "benchmarks/target/classes:$(cat ${CLASSPATH_FILE})" \
+  com.zerodeplibs.webpush.benchmarks.VAPIDJWTGeneratorBenchmarks \
+  -rff benchmarks/target/vapid-jwt-generator-benchmark.json "$@"
@@ -0,0 +1,16 @@
+#!/bin/sh
+
+##
+#
+# Runs the push load driver in the 'test-support' module against the embedded mock push service.
+# The arguments are passed to the driver(e.g. --preparer=okhttp --http2=true --latency-ms=20).
+#
+##
+
+./mvnw install -pl test-support -am -DskipTests || exit 1
+
+CLASSPATH_FILE=test-support/target/classpath.txt
+./mvnw -q dependency:build-classpath -pl test-support -Dmdep.outputFile=target/classpath.txt || exit 1
+
+java -cp "test-support/target/classes:$(cat ${CLASSPATH_FILE})" \
+  com.zerodeplibs.webpush.testsupport.PushLoadDriver "$@"
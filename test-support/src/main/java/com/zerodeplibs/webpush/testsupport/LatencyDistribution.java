@@ -0,0 +1,89 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * The distribution of the latency that {@link MockPushService} injects before responding.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * The implementations provided by this interface are thread-safe
+ * as long as the given {@link Random} is used by one thread at a time.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see MockPushService.Builder#latency(LatencyDistribution)
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * Draws the next latency in milliseconds.
+     *
+     * @param random a source of randomness.
+     * @return the next latency in milliseconds(zero or more).
+     */
+    long nextMillis(Random random);
+
+    /**
+     * Gets a distribution that always returns zero(responds immediately).
+     *
+     * @return a distribution.
+     */
+    static LatencyDistribution none() {
+        return random -> 0;
+    }
+
+    /**
+     * Gets a distribution that always returns the given latency.
+     *
+     * @param latency the latency.
+     * @return a distribution.
+     */
+    static LatencyDistribution fixed(Duration latency) {
+        Objects.requireNonNull(latency, "latency should not be null.");
+        long millis = latency.toMillis();
+        if (millis < 0) {
+            throw new IllegalArgumentException("The latency must be zero or more.");
+        }
+        return random -> millis;
+    }
+
+    /**
+     * Gets a distribution that returns a latency uniformly distributed in [min, max].
+     *
+     * @param min the minimum latency.
+     * @param max the maximum latency.
+     * @return a distribution.
+     */
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        Objects.requireNonNull(min, "min should not be null.");
+        Objects.requireNonNull(max, "max should not be null.");
+        long minMillis = min.toMillis();
+        long maxMillis = max.toMillis();
+        if (minMillis < 0 || minMillis > maxMillis) {
+            throw new IllegalArgumentException(
+                "The minimum must be zero or more and equal to or less than the maximum.");
+        }
+        return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+    }
+
+    /**
+     * Gets a distribution that returns a latency exponentially distributed
+     * with the given mean(a long tail like the ones of the real push services).
+     *
+     * @param mean the mean latency.
+     * @return a distribution.
+     */
+    static LatencyDistribution exponential(Duration mean) {
+        Objects.requireNonNull(mean, "mean should not be null.");
+        long meanMillis = mean.toMillis();
+        if (meanMillis < 0) {
+            throw new IllegalArgumentException("The mean must be zero or more.");
+        }
+        return random -> Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * The result of a load run by {@link PushLoadDriver}.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is immutable. So it is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class LoadReport {
+
+    private final PreparerKind preparer;
+    private final boolean http2;
+    private final int pushes;
+    private final Duration elapsed;
+    // Sorted in ascending order.
+    private final long[] latencyNanos;
+    private final Map<Integer, Long> statusCounts;
+    private final long failures;
+    private final long allocatedBytes;
+
+    LoadReport(PreparerKind preparer, boolean http2, int pushes, Duration elapsed,
+               long[] latencyNanos, Map<Integer, Long> statusCounts, long failures,
+               long allocatedBytes) {
+        this.preparer = preparer;
+        this.http2 = http2;
+        this.pushes = pushes;
+        this.elapsed = elapsed;
+        this.latencyNanos = latencyNanos;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.failures = failures;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Gets the preparer used for the run.
+     *
+     * @return the preparer.
+     */
+    public PreparerKind getPreparer() {
+        return preparer;
+    }
+
+    /**
+     * Indicates whether the requests have been sent over HTTP/2.
+     *
+     * @return true if HTTP/2 has been requested.
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * Gets the number of the pushes(including the failed ones).
+     *
+     * @return the number of the pushes.
+     */
+    public int getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Gets the wall-clock time of the run.
+     *
+     * @return the elapsed time.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Gets the number of the pushes completed per second.
+     *
+     * @return the throughput.
+     */
+    public double getThroughput() {
+        return pushes / (elapsed.toNanos() / 1e9);
+    }
+
+    /**
+     * Gets the given percentile of the latency from the preparation of each request
+     * to the arrival of its response.
+     *
+     * @param percentile the percentile between 0 and 100(e.g. 99.9).
+     * @return the latency.
+     */
+    public Duration getLatencyPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        if (latencyNanos.length == 0) {
+            return Duration.ZERO;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+        return Duration.ofNanos(latencyNanos[Math.max(index, 0)]);
+    }
+
+    /**
+     * Gets the number of the responses for each status code.
+     *
+     * @return an unmodifiable map from the status codes to the numbers of the responses.
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statusCounts;
+    }
+
+    /**
+     * Gets the number of the requests that failed without a response
+     * (e.g. connection errors).
+     *
+     * @return the number of the failures.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets the number of the bytes allocated by the threads of this JVM during the run.
+     * This includes the allocations by the mock push service when it is embedded.
+     *
+     * @return the allocated bytes, or empty if the JVM doesn't support the measurement.
+     */
+    public OptionalLong getAllocatedBytes() {
+        return allocatedBytes >= 0 ? OptionalLong.of(allocatedBytes) : OptionalLong.empty();
+    }
+
+    /**
+     * Gets the allocation rate.
+     *
+     * @return the allocated bytes per second, or empty if the JVM doesn't support the measurement.
+     */
+    public OptionalLong getAllocatedBytesPerSecond() {
+        return allocatedBytes >= 0
+            ? OptionalLong.of((long) (allocatedBytes / (elapsed.toNanos() / 1e9)))
+            : OptionalLong.empty();
+    }
+
+    /**
+     * Gets the allocated bytes per push.
+     *
+     * @return the allocated bytes per push, or empty if the JVM doesn't support the measurement.
+     */
+    public OptionalLong getAllocatedBytesPerPush() {
+        return allocatedBytes >= 0 && pushes > 0
+            ? OptionalLong.of(allocatedBytes / pushes)
+            : OptionalLong.empty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s %-8s pushes=%d throughput=%.1f/s "
+                + "p50=%.2fms p99=%.2fms p999=%.2fms statuses=%s failures=%d alloc=%s",
+            preparer, http2 ? "HTTP/2" : "HTTP/1.1", pushes, getThroughput(),
+            toMillis(getLatencyPercentile(50)), toMillis(getLatencyPercentile(99)),
+            toMillis(getLatencyPercentile(99.9)), statusCounts, failures,
+            getAllocatedBytesPerSecond().isPresent()
+                ? String.format("%.1fMB/s(%dB/push)",
+                getAllocatedBytesPerSecond().getAsLong() / 1e6,
+                getAllocatedBytesPerPush().orElse(0))
+                : "n/a");
+    }
+
+    private static double toMillis(Duration duration) {
+        return duration.toNanos() / 1e6;
+    }
+}
@@ -0,0 +1,120 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Decrypts the bodies of push messages encrypted with 'aes128gcm'
+ * as a user agent does(<a href="https://datatracker.ietf.org/doc/html/rfc8291">RFC 8291</a>).
+ *
+ * <p>
+ * Only a single record is supported, which is what application servers send.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+class MessageDecryptor {
+
+    // The header consists of salt(16) || rs(4) || idlen(1) || keyid(65).
+    private static final int SALT_LENGTH = 16;
+    private static final int AS_PUBLIC_KEY_LENGTH = 65;
+    private static final int HEADER_LENGTH = SALT_LENGTH + 4 + 1 + AS_PUBLIC_KEY_LENGTH;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private MessageDecryptor() {
+    }
+
+    /**
+     * Decrypts the given body.
+     *
+     * @param body         the encrypted body.
+     * @param uaPrivate    the private key of the user agent.
+     * @param uaPublic     the public key of the user agent in uncompressed form.
+     * @param authSecret   the authentication secret.
+     * @return the plaintext.
+     * @throws GeneralSecurityException if the body cannot be decrypted.
+     */
+    static byte[] decrypt(byte[] body, PrivateKey uaPrivate, byte[] uaPublic, byte[] authSecret)
+        throws GeneralSecurityException {
+
+        if (body.length < HEADER_LENGTH + 16 + 1) {
+            throw new GeneralSecurityException("The body is too short.");
+        }
+        ByteBuffer header = ByteBuffer.wrap(body, 0, HEADER_LENGTH);
+        byte[] salt = new byte[SALT_LENGTH];
+        header.get(salt);
+        int recordSize = header.getInt();
+        int keyIdLength = header.get() & 0xFF;
+        if (keyIdLength != AS_PUBLIC_KEY_LENGTH || body.length - HEADER_LENGTH > recordSize) {
+            throw new GeneralSecurityException("Unsupported header.");
+        }
+        byte[] asPublic = new byte[AS_PUBLIC_KEY_LENGTH];
+        header.get(asPublic);
+
+        PublicKey asPublicKey = PublicKeySources.ofUncompressedBytes(asPublic).extract();
+        KeyAgreement keyAgreement = KeyAgreement.getInstance("ECDH");
+        keyAgreement.init(uaPrivate);
+        keyAgreement.doPhase(asPublicKey, true);
+        byte[] ecdhSecret = keyAgreement.generateSecret();
+
+        // PRK_key = HMAC-SHA-256(auth_secret, ecdh_secret)
+        byte[] prkKey = hmac(authSecret, ecdhSecret);
+        // IKM = HMAC-SHA-256(PRK_key, "WebPush: info" || 0x00 || ua_public || as_public || 0x01)
+        byte[] ikm = hmac(prkKey, concat(
+            "WebPush: info\0".getBytes(StandardCharsets.US_ASCII), uaPublic, asPublic,
+            new byte[] {1}));
+        // PRK = HMAC-SHA-256(salt, IKM)
+        byte[] prk = hmac(salt, ikm);
+        byte[] cek = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: aes128gcm\0".getBytes(StandardCharsets.US_ASCII),
+            new byte[] {1})), 16);
+        byte[] nonce = Arrays.copyOf(hmac(prk, concat(
+            "Content-Encoding: nonce\0".getBytes(StandardCharsets.US_ASCII),
+            new byte[] {1})), 12);
+
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(cek, "AES"),
+            new GCMParameterSpec(128, nonce));
+        byte[] padded = cipher.doFinal(body, HEADER_LENGTH, body.length - HEADER_LENGTH);
+
+        // The last record ends with the padding delimiter(0x02) followed by zeros.
+        int end = padded.length - 1;
+        while (end >= 0 && padded[end] == 0) {
+            end--;
+        }
+        if (end < 0 || padded[end] != 2) {
+            throw new GeneralSecurityException("The padding delimiter isn't found.");
+        }
+        return Arrays.copyOf(padded, end);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        return mac.doFinal(data);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] array : arrays) {
+            length += array.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+}
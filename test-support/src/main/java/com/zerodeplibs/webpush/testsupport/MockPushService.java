@@ -0,0 +1,575 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * An embedded stand-in for a push service running on localhost.
+ *
+ * <p>
+ * This service accepts requests for the delivery of push messages
+ * (<a href="https://datatracker.ietf.org/doc/html/rfc8030">RFC 8030</a>)
+ * over HTTP/1.1 and cleartext HTTP/2(h2c, both with the upgrade and with prior knowledge).
+ * For each request, the service:
+ * </p>
+ *
+ * <ol>
+ * <li>validates the request('TTL', 'Urgency', 'Topic', 'Content-Encoding' and the body size).</li>
+ * <li>optionally verifies the JWT for VAPID(<a href="https://datatracker.ietf.org/doc/html/rfc8292">RFC 8292</a>).</li>
+ * <li>optionally decrypts the body(<a href="https://datatracker.ietf.org/doc/html/rfc8291">RFC 8291</a>).
+ * This requires the push subscription to be created by {@link #subscribe()}.</li>
+ * <li>injects a failure(429 with 'Retry-After', 410 or 5xx) at the configured rates.</li>
+ * <li>responds after the latency drawn from the configured distribution.</li>
+ * </ol>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * try (MockPushService pushService = MockPushService.getBuilder()
+ *     .verifyVAPID(true)
+ *     .decrypt(true)
+ *     .latency(LatencyDistribution.exponential(Duration.ofMillis(20)))
+ *     .tooManyRequests(0.01, 5)
+ *     .build()
+ *     .start()) {
+ *
+ *     PushSubscription subscription = pushService.subscribe();
+ *     // Sends push messages to the subscription.
+ * }
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe. The listener of the received messages
+ * is called concurrently by multiple threads.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see PushLoadDriver
+ */
+public class MockPushService implements AutoCloseable {
+
+    private static final int MAX_BODY_LENGTH = 4096;
+    private static final String PUSH_PATH = "/push/";
+    private static final Pattern TOPIC = Pattern.compile("[A-Za-z0-9_-]{1,32}");
+
+    private final int port;
+    private final LatencyDistribution latency;
+    private final double tooManyRequestsRate;
+    private final long retryAfterSeconds;
+    private final double goneRate;
+    private final double serverErrorRate;
+    private final int serverErrorStatus;
+    private final boolean verifyVAPID;
+    private final boolean decrypt;
+    private final Consumer<ReceivedPushMessage> listener;
+
+    private final Vertx vertx;
+    private final boolean ownsVertx;
+    private final Map<String, UserAgent> userAgents = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong nextMessageId = new AtomicLong();
+    private final Map<Integer, LongAdder> responseCounts = new ConcurrentHashMap<>();
+    private volatile HttpServer server;
+
+    private MockPushService(Builder builder) {
+        this.port = builder.port;
+        this.latency = builder.latency;
+        this.tooManyRequestsRate = builder.tooManyRequestsRate;
+        this.retryAfterSeconds = builder.retryAfterSeconds;
+        this.goneRate = builder.goneRate;
+        this.serverErrorRate = builder.serverErrorRate;
+        this.serverErrorStatus = builder.serverErrorStatus;
+        this.verifyVAPID = builder.verifyVAPID;
+        this.decrypt = builder.decrypt;
+        this.listener = builder.listener;
+        this.ownsVertx = builder.vertx == null;
+        this.vertx = this.ownsVertx ? Vertx.vertx() : builder.vertx;
+    }
+
+    /**
+     * Gets a new builder for {@link MockPushService}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Starts listening on localhost and waits until the server is ready.
+     *
+     * @return this object.
+     * @throws IllegalStateException if the server cannot be started.
+     */
+    public MockPushService start() {
+
+        HttpServerOptions options = new HttpServerOptions()
+            .setHost("127.0.0.1")
+            .setPort(this.port)
+            .setHttp2ClearTextEnabled(true)
+            // Many streams are multiplexed over each connection under load.
+            .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(10_000));
+
+        try {
+            this.server = this.vertx.createHttpServer(options)
+                .requestHandler(this::handle)
+                .listen()
+                .toCompletionStage()
+                .toCompletableFuture()
+                .get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting the server.", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to start the server.", e);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return the port.
+     * @throws IllegalStateException if the server hasn't been started.
+     */
+    public int getPort() {
+        HttpServer current = this.server;
+        if (current == null) {
+            throw new IllegalStateException("The server hasn't been started.");
+        }
+        return current.actualPort();
+    }
+
+    /**
+     * Gets the origin of the push resources(e.g. 'http://127.0.0.1:12345').
+     *
+     * @return the origin.
+     * @throws IllegalStateException if the server hasn't been started.
+     */
+    public String getOrigin() {
+        return "http://127.0.0.1:" + getPort();
+    }
+
+    /**
+     * Creates a new push subscription with a newly generated key pair and authentication secret.
+     * The key pair is kept so that the messages sent to the subscription can be decrypted.
+     *
+     * @return a new push subscription.
+     * @throws IllegalStateException if the server hasn't been started.
+     */
+    public PushSubscription subscribe() {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            byte[] authSecret = new byte[16];
+            new SecureRandom().nextBytes(authSecret);
+            return subscribe(keyPairGenerator.generateKeyPair(), authSecret);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate a key pair.", e);
+        }
+    }
+
+    /**
+     * Creates a new push subscription with the given key pair and authentication secret.
+     * The same key pair can be shared by multiple subscriptions
+     * (e.g. in order to create many subscriptions quickly).
+     *
+     * @param keyPair    a key pair on the P-256 curve.
+     * @param authSecret an authentication secret(16 bytes).
+     * @return a new push subscription.
+     * @throws IllegalStateException if the server hasn't been started.
+     */
+    public PushSubscription subscribe(KeyPair keyPair, byte[] authSecret) {
+
+        Objects.requireNonNull(keyPair, "keyPair should not be null.");
+        Objects.requireNonNull(authSecret, "authSecret should not be null.");
+
+        byte[] uaPublic = PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+            .extractBytesInUncompressedForm();
+        String id = Long.toString(this.nextId.incrementAndGet());
+        this.userAgents.put(id,
+            new UserAgent(keyPair.getPrivate(), uaPublic, authSecret.clone()));
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        PushSubscription.Keys keys = new PushSubscription.Keys();
+        keys.setP256dh(encoder.encodeToString(uaPublic));
+        keys.setAuth(encoder.encodeToString(authSecret));
+        PushSubscription subscription = new PushSubscription();
+        subscription.setEndpoint(getOrigin() + PUSH_PATH + id);
+        subscription.setKeys(keys);
+        return subscription;
+    }
+
+    /**
+     * Gets the number of the responses for each status code.
+     *
+     * @return a new map from the status codes to the numbers of the responses.
+     */
+    public Map<Integer, Long> getResponseCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        this.responseCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Stops the server. The Vert.x instance is also closed
+     * if it has been created by this service.
+     */
+    @Override
+    public void close() {
+        HttpServer current = this.server;
+        if (current != null) {
+            current.close();
+        }
+        if (this.ownsVertx) {
+            this.vertx.close();
+        }
+    }
+
+    private void handle(HttpServerRequest request) {
+        request.body().onComplete(result -> {
+            if (result.failed()) {
+                respond(request, 400);
+                return;
+            }
+            if (this.verifyVAPID || this.decrypt) {
+                // Verifying signatures and decrypting messages is CPU-bound.
+                this.vertx.executeBlocking(() -> process(request, result.result()), false)
+                    .onComplete(processed -> {
+                        if (processed.succeeded()) {
+                            respondAfterLatency(request, processed.result());
+                        } else {
+                            respond(request, 500);
+                        }
+                    });
+            } else {
+                respondAfterLatency(request, process(request, result.result()));
+            }
+        });
+    }
+
+    private int process(HttpServerRequest request, Buffer body) {
+
+        String path = request.path();
+        if (!path.startsWith(PUSH_PATH)) {
+            return 404;
+        }
+        if (request.method() != HttpMethod.POST) {
+            return 405;
+        }
+        Optional<Long> ttl = parseTTL(request.getHeader("TTL"));
+        String urgency = request.getHeader("Urgency");
+        String topic = request.getHeader("Topic");
+        if (ttl.isEmpty()
+            || (urgency != null && !isValidUrgency(urgency))
+            || (topic != null && !TOPIC.matcher(topic).matches())) {
+            return 400;
+        }
+        if (body.length() > MAX_BODY_LENGTH) {
+            return 413;
+        }
+        if (body.length() > 0 && !"aes128gcm".equals(request.getHeader("Content-Encoding"))) {
+            return 415;
+        }
+
+        if (this.verifyVAPID && VAPIDVerifier.verify(
+            request.getHeader("Authorization"), getOrigin()).isPresent()) {
+            return 403;
+        }
+
+        String id = path.substring(PUSH_PATH.length());
+        byte[] plaintext = null;
+        if (this.decrypt && body.length() > 0) {
+            UserAgent userAgent = this.userAgents.get(id);
+            if (userAgent == null) {
+                return 404;
+            }
+            try {
+                plaintext = MessageDecryptor.decrypt(body.getBytes(), userAgent.privateKey,
+                    userAgent.publicKey, userAgent.authSecret);
+            } catch (GeneralSecurityException e) {
+                return 400;
+            }
+        }
+
+        int status = drawStatus();
+        if (status == 201 && this.listener != null) {
+            this.listener.accept(new ReceivedPushMessage(id, ttl.get(),
+                urgency != null ? urgency : "normal", topic,
+                request.version().alpnName(), body.length(), plaintext));
+        }
+        return status;
+    }
+
+    private int drawStatus() {
+        double value = ThreadLocalRandom.current().nextDouble();
+        if (value < this.tooManyRequestsRate) {
+            return 429;
+        }
+        value -= this.tooManyRequestsRate;
+        if (value < this.goneRate) {
+            return 410;
+        }
+        value -= this.goneRate;
+        if (value < this.serverErrorRate) {
+            return this.serverErrorStatus;
+        }
+        return 201;
+    }
+
+    private void respondAfterLatency(HttpServerRequest request, int status) {
+        long delay = this.latency.nextMillis(ThreadLocalRandom.current());
+        if (delay > 0) {
+            this.vertx.setTimer(delay, timerId -> respond(request, status));
+        } else {
+            respond(request, status);
+        }
+    }
+
+    private void respond(HttpServerRequest request, int status) {
+        this.responseCounts.computeIfAbsent(status, key -> new LongAdder()).increment();
+
+        HttpServerResponse response = request.response().setStatusCode(status);
+        if (status == 201) {
+            response.putHeader("Location",
+                "/message/" + this.nextMessageId.incrementAndGet());
+        } else if (status == 429) {
+            response.putHeader("Retry-After", Long.toString(this.retryAfterSeconds));
+        }
+        response.end();
+    }
+
+    private static Optional<Long> parseTTL(String value) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        try {
+            long ttl = Long.parseLong(value.trim());
+            return ttl >= 0 ? Optional.of(ttl) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isValidUrgency(String urgency) {
+        switch (urgency) {
+            case "very-low":
+            case "low":
+            case "normal":
+            case "high":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static class UserAgent {
+
+        private final PrivateKey privateKey;
+        private final byte[] publicKey;
+        private final byte[] authSecret;
+
+        UserAgent(PrivateKey privateKey, byte[] publicKey, byte[] authSecret) {
+            this.privateKey = privateKey;
+            this.publicKey = publicKey;
+            this.authSecret = authSecret;
+        }
+    }
+
+    /**
+     * A builder for {@link MockPushService}.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * This class is not thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        private int port;
+        private LatencyDistribution latency = LatencyDistribution.none();
+        private double tooManyRequestsRate;
+        private long retryAfterSeconds;
+        private double goneRate;
+        private double serverErrorRate;
+        private int serverErrorStatus = 503;
+        private boolean verifyVAPID;
+        private boolean decrypt;
+        private Consumer<ReceivedPushMessage> listener;
+        private Vertx vertx;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the port to listen on. By default, an ephemeral port is used.
+         *
+         * @param port a port(0 means an ephemeral port).
+         * @return this object.
+         */
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("The port must be between 0 and 65535.");
+            }
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Specifies the distribution of the latency injected before responding.
+         * By default, the service responds immediately.
+         *
+         * @param latency a distribution.
+         * @return this object.
+         */
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = Objects.requireNonNull(latency, "latency should not be null.");
+            return this;
+        }
+
+        /**
+         * Specifies the rate of '429 Too Many Requests' responses and their 'Retry-After'.
+         *
+         * @param rate              the rate between 0 and 1.
+         * @param retryAfterSeconds the value of the 'Retry-After' header in seconds.
+         * @return this object.
+         */
+        public Builder tooManyRequests(double rate, long retryAfterSeconds) {
+            checkRate(rate);
+            if (retryAfterSeconds < 0) {
+                throw new IllegalArgumentException("The 'Retry-After' must be zero or more.");
+            }
+            this.tooManyRequestsRate = rate;
+            this.retryAfterSeconds = retryAfterSeconds;
+            return this;
+        }
+
+        /**
+         * Specifies the rate of '410 Gone' responses(expired subscriptions).
+         *
+         * @param rate the rate between 0 and 1.
+         * @return this object.
+         */
+        public Builder gone(double rate) {
+            checkRate(rate);
+            this.goneRate = rate;
+            return this;
+        }
+
+        /**
+         * Specifies the rate of server error responses and their status code.
+         *
+         * @param rate   the rate between 0 and 1.
+         * @param status the status code(500 to 599).
+         * @return this object.
+         */
+        public Builder serverError(double rate, int status) {
+            checkRate(rate);
+            if (status < 500 || status > 599) {
+                throw new IllegalArgumentException("The status must be between 500 and 599.");
+            }
+            this.serverErrorRate = rate;
+            this.serverErrorStatus = status;
+            return this;
+        }
+
+        /**
+         * Specifies whether to verify the JWT for VAPID. By default, it isn't verified.
+         * The requests with invalid JWTs are rejected with '403 Forbidden'.
+         *
+         * @param verifyVAPID whether to verify the JWT.
+         * @return this object.
+         */
+        public Builder verifyVAPID(boolean verifyVAPID) {
+            this.verifyVAPID = verifyVAPID;
+            return this;
+        }
+
+        /**
+         * Specifies whether to decrypt the bodies. By default, they aren't decrypted.
+         * The requests whose bodies cannot be decrypted are rejected with '400 Bad Request'.
+         *
+         * @param decrypt whether to decrypt the bodies.
+         * @return this object.
+         */
+        public Builder decrypt(boolean decrypt) {
+            this.decrypt = decrypt;
+            return this;
+        }
+
+        /**
+         * Specifies the listener called with each accepted message.
+         *
+         * @param listener a listener.
+         * @return this object.
+         */
+        public Builder listener(Consumer<ReceivedPushMessage> listener) {
+            this.listener = Objects.requireNonNull(listener, "listener should not be null.");
+            return this;
+        }
+
+        /**
+         * Specifies the Vert.x instance used to run the server.
+         * By default, a new instance is created and closed with the service.
+         *
+         * @param vertx a Vert.x instance.
+         * @return this object.
+         */
+        public Builder vertx(Vertx vertx) {
+            this.vertx = Objects.requireNonNull(vertx, "vertx should not be null.");
+            return this;
+        }
+
+        /**
+         * Builds a new {@link MockPushService}. Call {@link MockPushService#start()} to start it.
+         *
+         * @return a new {@link MockPushService}.
+         * @throws IllegalStateException if the sum of the failure rates exceeds 1.
+         */
+        public MockPushService build() {
+            if (this.tooManyRequestsRate + this.goneRate + this.serverErrorRate > 1) {
+                throw new IllegalStateException("The sum of the failure rates exceeds 1.");
+            }
+            return new MockPushService(this);
+        }
+
+        private static void checkRate(double rate) {
+            if (!(rate >= 0 && rate <= 1)) {
+                throw new IllegalArgumentException("The rate must be between 0 and 1.");
+            }
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.httpclient.ApacheHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.httpclient.JettyHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.httpclient.OkHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.httpclient.StandardHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.httpclient.VertxWebClientRequestPreparer;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.io.CloseMode;
+
+/**
+ * The request preparers bundled with zerodep-web-push-java
+ * and the HTTP clients used by {@link PushLoadDriver} to send the prepared requests.
+ *
+ * @author Tomoki Sato
+ */
+public enum PreparerKind {
+
+    /**
+     * {@link StandardHttpClientRequestPreparer} with
+     * {@link HttpClient#sendAsync(java.net.http.HttpRequest, HttpResponse.BodyHandler)}.
+     * HTTP/2 is negotiated with the 'Upgrade' header(h2c).
+     */
+    STANDARD {
+        @Override
+        PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                             byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            return new StandardSender(http2, vapidKeyPair, payload, cache);
+        }
+    },
+
+    /**
+     * {@link OkHttpClientRequestPreparer} with OkHttp's asynchronous calls.
+     * HTTP/2 is used with prior knowledge.
+     */
+    OKHTTP {
+        @Override
+        PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                             byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            return new OkHttpSender(http2, maxConcurrency, vapidKeyPair, payload, cache);
+        }
+    },
+
+    /**
+     * {@link ApacheHttpClientRequestPreparer} with the asynchronous client of Apache HttpClient 5.
+     * HTTP/2 is used with prior knowledge.
+     */
+    APACHE {
+        @Override
+        PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                             byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            return new ApacheSender(http2, maxConcurrency, vapidKeyPair, payload, cache);
+        }
+    },
+
+    /**
+     * {@link JettyHttpClientRequestPreparer} with Jetty's asynchronous requests.
+     * Only HTTP/1.1 is supported because the HTTP/2 transport of Jetty isn't a dependency
+     * of this module.
+     */
+    JETTY {
+        @Override
+        PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                             byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            if (http2) {
+                throw new IllegalArgumentException("HTTP/2 isn't supported for Jetty.");
+            }
+            return new JettySender(maxConcurrency, vapidKeyPair, payload, cache);
+        }
+    },
+
+    /**
+     * {@link VertxWebClientRequestPreparer} with Vert.x's WebClient.
+     * HTTP/2 is used with prior knowledge.
+     */
+    VERTX {
+        @Override
+        PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                             byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            return new VertxSender(http2, maxConcurrency, vapidKeyPair, payload, cache);
+        }
+    };
+
+    abstract PushSender newSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                                  byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache);
+
+    private static class StandardSender extends PushSender {
+
+        private final HttpClient httpClient;
+
+        StandardSender(boolean http2, VAPIDKeyPair vapidKeyPair, byte[] payload,
+                       UserAgentMessageEncryptionKeyInfoCache cache) {
+            super(vapidKeyPair, payload, cache);
+            this.httpClient = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .build();
+        }
+
+        @Override
+        CompletableFuture<Integer> send(PushSubscription pushSubscription) {
+            return this.httpClient.sendAsync(
+                prepare(StandardHttpClientRequestPreparer.getBuilder(), pushSubscription)
+                    .toRequest(),
+                HttpResponse.BodyHandlers.discarding()
+            ).thenApply(HttpResponse::statusCode);
+        }
+
+        @Override
+        public void close() {
+            // HttpClient can't be closed before Java 21.
+        }
+    }
+
+    private static class OkHttpSender extends PushSender {
+
+        private final OkHttpClient httpClient;
+
+        OkHttpSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                     byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            super(vapidKeyPair, payload, cache);
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxConcurrency);
+            dispatcher.setMaxRequestsPerHost(maxConcurrency);
+            this.httpClient = new OkHttpClient.Builder()
+                .protocols(List.of(http2 ? Protocol.H2_PRIOR_KNOWLEDGE : Protocol.HTTP_1_1))
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxConcurrency, 1, TimeUnit.MINUTES))
+                .build();
+        }
+
+        @Override
+        CompletableFuture<Integer> send(PushSubscription pushSubscription) {
+
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            this.httpClient.newCall(
+                prepare(OkHttpClientRequestPreparer.getBuilder(), pushSubscription).toRequest()
+            ).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        future.complete(response.code());
+                    }
+                }
+            });
+            return future;
+        }
+
+        @Override
+        public void close() {
+            this.httpClient.dispatcher().executorService().shutdown();
+            this.httpClient.connectionPool().evictAll();
+        }
+    }
+
+    private static class ApacheSender extends PushSender {
+
+        private final CloseableHttpAsyncClient httpClient;
+
+        ApacheSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                     byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            super(vapidKeyPair, payload, cache);
+            this.httpClient = http2
+                ? HttpAsyncClients.customHttp2().build()
+                : HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                    .setMaxConnPerRoute(maxConcurrency)
+                    .setMaxConnTotal(maxConcurrency)
+                    .build())
+                .build();
+            this.httpClient.start();
+        }
+
+        @Override
+        CompletableFuture<Integer> send(PushSubscription pushSubscription) {
+
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            this.httpClient.execute(
+                prepare(ApacheHttpClientRequestPreparer.getBuilder(), pushSubscription)
+                    .toSimpleHttpRequest(),
+                new FutureCallback<>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        future.complete(response.getCode());
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        future.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        future.cancel(false);
+                    }
+                });
+            return future;
+        }
+
+        @Override
+        public void close() {
+            this.httpClient.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    private static class JettySender extends PushSender {
+
+        private final org.eclipse.jetty.client.HttpClient httpClient;
+
+        JettySender(int maxConcurrency, VAPIDKeyPair vapidKeyPair, byte[] payload,
+                    UserAgentMessageEncryptionKeyInfoCache cache) {
+            super(vapidKeyPair, payload, cache);
+            this.httpClient = new org.eclipse.jetty.client.HttpClient();
+            this.httpClient.setMaxConnectionsPerDestination(maxConcurrency);
+            this.httpClient.setMaxRequestsQueuedPerDestination(maxConcurrency);
+            try {
+                this.httpClient.start();
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to start the Jetty client.", e);
+            }
+        }
+
+        @Override
+        CompletableFuture<Integer> send(PushSubscription pushSubscription) {
+
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            prepare(JettyHttpClientRequestPreparer.getBuilder(), pushSubscription)
+                .toRequest(this.httpClient)
+                .send(result -> {
+                    if (result.isFailed()) {
+                        future.completeExceptionally(result.getFailure());
+                    } else {
+                        future.complete(result.getResponse().getStatus());
+                    }
+                });
+            return future;
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.httpClient.stop();
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to stop the Jetty client.", e);
+            }
+        }
+    }
+
+    private static class VertxSender extends PushSender {
+
+        private final Vertx vertx;
+        private final WebClient webClient;
+
+        VertxSender(boolean http2, int maxConcurrency, VAPIDKeyPair vapidKeyPair,
+                    byte[] payload, UserAgentMessageEncryptionKeyInfoCache cache) {
+            super(vapidKeyPair, payload, cache);
+            this.vertx = Vertx.vertx();
+            this.webClient = WebClient.create(this.vertx, new WebClientOptions()
+                .setProtocolVersion(http2 ? HttpVersion.HTTP_2 : HttpVersion.HTTP_1_1)
+                .setHttp2ClearTextUpgrade(false)
+                .setMaxPoolSize(maxConcurrency)
+                .setHttp2MultiplexingLimit(maxConcurrency));
+        }
+
+        @Override
+        CompletableFuture<Integer> send(PushSubscription pushSubscription) {
+
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            prepare(VertxWebClientRequestPreparer.getBuilder(), pushSubscription)
+                .sendBuffer(this.webClient, request -> {
+                }, result -> {
+                    if (result.succeeded()) {
+                        future.complete(result.result().statusCode());
+                    } else {
+                        future.completeExceptionally(result.cause());
+                    }
+                });
+            return future;
+        }
+
+        @Override
+        public void close() {
+            this.webClient.close();
+            this.vertx.close();
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.VAPIDKeyPairs;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A load driver that sends a push message to many synthetic push subscriptions
+ * through one of the bundled request preparers and reports the throughput,
+ * the latency percentiles and the allocation rate.
+ *
+ * <p>
+ * The push subscriptions are created by a {@link MockPushService}.
+ * Each push is prepared(encrypted and signed) by one of the preparation threads
+ * and sent asynchronously, and the number of the in-flight requests is bounded.
+ * The latency of a push is measured from the start of its preparation
+ * to the arrival of its response.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * try (MockPushService pushService = MockPushService.getBuilder()
+ *     .latency(LatencyDistribution.exponential(Duration.ofMillis(20)))
+ *     .build()
+ *     .start()) {
+ *
+ *     LoadReport report = PushLoadDriver.getBuilder()
+ *         .preparer(PreparerKind.OKHTTP)
+ *         .http2(true)
+ *         .subscriptions(100_000)
+ *         .concurrency(1024)
+ *         .build()
+ *         .run(pushService);
+ * }
+ * </pre>
+ *
+ * <p>
+ * This class can also be run from the command line(see {@link #main(String[])}).
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe. However, running multiple loads concurrently
+ * makes their results meaningless.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class PushLoadDriver {
+
+    private final PreparerKind preparer;
+    private final boolean http2;
+    private final int subscriptions;
+    private final int distinctKeys;
+    private final int concurrency;
+    private final int preparationThreads;
+    private final int warmup;
+    private final byte[] payload;
+    private final VAPIDKeyPair vapidKeyPair;
+    private final boolean keyInfoCacheEnabled;
+
+    private PushLoadDriver(Builder builder) {
+        this.preparer = builder.preparer;
+        this.http2 = builder.http2;
+        this.subscriptions = builder.subscriptions;
+        this.distinctKeys = builder.distinctKeys;
+        this.concurrency = builder.concurrency;
+        this.preparationThreads = builder.preparationThreads;
+        this.warmup = builder.warmup;
+        this.payload = new byte[builder.payloadSize];
+        new SecureRandom().nextBytes(this.payload);
+        this.vapidKeyPair = builder.vapidKeyPair != null
+            ? builder.vapidKeyPair : generateVAPIDKeyPair();
+        this.keyInfoCacheEnabled = builder.keyInfoCacheEnabled;
+    }
+
+    /**
+     * Gets a new builder for {@link PushLoadDriver}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the load against the given push service.
+     *
+     * @param pushService a started push service.
+     * @return the result.
+     */
+    public LoadReport run(MockPushService pushService) {
+
+        Objects.requireNonNull(pushService, "pushService should not be null.");
+
+        List<PushSubscription> all = createSubscriptions(pushService);
+        UserAgentMessageEncryptionKeyInfoCache cache = this.keyInfoCacheEnabled
+            ? UserAgentMessageEncryptionKeyInfoCache.of(this.distinctKeys)
+            : null;
+        ExecutorService executor = Executors.newFixedThreadPool(this.preparationThreads);
+
+        try (PushSender sender = this.preparer.newSender(
+            this.http2, this.concurrency, this.vapidKeyPair, this.payload, cache)) {
+
+            if (this.warmup > 0) {
+                push(sender, executor, all.subList(0, this.warmup));
+            }
+
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Result result = push(sender, executor, all.subList(this.warmup, all.size()));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            long allocatedAfter = allocatedBytes();
+
+            Arrays.sort(result.latencyNanos);
+            return new LoadReport(this.preparer, this.http2, this.subscriptions, elapsed,
+                result.latencyNanos, result.statusCounts(), result.failures.sum(),
+                allocatedBefore >= 0 && allocatedAfter >= 0
+                    ? allocatedAfter - allocatedBefore : -1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<PushSubscription> createSubscriptions(MockPushService pushService) {
+
+        KeyPair[] keyPairs = new KeyPair[this.distinctKeys];
+        byte[][] authSecrets = new byte[this.distinctKeys][16];
+        SecureRandom random = new SecureRandom();
+        KeyPairGenerator keyPairGenerator = newKeyPairGenerator();
+        for (int i = 0; i < this.distinctKeys; i++) {
+            keyPairs[i] = keyPairGenerator.generateKeyPair();
+            random.nextBytes(authSecrets[i]);
+        }
+
+        int count = this.warmup + this.subscriptions;
+        List<PushSubscription> subscriptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int key = i % this.distinctKeys;
+            subscriptions.add(pushService.subscribe(keyPairs[key], authSecrets[key]));
+        }
+        return subscriptions;
+    }
+
+    private Result push(PushSender sender, ExecutorService executor,
+                        List<PushSubscription> subscriptions) {
+
+        Result result = new Result(subscriptions.size());
+        Semaphore inFlight = new Semaphore(this.concurrency);
+        CountDownLatch completed = new CountDownLatch(subscriptions.size());
+        AtomicInteger next = new AtomicInteger();
+
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < subscriptions.size()) {
+                inFlight.acquireUninterruptibly();
+                int current = index;
+                long start = System.nanoTime();
+                CompletableFuture<Integer> future;
+                try {
+                    future = sender.send(subscriptions.get(current));
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((status, throwable) -> {
+                    result.latencyNanos[current] = System.nanoTime() - start;
+                    if (throwable != null) {
+                        result.failures.increment();
+                    } else {
+                        result.statusCounts.computeIfAbsent(status, s -> new LongAdder())
+                            .increment();
+                    }
+                    inFlight.release();
+                    completed.countDown();
+                });
+            }
+        };
+        for (int i = 0; i < this.preparationThreads; i++) {
+            executor.execute(worker);
+        }
+
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the responses.", e);
+        }
+        return result;
+    }
+
+    /*
+     * Sums up the allocations of the live threads.
+     * The allocations of the threads that terminate during the run are missed.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported()
+            || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    private static KeyPairGenerator newKeyPairGenerator() {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+            return keyPairGenerator;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create a key pair generator.", e);
+        }
+    }
+
+    private static VAPIDKeyPair generateVAPIDKeyPair() {
+        KeyPair keyPair = newKeyPairGenerator().generateKeyPair();
+        return VAPIDKeyPairs.of(
+            PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+            PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+        );
+    }
+
+    private static class Result {
+
+        private final long[] latencyNanos;
+        private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+        private final LongAdder failures = new LongAdder();
+
+        Result(int size) {
+            this.latencyNanos = new long[size];
+        }
+
+        Map<Integer, Long> statusCounts() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            this.statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+    }
+
+    /**
+     * Runs the load with the embedded mock push service and prints the reports.
+     *
+     * <p>
+     * The arguments are given in the form of '--name=value'(e.g. '--preparer=okhttp').
+     * </p>
+     *
+     * <ul>
+     * <li>preparer: standard, okhttp, apache, jetty, vertx or all(default: all).</li>
+     * <li>http2: true or false(default: false).</li>
+     * <li>subscriptions: the number of the push subscriptions(default: 10000).</li>
+     * <li>distinct-keys: the number of the distinct key pairs(default: 100).</li>
+     * <li>concurrency: the maximum number of the in-flight requests(default: 256).</li>
+     * <li>threads: the number of the preparation threads(default: the number of the CPUs).</li>
+     * <li>payload: the size of the payload in bytes(default: 256).</li>
+     * <li>warmup: the number of the pushes before the measurement(default: 1000).</li>
+     * <li>latency-ms: the mean of the exponential latency of the mock(default: 0).</li>
+     * <li>too-many-requests, gone, server-error: the failure rates of the mock(default: 0).</li>
+     * <li>verify-vapid, decrypt: whether the mock verifies the requests(default: false).</li>
+     * </ul>
+     *
+     * @param args the arguments.
+     */
+    public static void main(String[] args) {
+
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        String preparerOption = options.getOrDefault("preparer", "all");
+        boolean http2 = Boolean.parseBoolean(options.getOrDefault("http2", "false"));
+        Set<PreparerKind> preparers = "all".equals(preparerOption)
+            ? EnumSet.allOf(PreparerKind.class)
+            : EnumSet.of(PreparerKind.valueOf(preparerOption.toUpperCase()));
+        if (http2 && "all".equals(preparerOption)) {
+            preparers.remove(PreparerKind.JETTY);
+        }
+
+        long latencyMillis = Long.parseLong(options.getOrDefault("latency-ms", "0"));
+        MockPushService.Builder serviceBuilder = MockPushService.getBuilder()
+            .latency(latencyMillis > 0
+                ? LatencyDistribution.exponential(Duration.ofMillis(latencyMillis))
+                : LatencyDistribution.none())
+            .tooManyRequests(
+                Double.parseDouble(options.getOrDefault("too-many-requests", "0")), 1)
+            .gone(Double.parseDouble(options.getOrDefault("gone", "0")))
+            .serverError(Double.parseDouble(options.getOrDefault("server-error", "0")), 503)
+            .verifyVAPID(Boolean.parseBoolean(options.getOrDefault("verify-vapid", "false")))
+            .decrypt(Boolean.parseBoolean(options.getOrDefault("decrypt", "false")));
+
+        try (MockPushService pushService = serviceBuilder.build().start()) {
+            for (PreparerKind preparer : preparers) {
+                LoadReport report = getBuilder()
+                    .preparer(preparer)
+                    .http2(http2)
+                    .subscriptions(Integer.parseInt(
+                        options.getOrDefault("subscriptions", "10000")))
+                    .distinctKeys(Integer.parseInt(
+                        options.getOrDefault("distinct-keys", "100")))
+                    .concurrency(Integer.parseInt(options.getOrDefault("concurrency", "256")))
+                    .preparationThreads(Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))))
+                    .payloadSize(Integer.parseInt(options.getOrDefault("payload", "256")))
+                    .warmup(Integer.parseInt(options.getOrDefault("warmup", "1000")))
+                    .build()
+                    .run(pushService);
+                System.out.println(report);
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link PushLoadDriver}.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * This class is not thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        // The maximum length of a payload encrypted into a 4096-byte body.
+        private static final int MAX_PAYLOAD_SIZE = 4096 - 86 - 16 - 1;
+
+        private PreparerKind preparer = PreparerKind.STANDARD;
+        private boolean http2;
+        private int subscriptions = 10_000;
+        private int distinctKeys = 100;
+        private int concurrency = 256;
+        private int preparationThreads = Runtime.getRuntime().availableProcessors();
+        private int warmup;
+        private int payloadSize = 256;
+        private VAPIDKeyPair vapidKeyPair;
+        private boolean keyInfoCacheEnabled;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the preparer. The default is {@link PreparerKind#STANDARD}.
+         *
+         * @param preparer a preparer.
+         * @return this object.
+         */
+        public Builder preparer(PreparerKind preparer) {
+            this.preparer = Objects.requireNonNull(preparer, "preparer should not be null.");
+            return this;
+        }
+
+        /**
+         * Specifies whether to send the requests over HTTP/2. The default is false.
+         *
+         * @param http2 whether to use HTTP/2.
+         * @return this object.
+         */
+        public Builder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Specifies the number of the push subscriptions(i.e. the pushes) measured.
+         *
+         * @param subscriptions a positive number.
+         * @return this object.
+         */
+        public Builder subscriptions(int subscriptions) {
+            this.subscriptions = checkPositive(subscriptions, "subscriptions");
+            return this;
+        }
+
+        /**
+         * Specifies the number of the distinct key pairs of the user agents.
+         * Generating a key pair for each of many push subscriptions takes a long time.
+         * So the key pairs are shared among the push subscriptions.
+         *
+         * @param distinctKeys a positive number.
+         * @return this object.
+         */
+        public Builder distinctKeys(int distinctKeys) {
+            this.distinctKeys = checkPositive(distinctKeys, "distinctKeys");
+            return this;
+        }
+
+        /**
+         * Specifies the maximum number of the in-flight requests.
+         *
+         * @param concurrency a positive number.
+         * @return this object.
+         */
+        public Builder concurrency(int concurrency) {
+            this.concurrency = checkPositive(concurrency, "concurrency");
+            return this;
+        }
+
+        /**
+         * Specifies the number of the threads preparing the requests.
+         *
+         * @param preparationThreads a positive number.
+         * @return this object.
+         */
+        public Builder preparationThreads(int preparationThreads) {
+            this.preparationThreads = checkPositive(preparationThreads, "preparationThreads");
+            return this;
+        }
+
+        /**
+         * Specifies the number of the pushes sent before the measurement.
+         * The default is 0.
+         *
+         * @param warmup zero or a positive number.
+         * @return this object.
+         */
+        public Builder warmup(int warmup) {
+            if (warmup < 0) {
+                throw new IllegalArgumentException("warmup should be zero or more.");
+            }
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * Specifies the size of the (random) payload. 0 means no payload.
+         * The default is 256.
+         *
+         * @param payloadSize the size in bytes.
+         * @return this object.
+         */
+        public Builder payloadSize(int payloadSize) {
+            if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE) {
+                throw new IllegalArgumentException(
+                    "payloadSize should be between 0 and " + MAX_PAYLOAD_SIZE + ".");
+            }
+            this.payloadSize = payloadSize;
+            return this;
+        }
+
+        /**
+         * Specifies the VAPID key pair. By default, a new key pair is generated.
+         *
+         * @param vapidKeyPair a VAPID key pair.
+         * @return this object.
+         */
+        public Builder vapidKeyPair(VAPIDKeyPair vapidKeyPair) {
+            this.vapidKeyPair =
+                Objects.requireNonNull(vapidKeyPair, "vapidKeyPair should not be null.");
+            return this;
+        }
+
+        /**
+         * Specifies whether to use a {@link UserAgentMessageEncryptionKeyInfoCache}
+         * sized to the number of the distinct key pairs. The default is false.
+         *
+         * @param keyInfoCacheEnabled whether to use the cache.
+         * @return this object.
+         */
+        public Builder keyInfoCacheEnabled(boolean keyInfoCacheEnabled) {
+            this.keyInfoCacheEnabled = keyInfoCacheEnabled;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link PushLoadDriver}.
+         *
+         * @return a new {@link PushLoadDriver}.
+         */
+        public PushLoadDriver build() {
+            return new PushLoadDriver(this);
+        }
+
+        private static int checkPositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " should be positive.");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfoCache;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.httpclient.PreparerBuilder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prepares a request with one of the bundled preparers and sends it
+ * asynchronously with the corresponding HTTP client.
+ *
+ * @author Tomoki Sato
+ * @see PreparerKind
+ */
+abstract class PushSender implements AutoCloseable {
+
+    private final VAPIDKeyPair vapidKeyPair;
+    private final byte[] payload;
+    // Nullable.
+    private final UserAgentMessageEncryptionKeyInfoCache keyInfoCache;
+
+    PushSender(VAPIDKeyPair vapidKeyPair, byte[] payload,
+               UserAgentMessageEncryptionKeyInfoCache keyInfoCache) {
+        this.vapidKeyPair = vapidKeyPair;
+        this.payload = payload;
+        this.keyInfoCache = keyInfoCache;
+    }
+
+    /**
+     * Prepares a request for the given push subscription and sends it.
+     * The preparation(the encryption and the JWT signing) is done by the calling thread.
+     *
+     * @param pushSubscription a push subscription.
+     * @return the future status code of the response.
+     */
+    abstract CompletableFuture<Integer> send(PushSubscription pushSubscription);
+
+    /**
+     * Releases the resources of the HTTP client.
+     */
+    @Override
+    public abstract void close();
+
+    <T> T prepare(PreparerBuilder<T> builder, PushSubscription pushSubscription) {
+        builder.pushSubscription(pushSubscription)
+            .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+            .vapidJWTSubject("mailto:load-driver@example.com")
+            .ttl(1, TimeUnit.HOURS)
+            .urgencyNormal();
+        if (this.keyInfoCache != null) {
+            builder.userAgentMessageEncryptionKeyInfoCache(this.keyInfoCache);
+        }
+        if (this.payload.length > 0) {
+            builder.pushMessage(this.payload);
+        }
+        return builder.build(this.vapidKeyPair);
+    }
+}
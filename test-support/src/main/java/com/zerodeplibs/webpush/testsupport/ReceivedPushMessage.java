@@ -0,0 +1,100 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import java.util.Optional;
+
+/**
+ * A push message accepted by {@link MockPushService}.
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is immutable. So it is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class ReceivedPushMessage {
+
+    private final String subscriptionId;
+    private final long ttl;
+    private final String urgency;
+    private final String topic;
+    private final String protocol;
+    private final int bodyLength;
+    private final byte[] plaintext;
+
+    ReceivedPushMessage(String subscriptionId, long ttl, String urgency, String topic,
+                        String protocol, int bodyLength, byte[] plaintext) {
+        this.subscriptionId = subscriptionId;
+        this.ttl = ttl;
+        this.urgency = urgency;
+        this.topic = topic;
+        this.protocol = protocol;
+        this.bodyLength = bodyLength;
+        this.plaintext = plaintext;
+    }
+
+    /**
+     * Gets the ID of the push subscription(the last segment of its endpoint).
+     *
+     * @return the ID.
+     */
+    public String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    /**
+     * Gets the value of the 'TTL' header.
+     *
+     * @return the TTL in seconds.
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Gets the value of the 'Urgency' header('normal' if it is absent).
+     *
+     * @return the urgency.
+     */
+    public String getUrgency() {
+        return urgency;
+    }
+
+    /**
+     * Gets the value of the 'Topic' header.
+     *
+     * @return the topic, or empty if the header is absent.
+     */
+    public Optional<String> getTopic() {
+        return Optional.ofNullable(topic);
+    }
+
+    /**
+     * Gets the protocol the message has been sent with('http/1.1' or 'h2').
+     *
+     * @return the protocol.
+     */
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Gets the length of the (encrypted) body.
+     *
+     * @return the length in bytes.
+     */
+    public int getBodyLength() {
+        return bodyLength;
+    }
+
+    /**
+     * Gets the decrypted body.
+     *
+     * @return a copy of the plaintext, or empty if the message has no body
+     *     or decryption is disabled.
+     */
+    public Optional<byte[]> getPlaintext() {
+        return Optional.ofNullable(plaintext).map(byte[]::clone);
+    }
+}
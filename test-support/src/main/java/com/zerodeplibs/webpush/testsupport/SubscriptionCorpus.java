@@ -0,0 +1,204 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * A memory-mapped file of synthetic push subscriptions
+ * written by {@link SubscriptionCorpusGenerator}.
+ *
+ * <p>
+ * A corpus of millions of subscriptions can be generated once and reused by later runs.
+ * The subscriptions aren't loaded into the heap. Each call of {@link #get(long)}
+ * reads a fixed-size record from the mapped file.
+ * </p>
+ *
+ * <div><b>File format:</b></div>
+ *
+ * <p>
+ * The file consists of a header and the records. The header occupies the first
+ * {@value #DATA_OFFSET} bytes: the magic number, the version, the seed, the number of the records,
+ * the record size and the endpoint prefixes(each prefixed with its length).
+ * Each record({@value #RECORD_SIZE} bytes) consists of the private key(32 bytes),
+ * the public key in uncompressed form(65 bytes), the authentication secret(16 bytes),
+ * the index of the endpoint prefix(1 byte) and the length of the token following the prefix
+ * (2 bytes). The tokens themselves are derived from the seed instead of being stored.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe. The mapping is released
+ * when the object is garbage collected.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see SubscriptionCorpusGenerator
+ */
+public class SubscriptionCorpus {
+
+    static final int MAGIC = 0x57505343;
+    static final int VERSION = 1;
+    static final int DATA_OFFSET = 4096;
+    static final int RECORD_SIZE = 128;
+
+    // A mapping can't exceed 2GB. So the records are mapped in segments of 1GB.
+    private static final int SEGMENT_SHIFT = 23;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final char[] TOKEN_ALPHABET =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private final long seed;
+    private final long size;
+    private final List<String> endpointPrefixes;
+    private final MappedByteBuffer[] segments;
+
+    private SubscriptionCorpus(long seed, long size, List<String> endpointPrefixes,
+                               MappedByteBuffer[] segments) {
+        this.seed = seed;
+        this.size = size;
+        this.endpointPrefixes = endpointPrefixes;
+        this.segments = segments;
+    }
+
+    /**
+     * Maps the given corpus file.
+     *
+     * @param path the path to the file.
+     * @return a new corpus.
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if the file isn't a corpus file.
+     */
+    public static SubscriptionCorpus open(Path path) throws IOException {
+
+        Objects.requireNonNull(path, "path should not be null.");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            if (channel.size() < DATA_OFFSET) {
+                throw new IllegalArgumentException("Not a corpus file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, DATA_OFFSET);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalArgumentException("Not a corpus file: " + path);
+            }
+            final long seed = header.getLong();
+            long size = header.getLong();
+            if (header.getInt() != RECORD_SIZE
+                || channel.size() != DATA_OFFSET + size * RECORD_SIZE) {
+                throw new IllegalArgumentException("The corpus file is broken: " + path);
+            }
+
+            int prefixCount = header.getInt();
+            List<String> prefixes = new ArrayList<>(prefixCount);
+            for (int i = 0; i < prefixCount; i++) {
+                byte[] prefix = new byte[header.getShort()];
+                header.get(prefix);
+                prefixes.add(new String(prefix, StandardCharsets.UTF_8));
+            }
+
+            int segmentCount = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long records = Math.min(size - first, 1L << SEGMENT_SHIFT);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    DATA_OFFSET + first * RECORD_SIZE, records * RECORD_SIZE);
+            }
+            return new SubscriptionCorpus(seed, size, Collections.unmodifiableList(prefixes),
+                segments);
+        }
+    }
+
+    /**
+     * Gets the number of the subscriptions.
+     *
+     * @return the number of the subscriptions.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Gets the seed the corpus has been generated with.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the prefixes of the endpoints(i.e. the push services).
+     *
+     * @return an unmodifiable list of the prefixes.
+     */
+    public List<String> getEndpointPrefixes() {
+        return endpointPrefixes;
+    }
+
+    /**
+     * Reads the subscription at the given index.
+     *
+     * @param index the index between 0(inclusive) and {@link #size()}(exclusive).
+     * @return the subscription.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public SyntheticSubscription get(long index) {
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                "The index(" + index + ") is out of range(size: " + size + ").");
+        }
+
+        // Duplicates the segment so that the position isn't shared among threads.
+        ByteBuffer record = segments[(int) (index >>> SEGMENT_SHIFT)].duplicate();
+        record.position((int) (index & SEGMENT_MASK) * RECORD_SIZE);
+
+        byte[] privateKey = new byte[32];
+        byte[] publicKey = new byte[65];
+        byte[] authSecret = new byte[16];
+        record.get(privateKey).get(publicKey).get(authSecret);
+        int prefixIndex = record.get() & 0xFF;
+        int tokenLength = record.getShort() & 0xFFFF;
+
+        String endpoint = endpointPrefixes.get(prefixIndex) + token(seed, index, tokenLength);
+        return new SyntheticSubscription(index, endpoint, privateKey, publicKey, authSecret);
+    }
+
+    /*
+     * The random values of each record are derived from the seed and the index.
+     * So the records don't depend on how the generation is split among threads.
+     */
+    static SplittableRandom recordRandom(long seed, long index) {
+        return new SplittableRandom(seed ^ mix64(index));
+    }
+
+    private static String token(long seed, long index, int length) {
+        SplittableRandom random = new SplittableRandom(mix64(seed) ^ mix64(~index));
+        char[] token = new char[length];
+        for (int i = 0; i < length; i++) {
+            token[i] = TOKEN_ALPHABET[random.nextInt(TOKEN_ALPHABET.length)];
+        }
+        return new String(token);
+    }
+
+    /*
+     * The finalizer of SplitMix64, which is a bijection.
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
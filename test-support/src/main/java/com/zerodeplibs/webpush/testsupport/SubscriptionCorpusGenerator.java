@@ -0,0 +1,396 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import static com.zerodeplibs.webpush.testsupport.SubscriptionCorpus.DATA_OFFSET;
+import static com.zerodeplibs.webpush.testsupport.SubscriptionCorpus.RECORD_SIZE;
+
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Generates a deterministic corpus of synthetic push subscriptions
+ * and writes it to a file readable by {@link SubscriptionCorpus}.
+ *
+ * <p>
+ * The same seed always produces the same file regardless of the number of the threads.
+ * Each subscription has a distinct P-256 key pair, a unique authentication secret
+ * and an endpoint of one of the configured push services.
+ * The key pairs are generated in parallel with the JCA's {@link KeyPairGenerator}.
+ * Each of them is generated from a deterministic {@link SecureRandom}
+ * seeded with the pair of the seed and the index of the subscription.
+ * </p>
+ *
+ * <div><b>Example:</b></div>
+ * <pre class="code">
+ * SubscriptionCorpusGenerator.getBuilder()
+ *     .seed(42)
+ *     .build()
+ *     .generate(10_000_000, Paths.get("subscriptions.bin"));
+ *
+ * SubscriptionCorpus corpus = SubscriptionCorpus.open(Paths.get("subscriptions.bin"));
+ * PushSubscription pushSubscription = corpus.get(12345).toPushSubscription();
+ * </pre>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ * @see SubscriptionCorpus
+ */
+public class SubscriptionCorpusGenerator {
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int PRIVATE_KEY_LENGTH = 32;
+
+    private final long seed;
+    private final int threads;
+    private final List<PushService> pushServices;
+    private final int totalWeight;
+
+    private SubscriptionCorpusGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.threads = builder.threads;
+        this.pushServices = builder.pushServices.isEmpty()
+            ? PushService.DEFAULTS : new ArrayList<>(builder.pushServices);
+        this.totalWeight = this.pushServices.stream().mapToInt(s -> s.weight).sum();
+    }
+
+    /**
+     * Gets a new builder for {@link SubscriptionCorpusGenerator}.
+     *
+     * @return a new builder.
+     */
+    public static Builder getBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Generates the given number of subscriptions and writes them to the given file.
+     * The file is overwritten if it exists.
+     *
+     * @param count the number of the subscriptions.
+     * @param path  the path to the file.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void generate(long count, Path path) throws IOException {
+
+        Objects.requireNonNull(path, "path should not be null.");
+        if (count < 0) {
+            throw new IllegalArgumentException("count should be zero or more.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.READ,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            writeFully(channel, header(count), 0);
+
+            long batches = (count + BATCH_SIZE - 1) / BATCH_SIZE;
+            ForkJoinPool pool = new ForkJoinPool(this.threads);
+            try {
+                pool.submit(() -> LongStream.range(0, batches).parallel().forEach(batch -> {
+                    long first = batch * BATCH_SIZE;
+                    int size = (int) Math.min(BATCH_SIZE, count - first);
+                    try {
+                        writeFully(channel, records(first, size),
+                            DATA_OFFSET + first * RECORD_SIZE);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while generating the corpus.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IllegalStateException("Failed to generate the corpus.", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private ByteBuffer header(long count) {
+
+        ByteBuffer header = ByteBuffer.allocate(DATA_OFFSET);
+        header.putInt(SubscriptionCorpus.MAGIC)
+            .putInt(SubscriptionCorpus.VERSION)
+            .putLong(this.seed)
+            .putLong(count)
+            .putInt(RECORD_SIZE)
+            .putInt(this.pushServices.size());
+        for (PushService pushService : this.pushServices) {
+            header.putShort((short) pushService.endpointPrefix.length)
+                .put(pushService.endpointPrefix);
+        }
+        return header.clear();
+    }
+
+    private ByteBuffer records(long first, int size) {
+
+        KeyPairGenerator keyPairGenerator = createKeyPairGenerator();
+        ByteBuffer records = ByteBuffer.allocate(size * RECORD_SIZE);
+        for (int i = 0; i < size; i++) {
+            SplittableRandom random = SubscriptionCorpus.recordRandom(this.seed, first + i);
+            KeyPair keyPair = generateKeyPair(keyPairGenerator, random);
+            int serviceIndex = choosePushService(random);
+            int baseLength = this.pushServices.get(serviceIndex).tokenLength;
+            // Varies the length of the token by up to 10%.
+            int tokenLength = baseLength - baseLength / 10 + random.nextInt(baseLength / 5 + 1);
+
+            records.position(i * RECORD_SIZE);
+            records.put(toPrivateKeyBytes((ECPrivateKey) keyPair.getPrivate()))
+                .put(PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+                    .extractBytesInUncompressedForm())
+                // The first half is a bijection of the index. So the secrets are unique.
+                .putLong(SubscriptionCorpus.mix64((first + i) ^ this.seed))
+                .putLong(random.nextLong())
+                .put((byte) serviceIndex)
+                .putShort((short) tokenLength);
+        }
+        return records.clear();
+    }
+
+    private static KeyPairGenerator createKeyPairGenerator() {
+        try {
+            return KeyPairGenerator.getInstance("EC");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create the key pair generator.", e);
+        }
+    }
+
+    private static KeyPair generateKeyPair(KeyPairGenerator keyPairGenerator,
+                                           SplittableRandom random) {
+        try {
+            // 'SHA1PRNG' is deterministic when it is seeded before its first use.
+            SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+            ByteBuffer seedBytes = ByteBuffer.allocate(Long.BYTES * 2)
+                .putLong(random.nextLong())
+                .putLong(random.nextLong());
+            secureRandom.setSeed(seedBytes.array());
+            keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"), secureRandom);
+            return keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to generate the key pair.", e);
+        }
+    }
+
+    private static byte[] toPrivateKeyBytes(ECPrivateKey privateKey) {
+        // Left-pads or drops the sign byte so that the length is fixed.
+        byte[] value = privateKey.getS().toByteArray();
+        byte[] result = new byte[PRIVATE_KEY_LENGTH];
+        int length = Math.min(value.length, PRIVATE_KEY_LENGTH);
+        System.arraycopy(value, value.length - length, result, PRIVATE_KEY_LENGTH - length,
+            length);
+        return result;
+    }
+
+    private int choosePushService(SplittableRandom random) {
+        int value = random.nextInt(this.totalWeight);
+        for (int i = 0; i < this.pushServices.size(); i++) {
+            value -= this.pushServices.get(i).weight;
+            if (value < 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unreachable.");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Generates a corpus from the command line.
+     *
+     * <p>
+     * The arguments are given in the form of '--name=value':
+     * </p>
+     *
+     * <ul>
+     * <li>output: the path to the file(required).</li>
+     * <li>count: the number of the subscriptions(default: 10000000).</li>
+     * <li>seed: the seed(default: 0).</li>
+     * <li>threads: the number of the threads(default: the number of the CPUs).</li>
+     * </ul>
+     *
+     * @param args the arguments.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (!options.containsKey("output")) {
+            throw new IllegalArgumentException("--output is required.");
+        }
+
+        long count = Long.parseLong(options.getOrDefault("count", "10000000"));
+        long start = System.nanoTime();
+        getBuilder()
+            .seed(Long.parseLong(options.getOrDefault("seed", "0")))
+            .threads(Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors()))))
+            .build()
+            .generate(count, Paths.get(options.get("output")));
+        System.out.printf("Generated %d subscriptions in %.1fs.%n", count,
+            (System.nanoTime() - start) / 1e9);
+    }
+
+    private static class PushService {
+
+        // Approximations of the endpoints issued by the major browsers.
+        private static final List<PushService> DEFAULTS = List.of(
+            new PushService("https://fcm.googleapis.com/fcm/send/", 152, 60),
+            new PushService("https://updates.push.services.mozilla.com/wpush/v2/", 250, 15),
+            new PushService("https://web.push.apple.com/", 140, 15),
+            new PushService("https://wns2-par02p.notify.windows.com/w/?token=", 260, 10)
+        );
+
+        private final byte[] endpointPrefix;
+        private final int tokenLength;
+        private final int weight;
+
+        PushService(String endpointPrefix, int tokenLength, int weight) {
+            this.endpointPrefix = endpointPrefix.getBytes(StandardCharsets.UTF_8);
+            this.tokenLength = tokenLength;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * A builder for {@link SubscriptionCorpusGenerator}.
+     *
+     * <div><b>Thread Safety:</b></div>
+     *
+     * <p>
+     * This class is not thread-safe.
+     * </p>
+     *
+     * @author Tomoki Sato
+     */
+    public static class Builder {
+
+        // The header must fit in the space before the records.
+        private static final int MAX_PREFIXES_LENGTH = DATA_OFFSET - 32;
+        private static final int MAX_PUSH_SERVICES = 256;
+        private static final int MAX_TOKEN_LENGTH = 4096;
+
+        private long seed;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private final List<PushService> pushServices = new ArrayList<>();
+        private int prefixesLength;
+
+        private Builder() {
+        }
+
+        /**
+         * Specifies the seed. The default is 0.
+         *
+         * @param seed a seed.
+         * @return this object.
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Specifies the number of the threads generating the key pairs.
+         * The default is the number of the available processors.
+         *
+         * @param threads a positive number.
+         * @return this object.
+         */
+        public Builder threads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("threads should be positive.");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Adds a push service the endpoints are spread over.
+         * If no push service is added, the endpoints are spread over
+         * FCM(60%), Mozilla(15%), Apple(15%) and WNS(10%)
+         * with the approximate lengths of their tokens.
+         *
+         * @param endpointPrefix the prefix of the endpoints
+         *                       (e.g. 'https://fcm.googleapis.com/fcm/send/').
+         * @param tokenLength    the average length of the tokens following the prefix.
+         *                       The actual lengths vary by up to 10%.
+         * @param weight         the relative frequency of the push service.
+         * @return this object.
+         */
+        public Builder pushService(String endpointPrefix, int tokenLength, int weight) {
+
+            Objects.requireNonNull(endpointPrefix, "endpointPrefix should not be null.");
+            if (tokenLength <= 0 || tokenLength > MAX_TOKEN_LENGTH) {
+                throw new IllegalArgumentException(
+                    "tokenLength should be between 1 and " + MAX_TOKEN_LENGTH + ".");
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight should be positive.");
+            }
+            if (this.pushServices.size() == MAX_PUSH_SERVICES) {
+                throw new IllegalStateException(
+                    "Up to " + MAX_PUSH_SERVICES + " push services can be added.");
+            }
+
+            PushService pushService = new PushService(endpointPrefix, tokenLength, weight);
+            int length = Short.BYTES + pushService.endpointPrefix.length;
+            if (this.prefixesLength + length > MAX_PREFIXES_LENGTH) {
+                throw new IllegalStateException("The endpoint prefixes are too long.");
+            }
+            this.prefixesLength += length;
+            this.pushServices.add(pushService);
+            return this;
+        }
+
+        /**
+         * Builds a new {@link SubscriptionCorpusGenerator}.
+         *
+         * @return a new {@link SubscriptionCorpusGenerator}.
+         */
+        public SubscriptionCorpusGenerator build() {
+            return new SubscriptionCorpusGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPrivateKeySpec;
+import java.util.Base64;
+
+/**
+ * A push subscription read from a {@link SubscriptionCorpus}
+ * together with the private key of its (synthetic) user agent.
+ *
+ * <p>
+ * The private key is kept so that the messages encrypted for this subscription
+ * can be decrypted and verified(see {@link #decrypt(byte[])}).
+ * The keys are generated from a seed. So they must never be used for real push subscriptions.
+ * </p>
+ *
+ * <div><b>Thread Safety:</b></div>
+ *
+ * <p>
+ * This class is immutable. So it is thread-safe.
+ * </p>
+ *
+ * @author Tomoki Sato
+ */
+public class SyntheticSubscription {
+
+    private static final ECParameterSpec P256_PARAMETERS = p256Parameters();
+
+    private final long index;
+    private final String endpoint;
+    private final byte[] privateKey;
+    private final byte[] publicKey;
+    private final byte[] authSecret;
+
+    SyntheticSubscription(long index, String endpoint, byte[] privateKey, byte[] publicKey,
+                          byte[] authSecret) {
+        this.index = index;
+        this.endpoint = endpoint;
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.authSecret = authSecret;
+    }
+
+    /**
+     * Gets the index of this subscription in the corpus.
+     *
+     * @return the index.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the endpoint.
+     *
+     * @return the endpoint.
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Creates a new {@link PushSubscription}
+     * whose keys are encoded like the ones obtained from browsers.
+     *
+     * @return a new push subscription.
+     */
+    public PushSubscription toPushSubscription() {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        PushSubscription.Keys keys = new PushSubscription.Keys();
+        keys.setP256dh(encoder.encodeToString(publicKey));
+        keys.setAuth(encoder.encodeToString(authSecret));
+        PushSubscription pushSubscription = new PushSubscription();
+        pushSubscription.setEndpoint(endpoint);
+        pushSubscription.setKeys(keys);
+        return pushSubscription;
+    }
+
+    /**
+     * Gets the public key of the user agent in uncompressed form.
+     *
+     * @return a copy of the public key(65 bytes).
+     */
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    /**
+     * Gets the authentication secret.
+     *
+     * @return a copy of the authentication secret(16 bytes).
+     */
+    public byte[] getAuthSecret() {
+        return authSecret.clone();
+    }
+
+    /**
+     * Gets the private key of the user agent.
+     *
+     * @return a new private key.
+     */
+    public ECPrivateKey getPrivateKey() {
+        try {
+            return (ECPrivateKey) KeyFactory.getInstance("EC").generatePrivate(
+                new ECPrivateKeySpec(new BigInteger(1, privateKey), P256_PARAMETERS));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create the private key.", e);
+        }
+    }
+
+    /**
+     * Decrypts a body encrypted for this subscription with 'aes128gcm'
+     * as the user agent does.
+     *
+     * @param body the encrypted body.
+     * @return the plaintext.
+     * @throws GeneralSecurityException if the body cannot be decrypted.
+     */
+    public byte[] decrypt(byte[] body) throws GeneralSecurityException {
+        return MessageDecryptor.decrypt(body, getPrivateKey(), publicKey, authSecret);
+    }
+
+    private static ECParameterSpec p256Parameters() {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            return parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("P-256 isn't supported.", e);
+        }
+    }
+}
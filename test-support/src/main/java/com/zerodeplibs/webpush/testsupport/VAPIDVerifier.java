@@ -0,0 +1,97 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Verifies the 'Authorization' header for VAPID
+ * (<a href="https://datatracker.ietf.org/doc/html/rfc8292">RFC 8292</a>)
+ * like a push service does.
+ *
+ * @author Tomoki Sato
+ */
+class VAPIDVerifier {
+
+    // The maximum lifetime of a JWT accepted by push services.
+    private static final long MAX_LIFETIME_SECONDS = 24 * 60 * 60;
+    private static final Pattern ALG = Pattern.compile("\"alg\"\\s*:\\s*\"ES256\"");
+    private static final Pattern AUD = Pattern.compile("\"aud\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern EXP = Pattern.compile("\"exp\"\\s*:\\s*(\\d+)");
+
+    private VAPIDVerifier() {
+    }
+
+    /**
+     * Verifies the given header value.
+     *
+     * @param authorization  the value of the 'Authorization' header.
+     * @param expectedOrigin the origin of the push resource.
+     * @return the reason why the header is invalid, or empty if it is valid.
+     */
+    static Optional<String> verify(String authorization, String expectedOrigin) {
+
+        if (authorization == null || !authorization.regionMatches(true, 0, "vapid ", 0, 6)) {
+            return Optional.of("The 'vapid' authentication scheme is required.");
+        }
+
+        String token = null;
+        String key = null;
+        for (String param : authorization.substring(6).split(",")) {
+            String trimmed = param.trim();
+            if (trimmed.startsWith("t=")) {
+                token = trimmed.substring(2);
+            } else if (trimmed.startsWith("k=")) {
+                key = trimmed.substring(2);
+            }
+        }
+        if (token == null || key == null) {
+            return Optional.of("Both 't' and 'k' are required.");
+        }
+
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return Optional.of("The JWT is malformed.");
+        }
+
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            String header = new String(decoder.decode(parts[0]), StandardCharsets.UTF_8);
+            if (!ALG.matcher(header).find()) {
+                return Optional.of("The algorithm must be ES256.");
+            }
+
+            Signature verifier = Signature.getInstance("SHA256withECDSAinP1363Format");
+            verifier.initVerify(
+                PublicKeySources.ofUncompressedBytes(decoder.decode(key)).extract());
+            verifier.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.US_ASCII));
+            if (!verifier.verify(decoder.decode(parts[2]))) {
+                return Optional.of("The signature is invalid.");
+            }
+
+            String payload = new String(decoder.decode(parts[1]), StandardCharsets.UTF_8);
+            Matcher aud = AUD.matcher(payload);
+            if (!aud.find() || !aud.group(1).equals(expectedOrigin)) {
+                return Optional.of("The 'aud' claim must be " + expectedOrigin + ".");
+            }
+            Matcher exp = EXP.matcher(payload);
+            long now = System.currentTimeMillis() / 1000;
+            if (!exp.find()) {
+                return Optional.of("The 'exp' claim is required.");
+            }
+            long expiration = Long.parseLong(exp.group(1));
+            if (expiration <= now || expiration > now + MAX_LIFETIME_SECONDS) {
+                return Optional.of("The 'exp' claim must be within 24 hours from now.");
+            }
+        } catch (GeneralSecurityException | RuntimeException e) {
+            return Optional.of("The JWT or the key is invalid: " + e.getMessage());
+        }
+
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,207 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.VAPIDKeyPair;
+import com.zerodeplibs.webpush.VAPIDKeyPairs;
+import com.zerodeplibs.webpush.httpclient.StandardHttpClientRequestPreparer;
+import com.zerodeplibs.webpush.key.PrivateKeySources;
+import com.zerodeplibs.webpush.key.PublicKeySources;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+public class MockPushServiceTests {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .build();
+
+    @Test
+    public void shouldVerifyAndDecryptPushMessages() throws Exception {
+
+        List<ReceivedPushMessage> messages = new CopyOnWriteArrayList<>();
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .verifyVAPID(true)
+            .decrypt(true)
+            .listener(messages::add)
+            .build()
+            .start()) {
+
+            PushSubscription subscription = pushService.subscribe();
+            HttpResponse<Void> response = this.httpClient.send(
+                StandardHttpClientRequestPreparer.getBuilder()
+                    .pushSubscription(subscription)
+                    .pushMessage("Hello World.")
+                    .ttl(30, TimeUnit.MINUTES)
+                    .urgencyHigh()
+                    .topic("greeting")
+                    .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+                    .vapidJWTSubject("mailto:example@example.com")
+                    .build(generateVAPIDKeyPair())
+                    .toRequest(),
+                HttpResponse.BodyHandlers.discarding());
+
+            assertThat(response.statusCode(), equalTo(201));
+            assertThat(response.headers().firstValue("Location").isPresent(), equalTo(true));
+            assertThat(messages.size(), equalTo(1));
+
+            ReceivedPushMessage message = messages.get(0);
+            assertThat(subscription.getEndpoint()
+                .endsWith("/push/" + message.getSubscriptionId()), equalTo(true));
+            assertThat(message.getTtl(), equalTo(1800L));
+            assertThat(message.getUrgency(), equalTo("high"));
+            assertThat(message.getTopic(), equalTo(Optional.of("greeting")));
+            assertThat(message.getProtocol(), equalTo("http/1.1"));
+            assertThat(new String(message.getPlaintext().orElseThrow(), StandardCharsets.UTF_8),
+                equalTo("Hello World."));
+            assertThat(pushService.getResponseCounts(), equalTo(Map.of(201, 1L)));
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidRequests() throws Exception {
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .verifyVAPID(true)
+            .build()
+            .start()) {
+
+            String endpoint = pushService.subscribe().getEndpoint();
+
+            // No TTL.
+            assertThat(post(endpoint, "Authorization", "vapid t=a.b.c, k=d"), equalTo(400));
+            assertThat(post(endpoint, "TTL", "60", "Urgency", "urgent"), equalTo(400));
+            assertThat(post(endpoint, "TTL", "60", "Topic", "a topic"), equalTo(400));
+            // No (or an invalid) JWT.
+            assertThat(post(endpoint, "TTL", "60"), equalTo(403));
+            assertThat(post(endpoint, "TTL", "60", "Authorization", "vapid t=a.b.c, k=d"),
+                equalTo(403));
+
+            // Signed for another origin.
+            PushSubscription subscription = pushService.subscribe();
+            subscription.setEndpoint(endpoint.replace("127.0.0.1", "localhost"));
+            HttpRequest request = StandardHttpClientRequestPreparer.getBuilder()
+                .pushSubscription(subscription)
+                .ttl(60, TimeUnit.SECONDS)
+                .vapidJWTExpiresAfter(15, TimeUnit.MINUTES)
+                .vapidJWTSubject("mailto:example@example.com")
+                .build(generateVAPIDKeyPair())
+                .toRequestBuilder()
+                .uri(URI.create(endpoint))
+                .build();
+            assertThat(this.httpClient.send(request, HttpResponse.BodyHandlers.discarding())
+                .statusCode(), equalTo(403));
+
+            assertThat(post(pushService.getOrigin() + "/other", "TTL", "60"), equalTo(404));
+        }
+    }
+
+    @Test
+    public void shouldInjectFailures() throws Exception {
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .tooManyRequests(1, 7)
+            .build()
+            .start()) {
+
+            HttpResponse<Void> response = this.httpClient.send(
+                HttpRequest.newBuilder(URI.create(pushService.subscribe().getEndpoint()))
+                    .header("TTL", "60")
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(),
+                HttpResponse.BodyHandlers.discarding());
+            assertThat(response.statusCode(), equalTo(429));
+            assertThat(response.headers().firstValue("Retry-After"), equalTo(Optional.of("7")));
+        }
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .gone(1)
+            .build()
+            .start()) {
+            assertThat(post(pushService.subscribe().getEndpoint(), "TTL", "60"), equalTo(410));
+        }
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .serverError(1, 502)
+            .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+            .build()
+            .start()) {
+            assertThat(post(pushService.subscribe().getEndpoint(), "TTL", "60"), equalTo(502));
+        }
+
+        assertThrows(IllegalStateException.class,
+            () -> MockPushService.getBuilder().gone(0.6).serverError(0.6, 503).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> MockPushService.getBuilder().tooManyRequests(1.1, 1));
+    }
+
+    @Test
+    public void shouldAcceptHttp2WithPriorKnowledge() throws Exception {
+
+        List<ReceivedPushMessage> messages = new CopyOnWriteArrayList<>();
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .listener(messages::add)
+            .build()
+            .start()) {
+
+            OkHttpClient client = new OkHttpClient.Builder()
+                .protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE))
+                .build();
+            okhttp3.Request request = new okhttp3.Request.Builder()
+                .url(pushService.subscribe().getEndpoint())
+                .header("TTL", "60")
+                .post(okhttp3.RequestBody.create(new byte[0]))
+                .build();
+
+            try (Response response = client.newCall(request).execute()) {
+                assertThat(response.code(), equalTo(201));
+                assertThat(response.protocol(), equalTo(Protocol.H2_PRIOR_KNOWLEDGE));
+            }
+            assertThat(messages.get(0).getProtocol(), equalTo("h2"));
+
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    private int post(String endpoint, String... headers) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint))
+            .POST(HttpRequest.BodyPublishers.noBody());
+        for (int i = 0; i < headers.length; i += 2) {
+            builder.header(headers[i], headers[i + 1]);
+        }
+        return this.httpClient.send(builder.build(), HttpResponse.BodyHandlers.discarding())
+            .statusCode();
+    }
+
+    static VAPIDKeyPair generateVAPIDKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        return VAPIDKeyPairs.of(
+            PrivateKeySources.ofECPrivateKey((ECPrivateKey) keyPair.getPrivate()),
+            PublicKeySources.ofECPublicKey((ECPublicKey) keyPair.getPublic())
+        );
+    }
+}
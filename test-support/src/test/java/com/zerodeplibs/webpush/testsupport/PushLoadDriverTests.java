@@ -0,0 +1,92 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class PushLoadDriverTests {
+
+    @Test
+    public void shouldPushThroughEachPreparer() {
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .verifyVAPID(true)
+            .decrypt(true)
+            .latency(LatencyDistribution.uniform(Duration.ofMillis(1), Duration.ofMillis(5)))
+            .build()
+            .start()) {
+
+            for (PreparerKind preparer : PreparerKind.values()) {
+                for (boolean http2 : new boolean[] {false, true}) {
+                    if (preparer == PreparerKind.JETTY && http2) {
+                        continue;
+                    }
+                    LoadReport report = PushLoadDriver.getBuilder()
+                        .preparer(preparer)
+                        .http2(http2)
+                        .subscriptions(40)
+                        .distinctKeys(4)
+                        .concurrency(8)
+                        .preparationThreads(2)
+                        .warmup(4)
+                        .keyInfoCacheEnabled(http2)
+                        .build()
+                        .run(pushService);
+
+                    String message = report.toString();
+                    assertThat(message, report.getStatusCounts(), equalTo(Map.of(201, 40L)));
+                    assertThat(message, report.getFailures(), equalTo(0L));
+                    assertThat(message, report.getLatencyPercentile(50)
+                        .compareTo(Duration.ofMillis(1)) >= 0, equalTo(true));
+                    assertThat(message, report.getLatencyPercentile(99.9)
+                        .compareTo(report.getLatencyPercentile(50)) >= 0, equalTo(true));
+                    assertThat(message, report.getThroughput() > 0, equalTo(true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldReportInjectedFailures() {
+
+        try (MockPushService pushService = MockPushService.getBuilder()
+            .gone(1)
+            .build()
+            .start()) {
+
+            LoadReport report = PushLoadDriver.getBuilder()
+                .preparer(PreparerKind.OKHTTP)
+                .subscriptions(20)
+                .distinctKeys(2)
+                .payloadSize(0)
+                .build()
+                .run(pushService);
+
+            assertThat(report.getStatusCounts(), equalTo(Map.of(410, 20L)));
+            assertThat(pushService.getResponseCounts(), equalTo(Map.of(410, 20L)));
+        }
+    }
+
+    @Test
+    public void shouldRejectUnsupportedSettings() {
+
+        assertThrows(IllegalArgumentException.class,
+            () -> PushLoadDriver.getBuilder().payloadSize(4096));
+        assertThrows(IllegalArgumentException.class,
+            () -> PushLoadDriver.getBuilder().concurrency(0));
+
+        try (MockPushService pushService = MockPushService.getBuilder().build().start()) {
+            PushLoadDriver driver = PushLoadDriver.getBuilder()
+                .preparer(PreparerKind.JETTY)
+                .http2(true)
+                .subscriptions(1)
+                .distinctKeys(1)
+                .build();
+            assertThrows(IllegalArgumentException.class, () -> driver.run(pushService));
+        }
+    }
+}
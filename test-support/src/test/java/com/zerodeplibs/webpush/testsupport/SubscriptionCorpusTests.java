@@ -0,0 +1,130 @@
+package com.zerodeplibs.webpush.testsupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.zerodeplibs.webpush.EncryptedPushMessage;
+import com.zerodeplibs.webpush.MessageEncryptions;
+import com.zerodeplibs.webpush.PushMessage;
+import com.zerodeplibs.webpush.PushSubscription;
+import com.zerodeplibs.webpush.UserAgentMessageEncryptionKeyInfo;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SubscriptionCorpusTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldGenerateTheSameCorpusFromTheSameSeed() throws Exception {
+
+        Path singleThread = tempDir.resolve("single.bin");
+        Path multiThread = tempDir.resolve("multi.bin");
+        Path anotherSeed = tempDir.resolve("another.bin");
+
+        SubscriptionCorpusGenerator.getBuilder().seed(42).threads(1).build()
+            .generate(3000, singleThread);
+        SubscriptionCorpusGenerator.getBuilder().seed(42).threads(4).build()
+            .generate(3000, multiThread);
+        SubscriptionCorpusGenerator.getBuilder().seed(43).threads(4).build()
+            .generate(3000, anotherSeed);
+
+        assertThat(Arrays.equals(Files.readAllBytes(singleThread),
+            Files.readAllBytes(multiThread)), equalTo(true));
+        assertThat(SubscriptionCorpus.open(singleThread).get(2999).getEndpoint(),
+            equalTo(SubscriptionCorpus.open(multiThread).get(2999).getEndpoint()));
+        assertThat(SubscriptionCorpus.open(singleThread).get(0).getEndpoint()
+            .equals(SubscriptionCorpus.open(anotherSeed).get(0).getEndpoint()), equalTo(false));
+    }
+
+    @Test
+    public void shouldGenerateDistinctAndValidSubscriptions() throws Exception {
+
+        Path path = tempDir.resolve("corpus.bin");
+        SubscriptionCorpusGenerator.getBuilder().seed(7).build().generate(2000, path);
+        SubscriptionCorpus corpus = SubscriptionCorpus.open(path);
+
+        assertThat(corpus.size(), equalTo(2000L));
+        assertThat(corpus.getSeed(), equalTo(7L));
+        assertThat(corpus.getEndpointPrefixes().size(), equalTo(4));
+
+        Set<String> endpoints = new HashSet<>();
+        Set<String> publicKeys = new HashSet<>();
+        Set<String> authSecrets = new HashSet<>();
+        Set<String> prefixes = new HashSet<>();
+        for (long i = 0; i < corpus.size(); i++) {
+            SyntheticSubscription subscription = corpus.get(i);
+            PushSubscription pushSubscription = subscription.toPushSubscription();
+            endpoints.add(pushSubscription.getEndpoint());
+            publicKeys.add(pushSubscription.getKeys().getP256dh());
+            authSecrets.add(pushSubscription.getKeys().getAuth());
+            corpus.getEndpointPrefixes().stream()
+                .filter(prefix -> subscription.getEndpoint().startsWith(prefix))
+                .forEach(prefixes::add);
+            // Parses and validates the public key like the preparers do.
+            UserAgentMessageEncryptionKeyInfo.of(pushSubscription.getKeys().getP256dh(),
+                pushSubscription.getKeys().getAuth());
+        }
+        assertThat(endpoints.size(), equalTo(2000));
+        assertThat(publicKeys.size(), equalTo(2000));
+        assertThat(authSecrets.size(), equalTo(2000));
+        assertThat(prefixes, equalTo(new HashSet<>(corpus.getEndpointPrefixes())));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> corpus.get(2000));
+        assertThrows(IndexOutOfBoundsException.class, () -> corpus.get(-1));
+    }
+
+    @Test
+    public void shouldKeepPrivateKeysForDecryption() throws Exception {
+
+        Path path = tempDir.resolve("corpus.bin");
+        SubscriptionCorpusGenerator.getBuilder()
+            .seed(1)
+            .pushService("https://push.example.com/", 20, 1)
+            .build()
+            .generate(10, path);
+        SubscriptionCorpus corpus = SubscriptionCorpus.open(path);
+
+        assertThat(corpus.getEndpointPrefixes(), equalTo(List.of("https://push.example.com/")));
+        for (long i = 0; i < corpus.size(); i++) {
+            SyntheticSubscription subscription = corpus.get(i);
+            // The lengths of the tokens vary by up to 10%.
+            int tokenLength = subscription.getEndpoint().length()
+                - "https://push.example.com/".length();
+            assertThat(tokenLength >= 18 && tokenLength <= 22, equalTo(true));
+
+            // Decryption succeeds only if the private key corresponds to the public key.
+            PushSubscription pushSubscription = subscription.toPushSubscription();
+            EncryptedPushMessage encrypted = MessageEncryptions.of().encrypt(
+                UserAgentMessageEncryptionKeyInfo.of(pushSubscription.getKeys().getP256dh(),
+                    pushSubscription.getKeys().getAuth()),
+                PushMessage.ofUTF8("message " + i));
+            assertThat(new String(subscription.decrypt(encrypted.toBytes()),
+                StandardCharsets.UTF_8), equalTo("message " + i));
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidFiles() throws Exception {
+
+        Path path = tempDir.resolve("invalid.bin");
+        Files.write(path, new byte[SubscriptionCorpus.DATA_OFFSET]);
+        assertThrows(IllegalArgumentException.class, () -> SubscriptionCorpus.open(path));
+
+        Path empty = tempDir.resolve("empty.bin");
+        SubscriptionCorpusGenerator.getBuilder().build().generate(0, empty);
+        assertThat(SubscriptionCorpus.open(empty).size(), equalTo(0L));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> SubscriptionCorpusGenerator.getBuilder().pushService("https://a/", 0, 1));
+    }
+}